@@ -0,0 +1,9 @@
+LOCAL_PATH := $(call my-dir)
+
+include $(CLEAR_VARS)
+
+LOCAL_MODULE    := bitsealpow
+LOCAL_SRC_FILES := pow.c
+LOCAL_CFLAGS    := -O3 -Wall
+
+include $(BUILD_SHARED_LIBRARY)
@@ -0,0 +1,173 @@
+/*
+ * Native POW nonce search for Bitseal.
+ *
+ * Each POW trial calculates SHA-512(SHA-512(nonce || initialHash)) and reads the
+ * first 8 bytes of the result as a big endian signed 64 bit integer. A nonce is
+ * valid if that value is between 0 and the target (inclusive).
+ *
+ * This is the native counterpart of org.bitseal.pow.POWHasher. Both inputs fit
+ * into a single SHA-512 block, so the padded blocks are built once per call and
+ * only the nonce word is rewritten for each trial.
+ *
+ * See: http://csrc.nist.gov/publications/fips/fips180-4/fips-180-4.pdf
+ *
+ * @author Jonathan Coe
+ */
+
+#include <jni.h>
+#include <stdint.h>
+
+static const uint64_t K[80] = {
+	0x428a2f98d728ae22ULL, 0x7137449123ef65cdULL, 0xb5c0fbcfec4d3b2fULL, 0xe9b5dba58189dbbcULL,
+	0x3956c25bf348b538ULL, 0x59f111f1b605d019ULL, 0x923f82a4af194f9bULL, 0xab1c5ed5da6d8118ULL,
+	0xd807aa98a3030242ULL, 0x12835b0145706fbeULL, 0x243185be4ee4b28cULL, 0x550c7dc3d5ffb4e2ULL,
+	0x72be5d74f27b896fULL, 0x80deb1fe3b1696b1ULL, 0x9bdc06a725c71235ULL, 0xc19bf174cf692694ULL,
+	0xe49b69c19ef14ad2ULL, 0xefbe4786384f25e3ULL, 0x0fc19dc68b8cd5b5ULL, 0x240ca1cc77ac9c65ULL,
+	0x2de92c6f592b0275ULL, 0x4a7484aa6ea6e483ULL, 0x5cb0a9dcbd41fbd4ULL, 0x76f988da831153b5ULL,
+	0x983e5152ee66dfabULL, 0xa831c66d2db43210ULL, 0xb00327c898fb213fULL, 0xbf597fc7beef0ee4ULL,
+	0xc6e00bf33da88fc2ULL, 0xd5a79147930aa725ULL, 0x06ca6351e003826fULL, 0x142929670a0e6e70ULL,
+	0x27b70a8546d22ffcULL, 0x2e1b21385c26c926ULL, 0x4d2c6dfc5ac42aedULL, 0x53380d139d95b3dfULL,
+	0x650a73548baf63deULL, 0x766a0abb3c77b2a8ULL, 0x81c2c92e47edaee6ULL, 0x92722c851482353bULL,
+	0xa2bfe8a14cf10364ULL, 0xa81a664bbc423001ULL, 0xc24b8b70d0f89791ULL, 0xc76c51a30654be30ULL,
+	0xd192e819d6ef5218ULL, 0xd69906245565a910ULL, 0xf40e35855771202aULL, 0x106aa07032bbd1b8ULL,
+	0x19a4c116b8d2d0c8ULL, 0x1e376c085141ab53ULL, 0x2748774cdf8eeb99ULL, 0x34b0bcb5e19b48a8ULL,
+	0x391c0cb3c5c95a63ULL, 0x4ed8aa4ae3418acbULL, 0x5b9cca4f7763e373ULL, 0x682e6ff3d6b2b8a3ULL,
+	0x748f82ee5defb2fcULL, 0x78a5636f43172f60ULL, 0x84c87814a1f0ab72ULL, 0x8cc702081a6439ecULL,
+	0x90befffa23631e28ULL, 0xa4506cebde82bde9ULL, 0xbef9a3f7b2c67915ULL, 0xc67178f2e372532bULL,
+	0xca273eceea26619cULL, 0xd186b8c721c0c207ULL, 0xeada7dd6cde0eb1eULL, 0xf57d4f7fee6ed178ULL,
+	0x06f067aa72176fbaULL, 0x0a637dc5a2c898a6ULL, 0x113f9804bef90daeULL, 0x1b710b35131c471bULL,
+	0x28db77f523047d84ULL, 0x32caab7b40c72493ULL, 0x3c9ebe0a15c9bebcULL, 0x431d67c49c100d4cULL,
+	0x4cc5d4becb3e42b6ULL, 0x597f299cfc657e2aULL, 0x5fcb6fab3ad6faecULL, 0x6c44198c4a475817ULL};
+
+static const uint64_t IV[8] = {
+	0x6a09e667f3bcc908ULL, 0xbb67ae8584caa73bULL, 0x3c6ef372fe94f82bULL, 0xa54ff53a5f1d36f1ULL,
+	0x510e527fade682d1ULL, 0x9b05688c2b3e6c1fULL, 0x1f83d9abfb41bd6bULL, 0x5be0cd19137e2179ULL};
+
+#define PADDING_WORD 0x8000000000000000ULL
+#define FIRST_MESSAGE_BIT_LENGTH ((8 + 64) * 8)
+#define SECOND_MESSAGE_BIT_LENGTH (64 * 8)
+
+#define ROTR(x, n) (((x) >> (n)) | ((x) << (64 - (n))))
+#define CH(x, y, z) (((x) & (y)) ^ (~(x) & (z)))
+#define MAJ(x, y, z) (((x) & (y)) ^ ((x) & (z)) ^ ((y) & (z)))
+#define SUM0(x) (ROTR(x, 28) ^ ROTR(x, 34) ^ ROTR(x, 39))
+#define SUM1(x) (ROTR(x, 14) ^ ROTR(x, 18) ^ ROTR(x, 41))
+#define SIGMA0(x) (ROTR(x, 1) ^ ROTR(x, 8) ^ ((x) >> 7))
+#define SIGMA1(x) (ROTR(x, 19) ^ ROTR(x, 61) ^ ((x) >> 6))
+
+#define ROUND(a, b, c, d, e, f, g, h, t) \
+	h += SUM1(e) + CH(e, f, g) + K[t] + w[t]; \
+	d += h; \
+	h += SUM0(a) + MAJ(a, b, c);
+
+/*
+ * Runs the SHA-512 compression function over a single padded message block, starting
+ * from the SHA-512 initial hash value. The first 16 words of w must hold the message
+ * block. The remaining words are overwritten with the expanded message schedule.
+ */
+static void compress(uint64_t w[80], uint64_t out[8])
+{
+	int t;
+	uint64_t a, b, c, d, e, f, g, h;
+
+	for (t = 16; t < 80; t++)
+	{
+		w[t] = SIGMA1(w[t - 2]) + w[t - 7] + SIGMA0(w[t - 15]) + w[t - 16];
+	}
+
+	a = IV[0];
+	b = IV[1];
+	c = IV[2];
+	d = IV[3];
+	e = IV[4];
+	f = IV[5];
+	g = IV[6];
+	h = IV[7];
+
+	for (t = 0; t < 80; t += 8)
+	{
+		ROUND(a, b, c, d, e, f, g, h, t);
+		ROUND(h, a, b, c, d, e, f, g, t + 1);
+		ROUND(g, h, a, b, c, d, e, f, t + 2);
+		ROUND(f, g, h, a, b, c, d, e, t + 3);
+		ROUND(e, f, g, h, a, b, c, d, t + 4);
+		ROUND(d, e, f, g, h, a, b, c, t + 5);
+		ROUND(c, d, e, f, g, h, a, b, t + 6);
+		ROUND(b, c, d, e, f, g, h, a, t + 7);
+	}
+
+	out[0] = IV[0] + a;
+	out[1] = IV[1] + b;
+	out[2] = IV[2] + c;
+	out[3] = IV[3] + d;
+	out[4] = IV[4] + e;
+	out[5] = IV[5] + f;
+	out[6] = IV[6] + g;
+	out[7] = IV[7] + h;
+}
+
+/*
+ * Checks the nonces startNonce, startNonce + increment, startNonce + 2 * increment, and so on,
+ * until a nonce is found whose trial value meets the target or the given number of trials has
+ * been done. Returns the index of the valid nonce, or -1 if none of the nonces checked was valid.
+ *
+ * Called from org.bitseal.pow.NativePOWBackend.nativeSearch()
+ */
+JNIEXPORT jint JNICALL Java_org_bitseal_pow_NativePOWBackend_nativeSearch(JNIEnv *env, jclass clazz,
+		jbyteArray initialHash, jlong startNonce, jlong increment, jint trials, jlong target)
+{
+	uint64_t first[80] = {0};
+	uint64_t second[80] = {0};
+	uint64_t state[8];
+	jbyte hashBytes[64];
+	uint64_t nonce = (uint64_t) startNonce;
+	jint i;
+	int j;
+	int k;
+
+	(*env)->GetByteArrayRegion(env, initialHash, 0, 64, hashBytes);
+	if ((*env)->ExceptionCheck(env))
+	{
+		return -1;
+	}
+
+	/* Word 0 of the first block is the nonce, which is written for each trial. Words 1 to 8 hold the initial hash. */
+	for (j = 0; j < 8; j++)
+	{
+		uint64_t word = 0;
+		for (k = 0; k < 8; k++)
+		{
+			word = (word << 8) | (uint8_t) hashBytes[j * 8 + k];
+		}
+		first[j + 1] = word;
+	}
+	first[9] = PADDING_WORD;
+	first[15] = FIRST_MESSAGE_BIT_LENGTH;
+
+	/* Words 0 to 7 of the second block are the result of the first hash, which is written for each trial */
+	second[8] = PADDING_WORD;
+	second[15] = SECOND_MESSAGE_BIT_LENGTH;
+
+	for (i = 0; i < trials; i++)
+	{
+		int64_t result;
+
+		first[0] = nonce;
+		compress(first, state);
+
+		for (j = 0; j < 8; j++)
+		{
+			second[j] = state[j];
+		}
+		compress(second, state);
+
+		result = (int64_t) state[0];
+		if (result <= target && result >= 0)
+		{
+			return i;
+		}
+		nonce += (uint64_t) increment;
+	}
+
+	return -1;
+}
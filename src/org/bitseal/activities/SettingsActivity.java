@@ -7,6 +7,9 @@ import java.util.Timer;
 import java.util.TimerTask;
 
 import org.bitseal.R;
+import org.bitseal.pow.POWPlacementEngine;
+import org.bitseal.pow.POWPolicy;
+import org.bitseal.pow.TimeToLiveOptimizer;
 import org.bitseal.services.AppLockHandler;
 import org.bitseal.util.TimeUtils;
 
@@ -23,6 +26,7 @@ import android.view.MenuItem;
 import android.view.View;
 import android.widget.Button;
 import android.widget.CheckBox;
+import android.widget.RadioGroup;
 import android.widget.TextView;
 
 /**
@@ -38,6 +42,15 @@ public class SettingsActivity extends Activity implements ICacheWordSubscriber
     private Button mSystemToolsButton;
     
     private TextView mTimeBehindNetworkTextView;
+    private TextView mPOWPolicyLabelTextView;
+    private TextView mPOWOutsourcingLabelTextView;
+    private TextView mDeliveryTargetLabelTextView;
+    private TextView mFirstAttemptPOWBudgetLabelTextView;
+    
+    private RadioGroup mPOWPolicyRadioGroup;
+    private RadioGroup mPOWOutsourcingRadioGroup;
+    private RadioGroup mDeliveryTargetRadioGroup;
+    private RadioGroup mFirstAttemptPOWBudgetRadioGroup;
     
     private CheckBox mShowSettingsCheckbox;
     
@@ -45,6 +58,22 @@ public class SettingsActivity extends Activity implements ICacheWordSubscriber
     
     private static final long UPDATE_FREQUENCY_MILLISECONDS = 1000;
     
+    /** The POW outsourcing thresholds (in seconds) that can be selected */
+    private static final long POW_OUTSOURCING_THRESHOLD_ONE_MINUTE = 60;
+    private static final long POW_OUTSOURCING_THRESHOLD_TEN_MINUTES = 600;
+    private static final long POW_OUTSOURCING_THRESHOLD_ONE_HOUR = 3600;
+    
+    /** The msg delivery targets (in seconds) that can be selected */
+    private static final long DELIVERY_TARGET_ONE_DAY = 90000; // 25 hours, allowing for clock differences
+    private static final long DELIVERY_TARGET_FOUR_DAYS = 345600;
+    private static final long DELIVERY_TARGET_ONE_WEEK = 604800;
+    private static final long DELIVERY_TARGET_FOUR_WEEKS = 2419200;
+    
+    /** The first attempt POW budgets (in seconds) that can be selected */
+    private static final long FIRST_ATTEMPT_POW_BUDGET_THIRTY_SECONDS = 30;
+    private static final long FIRST_ATTEMPT_POW_BUDGET_TWO_MINUTES = 120;
+    private static final long FIRST_ATTEMPT_POW_BUDGET_TEN_MINUTES = 600;
+    
     /** The key for a boolean variable that records whether or not a user-defined database encryption passphrase has been saved */
     private static final String KEY_DATABASE_PASSPHRASE_SAVED = "databasePassphraseSaved"; 
     
@@ -165,6 +194,173 @@ public class SettingsActivity extends Activity implements ICacheWordSubscriber
 			}
 		});
 		
+		mPOWPolicyLabelTextView = (TextView) findViewById(R.id.settings_pow_policy_label_textview);
+		mPOWPolicyRadioGroup = (RadioGroup) findViewById(R.id.settings_pow_policy_radiogroup);
+		switch (POWPolicy.getSelectedPolicy())
+		{
+			case FAST:
+				mPOWPolicyRadioGroup.check(R.id.settings_pow_policy_fast_radiobutton);
+				break;
+			case BATTERY_SAVER:
+				mPOWPolicyRadioGroup.check(R.id.settings_pow_policy_battery_saver_radiobutton);
+				break;
+			default:
+				mPOWPolicyRadioGroup.check(R.id.settings_pow_policy_balanced_radiobutton);
+				break;
+		}
+		mPOWPolicyRadioGroup.setOnCheckedChangeListener(new RadioGroup.OnCheckedChangeListener()
+		{
+			@Override
+			public void onCheckedChanged(RadioGroup group, int checkedId)
+			{
+				POWPolicy policy;
+				if (checkedId == R.id.settings_pow_policy_fast_radiobutton)
+				{
+					policy = POWPolicy.FAST;
+				}
+				else if (checkedId == R.id.settings_pow_policy_battery_saver_radiobutton)
+				{
+					policy = POWPolicy.BATTERY_SAVER;
+				}
+				else
+				{
+					policy = POWPolicy.BALANCED;
+				}
+				POWPolicy.setSelectedPolicy(policy);
+				Log.i(TAG, "POW policy set to " + policy);
+			}
+		});
+		
+		mPOWOutsourcingLabelTextView = (TextView) findViewById(R.id.settings_pow_outsourcing_label_textview);
+		mPOWOutsourcingRadioGroup = (RadioGroup) findViewById(R.id.settings_pow_outsourcing_radiogroup);
+		long outsourcingThreshold = POWPlacementEngine.getOutsourcingThreshold();
+		if (outsourcingThreshold <= 0)
+		{
+			mPOWOutsourcingRadioGroup.check(R.id.settings_pow_outsourcing_never_radiobutton);
+		}
+		else if (outsourcingThreshold <= POW_OUTSOURCING_THRESHOLD_ONE_MINUTE)
+		{
+			mPOWOutsourcingRadioGroup.check(R.id.settings_pow_outsourcing_one_minute_radiobutton);
+		}
+		else if (outsourcingThreshold <= POW_OUTSOURCING_THRESHOLD_TEN_MINUTES)
+		{
+			mPOWOutsourcingRadioGroup.check(R.id.settings_pow_outsourcing_ten_minutes_radiobutton);
+		}
+		else
+		{
+			mPOWOutsourcingRadioGroup.check(R.id.settings_pow_outsourcing_one_hour_radiobutton);
+		}
+		mPOWOutsourcingRadioGroup.setOnCheckedChangeListener(new RadioGroup.OnCheckedChangeListener()
+		{
+			@Override
+			public void onCheckedChanged(RadioGroup group, int checkedId)
+			{
+				long threshold;
+				if (checkedId == R.id.settings_pow_outsourcing_one_minute_radiobutton)
+				{
+					threshold = POW_OUTSOURCING_THRESHOLD_ONE_MINUTE;
+				}
+				else if (checkedId == R.id.settings_pow_outsourcing_ten_minutes_radiobutton)
+				{
+					threshold = POW_OUTSOURCING_THRESHOLD_TEN_MINUTES;
+				}
+				else if (checkedId == R.id.settings_pow_outsourcing_one_hour_radiobutton)
+				{
+					threshold = POW_OUTSOURCING_THRESHOLD_ONE_HOUR;
+				}
+				else
+				{
+					threshold = 0; // Never outsource
+				}
+				POWPlacementEngine.setOutsourcingThreshold(threshold);
+				Log.i(TAG, "POW outsourcing threshold set to " + threshold + " seconds");
+			}
+		});
+		
+		mDeliveryTargetLabelTextView = (TextView) findViewById(R.id.settings_delivery_target_label_textview);
+		mDeliveryTargetRadioGroup = (RadioGroup) findViewById(R.id.settings_delivery_target_radiogroup);
+		long deliveryTarget = TimeToLiveOptimizer.getDeliveryTarget();
+		if (deliveryTarget <= DELIVERY_TARGET_ONE_DAY)
+		{
+			mDeliveryTargetRadioGroup.check(R.id.settings_delivery_target_one_day_radiobutton);
+		}
+		else if (deliveryTarget <= DELIVERY_TARGET_FOUR_DAYS)
+		{
+			mDeliveryTargetRadioGroup.check(R.id.settings_delivery_target_four_days_radiobutton);
+		}
+		else if (deliveryTarget <= DELIVERY_TARGET_ONE_WEEK)
+		{
+			mDeliveryTargetRadioGroup.check(R.id.settings_delivery_target_one_week_radiobutton);
+		}
+		else
+		{
+			mDeliveryTargetRadioGroup.check(R.id.settings_delivery_target_four_weeks_radiobutton);
+		}
+		mDeliveryTargetRadioGroup.setOnCheckedChangeListener(new RadioGroup.OnCheckedChangeListener()
+		{
+			@Override
+			public void onCheckedChanged(RadioGroup group, int checkedId)
+			{
+				long target;
+				if (checkedId == R.id.settings_delivery_target_four_days_radiobutton)
+				{
+					target = DELIVERY_TARGET_FOUR_DAYS;
+				}
+				else if (checkedId == R.id.settings_delivery_target_one_week_radiobutton)
+				{
+					target = DELIVERY_TARGET_ONE_WEEK;
+				}
+				else if (checkedId == R.id.settings_delivery_target_four_weeks_radiobutton)
+				{
+					target = DELIVERY_TARGET_FOUR_WEEKS;
+				}
+				else
+				{
+					target = DELIVERY_TARGET_ONE_DAY;
+				}
+				TimeToLiveOptimizer.setDeliveryTarget(target);
+				Log.i(TAG, "Msg delivery target set to " + target + " seconds");
+			}
+		});
+		
+		mFirstAttemptPOWBudgetLabelTextView = (TextView) findViewById(R.id.settings_first_attempt_pow_budget_label_textview);
+		mFirstAttemptPOWBudgetRadioGroup = (RadioGroup) findViewById(R.id.settings_first_attempt_pow_budget_radiogroup);
+		long firstAttemptPOWBudget = TimeToLiveOptimizer.getFirstAttemptPOWBudget();
+		if (firstAttemptPOWBudget <= FIRST_ATTEMPT_POW_BUDGET_THIRTY_SECONDS)
+		{
+			mFirstAttemptPOWBudgetRadioGroup.check(R.id.settings_first_attempt_pow_budget_thirty_seconds_radiobutton);
+		}
+		else if (firstAttemptPOWBudget <= FIRST_ATTEMPT_POW_BUDGET_TWO_MINUTES)
+		{
+			mFirstAttemptPOWBudgetRadioGroup.check(R.id.settings_first_attempt_pow_budget_two_minutes_radiobutton);
+		}
+		else
+		{
+			mFirstAttemptPOWBudgetRadioGroup.check(R.id.settings_first_attempt_pow_budget_ten_minutes_radiobutton);
+		}
+		mFirstAttemptPOWBudgetRadioGroup.setOnCheckedChangeListener(new RadioGroup.OnCheckedChangeListener()
+		{
+			@Override
+			public void onCheckedChanged(RadioGroup group, int checkedId)
+			{
+				long budget;
+				if (checkedId == R.id.settings_first_attempt_pow_budget_thirty_seconds_radiobutton)
+				{
+					budget = FIRST_ATTEMPT_POW_BUDGET_THIRTY_SECONDS;
+				}
+				else if (checkedId == R.id.settings_first_attempt_pow_budget_ten_minutes_radiobutton)
+				{
+					budget = FIRST_ATTEMPT_POW_BUDGET_TEN_MINUTES;
+				}
+				else
+				{
+					budget = FIRST_ATTEMPT_POW_BUDGET_TWO_MINUTES;
+				}
+				TimeToLiveOptimizer.setFirstAttemptPOWBudget(budget);
+				Log.i(TAG, "First attempt POW budget set to " + budget + " seconds");
+			}
+		});
+		
 		// Read the Shared Preferences to determine whether or not the settings should be visible
 		boolean showSettings = prefs.getBoolean(KEY_SHOW_SETTINGS, false);
 		Log.i(TAG, "Show settings is set to " + showSettings);
@@ -188,6 +384,14 @@ public class SettingsActivity extends Activity implements ICacheWordSubscriber
 		mNetworkSettingsButton.setVisibility(View.VISIBLE);
 		mImportOrExportButton.setVisibility(View.VISIBLE);
 		mSystemToolsButton.setVisibility(View.VISIBLE);
+		mPOWPolicyLabelTextView.setVisibility(View.VISIBLE);
+		mPOWPolicyRadioGroup.setVisibility(View.VISIBLE);
+		mPOWOutsourcingLabelTextView.setVisibility(View.VISIBLE);
+		mPOWOutsourcingRadioGroup.setVisibility(View.VISIBLE);
+		mDeliveryTargetLabelTextView.setVisibility(View.VISIBLE);
+		mDeliveryTargetRadioGroup.setVisibility(View.VISIBLE);
+		mFirstAttemptPOWBudgetLabelTextView.setVisibility(View.VISIBLE);
+		mFirstAttemptPOWBudgetRadioGroup.setVisibility(View.VISIBLE);
 		mTimeBehindNetworkTextView.setVisibility(View.VISIBLE);
 	}
 	
@@ -197,6 +401,14 @@ public class SettingsActivity extends Activity implements ICacheWordSubscriber
 		mNetworkSettingsButton.setVisibility(View.GONE);
 		mImportOrExportButton.setVisibility(View.GONE);
 		mSystemToolsButton.setVisibility(View.GONE);
+		mPOWPolicyLabelTextView.setVisibility(View.GONE);
+		mPOWPolicyRadioGroup.setVisibility(View.GONE);
+		mPOWOutsourcingLabelTextView.setVisibility(View.GONE);
+		mPOWOutsourcingRadioGroup.setVisibility(View.GONE);
+		mDeliveryTargetLabelTextView.setVisibility(View.GONE);
+		mDeliveryTargetRadioGroup.setVisibility(View.GONE);
+		mFirstAttemptPOWBudgetLabelTextView.setVisibility(View.GONE);
+		mFirstAttemptPOWBudgetRadioGroup.setVisibility(View.GONE);
 		mTimeBehindNetworkTextView.setVisibility(View.GONE);
 	}
 	
@@ -3,17 +3,25 @@ package org.bitseal.activities;
 import info.guardianproject.cacheword.CacheWordHandler;
 import info.guardianproject.cacheword.ICacheWordSubscriber;
 
+import java.text.NumberFormat;
+
 import org.bitseal.R;
+import org.bitseal.benchmark.BenchmarkSuite;
+import org.bitseal.crypt.PublicKeyCache;
+import org.bitseal.pow.POWTelemetry;
 import org.bitseal.services.AppLockHandler;
 import org.bitseal.services.BackgroundService;
+import org.bitseal.util.TimeUtils;
 
 import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.os.AsyncTask;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
 import android.preference.PreferenceManager;
 import android.util.Log;
 import android.view.Menu;
@@ -33,9 +41,23 @@ public class SystemToolsActivity extends Activity implements ICacheWordSubscribe
 	private Button mViewLogButton;
 	private Button mViewExceptionsButton;
     private Button mRestartBackgroundServiceButton;
+    private Button mRunBenchmarksButton;
     
+    private TextView mPOWStatusTextView;
+    private TextView mPublicKeyCacheTextView;
     private TextView mAppVersionTextView;
     
+    /** The interval (in milliseconds) at which the displayed POW status and public key cache counters are refreshed */
+    private static final long POW_STATUS_REFRESH_INTERVAL = 2000;
+    
+    private Handler mPOWStatusHandler;
+    
+    /** The values used to run the BenchmarkSuite from this screen */
+    private static final int BENCHMARK_PAYLOAD_SIZE = 1000;
+    private static final long BENCHMARK_SEED = 0;
+    private static final long BENCHMARK_WARM_UP_TIME = 2000;
+    private static final long BENCHMARK_MEASUREMENT_TIME = 5000;
+    
     /** The key for a boolean variable that records whether or not a user-defined database encryption passphrase has been saved */
     private static final String KEY_DATABASE_PASSPHRASE_SAVED = "databasePassphraseSaved"; 
     
@@ -100,6 +122,24 @@ public class SystemToolsActivity extends Activity implements ICacheWordSubscribe
 			}
 		});
 		
+		mRunBenchmarksButton = (Button) findViewById(R.id.system_tools_run_benchmarks_button);
+		mRunBenchmarksButton.setOnClickListener(new View.OnClickListener()
+		{		
+			@Override
+			public void onClick(View v)
+			{
+				Log.i(TAG, "System tools run benchmarks button clicked");
+				
+				mRunBenchmarksButton.setEnabled(false);
+				Toast.makeText(getApplicationContext(), R.string.system_tools_toast_benchmarks_started, Toast.LENGTH_LONG).show();
+				new RunBenchmarksTask().execute();
+			}
+		});
+		
+		mPOWStatusTextView = (TextView) findViewById(R.id.system_tools_pow_status_textview);
+		mPublicKeyCacheTextView = (TextView) findViewById(R.id.system_tools_public_key_cache_textview);
+		mPOWStatusHandler = new Handler();
+		
 		try
 		{
 			mAppVersionTextView = (TextView) findViewById(R.id.system_tools_app_version_textview);
@@ -179,6 +219,104 @@ public class SystemToolsActivity extends Activity implements ICacheWordSubscribe
  	    return true;
  	}
      
+     @Override
+     protected void onResume()
+     {
+     	super.onResume();
+     	mPOWStatusHandler.post(mPOWStatusUpdater);
+     }
+     
+     @Override
+     protected void onPause()
+     {
+     	super.onPause();
+     	mPOWStatusHandler.removeCallbacks(mPOWStatusUpdater);
+     }
+     
+     /**
+      * Displays the progress of any POW calculation which is currently running and the 
+      * hit and miss counters of the public key cache, then schedules itself to run again.
+      */
+     private final Runnable mPOWStatusUpdater = new Runnable()
+     {
+    	 @Override
+    	 public void run()
+    	 {
+    		 POWTelemetry telemetry = POWTelemetry.getLatest();
+    		 if (telemetry == null)
+    		 {
+    			 mPOWStatusTextView.setText(R.string.system_tools_pow_status_idle);
+    		 }
+    		 else
+    		 {
+    			 NumberFormat numberFormat = NumberFormat.getIntegerInstance();
+    			 long timeRemaining = telemetry.getEstimatedTimeRemaining();
+    			 String timeRemainingMessage;
+    			 if (timeRemaining < 0)
+    			 {
+    				 timeRemainingMessage = getString(R.string.system_tools_pow_status_unknown);
+    			 }
+    			 else
+    			 {
+    				 timeRemainingMessage = TimeUtils.getTimeMessage(timeRemaining);
+    			 }
+    			 mPOWStatusTextView.setText(getString(R.string.system_tools_pow_status_running, 
+    					 telemetry.getPercentageOfExpectedTrials(), 
+    					 numberFormat.format(telemetry.getExpectedTrials()), 
+    					 numberFormat.format(telemetry.getAggregateHashRate()), 
+    					 telemetry.getWorkerHashRates().length, 
+    					 TimeUtils.getTimeMessage(telemetry.getElapsedTime()), 
+    					 timeRemainingMessage));
+    		 }
+    		 
+    		 PublicKeyCache publicKeyCache = PublicKeyCache.getInstance();
+    		 NumberFormat numberFormat = NumberFormat.getIntegerInstance();
+    		 mPublicKeyCacheTextView.setText(getString(R.string.system_tools_public_key_cache_status, 
+    				 numberFormat.format(publicKeyCache.getHitCount()), 
+    				 numberFormat.format(publicKeyCache.getMissCount()), 
+    				 publicKeyCache.getSize()));
+    		 
+    		 mPOWStatusHandler.postDelayed(this, POW_STATUS_REFRESH_INTERVAL);
+    	 }
+     };
+     
+     /**
+      * Runs every benchmark in the BenchmarkSuite, which writes its results to the log.
+      */
+     class RunBenchmarksTask extends AsyncTask<Void, Void, Boolean> 
+     {
+         @Override
+         protected Boolean doInBackground(Void... params)
+         {
+        	 try
+        	 {
+        		 int threadCount = Runtime.getRuntime().availableProcessors();
+        		 new BenchmarkSuite(BENCHMARK_PAYLOAD_SIZE, threadCount, BENCHMARK_SEED).runAll(BENCHMARK_WARM_UP_TIME, BENCHMARK_MEASUREMENT_TIME);
+        		 return true;
+        	 }
+        	 catch (Exception e)
+        	 {
+        		 Log.e(TAG, "Exception occurred in SystemToolsActivity.RunBenchmarksTask.doInBackground(). The exception message was:\n"
+        				 + e.getMessage());
+        		 return false;
+        	 }
+         }
+         
+         @Override
+         protected void onPostExecute(Boolean success) 
+         {
+        	 mRunBenchmarksButton.setEnabled(true);
+        	 if (success)
+        	 {
+        		 Toast.makeText(getApplicationContext(), R.string.system_tools_toast_benchmarks_finished, Toast.LENGTH_LONG).show();
+        	 }
+        	 else
+        	 {
+        		 Toast.makeText(getApplicationContext(), R.string.system_tools_toast_benchmarks_failed, Toast.LENGTH_LONG).show();
+        	 }
+         }
+     }
+     
      @Override
      protected void onStop()
      {
@@ -0,0 +1,530 @@
+package org.bitseal.benchmark;
+
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import org.bitseal.crypt.CryptProcessor;
+import org.bitseal.crypt.KeyConverter;
+import org.bitseal.crypt.SigProcessor;
+import org.bitseal.pow.POWBackend;
+import org.bitseal.pow.POWBenchmark;
+import org.bitseal.pow.POWExecutor;
+import org.bitseal.pow.POWProcessor;
+import org.bitseal.pow.POWWorker;
+import org.bitseal.util.Base58;
+import org.bitseal.util.ByteUtils;
+import org.bitseal.util.VarintEncoder;
+import org.spongycastle.jce.interfaces.ECPrivateKey;
+import org.spongycastle.jce.interfaces.ECPublicKey;
+
+import android.util.Log;
+
+/**
+ * Measures the throughput of the performance sensitive parts of the pow, crypt and util
+ * packages, so that a change to one of them can be measured before and after it is made.<br><br>
+ *
+ * Each benchmark is run on the given number of threads at once, each of which repeats the
+ * benchmark's operation for a warm up period and then for a measurement period. All inputs
+ * are generated from the given seed, so two runs with the same parameters on the same
+ * device do the same work. The results are written to the log and returned.
+ *
+ * @author Jonathan Coe
+ */
+public class BenchmarkSuite
+{
+	/** The number of objects in each batch passed to POWProcessor.checkPOW() */
+	private static final int CHECK_POW_BATCH_SIZE = 16;
+
+	/** The length in bytes of the private keys used by the crypt benchmarks */
+	private static final int PRIVATE_KEY_LENGTH = 32;
+
+	private static final String TAG = "BENCHMARK_SUITE";
+
+	/** The length in bytes of the payloads used by the benchmarks */
+	private final int payloadSize;
+
+	/** The number of threads on which each benchmark is run at once */
+	private final int threadCount;
+
+	/** The seed from which all the benchmark inputs are generated */
+	private final long seed;
+
+	/**
+	 * Creates a new BenchmarkSuite.
+	 *
+	 * @param payloadSize - The length in bytes of the payloads to use
+	 * @param threadCount - The number of threads on which to run each benchmark at once
+	 * @param seed - The seed from which to generate the benchmark inputs
+	 */
+	public BenchmarkSuite(int payloadSize, int threadCount, long seed)
+	{
+		if (payloadSize < 16 || threadCount < 1)
+		{
+			throw new IllegalArgumentException("A BenchmarkSuite needs a payload size of at least 16 bytes and at least one thread. The payload size supplied was "
+					+ payloadSize + " and the thread count supplied was " + threadCount + ".");
+		}
+		this.payloadSize = payloadSize;
+		this.threadCount = threadCount;
+		this.seed = seed;
+	}
+
+	/**
+	 * Runs every benchmark in turn. <b>Note: This blocks the calling thread for a little over
+	 * (warmUpTime + measurementTime) for each benchmark.</b>
+	 *
+	 * @param warmUpTime - The time (in milliseconds) for which to run each benchmark before measuring it
+	 * @param measurementTime - The time (in milliseconds) for which to measure each benchmark
+	 *
+	 * @return An ArrayList<Result> containing the result of each benchmark
+	 */
+	public ArrayList<Result> runAll(long warmUpTime, long measurementTime)
+	{
+		ArrayList<Result> results = new ArrayList<Result>();
+		for (Benchmark benchmark : createBenchmarks())
+		{
+			results.add(run(benchmark, warmUpTime, measurementTime));
+		}
+		return results;
+	}
+
+	/**
+	 * Runs the benchmark with the given name.
+	 *
+	 * @param name - The name of the benchmark to run, as returned by getBenchmarkNames()
+	 * @param warmUpTime - The time (in milliseconds) for which to run the benchmark before measuring it
+	 * @param measurementTime - The time (in milliseconds) for which to measure the benchmark
+	 *
+	 * @return The Result of the benchmark
+	 */
+	public Result run(String name, long warmUpTime, long measurementTime)
+	{
+		for (Benchmark benchmark : createBenchmarks())
+		{
+			if (benchmark.name.equals(name))
+			{
+				return run(benchmark, warmUpTime, measurementTime);
+			}
+		}
+		throw new IllegalArgumentException("There is no benchmark called " + name + " in the BenchmarkSuite");
+	}
+
+	/**
+	 * Returns the names of all the benchmarks in this suite, in the order in which runAll() runs them.
+	 */
+	public ArrayList<String> getBenchmarkNames()
+	{
+		ArrayList<String> names = new ArrayList<String>();
+		for (Benchmark benchmark : createBenchmarks())
+		{
+			names.add(benchmark.name);
+		}
+		return names;
+	}
+
+	/**
+	 * The result of running one benchmark.
+	 */
+	public static class Result
+	{
+		private final String name;
+		private final String unit;
+		private final double throughput;
+
+		private Result(String name, String unit, double throughput)
+		{
+			this.name = name;
+			this.unit = unit;
+			this.throughput = throughput;
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+
+		/** Returns the name of the unit of work counted by the benchmark */
+		public String getUnit()
+		{
+			return unit;
+		}
+
+		/** Returns the number of units of work done per second, summed over all the threads */
+		public double getThroughput()
+		{
+			return throughput;
+		}
+
+		@Override
+		public String toString()
+		{
+			return name + ": " + NumberFormat.getIntegerInstance().format((long) throughput) + " " + unit + " per second";
+		}
+	}
+
+	/**
+	 * A benchmark, which creates a separate Operation for each thread that runs it.
+	 */
+	private abstract static class Benchmark
+	{
+		private final String name;
+		private final String unit;
+
+		private Benchmark(String name, String unit)
+		{
+			this.name = name;
+			this.unit = unit;
+		}
+
+		/**
+		 * Creates the operation for one thread. All the inputs it needs are prepared here, so
+		 * that their creation is not measured.
+		 */
+		abstract Operation createOperation(Random random);
+	}
+
+	/**
+	 * A repeatable unit of benchmark work.
+	 */
+	private interface Operation
+	{
+		/**
+		 * Does the work once.
+		 *
+		 * @return The number of units of work done
+		 */
+		long run();
+	}
+
+	private List<Benchmark> createBenchmarks()
+	{
+		List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+
+		benchmarks.add(new Benchmark("POWWorker", "double hashes")
+		{
+			@Override
+			Operation createOperation(Random random)
+			{
+				POWBackend backend = POWExecutor.getInstance().getBackend();
+				final POWWorker worker = new POWBenchmark().createMeasurementWorker(randomBytes(random, 64), backend);
+				return new Operation()
+				{
+					@Override
+					public long run()
+					{
+						long hashesBefore = worker.getDoubleHashesCalculated();
+						worker.run();
+						return worker.getDoubleHashesCalculated() - hashesBefore;
+					}
+				};
+			}
+		});
+
+		benchmarks.add(new Benchmark("POWProcessor.checkPOW", "objects")
+		{
+			@Override
+			Operation createOperation(Random random)
+			{
+				final POWProcessor powProc = new POWProcessor();
+				final List<byte[]> objects = new ArrayList<byte[]>();
+				for (int i = 0; i < CHECK_POW_BATCH_SIZE; i++)
+				{
+					objects.add(randomBytes(random, payloadSize));
+				}
+				return new Operation()
+				{
+					@Override
+					public long run()
+					{
+						powProc.checkPOW(objects, POWProcessor.NETWORK_NONCE_TRIALS_PER_BYTE, POWProcessor.NETWORK_EXTRA_BYTES);
+						return objects.size();
+					}
+				};
+			}
+		});
+
+		benchmarks.add(new Benchmark("CryptProcessor.encrypt", "payloads")
+		{
+			@Override
+			Operation createOperation(Random random)
+			{
+				final CryptProcessor cryptProc = new CryptProcessor();
+				final ECPublicKey publicKey = new KeyConverter().calculatePublicKeyFromDoubleHashKey(randomPrivateKey(random));
+				final byte[] plainText = randomBytes(random, payloadSize);
+				return new Operation()
+				{
+					@Override
+					public long run()
+					{
+						cryptProc.encrypt(plainText, publicKey);
+						return 1;
+					}
+				};
+			}
+		});
+
+		benchmarks.add(new Benchmark("CryptProcessor.decrypt", "payloads")
+		{
+			@Override
+			Operation createOperation(Random random)
+			{
+				final CryptProcessor cryptProc = new CryptProcessor();
+				KeyConverter keyConv = new KeyConverter();
+				byte[] privateKeyBytes = randomPrivateKey(random);
+				final ECPrivateKey privateKey = keyConv.calculatePrivateKeyFromDoubleHashKey(privateKeyBytes);
+				final byte[] encryptedPayload = cryptProc.encrypt(randomBytes(random, payloadSize), keyConv.calculatePublicKeyFromDoubleHashKey(privateKeyBytes));
+				return new Operation()
+				{
+					@Override
+					public long run()
+					{
+						cryptProc.decrypt(encryptedPayload, privateKey);
+						return 1;
+					}
+				};
+			}
+		});
+
+		benchmarks.add(new Benchmark("SigProcessor.sign", "signatures")
+		{
+			@Override
+			Operation createOperation(Random random)
+			{
+				final SigProcessor sigProc = new SigProcessor();
+				final String wifPrivateKey = new KeyConverter().encodePrivateKeyToWIF(randomPrivateKey(random));
+				final byte[] payload = randomBytes(random, payloadSize);
+				return new Operation()
+				{
+					@Override
+					public long run()
+					{
+						sigProc.signWithWIFKey(payload, wifPrivateKey);
+						return 1;
+					}
+				};
+			}
+		});
+
+		benchmarks.add(new Benchmark("SigProcessor.verifySignature", "signatures")
+		{
+			@Override
+			Operation createOperation(Random random)
+			{
+				final SigProcessor sigProc = new SigProcessor();
+				KeyConverter keyConv = new KeyConverter();
+				byte[] privateKeyBytes = randomPrivateKey(random);
+				final ECPublicKey publicKey = keyConv.calculatePublicKeyFromDoubleHashKey(privateKeyBytes);
+				final byte[] payload = randomBytes(random, payloadSize);
+				final byte[] signature = sigProc.signWithWIFKey(payload, keyConv.encodePrivateKeyToWIF(privateKeyBytes));
+				return new Operation()
+				{
+					@Override
+					public long run()
+					{
+						sigProc.verifySignature(payload, signature, publicKey);
+						return 1;
+					}
+				};
+			}
+		});
+
+		benchmarks.add(new Benchmark("KeyConverter.reconstructPublicKey", "keys")
+		{
+			@Override
+			Operation createOperation(Random random)
+			{
+				final KeyConverter keyConv = new KeyConverter();
+				ECPublicKey publicKey = keyConv.calculatePublicKeyFromDoubleHashKey(randomPrivateKey(random));
+				final byte[] encodedPublicKey = publicKey.getQ().getEncoded();
+				return new Operation()
+				{
+					@Override
+					public long run()
+					{
+						keyConv.reconstructPublicKey(encodedPublicKey);
+						return 1;
+					}
+				};
+			}
+		});
+
+		benchmarks.add(new Benchmark("Base58", "round trips")
+		{
+			@Override
+			Operation createOperation(Random random)
+			{
+				// Bitmessage addresses hold roughly 25 bytes of Base58 encoded data
+				final byte[] data = randomBytes(random, 25);
+				return new Operation()
+				{
+					@Override
+					public long run()
+					{
+						Base58.decode(Base58.encode(data));
+						return 1;
+					}
+				};
+			}
+		});
+
+		benchmarks.add(new Benchmark("VarintEncoder", "round trips")
+		{
+			@Override
+			Operation createOperation(Random random)
+			{
+				final long[] values = new long[256];
+				for (int i = 0; i < values.length; i++)
+				{
+					// Cover every encoded length, from 1 to 9 bytes
+					values[i] = random.nextLong() >>> random.nextInt(64);
+				}
+				return new Operation()
+				{
+					@Override
+					public long run()
+					{
+						for (long value : values)
+						{
+							VarintEncoder.decode(VarintEncoder.encode(value));
+						}
+						return values.length;
+					}
+				};
+			}
+		});
+
+		benchmarks.add(new Benchmark("ByteUtils", "payloads")
+		{
+			@Override
+			Operation createOperation(Random random)
+			{
+				final byte[] first = randomBytes(random, payloadSize / 2);
+				final byte[] second = randomBytes(random, payloadSize - first.length);
+				return new Operation()
+				{
+					@Override
+					public long run()
+					{
+						byte[] combined = ByteUtils.concatenateByteArrays(first, second);
+						ByteUtils.bytesToLong(ByteUtils.longToBytes(ByteUtils.bytesToLong(combined)));
+						ByteUtils.getUnsignedBytes(ByteUtils.getUnsignedBigInteger(combined, 0, 16), 16);
+						return 1;
+					}
+				};
+			}
+		});
+
+		return benchmarks;
+	}
+
+	/**
+	 * Runs a benchmark on all the threads at once and returns its result.
+	 */
+	private Result run(final Benchmark benchmark, long warmUpTime, long measurementTime)
+	{
+		final long[] units = new long[threadCount];
+		final long[] durations = new long[threadCount];
+		final Operation[] operations = new Operation[threadCount];
+		final Exception[] failures = new Exception[threadCount];
+
+		// Create the operations in thread order, so that every run with the same seed gets the same inputs
+		Random random = new Random(seed);
+		for (int i = 0; i < threadCount; i++)
+		{
+			operations[i] = benchmark.createOperation(new Random(random.nextLong()));
+		}
+
+		final long warmUpNanos = warmUpTime * 1000000;
+		final long measurementNanos = measurementTime * 1000000;
+		final CountDownLatch startSignal = new CountDownLatch(1);
+		final CountDownLatch doneSignal = new CountDownLatch(threadCount);
+		for (int i = 0; i < threadCount; i++)
+		{
+			final int threadIndex = i;
+			Thread thread = new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					try
+					{
+						startSignal.await();
+						Operation operation = operations[threadIndex];
+
+						long warmUpEnd = System.nanoTime() + warmUpNanos;
+						while (System.nanoTime() < warmUpEnd)
+						{
+							operation.run();
+						}
+
+						long startTime = System.nanoTime();
+						long endTime = startTime + measurementNanos;
+						long currentTime = startTime;
+						long unitsDone = 0;
+						while (currentTime < endTime)
+						{
+							unitsDone = unitsDone + operation.run();
+							currentTime = System.nanoTime();
+						}
+						units[threadIndex] = unitsDone;
+						durations[threadIndex] = currentTime - startTime;
+					}
+					catch (Exception e)
+					{
+						failures[threadIndex] = e;
+					}
+					finally
+					{
+						doneSignal.countDown();
+					}
+				}
+			}, "Benchmark Thread No. " + i);
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		startSignal.countDown();
+		try
+		{
+			doneSignal.await();
+		}
+		catch (InterruptedException e)
+		{
+			throw new RuntimeException("InterruptedException occurred in BenchmarkSuite.run() while running the " + benchmark.name + " benchmark", e);
+		}
+
+		double throughput = 0;
+		for (int i = 0; i < threadCount; i++)
+		{
+			if (failures[i] != null)
+			{
+				throw new RuntimeException("Exception occurred in BenchmarkSuite.run() while running the " + benchmark.name + " benchmark", failures[i]);
+			}
+			throughput = throughput + ((units[i] * 1000000000.0) / Math.max(durations[i], 1));
+		}
+
+		Result result = new Result(benchmark.name, benchmark.unit, throughput);
+		Log.i(TAG, result + " (payload size " + payloadSize + " bytes, " + threadCount + " threads, seed " + seed + ")");
+		return result;
+	}
+
+	private static byte[] randomBytes(Random random, int length)
+	{
+		byte[] bytes = new byte[length];
+		random.nextBytes(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Returns a random private key. The first byte is kept below 0x7f so that the key is
+	 * always smaller than the order of the secp256k1 curve.
+	 */
+	private static byte[] randomPrivateKey(Random random)
+	{
+		byte[] privateKey = randomBytes(random, PRIVATE_KEY_LENGTH);
+		privateKey[0] = (byte) ((privateKey[0] & 0x7f) | 0x01);
+		return privateKey;
+	}
+}
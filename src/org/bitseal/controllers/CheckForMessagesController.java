@@ -1,16 +1,21 @@
 package org.bitseal.controllers;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
 
 import org.bitseal.core.AckProcessor;
 import org.bitseal.core.App;
 import org.bitseal.core.IncomingMessageProcessor;
+import org.bitseal.core.ObjectProcessor;
 import org.bitseal.data.Message;
 import org.bitseal.data.Payload;
 import org.bitseal.database.MessageProvider;
 import org.bitseal.database.PayloadProvider;
 import org.bitseal.database.PayloadsTable;
 import org.bitseal.network.ServerCommunicator;
+import org.bitseal.pow.POWProcessor;
 import org.bitseal.services.NotificationsService;
 
 import android.content.Context;
@@ -59,11 +64,40 @@ public class CheckForMessagesController
 		String[] searchTerms = new String[]{Payload.OBJECT_TYPE_MSG, "0", "0"}; // Zero stands for false in the database
 		ArrayList<Payload> msgsToProcess = payProv.searchPayloads(columnNames, searchTerms);
 		
-		// At this point we have selected all the msg payloads received by me which have not been processed yet. Now process them. 
+		// Check the POW of all the selected msgs at once, so that the checks can be spread across all the CPU cores
+		// and no time is spent attempting to decrypt msgs whose POW is insufficient
+		ArrayList<byte[]> msgObjects = new ArrayList<byte[]>(msgsToProcess.size());
+		for (Payload p : msgsToProcess)
+		{
+			msgObjects.add(p.getPayload());
+		}
+		ArrayList<byte[]> validMsgObjects = new POWProcessor().checkPOW(msgObjects, ObjectProcessor.NETWORK_NONCE_TRIALS_PER_BYTE, ObjectProcessor.NETWORK_EXTRA_BYTES);
+		Set<byte[]> validMsgObjectSet = Collections.newSetFromMap(new IdentityHashMap<byte[], Boolean>());
+		validMsgObjectSet.addAll(validMsgObjects);
+		Log.i(TAG, "Checked the POW of " + msgObjects.size() + " msg(s). The POW of " + (msgObjects.size() - validMsgObjects.size()) + " of them was insufficient.");
+		
+		// At this point we have selected all the msg payloads received by me which have not been processed yet. Now process them,
+		// passing the msgs with sufficient POW as one batch so that their signatures can be verified together
+		ArrayList<Payload> msgsWithValidPOW = new ArrayList<Payload>(validMsgObjects.size());
+		for (Payload p : msgsToProcess)
+		{
+			if (validMsgObjectSet.contains(p.getPayload()))
+			{
+				msgsWithValidPOW.add(p);
+			}
+		}
+		ArrayList<Message> decryptedMessages = new IncomingMessageProcessor().processReceivedMsgs(msgsWithValidPOW, true);
+		
 		ArrayList<Payload> processedMsgs = new ArrayList<Payload>();
+		int validPOWIndex = 0;
 		for (Payload p : msgsToProcess)
 		{
-			Message decryptedMessage = new IncomingMessageProcessor().processReceivedMsg(p);
+			Message decryptedMessage = null;
+			if (validMsgObjectSet.contains(p.getPayload()))
+			{
+				decryptedMessage = decryptedMessages.get(validPOWIndex);
+				validPOWIndex ++;
+			}
 			
 			if (decryptedMessage != null) // If the message was decrypted and authenticated successfully
 			{
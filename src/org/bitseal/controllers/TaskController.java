@@ -89,6 +89,7 @@ public class TaskController
 		// create a new QueueRecord to disseminate the pubkey of that identity
 		queueProc.deleteQueueRecord(inputQueueRecord);
 		QueueRecord newQueueRecord = queueProc.createAndSaveQueueRecord(BackgroundService.TASK_DISSEMINATE_PUBKEY, TimeUtils.getUnixTime(), 0, pubkeyPayload, null, null);
+		queueProc.copyPOWPlacement(inputQueueRecord, newQueueRecord);
 		
 		// First check whether an Internet connection is available. If not, the QueueRecord for the
 		// 'disseminate pubkey' task will be saved (as above) and processed later
@@ -232,6 +233,7 @@ public class TaskController
 		// next stage of this task
 		queueProc.deleteQueueRecord(inputQueueRecord);
 		QueueRecord newQueueRecord = queueProc.createAndSaveQueueRecord(BackgroundService.TASK_PROCESS_OUTGOING_MESSAGE, TimeUtils.getUnixTime(), inputQueueRecord.getRecordCount(), message, toPubkey, null);
+		queueProc.copyPOWPlacement(inputQueueRecord, newQueueRecord);
 		
 		return processOutgoingMessage(newQueueRecord, message, toPubkey, doPOW, msgTimeToLive);
 	}
@@ -277,6 +279,7 @@ public class TaskController
 		// next stage of this task
 		queueProc.deleteQueueRecord(inputQueueRecord);
 		QueueRecord newQueueRecord = queueProc.createAndSaveQueueRecord(BackgroundService.TASK_DISSEMINATE_MESSAGE, TimeUtils.getUnixTime(), 0, message, msgPayload, toPubkey);
+		queueProc.copyPOWPlacement(inputQueueRecord, newQueueRecord);
 		
 		MessageStatusHandler.updateMessageStatus(message, App.getContext().getString(R.string.message_status_sending_message));
 		
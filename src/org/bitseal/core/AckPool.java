@@ -0,0 +1,191 @@
+package org.bitseal.core;
+
+import java.util.ArrayList;
+
+import org.bitseal.data.PooledAck;
+import org.bitseal.database.AckPoolProvider;
+import org.bitseal.database.AckPoolTable;
+import org.bitseal.pow.TimeToLiveOptimizer;
+import org.bitseal.util.BatteryUtils;
+import org.bitseal.util.TimeUtils;
+
+import android.util.Log;
+
+/**
+ * Manages a small pool of acknowledgment msgs which have had their proof 
+ * of work done in advance.<br><br>
+ * 
+ * The content of an ack is random and does not depend on the msg it is sent 
+ * with, so acks can be created while the device is charging or idle and then 
+ * used when the user sends a message. This takes the ack POW off the critical 
+ * path of sending a message. A separate set of acks is kept for each of the 
+ * 'time to live' values that the TimeToLiveOptimizer currently chooses for a 
+ * short msg, so the acks follow the user's delivery target. Acks created for 
+ * values which are no longer chosen can still be used by a msg with the same 
+ * 'time to live', and are deleted once they expire.
+ * 
+ * @author Jonathan Coe
+ */
+public class AckPool
+{
+	/** The number of pooled acks to keep for each 'time to live' value */
+	private static final int ACKS_PER_TIME_TO_LIVE_CLASS = 2;
+	
+	/** 
+	 * The extra time (in seconds) that pooled acks are given on top of their 'time to live' value. A pooled 
+	 * ack can be used until it has less than its 'time to live' value left before it expires, so this is 
+	 * the maximum time that an ack can be kept in the pool. 
+	 */
+	private static final long MAX_POOLED_ACK_AGE = 7200; // Currently set to 2 hours
+	
+	/** The minimum battery level (as a percentage) at which the pool will be filled while the device is not charging */
+	private static final int MINIMUM_BATTERY_LEVEL_FOR_FILLING = 80;
+	
+	/** The stream number to create pooled acks for. Bitseal currently only uses stream 1. */
+	private static final int ACK_STREAM_NUMBER = 1;
+	
+	/** Ensures that the same pooled ack cannot be taken by two msgs that are being sent at the same time */
+	private static final Object sPoolLock = new Object();
+	
+	private static final String TAG = "ACK_POOL";
+	
+	/**
+	 * Takes an ack from the pool which is suitable for a msg with the given 'time to live' 
+	 * value. The ack is removed from the pool, so it will only ever be used once. 
+	 * 
+	 * @param timeToLive - The 'time to live' value (in seconds) of the msg being sent
+	 * @param streamNumber - The stream number of the ack
+	 * 
+	 * @return A PooledAck, or null if there is no suitable ack in the pool
+	 */
+	public PooledAck takeAck(long timeToLive, int streamNumber)
+	{
+		synchronized (sPoolLock)
+		{
+			AckPoolProvider ackPoolProv = AckPoolProvider.get(App.getContext());
+			ArrayList<PooledAck> pooledAcks = ackPoolProv.searchPooledAcks(AckPoolTable.COLUMN_TIME_TO_LIVE, String.valueOf(timeToLive));
+			
+			// Use the usable ack which will expire soonest, so that as few acks as possible go to waste
+			long currentTime = TimeUtils.getUnixTime();
+			PooledAck ackToTake = null;
+			for (PooledAck a : pooledAcks)
+			{
+				if (a.getStreamNumber() == streamNumber && isUsable(a, currentTime))
+				{
+					if (ackToTake == null || a.getExpirationTime() < ackToTake.getExpirationTime())
+					{
+						ackToTake = a;
+					}
+				}
+			}
+			
+			if (ackToTake != null && ackPoolProv.deletePooledAck(ackToTake))
+			{
+				return ackToTake;
+			}
+			return null;
+		}
+	}
+	
+	/**
+	 * Creates a new pooled ack if the pool is not full and the device is in a suitable state. 
+	 * At most one ack is created each time this method is called, so that the BackgroundService 
+	 * is never kept busy for long.<br><br>
+	 * 
+	 * <b>NOTE!</b> Calling this method can result in proof of work calculations being done.
+	 * This can take a long time and lots of CPU power!
+	 * 
+	 * @param idle - A boolean indicating whether the app currently has no other tasks to do
+	 */
+	public void fill(boolean idle)
+	{
+		if (checkIfFillingIsAllowed(idle) == false)
+		{
+			return;
+		}
+		
+		// Remove any acks which have expired, including those created for 'time to live' values that are no longer chosen
+		AckPoolProvider.get(App.getContext()).deletePooledAcksExpiringBefore(TimeUtils.getUnixTime());
+		
+		for (long timeToLive : getTimeToLiveClasses())
+		{
+			if (countUsableAcks(timeToLive) < ACKS_PER_TIME_TO_LIVE_CLASS)
+			{
+				long expirationTime = TimeUtils.getFuzzedExpirationTime(timeToLive + MAX_POOLED_ACK_AGE);
+				PooledAck pooledAck = new OutgoingMessageProcessor().createPooledAck(timeToLive, expirationTime, ACK_STREAM_NUMBER);
+				AckPoolProvider.get(App.getContext()).addPooledAck(pooledAck);
+				Log.i(TAG, "Added an ack with a time to live of " + TimeUtils.getTimeMessage(timeToLive) + " to the ack pool");
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the 'time to live' values (in seconds) that pooled acks should currently be 
+	 * created for: those of the schedule chosen for a short msg. 
+	 */
+	private long[] getTimeToLiveClasses()
+	{
+		TimeToLiveOptimizer.SendSchedule schedule = new TimeToLiveOptimizer().chooseScheduleForShortMsg();
+		long firstAttemptTimeToLive = schedule.getFirstAttemptTimeToLive();
+		long subsequentAttemptsTimeToLive = schedule.getSubsequentAttemptsTimeToLive();
+		if (firstAttemptTimeToLive == subsequentAttemptsTimeToLive)
+		{
+			return new long[]{firstAttemptTimeToLive};
+		}
+		return new long[]{firstAttemptTimeToLive, subsequentAttemptsTimeToLive};
+	}
+	
+	/**
+	 * Counts the usable acks in the pool for the given 'time to live' value, deleting any 
+	 * that are no longer usable.
+	 * 
+	 * @param timeToLive - The 'time to live' value (in seconds)
+	 * 
+	 * @return The number of usable acks
+	 */
+	private int countUsableAcks(long timeToLive)
+	{
+		synchronized (sPoolLock)
+		{
+			AckPoolProvider ackPoolProv = AckPoolProvider.get(App.getContext());
+			ArrayList<PooledAck> pooledAcks = ackPoolProv.searchPooledAcks(AckPoolTable.COLUMN_TIME_TO_LIVE, String.valueOf(timeToLive));
+			
+			long currentTime = TimeUtils.getUnixTime();
+			int usableAcks = 0;
+			for (PooledAck a : pooledAcks)
+			{
+				if (isUsable(a, currentTime))
+				{
+					usableAcks ++;
+				}
+				else
+				{
+					ackPoolProv.deletePooledAck(a);
+				}
+			}
+			return usableAcks;
+		}
+	}
+	
+	/**
+	 * A pooled ack is usable if it has at least its full 'time to live' left before it expires.
+	 */
+	private boolean isUsable(PooledAck a, long currentTime)
+	{
+		return a.getExpirationTime() - currentTime >= a.getTimeToLive();
+	}
+	
+	/**
+	 * The pool is filled while the device is charging, or while the app is idle 
+	 * and the battery is well charged. 
+	 */
+	private boolean checkIfFillingIsAllowed(boolean idle)
+	{
+		if (BatteryUtils.isCharging())
+		{
+			return true;
+		}
+		return idle && BatteryUtils.getBatteryLevel() >= MINIMUM_BATTERY_LEVEL_FOR_FILLING;
+	}
+}
@@ -1,6 +1,8 @@
 package org.bitseal.core;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import org.bitseal.crypt.AddressGenerator;
 import org.bitseal.crypt.SHA256;
@@ -31,6 +33,8 @@ public final class AddressProcessor
 	
 	private static final int SECONDS_IN_A_DAY = 86400;
 	
+	private static final int MESSAGE_TAG_LENGTH = 32;
+	
 	private static final String TAG = "ADDRESS_PROCESSOR";
 	
 	/**
@@ -318,17 +322,56 @@ public final class AddressProcessor
 	 * @return A byte[] containing the message tags
 	 */
 	public byte[] calculateMessageTagsSince (String addressString, long pastTime)
+	{
+		return calculateMessageTagsSince(Collections.singletonList(addressString), pastTime);
+	}
+	
+	/**
+	 * Calculates the message tags for a set of addresses since a given time. Each
+	 * address is validated and decoded only once, and the tags are written straight
+	 * into a single array, so the time taken grows linearly with the number of
+	 * addresses and days covered. 
+	 * 
+	 * @param addressStrings - A List of Strings containing the Bitmessage addresses to
+	 * calculate the message tags of
+	 * @param pastTime - A long containing the time value to use to calculate the
+	 * message tags
+	 * 
+	 * @return A byte[] containing the message tags. The tags for each address are
+	 * placed one after another, in the order the addresses were given, and the
+	 * tags of each address are in order of time, starting with the oldest. 
+	 */
+	public byte[] calculateMessageTagsSince (List<String> addressStrings, long pastTime)
 	{
 		long currentTime = System.currentTimeMillis() / 1000;
 		long timeElapsed = currentTime - pastTime;
 		long numberOfDaysSince = timeElapsed / SECONDS_IN_A_DAY;
 		
-		byte[] messageTags = new byte[0];
-		for (int i = 0; i <= numberOfDaysSince; i++)
+		if (numberOfDaysSince < 0)
 		{
-			byte[] tag = calculateMessageTag(addressString, pastTime);
-			messageTags = ByteUtils.concatenateByteArrays(messageTags, tag);
-			pastTime += SECONDS_IN_A_DAY; // Advance to the next day
+			return new byte[0];
+		}
+		
+		long tagsLength = (numberOfDaysSince + 1) * addressStrings.size() * MESSAGE_TAG_LENGTH;
+		if (tagsLength > Integer.MAX_VALUE)
+		{
+			throw new RuntimeException("AddressProcessor.calculateMessageTagsSince() was asked to calculate " + (numberOfDaysSince + 1) + 
+					" message tags for each of " + addressStrings.size() + " addresses, which is too many to hold in a single byte[]");
+		}
+		
+		byte[] messageTags = new byte[(int) tagsLength];
+		int writePosition = 0;
+		for (String addressString : addressStrings)
+		{
+			byte[] dataToHash = createMessageTagData(addressString);
+			
+			long time = pastTime;
+			for (long i = 0; i <= numberOfDaysSince; i++)
+			{
+				writeMessageTag(dataToHash, time, messageTags, writePosition);
+				writePosition += MESSAGE_TAG_LENGTH;
+				time += SECONDS_IN_A_DAY; // Advance to the next day
+			}
 		}
 		
 		return messageTags;
@@ -344,6 +387,22 @@ public final class AddressProcessor
 	 * @return A byte[] containing the message tag
 	 */
 	public byte[] calculateMessageTag (String addressString, long time)
+	{
+		byte[] messageTag = new byte[MESSAGE_TAG_LENGTH];
+		writeMessageTag(createMessageTagData(addressString), time, messageTag, 0);
+		return messageTag;
+	}
+	
+	/**
+	 * Creates the array that holds the data hashed to calculate the message tags of
+	 * a given address. It contains the encoded address data, followed by 8 bytes which 
+	 * are filled with the time value of each tag as it is calculated. 
+	 * 
+	 * @param addressString - A String containing the Bitmessage address
+	 * 
+	 * @return A byte[] containing the encoded address data and space for the time value
+	 */
+	private byte[] createMessageTagData (String addressString)
 	{
 		// First check that the String supplied is a valid Bitmessage address
 		if (validateAddress(addressString) == false)
@@ -351,27 +410,38 @@ public final class AddressProcessor
 			throw new RuntimeException("Address String supplied to AddressProcessor.calculateMessageTag() was found" +
 					"to be an invalid address by the AddressValidator.validateAddress() method. Throwing new RuntimeException.");
 		}
-		else
-		{
-			byte[] encodedAddressData = extractEncodedAddressData(addressString);
-			
-			// Calculate the time value to use in the hash
-			long remainderSeconds = time % SECONDS_IN_A_DAY;
-			long timeValue = time - remainderSeconds;
-			
-			// Get the byte form of the time value
-			byte[] timeValueBytes = ByteUtils.longToBytes(timeValue);
-			
-			// Combine the bytes for the encoded address data and the time value into a single byte[]. This is the data to be hashed. 
-			byte[] dataToHash = ByteUtils.concatenateByteArrays(encodedAddressData, timeValueBytes);
-			
-			// Hash the input data to get the full tag
-			byte[] fullTag = SHA512.doubleHash(dataToHash);
-			
-			// Get the first 32 bytes of the full tag. The result is the message tag. 
-			byte[] messageTag = ArrayCopier.copyOf(fullTag, 32);
-			return messageTag;
-		}
+		
+		byte[] encodedAddressData = extractEncodedAddressData(addressString);
+		byte[] dataToHash = new byte[encodedAddressData.length + 8];
+		System.arraycopy(encodedAddressData, 0, dataToHash, 0, encodedAddressData.length);
+		return dataToHash;
+	}
+	
+	/**
+	 * Calculates a message tag and writes it into the given array. 
+	 * 
+	 * @param dataToHash - A byte[] created by createMessageTagData(). Its last 8 bytes
+	 * are overwritten with the time value. 
+	 * @param time - A long containing the time value to use to calculate the message tag
+	 * @param output - The byte[] to write the message tag into
+	 * @param outputPosition - An int containing the position in the output array at 
+	 * which to write the message tag
+	 */
+	private void writeMessageTag (byte[] dataToHash, long time, byte[] output, int outputPosition)
+	{
+		// Calculate the time value to use in the hash
+		long remainderSeconds = time % SECONDS_IN_A_DAY;
+		long timeValue = time - remainderSeconds;
+		
+		// Place the byte form of the time value after the encoded address data
+		byte[] timeValueBytes = ByteUtils.longToBytes(timeValue);
+		System.arraycopy(timeValueBytes, 0, dataToHash, dataToHash.length - timeValueBytes.length, timeValueBytes.length);
+		
+		// Hash the input data to get the full tag
+		byte[] fullTag = SHA512.doubleHash(dataToHash);
+		
+		// Get the first 32 bytes of the full tag. The result is the message tag. 
+		System.arraycopy(fullTag, 0, output, outputPosition, MESSAGE_TAG_LENGTH);
 	}
 	
 	/**
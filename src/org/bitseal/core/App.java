@@ -4,6 +4,7 @@ import info.guardianproject.cacheword.CacheWordHandler;
 import info.guardianproject.cacheword.ICacheWordSubscriber;
 
 import org.bitseal.crypt.PRNGFixes;
+import org.bitseal.crypt.PrivateKeyRing;
 import org.bitseal.services.ExceptionHandler;
 
 import android.annotation.SuppressLint;
@@ -53,7 +54,8 @@ public class App extends Application implements ICacheWordSubscriber
 	@Override
 	public void onCacheWordLocked()
 	{
-		// Nothing to do here currently
+		// Drop the decoded private keys held in memory. They will be decoded again once the app is unlocked.
+		PrivateKeyRing.getInstance().wipe();
 	}
 
 	@Override
@@ -2,11 +2,21 @@ package org.bitseal.core;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.bitseal.R;
-import org.bitseal.crypt.AddressGenerator;
 import org.bitseal.crypt.CryptProcessor;
-import org.bitseal.crypt.KeyConverter;
+import org.bitseal.crypt.PrivateKeyRing;
+import org.bitseal.crypt.PublicKeyCache;
 import org.bitseal.crypt.SigProcessor;
 import org.bitseal.data.Address;
 import org.bitseal.data.BMObject;
@@ -30,8 +40,6 @@ import org.bitseal.util.ArrayCopier;
 import org.bitseal.util.ByteFormatter;
 import org.bitseal.util.ByteUtils;
 import org.bitseal.util.VarintEncoder;
-import org.spongycastle.jce.interfaces.ECPrivateKey;
-import org.spongycastle.jce.interfaces.ECPublicKey;
 
 import android.util.Base64;
 import android.util.Log;
@@ -61,6 +69,15 @@ public class IncomingMessageProcessor
 	/** Used when broadcasting Intents to the UI so that it can refresh the data it is displaying */
 	public static final String UI_NOTIFICATION = "uiNotification";
 	
+	/** The number of threads used to attempt to decrypt a msg with several addresses at once */
+	private static final int DECRYPTION_THREADS = Runtime.getRuntime().availableProcessors();
+	
+	/** Provides the pool of threads used to attempt to decrypt a msg with several addresses at once */
+	private static class DecryptionPoolHolder
+	{
+		static final ExecutorService POOL = Executors.newFixedThreadPool(DECRYPTION_THREADS, new DecryptionThreadFactory());
+	}
+	
 	private static final String TAG = "INCOMING_MESSAGE_PROCESSOR";
 	
 	/**
@@ -74,16 +91,116 @@ public class IncomingMessageProcessor
 	 * for us
 	 */
 	public Message processReceivedMsg(Payload msgPayload)
+	{
+		return processReceivedMsg(msgPayload, false);
+	}
+	
+	/**
+	 * Takes a Payload containing the data of a msg encrypted messages and
+	 * processes it, returning a new Message object for each valid message
+	 * found in the given data. <br><br>
+	 * 
+	 * @param msgPayload - An Payload containing the payload a possible new msg
+	 * @param powAlreadyChecked - A boolean indicating whether the POW of the msg has
+	 * already been found to be sufficient, in which case it will not be checked again
+	 * 
+	 * @return An boolean indicating whether or not the given Payload contained a new message
+	 * for us
+	 */
+	public Message processReceivedMsg(Payload msgPayload, boolean powAlreadyChecked)
+	{
+		return processReceivedMsgs(Collections.singletonList(msgPayload), powAlreadyChecked).get(0);
+	}
+	
+	/**
+	 * Takes a batch of Payloads containing the data of msgs and processes them, 
+	 * returning a new Message object for each valid message found in them.<br><br>
+	 * 
+	 * Each msg is first decrypted and parsed. The signatures of all the msgs which were 
+	 * decrypted are then verified together, so that the verification is spread across 
+	 * all the CPU cores, before the valid messages are completed. As none of the messages
+	 * has been saved to the database yet when the batch is completed, a message which 
+	 * duplicates an earlier one in the same batch is detected here rather than by 
+	 * MessageProvider.detectDuplicateMessage(). 
+	 * 
+	 * @param msgPayloads - A List containing the Payloads of possible new msgs
+	 * @param powAlreadyChecked - A boolean indicating whether the POW of the msgs has
+	 * already been found to be sufficient, in which case it will not be checked again
+	 * 
+	 * @return An ArrayList with an entry for each of the given Payloads, in the same order.
+	 * The entry is the new Message if the Payload contained a new message for us, and 
+	 * null otherwise.
+	 */
+	public ArrayList<Message> processReceivedMsgs(List<Payload> msgPayloads, boolean powAlreadyChecked)
+	{
+		ArrayList<Message> messages = new ArrayList<Message>(Collections.<Message>nCopies(msgPayloads.size(), null));
+		
+		// Decrypt and parse each msg, collecting the signatures of those which were decrypted
+		SigProcessor sigProc = new SigProcessor();
+		ArrayList<Integer> decryptedIndexes = new ArrayList<Integer>();
+		ArrayList<UnencryptedMsg> unencMsgs = new ArrayList<UnencryptedMsg>();
+		ArrayList<SigProcessor.SignatureCheck> signatureChecks = new ArrayList<SigProcessor.SignatureCheck>();
+		for (int i = 0; i < msgPayloads.size(); i++)
+		{
+			UnencryptedMsg unencMsg = decryptReceivedMsg(msgPayloads.get(i), powAlreadyChecked);
+			if (unencMsg != null)
+			{
+				try
+				{
+					byte[] payloadToVerify = sigProc.createUnencryptedMsgSignaturePayload(unencMsg);
+					PublicKeyCache.Entry sender = PublicKeyCache.getInstance().getEntry(unencMsg.getSenderAddressVersion(), unencMsg.getStreamNumber(), 
+							unencMsg.getPublicSigningKey(), unencMsg.getPublicEncryptionKey());
+					signatureChecks.add(new SigProcessor.SignatureCheck(payloadToVerify, unencMsg.getSignature(), sender));
+					decryptedIndexes.add(i);
+					unencMsgs.add(unencMsg);
+				}
+				catch (RuntimeException e)
+				{
+					Log.e(TAG, "Runtime exception occurred in IncomingMessageProccessor.processReceivedMsgs(). The exception message was: \n"
+							+ e.getLocalizedMessage());
+				}
+			}
+		}
+		
+		// Verify the signatures of all the decrypted msgs at once
+		boolean[] signaturesValid = sigProc.verifySignatures(signatureChecks);
+		
+		Set<List<String>> messagesInBatch = new HashSet<List<String>>();
+		for (int i = 0; i < unencMsgs.size(); i++)
+		{
+			if (signaturesValid[i] == false)
+			{
+				// The signature of the message is invalid. Abort the process. 
+				Log.e(TAG, "While processing a decrypted message in IncomingMessageProcessor.processReceivedMsgs(), the signature was found to be invalid");
+				continue;
+			}
+			messages.set(decryptedIndexes.get(i), completeReceivedMsg(unencMsgs.get(i), messagesInBatch));
+		}
+		return messages;
+	}
+	
+	/**
+	 * Attempts to parse and decrypt a received msg, processing it if it is an acknowledgement.
+	 * The signature of the decrypted msg is not verified. 
+	 * 
+	 * @param msgPayload - An Payload containing the payload a possible new msg
+	 * @param powAlreadyChecked - A boolean indicating whether the POW of the msg has
+	 * already been found to be sufficient, in which case it will not be checked again
+	 * 
+	 * @return An UnencryptedMsg containing the parsed data of the msg, or null if it could 
+	 * not be decrypted with any of our addresses or was an acknowledgement
+	 */
+	private UnencryptedMsg decryptReceivedMsg(Payload msgPayload, boolean powAlreadyChecked)
 	{	
 		// Attempt to reconstruct the payload into a Msg object
 		BMObject msgObject = null;
 		try
 		{		
-			msgObject = new ObjectProcessor().parseObject(msgPayload.getPayload());
+			msgObject = new ObjectProcessor().parseObject(msgPayload.getPayload(), powAlreadyChecked == false);
 		}
 		catch (RuntimeException runEx)
 		{
-			Log.i(TAG, "RuntimeException occurred in IncomingMessageProcessor.processReceivedMsg().\n" +
+			Log.i(TAG, "RuntimeException occurred in IncomingMessageProcessor.decryptReceivedMsg().\n" +
 					"The exception message was: " + runEx.getMessage());
 			return null;
 		}
@@ -98,49 +215,20 @@ public class IncomingMessageProcessor
 		else
 		{
 			// This msg is not an acknowledgement. Attempt to decrypt it using each of our addresses
-			ArrayList<Address> myAddresses = AddressProvider.get(App.getContext()).getAllAddresses();
-			UnencryptedMsg unencMsg = null;
-			for (Address a : myAddresses)
+			List<PrivateKeyRing.Entry> myKeys = PrivateKeyRing.getInstance().getEntries();
+			DecryptedMsg decryptedMsg = attemptMsgDecryption(msgObject, myKeys);
+			if (decryptedMsg != null)
 			{
 				try
 				{
-					unencMsg = attemptMsgDecryption(msgObject, a);
-					if (unencMsg != null)
-					{
-						// Decryption was successful! Now use the reconstructed message to create a new Message object,
-						// containing the data that will be shown in the UI
-						Message message = extractMessageFromUnencryptedMsg(unencMsg);
-						
-						// Check whether this message is a duplicate
-						MessageProvider msgProv = MessageProvider.get(App.getContext());
-						boolean messageIsADuplicate = msgProv.detectDuplicateMessage(message);
-						if (messageIsADuplicate)
-						{
-							Log.d(TAG, "Processed a msg which we decrypted successfully but then found to be a duplicate of a message we had already received.\n" +
-									"This message will therefore be ignored.\n" + 
-									"Message to address:   " + message.getToAddress() + "\n" + 
-									"Message from address: " + message.getFromAddress() + "\n" + 
-									"Message subject:      " + message.getSubject() + "\n" + 
-									"Message body:         " + message.getBody());
-							return null;
-						}
-						else
-						{
-							checkPubkeyAndSaveIfNew(unencMsg);
-							
-							Log.d(TAG, "We received a new message!\n" +
-									   "Message subject: " + message.getSubject());
-							
-							return message;
-						}
-					}
+					// Decryption was successful! Use the decrypted data to construct a new UnencryptedMsg object
+					return parseDecryptedMessage(msgObject, decryptedMsg.plainText, decryptedMsg.address);
 				}
 				catch (RuntimeException e)
 				{
-					// If the attempt to decrypt the message fails, move on to the next address
-					Log.e(TAG, "Runtime exception occurred in IncomingMessageProccessor.processReceivedMsg(). The exception message was: \n"
+					Log.e(TAG, "Runtime exception occurred in IncomingMessageProccessor.decryptReceivedMsg(). The exception message was: \n"
 							+ e.getLocalizedMessage());
-					continue;
+					return null;
 				}
 			}
 			// If we were unable to decrypt the msg with any of our addresses
@@ -149,6 +237,60 @@ public class IncomingMessageProcessor
 		}
 	}
 	
+	/**
+	 * Completes the processing of a decrypted msg whose signature has been found to be valid,
+	 * saving its acknowledgement data and the sender's pubkey data. 
+	 * 
+	 * @param unencMsg - The UnencryptedMsg to complete the processing of
+	 * @param messagesInBatch - A Set holding the to address, from address, subject and body 
+	 * of each new message found so far in the current batch. If the message is new, its 
+	 * values are added to the Set. 
+	 * 
+	 * @return The new Message, or null if the message is a duplicate of one we have 
+	 * already received or could not be processed
+	 */
+	private Message completeReceivedMsg(UnencryptedMsg unencMsg, Set<List<String>> messagesInBatch)
+	{
+		try
+		{
+			saveAckPayload(unencMsg);
+			
+			// Now use the reconstructed message to create a new Message object, containing the data that will be shown in the UI
+			Message message = extractMessageFromUnencryptedMsg(unencMsg);
+			
+			// Check whether this message is a duplicate, either of one saved in the database or of one earlier in this batch
+			List<String> messageValues = Arrays.asList(message.getToAddress(), message.getFromAddress(), message.getSubject(), message.getBody());
+			MessageProvider msgProv = MessageProvider.get(App.getContext());
+			boolean messageIsADuplicate = messagesInBatch.contains(messageValues) || msgProv.detectDuplicateMessage(message);
+			if (messageIsADuplicate)
+			{
+				Log.d(TAG, "Processed a msg which we decrypted successfully but then found to be a duplicate of a message we had already received.\n" +
+						"This message will therefore be ignored.\n" + 
+						"Message to address:   " + message.getToAddress() + "\n" + 
+						"Message from address: " + message.getFromAddress() + "\n" + 
+						"Message subject:      " + message.getSubject() + "\n" + 
+						"Message body:         " + message.getBody());
+				return null;
+			}
+			else
+			{
+				messagesInBatch.add(messageValues);
+				checkPubkeyAndSaveIfNew(unencMsg);
+				
+				Log.d(TAG, "We received a new message!\n" +
+						   "Message subject: " + message.getSubject());
+				
+				return message;
+			}
+		}
+		catch (RuntimeException e)
+		{
+			Log.e(TAG, "Runtime exception occurred in IncomingMessageProccessor.completeReceivedMsg(). The exception message was: \n"
+					+ e.getLocalizedMessage());
+			return null;
+		}
+	}
+	
 	/**
 	 * Takes the embedded pubkey data from a decrypted msg that we have received
 	 * and checks whether or not we have that pubkey data already. If we do not,
@@ -169,7 +311,8 @@ public class IncomingMessageProcessor
 			publicEncryptionKey = ByteUtils.concatenateByteArrays(fourByte, publicEncryptionKey);
 			
 			// Check whether or not we have the pubkey for the sender of this message stored in our database
-			byte[] ripeHash = new AddressGenerator().calculateRipeHash(publicSigningKey, publicEncryptionKey);
+			byte[] ripeHash = PublicKeyCache.getInstance().getEntry(unencMsg.getSenderAddressVersion(), unencMsg.getStreamNumber(), 
+					publicSigningKey, publicEncryptionKey).getRipeHash();
 			PubkeyProvider pubProv = PubkeyProvider.get(App.getContext());
 			ArrayList<Pubkey> retrievedPubkeys = pubProv.searchPubkeys(PubkeysTable.COLUMN_RIPE_HASH, Base64.encodeToString(ripeHash, Base64.DEFAULT));
 			if (retrievedPubkeys.size() == 0)
@@ -270,49 +413,136 @@ public class IncomingMessageProcessor
 	}
 
 	/**
-	 * Attempts to decrypt a msg. If decryption is successful, the decrypted
-	 * data is used to create a new UnencryptedMsg object. <br><br>
+	 * Attempts to decrypt a msg with each of the given keys, stopping as soon as one of them
+	 * succeeds. When there are several keys, they are split across a pool of threads with
+	 * one thread per CPU core. Each thread checks whether another has already succeeded 
+	 * before trying its next key, so the remaining keys are skipped once the msg has 
+	 * been decrypted. <br><br>
 	 * 
-	 * <b>NOTE:</b>If decryption of the msg fails, this method will return null 
+	 * <b>NOTE:</b>If decryption of the msg fails with every key, this method will return null 
 	 * 
 	 * @param msgObject - A msg Object containing the msg to attempt to decrypt
+	 * @param keys - A List containing the PrivateKeyRing entries of the addresses to attempt
+	 * to decrypt the msg with
 	 * 
-	 * @return If decryption is successful, returns an UnencryptedMsg object
-	 * containing the decrypted message data. Otherwise returns null.
+	 * @return If decryption is successful, returns a DecryptedMsg containing the decrypted
+	 * data and the address which decrypted it. Otherwise returns null.
 	 */
-	private UnencryptedMsg attemptMsgDecryption(BMObject msgObject, Address address)
+	private DecryptedMsg attemptMsgDecryption(BMObject msgObject, List<PrivateKeyRing.Entry> keys)
 	{
+		final byte[] encryptedData = msgObject.getPayload();
+		final AtomicReference<DecryptedMsg> result = new AtomicReference<DecryptedMsg>();
+		
+		// Handing a single key to the pool would only add the cost of switching threads
+		int taskCount = Math.min(keys.size(), DECRYPTION_THREADS);
+		if (taskCount <= 1)
+		{
+			attemptMsgDecryption(encryptedData, keys, result);
+			return result.get();
+		}
+		
+		// Give each task an equal share of the keys
+		ArrayList<Callable<Void>> tasks = new ArrayList<Callable<Void>>(taskCount);
+		for (int i = 0; i < taskCount; i++)
+		{
+			final List<PrivateKeyRing.Entry> share = keys.subList((i * keys.size()) / taskCount, ((i + 1) * keys.size()) / taskCount);
+			tasks.add(new Callable<Void>()
+			{
+				@Override
+				public Void call()
+				{
+					attemptMsgDecryption(encryptedData, share, result);
+					return null;
+				}
+			});
+		}
+		
 		try
 		{
-			// Create the ECPrivateKey object that we will use to decrypt the message data
-			ECPrivateKey k = new KeyConverter().decodePrivateKeyFromWIF(address.getPrivateEncryptionKey());
-			
-			// Attempt to decrypt the encrypted message data
-			byte[] decryptedMsgData = null;
+			DecryptionPoolHolder.POOL.invokeAll(tasks);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("InterruptedException occurred in IncomingMessageProcessor.attemptMsgDecryption() while attempting to decrypt a msg with " 
+					+ keys.size() + " addresses", e);
+		}
+		return result.get();
+	}
+	
+	/**
+	 * Attempts to decrypt a msg with each of the given keys in turn, until either one of them
+	 * succeeds or a result has been recorded by another thread.
+	 * 
+	 * @param encryptedData - A byte[] containing the encrypted msg data
+	 * @param keys - A List containing the PrivateKeyRing entries to attempt to decrypt the msg with
+	 * @param result - The AtomicReference in which to record a successful decryption
+	 */
+	private void attemptMsgDecryption(byte[] encryptedData, List<PrivateKeyRing.Entry> keys, AtomicReference<DecryptedMsg> result)
+	{
+		CryptProcessor cryptProc = new CryptProcessor();
+		for (PrivateKeyRing.Entry entry : keys)
+		{
+			if (result.get() != null)
+			{
+				return;
+			}
 			try
-			{	
-				decryptedMsgData = new CryptProcessor().decrypt(msgObject.getPayload(), k);
+			{
+				// If decryption fails (as is to be expected when we processes msgs not bound for us), move on to the next key
+				byte[] plainText = cryptProc.attemptDecryption(encryptedData, entry.getPrivateEncryptionKey());
+				if (plainText != null)
+				{
+					result.compareAndSet(null, new DecryptedMsg(entry.getAddress(), plainText));
+					return;
+				}
 			}
 			catch (RuntimeException e)
 			{
-				// If decryption fails (as is to be expected when we processes msgs not bound for us)
-				return null;
+				// The msg is malformed, so it cannot be decrypted with any key
+				Log.i(TAG, "RuntimeException occurred in IncomingMessageProcessor.attemptMsgDecryption(). The exception message was: \n" + e.getMessage());
+				return;
 			}
-			// Use the decrypted message data to construct a new UnencryptedMsg object
-			UnencryptedMsg unencMsg = parseDecryptedMessage(msgObject, decryptedMsgData, address);
-			
-			return unencMsg;
 		}
-		catch (Exception e)
+	}
+	
+	/**
+	 * The data of a msg which has been decrypted, along with the address which decrypted it.
+	 */
+	private static class DecryptedMsg
+	{
+		private final Address address;
+		private final byte[] plainText;
+		
+		private DecryptedMsg(Address address, byte[] plainText)
 		{
-			throw new RuntimeException("Exception occurred in IncomingMessageProcessor.attemptMsgDecryption().\n"
-					+ "The exception message was: " + e.getLocalizedMessage().toString());
+			this.address = address;
+			this.plainText = plainText;
+		}
+	}
+	
+	/**
+	 * Creates the daemon threads used to attempt to decrypt msgs.
+	 */
+	private static class DecryptionThreadFactory implements ThreadFactory
+	{
+		private final AtomicInteger threadNumber = new AtomicInteger(0);
+		
+		@Override
+		public Thread newThread(Runnable runnable)
+		{
+			Thread thread = new Thread(runnable, "Msg Decryption No. " + threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
 		}
 	}
 	
 	/** 
 	 * Parses the data of a decrypted msg, using it to construct a new 
 	 * UnencryptedMsg object.<br><br>
+	 * 
+	 * The signature of the msg is not verified here. That is done by processReceivedMsgs(),
+	 * for all the msgs in a batch at once.
 	 *  
 	 * @param msg - The msg Object which the decrypted data came from
 	 * @param plainText - A byte[] containing the decrypted msg data
@@ -441,15 +671,18 @@ public class IncomingMessageProcessor
 		unencMsg.setSignatureLength(signatureLength);
 		unencMsg.setSignature(signature);
 				
-		// Verify the signature of the decrypted message
-		ECPublicKey ecPublicSigningKey = new KeyConverter().reconstructPublicKey(publicSigningKey);
-		SigProcessor sigProc = new SigProcessor();
-		byte[] payloadToVerify = sigProc.createUnencryptedMsgSignaturePayload(unencMsg);
-		if (sigProc.verifySignature(payloadToVerify, signature, ecPublicSigningKey) == false)
-		{
-			// The signature of the message is invalid. Abort the process. 
-			throw new RuntimeException("While attempting to parse a decrypted message in IncomingMessageProcessor.parseDecryptedMessage(), the signature was found to be invalid");
-		}
+		return unencMsg;
+	}
+	
+	/**
+	 * Saves the acknowledgement data of a received msg, if it has any, as a Payload
+	 * so that we can send it later.
+	 * 
+	 * @param unencMsg - The UnencryptedMsg whose acknowledgement data should be saved
+	 */
+	private void saveAckPayload(UnencryptedMsg unencMsg)
+	{
+		byte[] ackData = unencMsg.getAckMsg();
 		
 		// In some rare instances, such as PyBitmessage sending a message to one of its own addresses, no ack data will be included
 		if (ackData.length != 0)
@@ -467,8 +700,6 @@ public class IncomingMessageProcessor
 			PayloadProvider payProv = PayloadProvider.get(App.getContext());
 			payProv.addPayload(ackPayload);
 		}
-
-		return unencMsg;
 	}
 	
 	/**
@@ -520,8 +751,8 @@ public class IncomingMessageProcessor
 			byte[] fourByte = new byte[]{4};
 			publicEncryptionKey = ByteUtils.concatenateByteArrays(fourByte, publicEncryptionKey); 
 		}
-		String fromAddress = new AddressGenerator().recreateAddressString(unencMsg.getSenderAddressVersion(), unencMsg.getStreamNumber(), 
-				publicSigningKey, publicEncryptionKey);
+		String fromAddress = PublicKeyCache.getInstance().getEntry(unencMsg.getSenderAddressVersion(), unencMsg.getStreamNumber(), 
+				publicSigningKey, publicEncryptionKey).getAddress();
 		
 		// Create a new Message object and populate its fields with the extracted data
 		Message message = new Message();
@@ -63,6 +63,21 @@ public class ObjectProcessor
 	 * @return A BMObject created from the parsed data
 	 */
 	public BMObject parseObject (byte[] objectBytes)
+	{
+		return parseObject(objectBytes, true);
+	}
+	
+	/**
+	 * Takes a byte[] containing the data of a Bitmessage Object (e.g. a msg)
+	 * and parses it, returning a BMObject. The check of the object's POW can
+	 * be skipped if it has already been done, e.g. by POWProcessor's batch check. 
+	 * 
+	 * @param objectBytes - A byte[] containing the Object data
+	 * @param checkPOW - A boolean indicating whether or not the object's POW should be checked
+	 * 
+	 * @return A BMObject created from the parsed data
+	 */
+	public BMObject parseObject (byte[] objectBytes, boolean checkPOW)
 	{
 		// Read the POW Nonce
 		int readPosition = 0;
@@ -118,12 +133,15 @@ public class ObjectProcessor
 		byte[] payload = ArrayCopier.copyOfRange(objectBytes, readPosition, objectBytes.length);
 		
 		// Check whether the POW for this Object is valid
-		byte[] powPayload = ArrayCopier.copyOfRange(objectBytes, 8, objectBytes.length);
-		boolean powValid = new POWProcessor().checkPOW(powPayload, powNonce, expirationTime, NETWORK_NONCE_TRIALS_PER_BYTE, NETWORK_EXTRA_BYTES);
-		if (powValid == false)
+		if (checkPOW)
 		{
-			throw new RuntimeException("While running ObjectProcessor.parseObject(), the POW nonce was found to be invalid. The invalid value was " + powNonce + ".\n"
-					+ "The full object containing the invalid POW nonce was: " + ByteFormatter.byteArrayToHexString(objectBytes));
+			byte[] powPayload = ArrayCopier.copyOfRange(objectBytes, 8, objectBytes.length);
+			boolean powValid = new POWProcessor().checkPOW(powPayload, powNonce, expirationTime, NETWORK_NONCE_TRIALS_PER_BYTE, NETWORK_EXTRA_BYTES);
+			if (powValid == false)
+			{
+				throw new RuntimeException("While running ObjectProcessor.parseObject(), the POW nonce was found to be invalid. The invalid value was " + powNonce + ".\n"
+						+ "The full object containing the invalid POW nonce was: " + ByteFormatter.byteArrayToHexString(objectBytes));
+			}
 		}
 		
 		// Create a new BMObject and use the parsed data to populate its fields
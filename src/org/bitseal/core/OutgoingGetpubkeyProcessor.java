@@ -4,8 +4,10 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
 import org.bitseal.R;
+import org.bitseal.data.AddressBookRecord;
 import org.bitseal.data.Message;
 import org.bitseal.data.Payload;
+import org.bitseal.database.AddressBookRecordProvider;
 import org.bitseal.database.PayloadProvider;
 import org.bitseal.network.NetworkHelper;
 import org.bitseal.network.ServerCommunicator;
@@ -139,7 +141,16 @@ public class OutgoingGetpubkeyProcessor
 		}
 		else
 		{
-			pubkeyIdentifier = addProc.calculateAddressTag(addressString);
+			// Use the tag stored with the address book record of this address if there is one
+			AddressBookRecord record = AddressBookRecordProvider.get(App.getContext()).searchByAddress(addressString);
+			if (record != null && record.getTag() != null)
+			{
+				pubkeyIdentifier = record.getTag();
+			}
+			else
+			{
+				pubkeyIdentifier = addProc.calculateAddressTag(addressString);
+			}
 		}
 		
 		byte[] payload = null;
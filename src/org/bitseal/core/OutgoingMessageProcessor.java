@@ -9,11 +9,13 @@ import org.bitseal.R;
 import org.bitseal.crypt.CryptProcessor;
 import org.bitseal.crypt.KeyConverter;
 import org.bitseal.crypt.PubkeyGenerator;
+import org.bitseal.crypt.PublicKeyCache;
 import org.bitseal.crypt.SigProcessor;
 import org.bitseal.data.Address;
 import org.bitseal.data.BMObject;
 import org.bitseal.data.Message;
 import org.bitseal.data.Payload;
+import org.bitseal.data.PooledAck;
 import org.bitseal.data.Pubkey;
 import org.bitseal.data.UnencryptedMsg;
 import org.bitseal.database.AddressProvider;
@@ -23,6 +25,8 @@ import org.bitseal.database.PayloadProvider;
 import org.bitseal.database.PubkeyProvider;
 import org.bitseal.database.PubkeysTable;
 import org.bitseal.pow.POWProcessor;
+import org.bitseal.pow.POWTelemetryListener;
+import org.bitseal.services.BackgroundService;
 import org.bitseal.services.MessageStatusHandler;
 import org.bitseal.util.ArrayCopier;
 import org.bitseal.util.ByteFormatter;
@@ -61,8 +65,8 @@ public class OutgoingMessageProcessor
 	 * @param toPubkey - The Pubkey of the address that the message is 
 	 * being sent to
 	 * @param doPOW - A boolean value indicating whether or not POW should
-	 * be done for this message AND for pubkeys generated during the message
-	 * sending process
+	 * be done on this device for this message. The POW for the message's 
+	 * acknowledgment is done on this device either way.
 	 * @param timeToLive - The 'time to live' value (in seconds) to be used in
 	 * processing this message
 	 * 
@@ -72,7 +76,7 @@ public class OutgoingMessageProcessor
 	public Payload processOutgoingMessage (Message message, Pubkey toPubkey, boolean doPOW, long timeToLive)
 	{
 		// Convert the message into a new UnencryptedMsg object
-		UnencryptedMsg unencMsg = constructUnencryptedMsg(message, toPubkey, doPOW, timeToLive);
+		UnencryptedMsg unencMsg = constructUnencryptedMsg(message, toPubkey, timeToLive);
 		
 		// Encrypt the message and, if enabled, do POW
 		BMObject encMsg = constructMsg(message, unencMsg, toPubkey, doPOW, timeToLive);
@@ -94,13 +98,12 @@ public class OutgoingMessageProcessor
 	 * 
 	 * @param message - The Message object to convert into an UnencryptedMsg object
 	 * @param toPubkey - A Pubkey object containing the public keys of the address the message is being sent to
-	 * @param doPOW - A boolean indicating whether or not POW should be done for msgs generated during this process
 	 * @param timeToLive - The 'time to live' value (in seconds) to be used in
 	 * processing this message
 	 * 
 	 * @return An UnencryptedMsg object based on the supplied Message object. 
 	 */
-	private UnencryptedMsg constructUnencryptedMsg(Message message, Pubkey toPubkey, boolean doPOW, long timeToLive)
+	private UnencryptedMsg constructUnencryptedMsg(Message message, Pubkey toPubkey, long timeToLive)
 	{
 		String messageSubject = message.getSubject();
 		String messageBody = message.getBody();
@@ -188,14 +191,34 @@ public class OutgoingMessageProcessor
 			publicEncryptionKey = ArrayCopier.copyOfRange(publicEncryptionKey, 1, publicEncryptionKey.length);
 		}
 		
-		// Generate the ack data (32 random bytes)
-		byte[] ackData = new byte[32];
-		new SecureRandom().nextBytes(ackData);
+		// The ack is embedded in the encrypted msg and later sent on by the recipient, so a server which does the POW 
+		// for the msg cannot do it for the ack. Its POW must therefore be done here even when the msg's POW is outsourced. 
+		boolean doAckPOW = BackgroundService.DO_POW;
 		
-		// Generate the full ack Message that will be included in this unencrypted msg.
-		// NOTE: Calling generateFullAckMessage() results in Proof of Work calculations being done for the
-		//       acknowledgement Message. This can take a long time and lots of CPU power!
-		byte[] fullAckMessage = generateFullAckMessage(message, ackData, fromPubkey.getStreamNumber(), doPOW, timeToLive);
+		// If possible, take an ack which had its POW done in advance from the ack pool
+		byte[] ackData;
+		byte[] fullAckMessage;
+		PooledAck pooledAck = null;
+		if (doAckPOW)
+		{
+			pooledAck = new AckPool().takeAck(timeToLive, fromPubkey.getStreamNumber());
+		}
+		if (pooledAck != null)
+		{
+			Log.i(TAG, "Using an ack from the ack pool for a msg that we are sending");
+			ackData = pooledAck.getAckData();
+			fullAckMessage = pooledAck.getFullAckMessage();
+		}
+		else
+		{
+			// Generate the ack data (32 random bytes)
+			ackData = generateAckData();
+			
+			// Generate the full ack Message that will be included in this unencrypted msg.
+			// NOTE: Calling generateFullAckMessage() results in Proof of Work calculations being done for the
+			//       acknowledgement Message. This can take a long time and lots of CPU power!
+			fullAckMessage = generateFullAckMessage(message, ackData, fromPubkey.getStreamNumber(), doAckPOW, timeToLive);
+		}
 		Log.d(TAG, "Full ack Message: " + ByteFormatter.byteArrayToHexString(fullAckMessage));
 			
 		// Create the single "message" text String which contains both the subject and the body of the message
@@ -268,8 +291,9 @@ public class OutgoingMessageProcessor
 	 */
 	private BMObject constructMsg (Message message, UnencryptedMsg unencMsg, Pubkey toPubkey, boolean doPOW, long timeToLive)
 	{		
-		// Reconstruct the ECPublicKey object from the byte[] found the the relevant PubKey
-		ECPublicKey publicEncryptionKey = new KeyConverter().reconstructPublicKey(toPubkey.getPublicEncryptionKey());
+		// Get the ECPublicKey object for the byte[] found the the relevant PubKey, reconstructing it if it is not cached already
+		ECPublicKey publicEncryptionKey = PublicKeyCache.getInstance().getEntry(toPubkey.getObjectVersion(), toPubkey.getStreamNumber(),
+				toPubkey.getPublicSigningKey(), toPubkey.getPublicEncryptionKey()).getPublicEncryptionKey();
 		
 		// Construct the payload to be encrypted
 		byte[] msgDataForEncryption = constructMsgPayloadForEncryption(unencMsg);
@@ -293,12 +317,14 @@ public class OutgoingMessageProcessor
 		
 		if (doPOW)
 		{
-			MessageStatusHandler.updateMessageStatus(message, App.getContext().getString(R.string.message_status_doing_pow));
+			messageStatus = App.getContext().getString(R.string.message_status_doing_pow);
+			MessageStatusHandler.updateMessageStatus(message, messageStatus);
 			
 			// Do proof of work for the Msg object
 			Log.i(TAG, "About to do POW calculations for a msg that we are sending");
 			byte[] powPayload = constructMsgPayloadForPOW(msg);
-			long powNonce = new POWProcessor().doPOW(powPayload, unencMsg.getExpirationTime(), toPubkey.getNonceTrialsPerByte(), toPubkey.getExtraBytes());
+			long powNonce = new POWProcessor().doPOW(powPayload, unencMsg.getExpirationTime(), toPubkey.getNonceTrialsPerByte(), toPubkey.getExtraBytes(), 
+					MessageStatusHandler.createPOWStatusListener(message, messageStatus));
 			msg.setPOWNonce(powNonce);
 		}
 		else
@@ -415,8 +441,72 @@ public class OutgoingMessageProcessor
 	private byte[] generateFullAckMessage (Message message, byte[] ackData, int toStreamNumber, boolean doPOW, long timeToLive)
 	{
 		// Get the fuzzed expiration time
-		long expirationTime = TimeUtils.getFuzzedExpirationTime(timeToLive);		
+		long expirationTime = TimeUtils.getFuzzedExpirationTime(timeToLive);
+		
+		POWTelemetryListener telemetryListener = null;
+		if (doPOW)
+		{
+			// Update the status of this message displayed in the UI
+			String messageStatus = App.getContext().getString(R.string.message_status_doing_ack_pow);
+			MessageStatusHandler.updateMessageStatus(message, messageStatus);
+			telemetryListener = MessageStatusHandler.createPOWStatusListener(message, messageStatus);
+		}
 		
+		return constructFullAckMessage(ackData, expirationTime, toStreamNumber, doPOW, telemetryListener);
+	}
+	
+	/**
+	 * Creates an acknowledgment msg in advance, with its proof of work done, so that it can be
+	 * added to the ack pool and included in a msg that we send later.<br><br>
+	 * 
+	 * <b>NOTE!</b> Calling this method results in proof of work calculations being done.
+	 * This can take a long time and lots of CPU power!
+	 * 
+	 * @param timeToLive - The 'time to live' class (in seconds) that the ack is being created for
+	 * @param expirationTime - The expiration time to use for the ack
+	 * @param streamNumber - The stream number to use for the ack
+	 * 
+	 * @return A PooledAck containing the ack data and the full ack msg
+	 */
+	public PooledAck createPooledAck(long timeToLive, long expirationTime, int streamNumber)
+	{
+		byte[] ackData = generateAckData();
+		byte[] fullAckMessage = constructFullAckMessage(ackData, expirationTime, streamNumber, true, null);
+		
+		PooledAck pooledAck = new PooledAck();
+		pooledAck.setTimeToLive(timeToLive);
+		pooledAck.setExpirationTime(expirationTime);
+		pooledAck.setStreamNumber(streamNumber);
+		pooledAck.setAckData(ackData);
+		pooledAck.setFullAckMessage(fullAckMessage);
+		return pooledAck;
+	}
+	
+	/**
+	 * Generates the 32 bytes of random data which identify an acknowledgment.
+	 * 
+	 * @return A byte[] containing the ack data
+	 */
+	private byte[] generateAckData()
+	{
+		byte[] ackData = new byte[32];
+		new SecureRandom().nextBytes(ackData);
+		return ackData;
+	}
+	
+	/**
+	 * Constructs the full acknowledgment msg for the given ack data. See generateFullAckMessage().
+	 * 
+	 * @param ackData - A byte[] containing the 32 bytes of random data which is the acknowledgment data
+	 * @param expirationTime - The expiration time to use for the ack msg
+	 * @param toStreamNumber - An int representing the stream number of the destination address of the message to be sent
+	 * @param doPOW - A boolean indicating whether or not POW should be done for the ack msg
+	 * @param telemetryListener - The POWTelemetryListener to report the progress of the POW to. May be null.
+	 * 
+	 * @return A byte[] containing the full ack msg
+	 */
+	private byte[] constructFullAckMessage(byte[] ackData, long expirationTime, int toStreamNumber, boolean doPOW, POWTelemetryListener telemetryListener)
+	{
 		// Encode the expiration time, object type, object version, and stream number values into byte form
 		byte[] expirationTimeBytes = ByteUtils.longToBytes((expirationTime)); 
 		byte[] objectTypeBytes = ByteUtils.intToBytes(OBJECT_TYPE_MSG);		
@@ -430,13 +520,10 @@ public class OutgoingMessageProcessor
 		byte[] payload = new byte[0];
 		if (doPOW)
 		{
-			// Update the status of this message displayed in the UI
-			String messageStatus = App.getContext().getString(R.string.message_status_doing_ack_pow);
-			MessageStatusHandler.updateMessageStatus(message, messageStatus);
-			
 			// Do proof of work for the acknowledgement payload
-			Log.i(TAG, "About to do POW calculations for the acknowledgment payload of a msg that we are sending");
-			long powNonce = new POWProcessor().doPOW(initialPayload, expirationTime, POWProcessor.NETWORK_NONCE_TRIALS_PER_BYTE, POWProcessor.NETWORK_EXTRA_BYTES);
+			Log.i(TAG, "About to do POW calculations for an acknowledgment payload");
+			long powNonce = new POWProcessor().doPOW(initialPayload, expirationTime, POWProcessor.NETWORK_NONCE_TRIALS_PER_BYTE, POWProcessor.NETWORK_EXTRA_BYTES, 
+					telemetryListener);
 		
 			byte[] powNonceBytes = ByteUtils.longToBytes(powNonce);
 			
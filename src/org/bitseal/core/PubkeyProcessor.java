@@ -8,12 +8,15 @@ import org.bitseal.R;
 import org.bitseal.crypt.AddressGenerator;
 import org.bitseal.crypt.CryptProcessor;
 import org.bitseal.crypt.KeyConverter;
+import org.bitseal.crypt.PublicKeyCache;
 import org.bitseal.crypt.SigProcessor;
 import org.bitseal.data.Address;
+import org.bitseal.data.AddressBookRecord;
 import org.bitseal.data.BMObject;
 import org.bitseal.data.Message;
 import org.bitseal.data.Payload;
 import org.bitseal.data.Pubkey;
+import org.bitseal.database.AddressBookRecordProvider;
 import org.bitseal.database.AddressProvider;
 import org.bitseal.database.PayloadProvider;
 import org.bitseal.database.PubkeyProvider;
@@ -56,11 +59,14 @@ public class PubkeyProcessor
 	 * @param pubkey - A Pubkey object to be validated
 	 * @param addressString - A String containing the Bitmessage address to 
 	 * validate the Pubkey against
+	 * @param tag - A byte[] containing the tag of the address, as stored with its
+	 * address book record or calculated from the address String. Only used if the 
+	 * address is of version 4 or above, and may be null otherwise. 
 	 * 
 	 * @return A boolean indicating whether or not the Pubkey and address String
 	 * are valid for each other
 	 */
-	public boolean validatePubkey (Pubkey pubkey, String addressString)
+	public boolean validatePubkey (Pubkey pubkey, String addressString, byte[] tag)
 	{
 		// First check that the given address string is a valid Bitmessage address.
 		AddressProcessor addProc = new AddressProcessor();
@@ -75,9 +81,8 @@ public class PubkeyProcessor
 		// Check that the pubkey is valid by using its public signing key, public encryption key, 
 		// address version number, and stream number to recreate the address string that it corresponds to.
 		// This should match the address string that we started with.
-		AddressGenerator addGen = new AddressGenerator();
-		String recreatedAddress = addGen.recreateAddressString(pubkey.getObjectVersion(), pubkey.getStreamNumber(),
-				pubkey.getPublicSigningKey(), pubkey.getPublicEncryptionKey());
+		String recreatedAddress = PublicKeyCache.getInstance().getEntry(pubkey.getObjectVersion(), pubkey.getStreamNumber(),
+				pubkey.getPublicSigningKey(), pubkey.getPublicEncryptionKey()).getAddress();
 		
 		Log.i(TAG, "Recreated address String: " + recreatedAddress);
 		boolean recreatedAddressValid = recreatedAddress.equals(addressString);
@@ -95,13 +100,12 @@ public class PubkeyProcessor
 		int addressVersion = addressNumbers[0];
 		if (addressVersion > 2)
 		{
-			// To verify the signature we first have to convert the public signing key from the retrieved pubkey into an ECPublicKey object
-			KeyConverter keyConv = new KeyConverter();
-			ECPublicKey publicSigningKey = keyConv.reconstructPublicKey(pubkey.getPublicSigningKey());
-			
+			// The public signing key is taken from the PublicKeyCache, so that the point decoded from it is cached
 			SigProcessor sigProc = new SigProcessor();
-			byte[] signaturePayload = sigProc.createPubkeySignaturePayload(pubkey);
-			boolean sigValid = (sigProc.verifySignature(signaturePayload, pubkey.getSignature(), publicSigningKey));
+			byte[] signaturePayload = sigProc.createPubkeySignaturePayload(pubkey, tag);
+			PublicKeyCache.Entry signer = PublicKeyCache.getInstance().getEntry(pubkey.getObjectVersion(), pubkey.getStreamNumber(), 
+					pubkey.getPublicSigningKey(), pubkey.getPublicEncryptionKey());
+			boolean sigValid = (sigProc.verifySignature(signaturePayload, pubkey.getSignature(), signer));
 			
 			if (sigValid == false)
 			{
@@ -255,15 +259,28 @@ public class PubkeyProcessor
 		
 		if (addressVersion >= 4) // The pubkey will be encrypted
 		{
-			// Calculate the tag that will be used to request the encrypted pubkey
-			byte[] tag = addProc.calculateAddressTag(addressString);
+			// Get the tag that will be used to request the encrypted pubkey and the key that will be used to decrypt it.
+			// Our own pubkeys are always found in the database, so only the address book needs to be checked. 
+			byte[] tag;
+			byte[] encryptionKey;
+			AddressBookRecord record = AddressBookRecordProvider.get(App.getContext()).searchByAddress(addressString);
+			if (record != null && record.getTag() != null)
+			{
+				tag = record.getTag();
+				encryptionKey = record.getAddressEncryptionKey();
+			}
+			else
+			{
+				tag = addProc.calculateAddressTag(addressString);
+				encryptionKey = addProc.calculateAddressEncryptionKey(addressString);
+			}
 			
 			// Retrieve the encrypted pubkey from a server
-			pubkey = servCom.requestPubkeyFromServer(addressString, tag, addressVersion);
+			pubkey = servCom.requestPubkeyFromServer(addressString, tag, encryptionKey, addressVersion);
 		}
 		else // The pubkey is of version 3 or below, and will therefore not be encrypted
 		{
-			pubkey = servCom.requestPubkeyFromServer(addressString, ripeHash, addressVersion);
+			pubkey = servCom.requestPubkeyFromServer(addressString, ripeHash, null, addressVersion);
 		}
 		
 		// Save the pubkey to the database and set its ID with the one generated by the database
@@ -280,15 +297,15 @@ public class PubkeyProcessor
 	 * the data received from a server after requesting a pubkey. 
 	 * 
 	 * @param pubkeyData - A byte[] containing the encoded data for a pubkey
-	 * @param addressString - If the pubkey is to be reconstructed is of address
-	 * version 4 or above, then a String representing the Bitmessage address
+	 * @param encryptionKey - If the pubkey to be reconstructed is of address
+	 * version 4 or above, then the encryption key of the Bitmessage address
 	 * corresponding to the pubkey must be supplied, in order for the encrypted
-	 * part of the pubkey to be decrypted. Otherwise, the addressString parameter
+	 * part of the pubkey to be decrypted. Otherwise, the encryptionKey parameter
 	 * will not be used. 
 	 * 
 	 * @return A Pubkey object constructed from the data provided
 	 */
-	public Pubkey reconstructPubkey (byte[] pubkeyData, String addressString)
+	public Pubkey reconstructPubkey (byte[] pubkeyData, byte[] encryptionKey)
 	{
 		// First parse the standard Bitmessage object data
 		BMObject pubkeyObject = new ObjectProcessor().parseObject(pubkeyData);
@@ -300,11 +317,14 @@ public class PubkeyProcessor
 		// Pubkeys of version 4 and above have most of their data encrypted. 
 		if (pubkeyObject.getObjectVersion() >= 4)
 		{
+			if (encryptionKey == null)
+			{
+				throw new RuntimeException("PubkeyProcessor.reconstructPubkey() was given a pubkey of version " + pubkeyObject.getObjectVersion() 
+						+ " but no encryption key to decrypt it with");
+			}
 			byte[] encryptedData = ArrayCopier.copyOfRange(pubkeyPayload, readPosition + 32, pubkeyPayload.length); // Skip over the tag
 			
 			// Create the ECPrivateKey object that we will use to decrypt encrypted the pubkey data
-			AddressProcessor addProc = new AddressProcessor();
-			byte[] encryptionKey = addProc.calculateAddressEncryptionKey(addressString);
 			KeyConverter keyConv = new KeyConverter();
 			ECPrivateKey k = keyConv.calculatePrivateKeyFromDoubleHashKey(encryptionKey);
 			
@@ -432,11 +452,14 @@ public class PubkeyProcessor
 			dataToEncryptStream.write(pubkey.getSignature());
 			
 			// Create the ECPublicKey object that we will use to encrypt the data. First we will
-			// retrieve the Address corresponding to this pubkey, so that we can calculate the encryption
-			// key derived from the double hash of the address data.
+			// retrieve the Address corresponding to this pubkey, so that we can use the encryption
+			// key derived from the double hash of the address data, which is stored along with it.
 			Address address = AddressProvider.get(App.getContext()).searchForSingleRecord(pubkey.getCorrespondingAddressId());
-			String addressString = address.getAddress();
-			byte[] encryptionKey = new AddressProcessor().calculateAddressEncryptionKey(addressString);
+			byte[] encryptionKey = address.getAddressEncryptionKey();
+			if (encryptionKey == null)
+			{
+				encryptionKey = new AddressProcessor().calculateAddressEncryptionKey(address.getAddress());
+			}
 			ECPublicKey K = new KeyConverter().calculatePublicKeyFromDoubleHashKey(encryptionKey);
 			
 			// Encrypt the pubkey data
@@ -121,6 +121,23 @@ public class QueueRecordProcessor
 		return q;
 	}
 	
+	/**
+	 * Copies the POW placement decision recorded in one QueueRecord to another, so that 
+	 * the decision made for a task is kept by the QueueRecords for the later stages of 
+	 * that task.
+	 * 
+	 * @param source - The QueueRecord to copy the decision from
+	 * @param destination - The QueueRecord to copy the decision to. It is updated in the database.
+	 */
+	public void copyPOWPlacement(QueueRecord source, QueueRecord destination)
+	{
+		if (source.getPOWPlacement() != null)
+		{
+			destination.setPOWPlacement(source.getPOWPlacement());
+			updateQueueRecord(destination);
+		}
+	}
+	
 	/**
 	 * Updates a given QueueRecord, over-writing the old version
 	 * of it in the database. 
@@ -186,7 +186,14 @@ public class AddressGenerator
 	private Address createAddressFromKeys(byte[] privateSigningKey, byte[] privateEncryptionKey, byte[] publicSigningKey, byte[] publicEncryptionKey)
 	{
 		byte[] ripeHash = calculateRipeHash(publicSigningKey, publicEncryptionKey);
-		byte[] tag = calculateAddressTag(MY_ADDRESS_VERSION, MY_STREAM_NUMBER, ripeHash);
+		
+		// The tag and the encryption key of the address are stored along with it, so that they do not need to be recalculated each time they are used.
+		// They are calculated from the full 20 byte ripe hash, including any leading zeros that were removed from it.
+		byte[] fullRipeHash = new byte[20];
+		System.arraycopy(ripeHash, 0, fullRipeHash, fullRipeHash.length - ripeHash.length, ripeHash.length);
+		byte[] doubleHashOfAddressData = calculateDoubleHashOfAddressData(MY_ADDRESS_VERSION, MY_STREAM_NUMBER, fullRipeHash);
+		byte[] tag = ArrayCopier.copyOfRange(doubleHashOfAddressData, 32, doubleHashOfAddressData.length);
+		byte[] addressEncryptionKey = ArrayCopier.copyOfRange(doubleHashOfAddressData, 0, 32);
 		
 		String addressString = calculateAddressString(MY_ADDRESS_VERSION, MY_STREAM_NUMBER, ripeHash);
 
@@ -200,6 +207,7 @@ public class AddressGenerator
 		generatedAddress.setPrivateEncryptionKey(wifPrivateEncryptionKey);
 		generatedAddress.setRipeHash(ripeHash);
 		generatedAddress.setTag(tag);
+		generatedAddress.setAddressEncryptionKey(addressEncryptionKey);
 		
 		return generatedAddress; // Note that the ID and correspondingPubkeyId fields of this Address object have not yet been set
 	}
@@ -262,7 +270,7 @@ public class AddressGenerator
 	 * 
 	 * @return A String containing the calculated address
 	 */
-	private String calculateAddressString(int addressVersion, int streamNumber, byte[] ripeHash)
+	String calculateAddressString(int addressVersion, int streamNumber, byte[] ripeHash)
 	{
 		byte[] combinedChecksumData = calculateCombinedChecksumData(addressVersion, streamNumber, ripeHash);
 		
@@ -291,16 +299,16 @@ public class AddressGenerator
 	}
 	
 	/**
-	 * Calculates the 'tag' of a given Bitmessage address. The 'tag' is the second
-	 * half of the double SHA-512 hash of the combined address data. 
+	 * Calculates the double SHA-512 hash of the combined address data. The first half of
+	 * this is the address's encryption key and the second half is its tag. 
 	 * 
 	 * @param addressVersion - An int representing the address version number
 	 * @param streamNumber - An int representing the address stream number
 	 * @param ripeHash - A byte[] containing the ripe hash of the address
 	 * 
-	 * @return A byte[] containing the Address tag
+	 * @return A byte[] containing the double hash of the address data
 	 */
-	private byte[] calculateAddressTag(int addressVersion, int streamNumber, byte[] ripeHash)
+	private byte[] calculateDoubleHashOfAddressData(int addressVersion, int streamNumber, byte[] ripeHash)
 	{
 		byte[] addressVersionBytes = VarintEncoder.encode((long) addressVersion);
 		byte[] streamNumberBytes = VarintEncoder.encode((long) streamNumber);
@@ -318,12 +326,9 @@ public class AddressGenerator
 		}
 		catch (IOException e) 
 		{
-			throw new RuntimeException("IOException occurred in AddressGenerator.calculateAddressTag()", e);
+			throw new RuntimeException("IOException occurred in AddressGenerator.calculateDoubleHashOfAddressData()", e);
 		}
 		
-		byte[] doubleHashOfAddressData = SHA512.doubleHash(combinedAddressData);
-		byte[] tag = ArrayCopier.copyOfRange(doubleHashOfAddressData, 32, doubleHashOfAddressData.length);
-		
-		return tag;
+		return SHA512.doubleHash(combinedAddressData);
 	}
 }
\ No newline at end of file
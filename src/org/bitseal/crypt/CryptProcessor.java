@@ -1,37 +1,21 @@
 package org.bitseal.crypt;
 
 import java.math.BigInteger;
-import java.security.InvalidAlgorithmParameterException;
-import java.security.KeyFactory;
-import java.security.KeyPair;
-import java.security.KeyPairGenerator;
-import java.security.NoSuchAlgorithmException;
-import java.security.NoSuchProviderException;
-import java.security.SecureRandom;
-import java.security.Security;
-import java.security.spec.InvalidKeySpecException;
-import java.util.Arrays;
+import java.security.InvalidKeyException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 
-import org.bitseal.data.EncryptedPayload;
 import org.bitseal.util.ArrayCopier;
 import org.bitseal.util.ByteUtils;
 import org.spongycastle.crypto.BufferedBlockCipher;
 import org.spongycastle.crypto.CipherParameters;
 import org.spongycastle.crypto.DataLengthException;
 import org.spongycastle.crypto.InvalidCipherTextException;
-import org.spongycastle.crypto.engines.AESEngine;
-import org.spongycastle.crypto.modes.CBCBlockCipher;
-import org.spongycastle.crypto.paddings.BlockCipherPadding;
-import org.spongycastle.crypto.paddings.PKCS7Padding;
-import org.spongycastle.crypto.paddings.PaddedBufferedBlockCipher;
 import org.spongycastle.crypto.params.KeyParameter;
 import org.spongycastle.crypto.params.ParametersWithIV;
-import org.spongycastle.jce.ECNamedCurveTable;
 import org.spongycastle.jce.interfaces.ECPrivateKey;
 import org.spongycastle.jce.interfaces.ECPublicKey;
-import org.spongycastle.jce.provider.asymmetric.ec.EC5Util;
-import org.spongycastle.jce.spec.ECNamedCurveParameterSpec;
-import org.spongycastle.math.ec.ECCurve;
 import org.spongycastle.math.ec.ECPoint;
 
 /**
@@ -41,39 +25,15 @@ import org.spongycastle.math.ec.ECPoint;
  */
 public class CryptProcessor
 {
-	private static final String ALGORITHM_ECDSA = "ECDSA";
-	private static final String ALGORITHM_ECIES = "ECIES";
-	private static final String PROVIDER = "SC"; // Spongy Castle
-	private static final String CURVE = "secp256k1";
 	private static final int CURVE_TYPE = 714;
+	private static final int IV_LENGTH = 16;
+	private static final int MAC_LENGTH = 32;
 	
-	private KeyPairGenerator kpg;
-	private KeyPairGenerator skpg;
+	private final CryptoContext context;
 	
 	public CryptProcessor()
 	{
-		Security.addProvider(new org.spongycastle.jce.provider.BouncyCastleProvider());
-
-		try 
-		{
-			kpg = KeyPairGenerator.getInstance(ALGORITHM_ECIES, PROVIDER);			
-			kpg.initialize(ECNamedCurveTable.getParameterSpec(CURVE), new SecureRandom());
-
-			skpg = KeyPairGenerator.getInstance(ALGORITHM_ECDSA, PROVIDER);
-			skpg.initialize(ECNamedCurveTable.getParameterSpec(CURVE), new SecureRandom());
-		} 
-		catch (NoSuchAlgorithmException e) 
-		{
-			throw new RuntimeException("NoSuchAlgorithmException occurred in CryptProcessor constructor", e);
-		}
-		catch (NoSuchProviderException e) 
-		{
-			throw new RuntimeException("NoSuchProviderException occurred in CryptProcessor constructor", e);
-		}
-		catch (InvalidAlgorithmParameterException e) 
-		{
-			throw new RuntimeException("InvalidAlgorithmParameterException occurred in CryptProcessor constructor", e);
-		}
+		context = CryptoContext.getInstance();
 	}
 	
 	/**
@@ -88,23 +48,23 @@ public class CryptProcessor
 	 */
 	public byte[] encrypt (byte[] plain, ECPublicKey K)
 	{
-		KeyPair random = generateEncryptionKeyPair();
-		ECPublicKey R = (ECPublicKey) random.getPublic();
-		BigInteger r = ((ECPrivateKey)random.getPrivate()).getD();
+		// Generate the random key pair (r, R) using the precomputed multiples of the generator point
+		BigInteger r = context.generatePrivateKeyValue();
+		ECPoint R = GeneratorTable.getInstance().multiply(r);
 		
-		ECPoint P = K.getQ().multiply(r);
+		ECPoint P = Secp256k1.multiply(K.getQ(), r);
 
 		byte[] tmpKey = deriveKey(P);
 		byte[] key_e = ArrayCopier.copyOfRange(tmpKey, 0, 32);
 		byte[] key_m = ArrayCopier.copyOfRange(tmpKey, 32, 64);
 
 		byte[] iv = new byte[16];
-		new SecureRandom().nextBytes(iv);
+		context.getSecureRandom().nextBytes(iv);
 
 		byte[] cipherText = doAES(key_e, iv, plain, true);
 		
-		byte[] x = ByteUtils.getUnsignedBytes(R.getQ().getX().toBigInteger(), 32);
-		byte[] y = ByteUtils.getUnsignedBytes(R.getQ().getY().toBigInteger(), 32);
+		byte[] x = ByteUtils.getUnsignedBytes(R.getX().toBigInteger(), 32);
+		byte[] y = ByteUtils.getUnsignedBytes(R.getY().toBigInteger(), 32);
 
 		int xLength = x.length;
 		int yLength = y.length;
@@ -131,152 +91,121 @@ public class CryptProcessor
 	 */
 	public byte[] decrypt (byte[] encryptedPayload, ECPrivateKey k)
 	{
-		// Parse the data from the encrypted payload
-		EncryptedPayload encPay = parseEncryptedPayload(encryptedPayload);
-		byte[] iv = encPay.getIV();
-		BigInteger x = encPay.getX();
-		BigInteger y = encPay.getY();
-		byte[] cipherText = encPay.getCipherText();
-		byte[] mac = encPay.getMac();
-		
-		// Reconstruct public key R
-		ECPublicKey R = createPublicEncryptionKey(x, y);
-
-		// Now that we have parsed all the data from the encrypted payload, we can begin the decryption process.
-		// First, do an EC point multiply with private key k and public key R. This gives you public key P. 
-		ECPoint P = R.getQ().multiply(k.getD());
-
-		byte[] tmpKey = deriveKey(P);
-		byte[] key_e = ArrayCopier.copyOf(tmpKey, 32);
-		byte[] key_m = ArrayCopier.copyOfRange(tmpKey, 32, 64);
-
-		// Check whether the mac is valid	
-		byte[] dataForMac = ArrayCopier.copyOfRange(encryptedPayload, 0, encryptedPayload.length - 32); // The mac now covers everything except itself
-		byte[] expectedMAC = SHA256.hmacSHA256(dataForMac, key_m);
-		
-		if (Arrays.equals(mac, expectedMAC) == false)
+		byte[] plainText = attemptDecryption(encryptedPayload, k);
+		if (plainText == null)
 		{
-			// The mac is invalid
-			throw new RuntimeException("While attempting to decrypt an encrypted payload in CryptProcessor.decryptMsg(), the mac was found to be invalid");
-		}
-		else
-		{
-			// The mac is valid. Decrypt the parsed data
-			return doAES(key_e, iv, cipherText, false);
+			throw new RuntimeException("While attempting to decrypt an encrypted payload in CryptProcessor.decrypt(), the mac was found to be invalid");
 		}
+		return plainText;
 	}
 	
-	/**
-	 * Parses an encrypted payload, for example from a msg or broadcast,
-	 * and uses it to create a new EncryptedPayload object.
+	/** 
+	 * Attempts to decrypt an encrypted msg, returning null if the mac shows that the
+	 * payload was not encrypted for the given key. This is the expected outcome when
+	 * trying each of our keys on a msg which may not be bound for us, so it is reported
+	 * without creating an exception.<br><br>
 	 * 
-	 * @param encryptedPayload - A byte[] containing the encrypted payload data
+	 * The payload is read in place, without copying its parts into separate arrays. The
+	 * mac is checked over the payload itself before anything is decrypted, so a failed
+	 * attempt costs one EC point multiply and the hashing of the payload.<br><br>
 	 * 
-	 * @return An EncryptedPayload object containing the parsed data. 
+	 * <b>NOTE! If the payload is malformed, this method will throw a RuntimeException</b>
+	 *  
+	 * @param encryptedPayload - A byte[] containing the data to be decrypted
+	 * @param k - The ECPrivateKey object used to decrypt the data
+	 * 
+	 * @return A byte[] containing the decrypted plain text, or null if the mac was invalid
 	 */
-	private EncryptedPayload parseEncryptedPayload(byte[] encryptedPayload)
+	public byte[] attemptDecryption (byte[] encryptedPayload, ECPrivateKey k)
 	{
-		// Parse the data from the payload
-		int readPosition = 0;
-				
-		byte[] iv = ArrayCopier.copyOfRange(encryptedPayload, readPosition, readPosition + 16);
-		readPosition += 16;
+		// Parse the positions of the data in the encrypted payload: the IV, the curve type, public key R, the cipher text and the mac
+		int readPosition = IV_LENGTH;
+		if (encryptedPayload.length < IV_LENGTH + 6 + MAC_LENGTH)
+		{
+			throw new RuntimeException("While running CryptProcessor.attemptDecryption(), the encrypted payload was found to be too short. Something is wrong!\n"
+					+ "The length of the encrypted payload was " + encryptedPayload.length + " bytes");
+		}
 		
-		int curveType = ByteUtils.bytesToShort(ArrayCopier.copyOfRange(encryptedPayload, readPosition, readPosition + 2));
+		int curveType = readShort(encryptedPayload, readPosition);
 		readPosition += 2;
 		if (curveType != CURVE_TYPE)
 		{
-			throw new RuntimeException("While running CryptProcessor.parseEncryptedPayload(), the curve type was not 714. Something is wrong!\n"
+			throw new RuntimeException("While running CryptProcessor.attemptDecryption(), the curve type was not 714. Something is wrong!\n"
 					+ "The curve type read was " + curveType);
 		}
 		
-		int xLength = ByteUtils.bytesToShort(ArrayCopier.copyOfRange(encryptedPayload, readPosition, readPosition + 2));
+		int xLength = readShort(encryptedPayload, readPosition);
 		readPosition += 2;
 		if (xLength > 32 || xLength < 0) 
 		{
-			throw new RuntimeException("While running CryptProcessor.parseEncryptedPayload(), the xLength value was found to not be between 0 and 32. Something is wrong!\n"
+			throw new RuntimeException("While running CryptProcessor.attemptDecryption(), the xLength value was found to not be between 0 and 32. Something is wrong!\n"
 					+ "The xLength read was " + xLength);
 		}
-		
-		BigInteger x = ByteUtils.getUnsignedBigInteger(ArrayCopier.copyOfRange(encryptedPayload, readPosition, readPosition + xLength), 0, xLength);
-
+		int xPosition = readPosition;
 		readPosition += xLength;
 		
-		int yLength = ByteUtils.bytesToShort(ArrayCopier.copyOfRange(encryptedPayload, readPosition, readPosition + 2));
+		int yLength = readShort(encryptedPayload, readPosition);
 		readPosition += 2;
 		if (yLength > 32 || yLength < 0)
 		{
-			throw new RuntimeException("While running CryptProcessor.parseEncryptedPayload(), the yLength value was found to not be between 0 and 32. Something is wrong!\n"
+			throw new RuntimeException("While running CryptProcessor.attemptDecryption(), the yLength value was found to not be between 0 and 32. Something is wrong!\n"
 					+ "The yLength read was " + yLength);
 		}
-		
-		BigInteger y = ByteUtils.getUnsignedBigInteger(ArrayCopier.copyOfRange(encryptedPayload, readPosition, readPosition + yLength), 0, yLength);
+		int yPosition = readPosition;
 		readPosition += yLength;
-
-		byte[] cipherText = ArrayCopier.copyOfRange(encryptedPayload, readPosition, encryptedPayload.length - 32);
-		byte[] mac = ArrayCopier.copyOfRange(encryptedPayload, encryptedPayload.length - 32, encryptedPayload.length);
 		
-		// Now use the parsed data to create a new EncryptedPayload object
-		EncryptedPayload encPay = new EncryptedPayload();
-		encPay.setIV(iv);
-		encPay.setCurveType(curveType);
-		encPay.setxLength(xLength);
-		encPay.setX(x);
-		encPay.setyLength(yLength);
-		encPay.setY(y);
-		encPay.setCipherText(cipherText);
-		encPay.setMac(mac);
-		return encPay;
-	}
-
-	/**
-	 * Creates an ECPublicKey with the given coordinates. The key will have valid parameters.
-	 * 
-	 * @param x - A BigInteger object denoting the x coordinate on the curve.
-	 * @param y -A BigInteger object denoting the y coordinate on the curve.
-	 *
-	 * @return An ECPublicKey object with the given coordinates.
-	 */
-	private ECPublicKey createPublicEncryptionKey (BigInteger x, BigInteger y) 
-	{
-		try 
+		int macPosition = encryptedPayload.length - MAC_LENGTH;
+		if (readPosition > macPosition)
 		{
-			java.security.spec.ECPoint w = new java.security.spec.ECPoint(x, y);
-			ECNamedCurveParameterSpec params = ECNamedCurveTable.getParameterSpec(CURVE);
-			KeyFactory fact = KeyFactory.getInstance(ALGORITHM_ECDSA, PROVIDER);
-			ECCurve curve = params.getCurve();
-			java.security.spec.EllipticCurve ellipticCurve = EC5Util.convertCurve(curve, params.getSeed());
-			java.security.spec.ECParameterSpec params2 = EC5Util.convertSpec(ellipticCurve, params);
-			java.security.spec.ECPublicKeySpec keySpec = new java.security.spec.ECPublicKeySpec(w, params2);
-			return (ECPublicKey) fact.generatePublic(keySpec);
-		} 
-		catch (InvalidKeySpecException e) 
+			throw new RuntimeException("While running CryptProcessor.attemptDecryption(), the encrypted payload was found to be too short to contain "
+					+ "its public key and mac. Something is wrong!");
+		}
+		
+		// Reconstruct public key R as a point on the curve
+		BigInteger x = ByteUtils.getUnsignedBigInteger(encryptedPayload, xPosition, xLength);
+		BigInteger y = ByteUtils.getUnsignedBigInteger(encryptedPayload, yPosition, yLength);
+		ECPoint R = context.createPoint(x, y);
+		
+		// Do an EC point multiply with private key k and public key R. This gives you public key P. 
+		ECPoint P = Secp256k1.multiply(R, k.getD());
+		byte[] tmpKey = deriveKey(P); // The first 32 bytes are key_e and the last 32 bytes are key_m
+		
+		// Check whether the mac, which covers everything except itself, is valid
+		Mac mac = context.getHmacSHA256();
+		try
+		{
+			mac.init(new SecretKeySpec(tmpKey, 32, 32, "HmacSHA256"));
+		}
+		catch (InvalidKeyException e)
 		{
-			throw new RuntimeException("InvalidKeySpecException occurred in CryptProcessor.createPublicEncryptionKey()", e);
+			throw new RuntimeException("InvalidKeyException occurred in CryptProcessor.attemptDecryption()", e);
 		}
-		catch (NoSuchAlgorithmException e) 
+		mac.update(encryptedPayload, 0, macPosition);
+		byte[] expectedMAC = mac.doFinal();
+		
+		int difference = 0;
+		for (int i = 0; i < MAC_LENGTH; i++)
 		{
-			throw new RuntimeException("NoSuchAlgorithmException occurred in CryptProcessor.createPublicEncryptionKey()", e);
+			difference |= expectedMAC[i] ^ encryptedPayload[macPosition + i];
 		}
-		catch (NoSuchProviderException e) 
+		if (difference != 0)
 		{
-			throw new RuntimeException("NoSuchProviderException occurred in CryptProcessor.createPublicEncryptionKey()", e);
+			return null;
 		}
+		
+		// The mac is valid. Decrypt the cipher text
+		CipherParameters params = new ParametersWithIV(new KeyParameter(tmpKey, 0, 32), encryptedPayload, 0, IV_LENGTH);
+		return doAES(params, encryptedPayload, readPosition, macPosition - readPosition, false);
 	}
-
+	
 	/**
-	 * Generates a new random ECIES key pair.
-	 * 
-	 * @return A KeyPair object containing the new random ECIES key pair.
+	 * Reads a big endian short from the given position in a byte[]. 
 	 */
-	private KeyPair generateEncryptionKeyPair() 
+	private int readShort(byte[] data, int position)
 	{
-		synchronized (kpg) 
-		{
-			return kpg.generateKeyPair();
-		}
+		return (short) (((data[position] & 0xFF) << 8) | (data[position + 1] & 0xFF));
 	}
-	
+
 	/**
 	 * Derives a 64 byte key from the given ECPoint.
 	 * 
@@ -301,20 +230,31 @@ public class CryptProcessor
 	 */
 	private byte[] doAES (byte[] keyBytes, byte[] iv, byte[] data, boolean encrypt)
 	{
-		BlockCipherPadding padding = new PKCS7Padding();
-		BufferedBlockCipher cipher = new PaddedBufferedBlockCipher(new CBCBlockCipher(new AESEngine()), padding);
-
-		KeyParameter key = new KeyParameter(keyBytes);
-		CipherParameters params = new ParametersWithIV(key, iv);
-
+		return doAES(new ParametersWithIV(new KeyParameter(keyBytes), iv), data, 0, data.length, encrypt);
+	}
+	
+	/**
+	 * Encrypts or decrypts part of a byte[] with the given key and IV.
+	 * 
+	 * @param params - The CipherParameters containing the AES key and the initialization vector
+	 * @param data - A byte[] containing the data to process.
+	 * @param offset - The position in the byte[] of the first byte to process
+	 * @param length - The number of bytes to process
+	 * @param encrypt - A boolean value: true if the data should be encrypted, false if it should be decrypted.
+	 * 
+	 * @return A byte[] containing the encrypted or decrypted data.
+	 */
+	private byte[] doAES (CipherParameters params, byte[] data, int offset, int length, boolean encrypt)
+	{
+		BufferedBlockCipher cipher = context.getAESCipher();
 		cipher.init(encrypt, params);
 
-		byte[] buffer = new byte[cipher.getOutputSize(data.length)];
-		int length = cipher.processBytes(data, 0, data.length, buffer, 0);
+		byte[] buffer = new byte[cipher.getOutputSize(length)];
+		int outputLength = cipher.processBytes(data, offset, length, buffer, 0);
 
 		try 
 		{
-			length += cipher.doFinal(buffer, length);
+			outputLength += cipher.doFinal(buffer, outputLength);
 		} 
 		catch (DataLengthException e) 
 		{
@@ -329,6 +269,6 @@ public class CryptProcessor
 			throw new RuntimeException("InvalidCipherTextException occurred in CryptProcessor.doAES()", e);
 		}
 		
-		return ArrayCopier.copyOf(buffer, length);
+		return ArrayCopier.copyOf(buffer, outputLength);
 	}
-}
\ No newline at end of file
+}
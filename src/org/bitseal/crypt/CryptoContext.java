@@ -0,0 +1,297 @@
+package org.bitseal.crypt;
+
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPrivateKeySpec;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.EllipticCurve;
+
+import javax.crypto.Mac;
+
+import org.spongycastle.crypto.BufferedBlockCipher;
+import org.spongycastle.crypto.engines.AESEngine;
+import org.spongycastle.crypto.modes.CBCBlockCipher;
+import org.spongycastle.crypto.paddings.PKCS7Padding;
+import org.spongycastle.crypto.paddings.PaddedBufferedBlockCipher;
+import org.spongycastle.jce.ECNamedCurveTable;
+import org.spongycastle.jce.interfaces.ECPrivateKey;
+import org.spongycastle.jce.interfaces.ECPublicKey;
+import org.spongycastle.jce.provider.BouncyCastleProvider;
+import org.spongycastle.jce.provider.asymmetric.ec.EC5Util;
+import org.spongycastle.jce.spec.ECNamedCurveParameterSpec;
+import org.spongycastle.math.ec.ECCurve;
+import org.spongycastle.math.ec.ECFieldElement;
+import org.spongycastle.math.ec.ECPoint;
+
+/**
+ * A Singleton class that holds the cryptographic objects shared by the whole app.<br><br>
+ *
+ * The Spongy Castle provider is registered and the secp256k1 curve parameters are
+ * converted once, when the context is first used. Objects which are not thread-safe,
+ * such as MessageDigest, Mac, KeyFactory and the AES cipher, are created
+ * once per thread and then reused, so the code which uses them does no provider
+ * lookups after the first call on each thread.
+ *
+ * @author Jonathan Coe
+ */
+public class CryptoContext
+{
+	private static final String ALGORITHM_ECDSA = "ECDSA";
+	private static final String ALGORITHM_HMAC_SHA256 = "HmacSHA256";
+	private static final String PROVIDER = "SC"; // Spongy Castle
+	private static final String CURVE = "secp256k1";
+
+	/** The secp256k1 curve parameters, in Spongy Castle form */
+	private final ECNamedCurveParameterSpec curveSpec;
+
+	/** The secp256k1 curve parameters, in JCE form, for use in key specs */
+	private final ECParameterSpec keySpecParams;
+
+	private final SecureRandom secureRandom;
+
+	private final ThreadLocal<MessageDigest> sha256 = new ThreadLocal<MessageDigest>()
+	{
+		@Override
+		protected MessageDigest initialValue()
+		{
+			try
+			{
+				return MessageDigest.getInstance("SHA-256");
+			}
+			catch (GeneralSecurityException e)
+			{
+				throw new RuntimeException("GeneralSecurityException occurred in CryptoContext while creating a SHA-256 MessageDigest", e);
+			}
+		}
+	};
+
+	private final ThreadLocal<MessageDigest> sha512 = new ThreadLocal<MessageDigest>()
+	{
+		@Override
+		protected MessageDigest initialValue()
+		{
+			try
+			{
+				return MessageDigest.getInstance("SHA-512");
+			}
+			catch (GeneralSecurityException e)
+			{
+				throw new RuntimeException("GeneralSecurityException occurred in CryptoContext while creating a SHA-512 MessageDigest", e);
+			}
+		}
+	};
+
+	private final ThreadLocal<Mac> hmacSHA256 = new ThreadLocal<Mac>()
+	{
+		@Override
+		protected Mac initialValue()
+		{
+			try
+			{
+				return Mac.getInstance(ALGORITHM_HMAC_SHA256, PROVIDER);
+			}
+			catch (GeneralSecurityException e)
+			{
+				throw new RuntimeException("GeneralSecurityException occurred in CryptoContext while creating a HmacSHA256 Mac", e);
+			}
+		}
+	};
+
+	private final ThreadLocal<KeyFactory> keyFactory = new ThreadLocal<KeyFactory>()
+	{
+		@Override
+		protected KeyFactory initialValue()
+		{
+			try
+			{
+				return KeyFactory.getInstance(ALGORITHM_ECDSA, PROVIDER);
+			}
+			catch (GeneralSecurityException e)
+			{
+				throw new RuntimeException("GeneralSecurityException occurred in CryptoContext while creating an ECDSA KeyFactory", e);
+			}
+		}
+	};
+
+	private final ThreadLocal<BufferedBlockCipher> aesCipher = new ThreadLocal<BufferedBlockCipher>()
+	{
+		@Override
+		protected BufferedBlockCipher initialValue()
+		{
+			return new PaddedBufferedBlockCipher(new CBCBlockCipher(new AESEngine()), new PKCS7Padding());
+		}
+	};
+
+	private static class Holder
+    {
+        static final CryptoContext INSTANCE = new CryptoContext();
+    }
+
+	/**
+	 * Returns a singleton instance of the CryptoContext.
+	 */
+	public static CryptoContext getInstance()
+	{
+		return Holder.INSTANCE;
+	}
+
+	private CryptoContext()
+	{
+		if (Security.getProvider(PROVIDER) == null)
+		{
+			Security.addProvider(new BouncyCastleProvider());
+		}
+
+		curveSpec = ECNamedCurveTable.getParameterSpec(CURVE);
+		EllipticCurve ellipticCurve = EC5Util.convertCurve(curveSpec.getCurve(), curveSpec.getSeed());
+		keySpecParams = EC5Util.convertSpec(ellipticCurve, curveSpec);
+		secureRandom = new SecureRandom();
+	}
+
+	/**
+	 * Returns the secp256k1 curve parameters.
+	 */
+	public ECNamedCurveParameterSpec getCurveSpec()
+	{
+		return curveSpec;
+	}
+
+	/**
+	 * Returns the SecureRandom shared by the crypt classes. SecureRandom is thread-safe.
+	 */
+	public SecureRandom getSecureRandom()
+	{
+		return secureRandom;
+	}
+
+	/**
+	 * Returns this thread's SHA-256 MessageDigest. It must be used for a single digest
+	 * at a time, and is reset before it is returned.
+	 */
+	public MessageDigest getSHA256()
+	{
+		MessageDigest digest = sha256.get();
+		digest.reset();
+		return digest;
+	}
+
+	/**
+	 * Returns this thread's SHA-512 MessageDigest. It must be used for a single digest
+	 * at a time, and is reset before it is returned.
+	 */
+	public MessageDigest getSHA512()
+	{
+		MessageDigest digest = sha512.get();
+		digest.reset();
+		return digest;
+	}
+
+	/**
+	 * Returns this thread's HmacSHA256 Mac. It must be initialised with a key before each use.
+	 */
+	public Mac getHmacSHA256()
+	{
+		return hmacSHA256.get();
+	}
+
+	/**
+	 * Returns this thread's AES-CBC cipher with PKCS7 padding. It must be initialised with
+	 * a key and IV before each use.
+	 */
+	public BufferedBlockCipher getAESCipher()
+	{
+		return aesCipher.get();
+	}
+
+	/**
+	 * Generates a new random private key value, in the range 1 to n - 1, where n is the
+	 * order of the secp256k1 generator point. The matching public key can be calculated
+	 * with the GeneratorTable.
+	 *
+	 * @return A BigInteger containing the new private key value
+	 */
+	public BigInteger generatePrivateKeyValue()
+	{
+		BigInteger n = curveSpec.getN();
+		BigInteger d;
+		do
+		{
+			d = new BigInteger(n.bitLength(), secureRandom);
+		}
+		while (d.signum() == 0 || d.compareTo(n) >= 0);
+		return d;
+	}
+
+	/**
+	 * Creates an ECPublicKey on the secp256k1 curve with the given coordinates.
+	 *
+	 * @param x - A BigInteger containing the x coordinate
+	 * @param y - A BigInteger containing the y coordinate
+	 *
+	 * @return The new ECPublicKey
+	 */
+	public ECPublicKey createPublicKey(BigInteger x, BigInteger y)
+	{
+		ECPublicKeySpec keySpec = new ECPublicKeySpec(new java.security.spec.ECPoint(x, y), keySpecParams);
+		try
+		{
+			return (ECPublicKey) keyFactory.get().generatePublic(keySpec);
+		}
+		catch (GeneralSecurityException e)
+		{
+			throw new RuntimeException("GeneralSecurityException occurred in CryptoContext.createPublicKey()", e);
+		}
+	}
+
+	/**
+	 * Creates a point on the secp256k1 curve with the given coordinates, without building
+	 * a java.security key around it. The coordinates are checked to be on the curve, as
+	 * multiplying a private key by a point which is not on the curve could leak
+	 * information about the key.
+	 *
+	 * @param x - A BigInteger containing the x coordinate
+	 * @param y - A BigInteger containing the y coordinate
+	 *
+	 * @return The new ECPoint
+	 */
+	public ECPoint createPoint(BigInteger x, BigInteger y)
+	{
+		ECCurve curve = curveSpec.getCurve();
+		ECFieldElement xElement = curve.fromBigInteger(x);
+		ECFieldElement yElement = curve.fromBigInteger(y);
+
+		// Check that y^2 = x^3 + ax + b
+		ECFieldElement lhs = yElement.square();
+		ECFieldElement rhs = xElement.square().add(curve.getA()).multiply(xElement).add(curve.getB());
+		if (lhs.equals(rhs) == false)
+		{
+			throw new RuntimeException("While running CryptoContext.createPoint(), the given coordinates were found not to be on the secp256k1 curve");
+		}
+		return curve.createPoint(x, y, false);
+	}
+
+	/**
+	 * Creates an ECPrivateKey on the secp256k1 curve with the given D value.
+	 *
+	 * @param d - A BigInteger containing the D value of the private key
+	 *
+	 * @return The new ECPrivateKey
+	 */
+	public ECPrivateKey createPrivateKey(BigInteger d)
+	{
+		ECPrivateKeySpec keySpec = new ECPrivateKeySpec(d, keySpecParams);
+		try
+		{
+			return (ECPrivateKey) keyFactory.get().generatePrivate(keySpec);
+		}
+		catch (GeneralSecurityException e)
+		{
+			throw new RuntimeException("GeneralSecurityException occurred in CryptoContext.createPrivateKey()", e);
+		}
+	}
+}
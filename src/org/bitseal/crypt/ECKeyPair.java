@@ -24,16 +24,6 @@
 package org.bitseal.crypt;
 
 import java.math.BigInteger;
-import java.security.SecureRandom;
-
-import org.spongycastle.asn1.sec.SECNamedCurves;
-import org.spongycastle.asn1.x9.X9ECParameters;
-import org.spongycastle.crypto.AsymmetricCipherKeyPair;
-import org.spongycastle.crypto.generators.ECKeyPairGenerator;
-import org.spongycastle.crypto.params.ECDomainParameters;
-import org.spongycastle.crypto.params.ECKeyGenerationParameters;
-import org.spongycastle.crypto.params.ECPrivateKeyParameters;
-import org.spongycastle.crypto.params.ECPublicKeyParameters;
 
 /**
  * Represents an elliptic curve keypair.
@@ -42,33 +32,16 @@ import org.spongycastle.crypto.params.ECPublicKeyParameters;
  */
 public class ECKeyPair 
 {
-    private static final ECDomainParameters ecParams;
-    private static final SecureRandom secureRandom;
-    
     private final BigInteger priv;
     private final byte[] pub;
 
-    static 
-    {
-        // All clients must agree on the curve to use by agreement. Bitcoin and Bitmessage use curve secp256k1.
-        X9ECParameters params = SECNamedCurves.getByName("secp256k1");
-        ecParams = new ECDomainParameters(params.getCurve(), params.getG(), params.getN(),  params.getH());
-        secureRandom = new SecureRandom();
-    }
-
     /** 
      * Generates an entirely new keypair. 
      * */
     public ECKeyPair() 
     {
-        ECKeyPairGenerator generator = new ECKeyPairGenerator();
-        ECKeyGenerationParameters keygenParams = new ECKeyGenerationParameters(ecParams, secureRandom);
-        generator.init(keygenParams);
-        AsymmetricCipherKeyPair keypair = generator.generateKeyPair();
-        ECPrivateKeyParameters privParams = (ECPrivateKeyParameters) keypair.getPrivate();
-        ECPublicKeyParameters pubParams = (ECPublicKeyParameters) keypair.getPublic();
-        priv = privParams.getD();
-        pub = pubParams.getQ().getEncoded();// The public key is an encoded point on the elliptic curve. It has no meaning independent of the curve.
+        priv = CryptoContext.getInstance().generatePrivateKeyValue();
+        pub = publicKeyFromPrivate(priv);// The public key is an encoded point on the elliptic curve. It has no meaning independent of the curve.
     }
 
     /**
@@ -97,9 +70,9 @@ public class ECKeyPair
     	return priv;
     }
     
-    /** Derive the public key by doing a point multiply of G * priv. */
+    /** Derive the public key by doing a point multiply of G * priv, using the precomputed multiples of G. */
     public static byte[] publicKeyFromPrivate(BigInteger privKey) 
     {
-        return ecParams.getG().multiply(privKey).getEncoded();
+        return GeneratorTable.getInstance().multiply(privKey).getEncoded();
     }
 }
\ No newline at end of file
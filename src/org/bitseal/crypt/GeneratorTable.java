@@ -0,0 +1,130 @@
+package org.bitseal.crypt;
+
+import java.math.BigInteger;
+
+import org.bitseal.crypt.Secp256k1.JacobianPoint;
+import org.spongycastle.jce.spec.ECNamedCurveParameterSpec;
+import org.spongycastle.math.ec.ECCurve;
+import org.spongycastle.math.ec.ECPoint;
+
+/**
+ * A Singleton class that holds a precomputed table of multiples of the secp256k1
+ * generator point G, and uses it to multiply G by a scalar.<br><br>
+ *
+ * Generating a key pair, creating the random key used for each ECIES encryption and
+ * creating an ECDSA signature all multiply the same fixed point G. A generic point
+ * multiplication needs around 256 point doublings plus the additions for each scalar.
+ * Here the scalar is split into 64 windows of 4 bits, and for each window the table
+ * holds the 15 non-zero multiples of G at that window's position, so a multiplication
+ * takes at most 64 point additions and no doublings. The additions are done with the
+ * Jacobian coordinate arithmetic of the Secp256k1 class.<br><br>
+ *
+ * The table holds 960 points, is built the first time it is needed and is then shared
+ * by the whole app. It is never modified after it has been built, so it is safe to use
+ * from any thread.
+ *
+ * @author Jonathan Coe
+ */
+public class GeneratorTable
+{
+	/** The number of bits of the scalar covered by each window */
+	private static final int WINDOW_BITS = 4;
+
+	/** The number of windows needed to cover a 256 bit scalar */
+	private static final int WINDOW_COUNT = 256 / WINDOW_BITS;
+
+	/** The number of non-zero values each window can take */
+	private static final int WINDOW_VALUES = (1 << WINDOW_BITS) - 1;
+
+	private final ECCurve curve;
+
+	/** tableX[i][j] and tableY[i][j] hold the affine coordinates of (j + 1) * 2^(4i) * G */
+	private final BigInteger[][] tableX;
+	private final BigInteger[][] tableY;
+
+	private static class Holder
+    {
+        static final GeneratorTable INSTANCE = new GeneratorTable();
+    }
+
+	/**
+	 * Returns a singleton instance of the GeneratorTable, building the table first
+	 * if this is the first time it has been needed.
+	 */
+	public static GeneratorTable getInstance()
+	{
+		return Holder.INSTANCE;
+	}
+
+	private GeneratorTable()
+	{
+		ECNamedCurveParameterSpec curveSpec = CryptoContext.getInstance().getCurveSpec();
+		curve = curveSpec.getCurve();
+		tableX = new BigInteger[WINDOW_COUNT][WINDOW_VALUES];
+		tableY = new BigInteger[WINDOW_COUNT][WINDOW_VALUES];
+
+		// Calculate all the multiples in Jacobian coordinates, then convert them to affine coordinates together
+		JacobianPoint[] multiples = new JacobianPoint[WINDOW_COUNT * WINDOW_VALUES];
+		ECPoint g = curveSpec.getG();
+		JacobianPoint base = new JacobianPoint(g.getX().toBigInteger(), g.getY().toBigInteger(), BigInteger.ONE);
+		for (int i = 0; i < WINDOW_COUNT; i++)
+		{
+			int offset = i * WINDOW_VALUES;
+			multiples[offset] = base;
+			for (int j = 1; j < WINDOW_VALUES; j++)
+			{
+				multiples[offset + j] = multiples[offset + j - 1].add(base);
+			}
+			base = multiples[offset + WINDOW_VALUES - 1].add(base); // 16 times the base of this window
+		}
+
+		BigInteger[] x = new BigInteger[multiples.length];
+		BigInteger[] y = new BigInteger[multiples.length];
+		Secp256k1.normalize(multiples, x, y);
+		for (int i = 0; i < WINDOW_COUNT; i++)
+		{
+			System.arraycopy(x, i * WINDOW_VALUES, tableX[i], 0, WINDOW_VALUES);
+			System.arraycopy(y, i * WINDOW_VALUES, tableY[i], 0, WINDOW_VALUES);
+		}
+	}
+
+	/**
+	 * Multiplies the generator point G by the given scalar.
+	 *
+	 * @param k - A BigInteger containing the scalar. If it is negative or not less than
+	 * the order of G, it is first reduced modulo the order.
+	 *
+	 * @return An ECPoint containing the result of the multiplication
+	 */
+	public ECPoint multiply(BigInteger k)
+	{
+		return multiplyJacobian(k).toECPoint(curve);
+	}
+
+	/**
+	 * Multiplies the generator point G by the given scalar, returning the result in
+	 * Jacobian coordinates.
+	 */
+	JacobianPoint multiplyJacobian(BigInteger k)
+	{
+		if (k.signum() < 0 || k.compareTo(Secp256k1.N) >= 0)
+		{
+			k = k.mod(Secp256k1.N);
+		}
+
+		JacobianPoint result = JacobianPoint.INFINITY;
+		for (int i = 0; i < WINDOW_COUNT; i++)
+		{
+			int value = 0;
+			for (int b = WINDOW_BITS - 1; b >= 0; b--)
+			{
+				value = (value << 1) | (k.testBit((i * WINDOW_BITS) + b) ? 1 : 0);
+			}
+			if (value != 0)
+			{
+				result = result.addAffine(tableX[i][value - 1], tableY[i][value - 1]);
+			}
+		}
+		return result;
+	}
+}
@@ -1,23 +1,14 @@
 package org.bitseal.crypt;
 
 import java.math.BigInteger;
-import java.security.KeyFactory;
-import java.security.NoSuchAlgorithmException;
-import java.security.NoSuchProviderException;
-import java.security.Security;
-import java.security.spec.InvalidKeySpecException;
 import java.util.Arrays;
 
 import org.bitseal.data.Pubkey;
 import org.bitseal.util.ArrayCopier;
 import org.bitseal.util.Base58;
 import org.bitseal.util.ByteUtils;
-import org.spongycastle.jce.ECNamedCurveTable;
 import org.spongycastle.jce.interfaces.ECPrivateKey;
 import org.spongycastle.jce.interfaces.ECPublicKey;
-import org.spongycastle.jce.provider.asymmetric.ec.EC5Util;
-import org.spongycastle.jce.spec.ECNamedCurveParameterSpec;
-import org.spongycastle.math.ec.ECCurve;
 
 /**
  * Offers methods for converting cryptographic keys
@@ -27,10 +18,6 @@ import org.spongycastle.math.ec.ECCurve;
  */
 public class KeyConverter 
 {
-	private static final String ALGORITHM = "ECDSA";
-	private static final String PROVIDER = "SC"; // Spongy Castle
-	private static final String CURVE = "secp256k1";
-	
 	/**
 	 * Calculates the ripe hash for the public signing and public encryption keys of a given Pubkey object. 
 	 * 
@@ -218,33 +205,7 @@ public class KeyConverter
 		}
 		
 		// Reconstruct the encoded private key, giving us a new ECPrivateKey object
-		ECPrivateKey ecPrivateKey = null;
-		try
-		{
-			Security.addProvider(new org.spongycastle.jce.provider.BouncyCastleProvider());
-			
-			ECNamedCurveParameterSpec params = ECNamedCurveTable.getParameterSpec(CURVE);
-			KeyFactory fact = KeyFactory.getInstance(ALGORITHM, PROVIDER);
-			ECCurve curve = params.getCurve();
-			java.security.spec.EllipticCurve ellipticCurve = EC5Util.convertCurve(curve, params.getSeed());
-			java.security.spec.ECParameterSpec params2 = EC5Util.convertSpec(ellipticCurve, params);
-			java.security.spec.ECPrivateKeySpec keySpec = new java.security.spec.ECPrivateKeySpec(privateKeyDValue, params2);
-			
-			ecPrivateKey = (ECPrivateKey) fact.generatePrivate(keySpec);
-			// Log.i(TAG, "New ECPrivateKey D value bytes: " + ByteFormatter.byteArrayToHexString(ecPrivateKey.getD().toByteArray()));
-		}
-		catch (InvalidKeySpecException e)
-		{
-			throw new RuntimeException("InvalidKeySpecException occurred in KeyConverter.reconstructPrivateKey()", e);
-		} 
-		catch (NoSuchAlgorithmException e)
-		{
-			throw new RuntimeException("NoSuchAlgorithmException occurred in KeyConverter.reconstructPrivateKey()", e);
-		} 
-		catch (NoSuchProviderException e)
-		{
-			throw new RuntimeException("NoSuchProviderException occurred in KeyConverter.reconstructPrivateKey()", e);
-		}
+		ECPrivateKey ecPrivateKey = CryptoContext.getInstance().createPrivateKey(privateKeyDValue);
 		
 		return ecPrivateKey;
 	}
@@ -291,33 +252,8 @@ public class KeyConverter
 		BigInteger x = ByteUtils.getUnsignedBigInteger(xBytes, 0, 32);
 		BigInteger y = ByteUtils.getUnsignedBigInteger(yBytes, 0, 32);
 		
-		ECPublicKey reconstructedECPublicKey = null;
-		try 
-		{			
-			Security.addProvider(new org.spongycastle.jce.provider.BouncyCastleProvider());
-			
-			java.security.spec.ECPoint w = new java.security.spec.ECPoint(x, y);
-			ECNamedCurveParameterSpec params = ECNamedCurveTable.getParameterSpec(CURVE);
-			KeyFactory fact = KeyFactory.getInstance(ALGORITHM, PROVIDER);
-			ECCurve curve = params.getCurve();
-			java.security.spec.EllipticCurve ellipticCurve = EC5Util.convertCurve(curve, params.getSeed());
-			java.security.spec.ECParameterSpec params2 = EC5Util.convertSpec(ellipticCurve, params);
-			java.security.spec.ECPublicKeySpec keySpec = new java.security.spec.ECPublicKeySpec(w, params2);
-			reconstructedECPublicKey = (ECPublicKey) fact.generatePublic(keySpec);
-		} 
-		catch (InvalidKeySpecException e)
-		{
-			throw new RuntimeException("InvalidKeySpecException occurred in KeyConverter.reconstructPrivateKey()", e);
-		} 
-		catch (NoSuchAlgorithmException e)
-		{
-			throw new RuntimeException("NoSuchAlgorithmException occurred in KeyConverter.reconstructPrivateKey()", e);
-		} 
-		catch (NoSuchProviderException e)
-		{
-			throw new RuntimeException("NoSuchProviderException occurred in KeyConverter.reconstructPrivateKey()", e);
-		}
-
+		ECPublicKey reconstructedECPublicKey = CryptoContext.getInstance().createPublicKey(x, y);
+		
 		return reconstructedECPublicKey;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,134 @@
+package org.bitseal.crypt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.bitseal.core.App;
+import org.bitseal.data.Address;
+import org.bitseal.database.AddressProvider;
+import org.spongycastle.jce.interfaces.ECPrivateKey;
+
+import android.util.Log;
+
+/**
+ * A Singleton class that holds the decoded private encryption keys of all
+ * the user's addresses in memory, so that trying to decrypt an incoming msg
+ * with each address does not decode every key from Wallet Import Format again.<br><br>
+ *
+ * The keys are decoded from the database the first time they are needed after the
+ * app's CacheWord store has been unlocked. They are dropped when the store is locked,
+ * and whenever an address is added, updated or deleted, in which case they are
+ * decoded again the next time they are needed.
+ *
+ * @author Jonathan Coe
+ */
+public class PrivateKeyRing
+{
+	/** The decoded keys, or null if they have not been decoded since they were last wiped */
+	private List<Entry> entries;
+
+	private static final String TAG = "PRIVATE_KEY_RING";
+
+	private static class Holder
+    {
+        static final PrivateKeyRing INSTANCE = new PrivateKeyRing();
+    }
+
+	/**
+	 * Returns a singleton instance of the PrivateKeyRing.
+	 */
+	public static PrivateKeyRing getInstance()
+	{
+		return Holder.INSTANCE;
+	}
+
+	private PrivateKeyRing()
+	{
+		// The constructor of this class is private in order to ensure that only one instance exists
+	}
+
+	/**
+	 * An address belonging to the user, along with its decoded private encryption key.
+	 */
+	public static class Entry
+	{
+		private final Address address;
+		private final ECPrivateKey privateEncryptionKey;
+
+		private Entry(Address address, ECPrivateKey privateEncryptionKey)
+		{
+			this.address = address;
+			this.privateEncryptionKey = privateEncryptionKey;
+		}
+
+		public Address getAddress()
+		{
+			return address;
+		}
+
+		public ECPrivateKey getPrivateEncryptionKey()
+		{
+			return privateEncryptionKey;
+		}
+	}
+
+	/**
+	 * Returns an entry for each of the user's addresses, decoding the keys from the
+	 * database first if they are not held already. An address whose key cannot be
+	 * decoded is left out.
+	 *
+	 * @return An unmodifiable List of Entry objects
+	 */
+	public synchronized List<Entry> getEntries()
+	{
+		if (entries == null)
+		{
+			entries = Collections.unmodifiableList(decodeEntries());
+		}
+		return entries;
+	}
+
+	/**
+	 * Drops the decoded keys, so that they are decoded again from the database the
+	 * next time they are needed. This should be called whenever an address is added,
+	 * updated or deleted.
+	 */
+	public synchronized void invalidate()
+	{
+		entries = null;
+	}
+
+	/**
+	 * Drops the decoded keys. This is called when the app's CacheWord store is locked,
+	 * so that the keys are not held in memory while the app is locked.
+	 */
+	public synchronized void wipe()
+	{
+		if (entries != null)
+		{
+			Log.i(TAG, "Wiping " + entries.size() + " decoded private key(s)");
+		}
+		entries = null;
+	}
+
+	private ArrayList<Entry> decodeEntries()
+	{
+		ArrayList<Address> addresses = AddressProvider.get(App.getContext()).getAllAddresses();
+		ArrayList<Entry> decodedEntries = new ArrayList<Entry>(addresses.size());
+		KeyConverter keyConv = new KeyConverter();
+		for (Address a : addresses)
+		{
+			try
+			{
+				decodedEntries.add(new Entry(a, keyConv.decodePrivateKeyFromWIF(a.getPrivateEncryptionKey())));
+			}
+			catch (RuntimeException e)
+			{
+				Log.e(TAG, "RuntimeException occurred in PrivateKeyRing.decodeEntries() while decoding the private encryption key of address "
+						+ a.getAddress() + ". The exception message was:\n" + e.getMessage());
+			}
+		}
+		return decodedEntries;
+	}
+}
@@ -18,7 +18,7 @@ public class PubkeyGenerator
 	private static final int OBJECT_TYPE_PUBKEY = 1;
 	
 	/** The 'time to live' value (in seconds) that we will use when creating new pubkey objects. */
-	private static final long PUBKEY_TTL = 172800; // Currently set to 2 days
+	public static final long PUBKEY_TTL = 172800; // Currently set to 2 days
 	
 	/** In Bitmessage protocol version 3, the network standard value for nonce trials per byte is 1000. */
 	public static final int NETWORK_NONCE_TRIALS_PER_BYTE = 1000;
@@ -110,7 +110,7 @@ public class PubkeyGenerator
 		
 		// Generate the signature for this pubkey
 		SigProcessor sigProc = new SigProcessor();
-		byte[] signaturePayload = sigProc.createPubkeySignaturePayload(pubkey);
+		byte[] signaturePayload = sigProc.createPubkeySignaturePayload(pubkey, address.getTag());
 		byte[] signature = sigProc.signWithWIFKey(signaturePayload, address.getPrivateSigningKey()); 
 		pubkey.setSignature(signature);
 		pubkey.setSignatureLength(signature.length);
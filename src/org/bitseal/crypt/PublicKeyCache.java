@@ -0,0 +1,245 @@
+package org.bitseal.crypt;
+
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.bitseal.util.ArrayCopier;
+import org.bitseal.util.ByteFormatter;
+import org.bitseal.util.ByteUtils;
+import org.spongycastle.jce.interfaces.ECPublicKey;
+import org.spongycastle.math.ec.ECPoint;
+
+/**
+ * A Singleton class that holds the data derived from the public keys of the
+ * addresses we deal with most often, so that it is not recalculated each time
+ * a pubkey or msg from the same contact is processed.<br><br>
+ *
+ * Each entry is identified by an address version, a stream number and a pair of public
+ * signing and encryption keys. It holds the reconstructed ECPublicKeys, the point of the
+ * public signing key used to verify signatures, the ripe hash and
+ * the address String. Each value is calculated the first time it is
+ * needed and then kept for as long as the entry remains in the cache. The cache holds a
+ * limited number of entries, and when it is full the least recently used entry is dropped.<br><br>
+ *
+ * The numbers of lookups which found an entry (hits) and which had to create one (misses)
+ * are counted, so that the effectiveness of the cache can be shown in the System Tools screen.
+ *
+ * @author Jonathan Coe
+ */
+public class PublicKeyCache
+{
+	/** The maximum number of entries to hold in the cache */
+	private static final int MAX_ENTRIES = 128;
+
+	/** The length in bytes of an encoded public key without its leading 0x04 byte */
+	private static final int PUBLIC_KEY_LENGTH = 64;
+
+	/** The most recently used entries. Access must be synchronized on this object. */
+	private final LinkedHashMap<String, Entry> entries;
+
+	private long hitCount;
+	private long missCount;
+
+	private static class Holder
+    {
+        static final PublicKeyCache INSTANCE = new PublicKeyCache();
+    }
+
+	/**
+	 * Returns a singleton instance of the PublicKeyCache.
+	 */
+	public static PublicKeyCache getInstance()
+	{
+		return Holder.INSTANCE;
+	}
+
+	private PublicKeyCache()
+	{
+		entries = new LinkedHashMap<String, Entry>(16, 0.75f, true)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+			{
+				return size() > MAX_ENTRIES;
+			}
+		};
+	}
+
+	/**
+	 * The data derived from an address version, stream number and pair of public keys.
+	 */
+	public static class Entry
+	{
+		private final int addressVersion;
+		private final int streamNumber;
+		private final byte[] publicSigningKey;
+		private final byte[] publicEncryptionKey;
+
+		private ECPublicKey ecPublicSigningKey;
+		private ECPublicKey ecPublicEncryptionKey;
+		private ECPoint publicSigningKeyPoint;
+		private byte[] fullRipeHash;
+		private String address;
+
+		private Entry(int addressVersion, int streamNumber, byte[] publicSigningKey, byte[] publicEncryptionKey)
+		{
+			this.addressVersion = addressVersion;
+			this.streamNumber = streamNumber;
+			this.publicSigningKey = publicSigningKey;
+			this.publicEncryptionKey = publicEncryptionKey;
+		}
+
+		/**
+		 * Returns the public signing key as an ECPublicKey.
+		 */
+		public synchronized ECPublicKey getPublicSigningKey()
+		{
+			if (ecPublicSigningKey == null)
+			{
+				ecPublicSigningKey = new KeyConverter().reconstructPublicKey(publicSigningKey);
+			}
+			return ecPublicSigningKey;
+		}
+
+		/**
+		 * Returns the public signing key as a point on the curve, as used to verify signatures.
+		 */
+		public synchronized ECPoint getPublicSigningKeyPoint()
+		{
+			if (publicSigningKeyPoint == null)
+			{
+				// Skip the leading 0x04 byte
+				BigInteger x = ByteUtils.getUnsignedBigInteger(publicSigningKey, 1, 32);
+				BigInteger y = ByteUtils.getUnsignedBigInteger(publicSigningKey, 33, 32);
+				publicSigningKeyPoint = CryptoContext.getInstance().createPoint(x, y);
+			}
+			return publicSigningKeyPoint;
+		}
+
+		/**
+		 * Returns the public encryption key as an ECPublicKey.
+		 */
+		public synchronized ECPublicKey getPublicEncryptionKey()
+		{
+			if (ecPublicEncryptionKey == null)
+			{
+				ecPublicEncryptionKey = new KeyConverter().reconstructPublicKey(publicEncryptionKey);
+			}
+			return ecPublicEncryptionKey;
+		}
+
+		/**
+		 * Returns the ripe hash of the public keys, with any leading zeros removed, as
+		 * calculated by AddressGenerator.calculateRipeHash().
+		 */
+		public byte[] getRipeHash()
+		{
+			byte[] ripeHash = getFullRipeHash();
+			return ByteUtils.stripLeadingZeros(ArrayCopier.copyOf(ripeHash, ripeHash.length));
+		}
+
+		/**
+		 * Returns the String representation of the address.
+		 */
+		public synchronized String getAddress()
+		{
+			if (address == null)
+			{
+				address = new AddressGenerator().calculateAddressString(addressVersion, streamNumber, getRipeHash());
+			}
+			return address;
+		}
+
+		/**
+		 * Returns the full 20 byte ripe hash of the public keys.
+		 */
+		private synchronized byte[] getFullRipeHash()
+		{
+			if (fullRipeHash == null)
+			{
+				fullRipeHash = SHA512.sha512hash160(ByteUtils.concatenateByteArrays(publicSigningKey, publicEncryptionKey));
+			}
+			return fullRipeHash;
+		}
+	}
+
+	/**
+	 * Returns the entry for the given address version, stream number and public keys,
+	 * creating it if it is not held in the cache already.
+	 *
+	 * @param addressVersion - An int containing the address version number
+	 * @param streamNumber - An int containing the stream number
+	 * @param publicSigningKey - A byte[] containing the public signing key, either 64 bytes
+	 * long or 65 bytes long with a leading 0x04 byte
+	 * @param publicEncryptionKey - A byte[] containing the public encryption key, either 64
+	 * bytes long or 65 bytes long with a leading 0x04 byte
+	 *
+	 * @return The Entry for the given data
+	 */
+	public Entry getEntry(int addressVersion, int streamNumber, byte[] publicSigningKey, byte[] publicEncryptionKey)
+	{
+		byte[] signingKey = restoreLeadingByte(publicSigningKey);
+		byte[] encryptionKey = restoreLeadingByte(publicEncryptionKey);
+		String cacheKey = addressVersion + ":" + streamNumber + ":" + ByteFormatter.byteArrayToHexString(signingKey)
+				+ ByteFormatter.byteArrayToHexString(encryptionKey);
+
+		synchronized (this)
+		{
+			Entry entry = entries.get(cacheKey);
+			if (entry != null)
+			{
+				hitCount++;
+				return entry;
+			}
+			missCount++;
+			entry = new Entry(addressVersion, streamNumber, signingKey, encryptionKey);
+			entries.put(cacheKey, entry);
+			return entry;
+		}
+	}
+
+	/**
+	 * Returns the number of lookups which found an entry in the cache.
+	 */
+	public synchronized long getHitCount()
+	{
+		return hitCount;
+	}
+
+	/**
+	 * Returns the number of lookups which had to create a new entry.
+	 */
+	public synchronized long getMissCount()
+	{
+		return missCount;
+	}
+
+	/**
+	 * Returns the number of entries currently held in the cache.
+	 */
+	public synchronized int getSize()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * Returns a copy of the given encoded public key with its leading 0x04 byte in place,
+	 * as it must be when the ripe hash is calculated.
+	 */
+	private byte[] restoreLeadingByte(byte[] encodedPublicKey)
+	{
+		if (encodedPublicKey.length == PUBLIC_KEY_LENGTH + 1 && encodedPublicKey[0] == (byte) 4)
+		{
+			return ArrayCopier.copyOf(encodedPublicKey, encodedPublicKey.length);
+		}
+		if (encodedPublicKey.length == PUBLIC_KEY_LENGTH)
+		{
+			return ByteUtils.concatenateByteArrays(new byte[]{4}, encodedPublicKey);
+		}
+		throw new RuntimeException("While running PublicKeyCache.restoreLeadingByte(), the encoded public key was found to be "
+				+ encodedPublicKey.length + " bytes in length. Something is wrong!");
+	}
+}
@@ -2,9 +2,6 @@ package org.bitseal.crypt;
 
 import java.security.InvalidKeyException;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.security.NoSuchProviderException;
-import java.security.Security;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
@@ -32,17 +29,10 @@ public class SHA256
      */
     public static byte[] doubleDigest(byte[] input, int offset, int length) 
     {
-        try 
-        {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            digest.update(input, offset, length);
-            byte[] first = digest.digest();
-            return digest.digest(first);
-        } 
-        catch (NoSuchAlgorithmException e) 
-        {
-        	throw new RuntimeException("NoSuchAlgorithmException occurred in DigestSHA256.doubleDigest()", e);
-        }
+        MessageDigest digest = CryptoContext.getInstance().getSHA256();
+        digest.update(input, offset, length);
+        byte[] first = digest.digest();
+        return digest.digest(first);
     }
 
     /**
@@ -50,19 +40,12 @@ public class SHA256
      */
     public static byte[] sha256hash160(byte[] input) 
     {
-        try 
-        {
-            byte[] sha256 = MessageDigest.getInstance("SHA-256").digest(input);
-            RIPEMD160Digest digest = new RIPEMD160Digest();
-            digest.update(sha256, 0, sha256.length);
-            byte[] out = new byte[20];
-            digest.doFinal(out, 0);
-            return out;
-        } 
-        catch (NoSuchAlgorithmException e) 
-        {
-        	throw new RuntimeException("NoSuchAlgorithmException occurred in DigestSHA256.sha256hash160()", e);
-        }
+        byte[] sha256 = CryptoContext.getInstance().getSHA256().digest(input);
+        RIPEMD160Digest digest = new RIPEMD160Digest();
+        digest.update(sha256, 0, sha256.length);
+        byte[] out = new byte[20];
+        digest.doFinal(out, 0);
+        return out;
     }
     
     /**
@@ -75,24 +58,12 @@ public class SHA256
 	 */
 	public static byte[] hmacSHA256(byte[] data, byte[] key)
 	{
-		Security.addProvider(new org.spongycastle.jce.provider.BouncyCastleProvider());
-		
 		try 
 		{
-			Mac mac = Mac.getInstance("HmacSHA256", "SC");
+			Mac mac = CryptoContext.getInstance().getHmacSHA256();
 			mac.init(new SecretKeySpec(key, "HmacSHA256"));
 			return mac.doFinal(data);
 		} 
-		catch (NoSuchAlgorithmException e) 
-		{
-			throw new RuntimeException("NoSuchAlgorithmException occurred in hmacSHA256.sha256hash160()", e);
-		}
-		
-		catch (NoSuchProviderException e) 
-		{
-			throw new RuntimeException("NoSuchProviderException occurred in hmacSHA256.sha256hash160()", e);
-		}
-		
 		catch (InvalidKeyException e) 
 		{
 			throw new RuntimeException("InvalidKeyException occurred in hmacSHA256.sha256hash160()", e);
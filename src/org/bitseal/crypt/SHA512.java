@@ -1,7 +1,6 @@
 package org.bitseal.crypt;
 
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 
 import org.bitseal.util.ArrayCopier;
 import org.spongycastle.crypto.digests.RIPEMD160Digest;
@@ -34,22 +33,12 @@ public final class SHA512
 	 */
 	public static byte[] sha512(byte[]... data) 
 	{
-		MessageDigest sha512;
-		try 
+		MessageDigest sha512 = CryptoContext.getInstance().getSHA512();
+		for (byte[] bytes : data) 
 		{
-			sha512 = MessageDigest.getInstance("SHA-512");
-
-			for (byte[] bytes : data) 
-			{
-				sha512.update(bytes);
-			}
-
-			return sha512.digest();
-		} 
-		catch (NoSuchAlgorithmException e) 
-		{
-            throw new RuntimeException("NoSuchAlgorithmException occurred in DigestSHA512.sha512()", e);
+			sha512.update(bytes);
 		}
+		return sha512.digest();
 	}
 
 	/**
@@ -62,19 +51,8 @@ public final class SHA512
 	 */
 	public static byte[] sha512(byte[] bytes, int digestLength)
 	{
-		MessageDigest sha512;
-
-		try 
-		{
-			sha512 = MessageDigest.getInstance("SHA-512");
-			byte[] sum = sha512.digest(bytes);
-			return ArrayCopier.copyOf(sum, digestLength);
-		} 
-		
-		catch (NoSuchAlgorithmException e) 
-		{
-			throw new RuntimeException("NoSuchAlgorithmException occurred in DigestSHA512.sha512()", e);
-		}
+		byte[] sum = CryptoContext.getInstance().getSHA512().digest(bytes);
+		return ArrayCopier.copyOf(sum, digestLength);
 	}
 	
 	  /**
@@ -101,17 +79,10 @@ public final class SHA512
 	 */
     public static byte[] doubleHash(byte[] input, int offset, int length) 
     {
-        try 
-        {
-            MessageDigest digest = MessageDigest.getInstance("SHA-512");
-            digest.update(input, offset, length);
-            byte[] first = digest.digest();
-            return digest.digest(first);
-        } 
-        catch (NoSuchAlgorithmException e) 
-        {
-        	throw new RuntimeException("NoSuchAlgorithmException occurred in DigestSHA512.doubleDigest()", e);
-        }
+        MessageDigest digest = CryptoContext.getInstance().getSHA512();
+        digest.update(input, offset, length);
+        byte[] first = digest.digest();
+        return digest.digest(first);
     }
 	
     /**
@@ -123,18 +94,11 @@ public final class SHA512
      */
     public static byte[] sha512hash160(byte[] input) 
     {
-        try 
-        {
-            byte[] sha512 = MessageDigest.getInstance("SHA-512").digest(input);
-            RIPEMD160Digest digest = new RIPEMD160Digest();
-            digest.update(sha512, 0, sha512.length);
-            byte[] out = new byte[20];
-            digest.doFinal(out, 0);
-            return out;
-        } 
-        catch (NoSuchAlgorithmException e) 
-        {
-        	throw new RuntimeException("NoSuchAlgorithmException occurred in DigestSHA512.sha512hash160()", e);
-        }
+        byte[] sha512 = CryptoContext.getInstance().getSHA512().digest(input);
+        RIPEMD160Digest digest = new RIPEMD160Digest();
+        digest.update(sha512, 0, sha512.length);
+        byte[] out = new byte[20];
+        digest.doFinal(out, 0);
+        return out;
     }
 }
\ No newline at end of file
@@ -0,0 +1,418 @@
+package org.bitseal.crypt;
+
+import java.math.BigInteger;
+
+import org.spongycastle.math.ec.ECCurve;
+import org.spongycastle.math.ec.ECPoint;
+
+/**
+ * Provides elliptic curve point arithmetic written specifically for the secp256k1 curve,
+ * which is much faster than Spongy Castle's generic curve code.<br><br>
+ *
+ * Spongy Castle holds points in affine coordinates, so every point addition and doubling
+ * costs a modular inversion. Here points are held in Jacobian coordinates while they are
+ * being worked on, and are converted back to affine coordinates with a single inversion
+ * at the end.<br><br>
+ *
+ * Multiplying a point P by a scalar k uses the GLV method. secp256k1 has an efficient
+ * endomorphism: multiplying a point by the constant lambda is the same as multiplying
+ * its x coordinate by the constant beta. So k is split into two scalars k1 and k2 of
+ * around 128 bits each, with k = k1 + k2 * lambda (mod n), and k1 * P + k2 * (lambda * P)
+ * is calculated in a single pass over the width-5 NAF forms of k1 and k2. This takes
+ * around 128 point doublings instead of 256.<br><br>
+ *
+ * See "Faster Point Multiplication on Elliptic Curves with Efficient Endomorphisms" by
+ * Gallant, Lambert and Vanstone, and "Guide to Elliptic Curve Cryptography" by Hankerson,
+ * Menezes and Vanstone, algorithm 3.74.
+ *
+ * @author Jonathan Coe
+ */
+public final class Secp256k1
+{
+	/** The prime which defines the field of secp256k1: 2^256 - 2^32 - 977 */
+	static final BigInteger P = new BigInteger("fffffffffffffffffffffffffffffffffffffffffffffffffffffffefffffc2f", 16);
+
+	/** The order of the generator point of secp256k1 */
+	static final BigInteger N = new BigInteger("fffffffffffffffffffffffffffffffebaaedce6af48a03bbfd25e8cd0364141", 16);
+
+	/**
+	 * Multiplying a point by the scalar lambda, 0x5363ad4cc05c30e0a5261c028812645a122e22ea20816678df02967c1b23bd72,
+	 * is the same as multiplying its x coordinate by BETA
+	 */
+	private static final BigInteger BETA = new BigInteger("7ae96a2b657c07106e64479eac3434e99cf0497512f58995c1396c28719501ee", 16);
+
+	/** The short basis vectors (A1, B1) and (A2, B2) used to split a scalar into two halves */
+	private static final BigInteger A1 = new BigInteger("3086d221a7d46bcde86c90e49284eb15", 16);
+	private static final BigInteger B1 = new BigInteger("-e4437ed6010e88286f547fa90abfe4c3", 16);
+	private static final BigInteger A2 = new BigInteger("114ca50f7a8e2f3f657c1108d9d44cfd8", 16);
+	private static final BigInteger B2 = A1;
+
+	/** 2^256 - P, used to reduce numbers modulo P without a division */
+	private static final BigInteger REDUCTION_CONSTANT = BigInteger.ONE.shiftLeft(256).subtract(P);
+	private static final BigInteger LOW_256_BITS = BigInteger.ONE.shiftLeft(256).subtract(BigInteger.ONE);
+
+	private static final BigInteger THREE = BigInteger.valueOf(3);
+	private static final BigInteger SEVEN = BigInteger.valueOf(7);
+
+	/** The width of the NAF forms used in multiplication. The precomputed tables hold 2^(WNAF_WIDTH - 2) points. */
+	private static final int WNAF_WIDTH = 5;
+	private static final int TABLE_SIZE = 1 << (WNAF_WIDTH - 2);
+
+	private Secp256k1()
+	{
+		// The constructor of this class is private in order to prevent instances of it being created
+	}
+
+	/**
+	 * Multiplies a point on the secp256k1 curve by a scalar.
+	 *
+	 * @param point - The ECPoint to multiply. It must be on the secp256k1 curve.
+	 * @param k - A BigInteger containing the scalar
+	 *
+	 * @return An ECPoint containing the result of the multiplication
+	 */
+	public static ECPoint multiply(ECPoint point, BigInteger k)
+	{
+		ECCurve curve = point.getCurve();
+		if (point.isInfinity())
+		{
+			return curve.getInfinity();
+		}
+		return multiplyJacobian(point, k).toECPoint(curve);
+	}
+
+	/**
+	 * Calculates u1 * G + u2 * Q, where G is the secp256k1 generator point. This is the
+	 * calculation needed to verify an ECDSA signature.
+	 *
+	 * @param u1 - A BigInteger containing the scalar to multiply G by
+	 * @param q - The ECPoint Q. It must be on the secp256k1 curve.
+	 * @param u2 - A BigInteger containing the scalar to multiply Q by
+	 *
+	 * @return An ECPoint containing the result
+	 */
+	public static ECPoint sumOfTwoMultiplies(BigInteger u1, ECPoint q, BigInteger u2)
+	{
+		JacobianPoint result = GeneratorTable.getInstance().multiplyJacobian(u1);
+		if (q.isInfinity() == false)
+		{
+			result = result.add(multiplyJacobian(q, u2));
+		}
+		return result.toECPoint(q.getCurve());
+	}
+
+	/**
+	 * Checks whether a point is on the secp256k1 curve. The point at infinity is not
+	 * counted as being on the curve.
+	 */
+	public static boolean isOnCurve(ECPoint point)
+	{
+		if (point.isInfinity())
+		{
+			return false;
+		}
+		BigInteger x = point.getX().toBigInteger();
+		BigInteger y = point.getY().toBigInteger();
+		if (x.signum() < 0 || x.compareTo(P) >= 0 || y.signum() < 0 || y.compareTo(P) >= 0)
+		{
+			return false;
+		}
+		return fieldSquare(y).equals(fieldAdd(fieldMultiply(fieldSquare(x), x), SEVEN)); // y^2 = x^3 + 7
+	}
+
+	/**
+	 * Multiplies a point by a scalar using GLV decomposition and width-5 NAF forms.
+	 */
+	private static JacobianPoint multiplyJacobian(ECPoint point, BigInteger k)
+	{
+		k = k.mod(N);
+		if (k.signum() == 0)
+		{
+			return JacobianPoint.INFINITY;
+		}
+
+		// Split k into k1 + k2 * lambda, where k1 and k2 are around 128 bits long
+		BigInteger halfN = N.shiftRight(1);
+		BigInteger c1 = B2.multiply(k).add(halfN).divide(N);
+		BigInteger c2 = B1.negate().multiply(k).add(halfN).divide(N);
+		BigInteger k1 = k.subtract(c1.multiply(A1)).subtract(c2.multiply(A2));
+		BigInteger k2 = c1.multiply(B1).negate().subtract(c2.multiply(B2));
+
+		// Precompute the odd multiples P, 3P, ..., 15P. Those of lambda * P only differ by their x coordinates.
+		BigInteger[] tableX = new BigInteger[TABLE_SIZE];
+		BigInteger[] tableY = new BigInteger[TABLE_SIZE];
+		calculateOddMultiples(point.getX().toBigInteger(), point.getY().toBigInteger(), tableX, tableY);
+		BigInteger[] lambdaTableX = new BigInteger[TABLE_SIZE];
+		for (int i = 0; i < TABLE_SIZE; i++)
+		{
+			lambdaTableX[i] = fieldMultiply(tableX[i], BETA);
+		}
+
+		// A negative scalar is handled by using the negated point instead
+		int[] naf1 = calculateWNAF(k1.abs());
+		int[] naf2 = calculateWNAF(k2.abs());
+		int sign1 = k1.signum();
+		int sign2 = k2.signum();
+
+		JacobianPoint result = JacobianPoint.INFINITY;
+		for (int i = Math.max(naf1.length, naf2.length) - 1; i >= 0; i--)
+		{
+			result = result.twice();
+			if (i < naf1.length && naf1[i] != 0)
+			{
+				result = addTableEntry(result, tableX, tableY, naf1[i] * sign1);
+			}
+			if (i < naf2.length && naf2[i] != 0)
+			{
+				result = addTableEntry(result, lambdaTableX, tableY, naf2[i] * sign2);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Adds the table entry for the given odd NAF digit to a point, negating the entry if the digit is negative.
+	 */
+	private static JacobianPoint addTableEntry(JacobianPoint point, BigInteger[] tableX, BigInteger[] tableY, int digit)
+	{
+		if (digit > 0)
+		{
+			return point.addAffine(tableX[digit >> 1], tableY[digit >> 1]);
+		}
+		BigInteger y = tableY[(-digit) >> 1];
+		return point.addAffine(tableX[(-digit) >> 1], y.signum() == 0 ? y : P.subtract(y));
+	}
+
+	/**
+	 * Calculates the odd multiples P, 3P, 5P, ... of an affine point P in affine coordinates,
+	 * filling the given arrays. Only two inversions are needed: one for 2P and one, shared by
+	 * all the multiples, to convert them back from Jacobian coordinates.
+	 */
+	private static void calculateOddMultiples(BigInteger x, BigInteger y, BigInteger[] tableX, BigInteger[] tableY)
+	{
+		// 2P in affine coordinates. secp256k1 has no points with a y coordinate of zero.
+		BigInteger slope = fieldMultiply(fieldMultiply(THREE, fieldSquare(x)), y.shiftLeft(1).mod(P).modInverse(P));
+		BigInteger doubleX = fieldSubtract(fieldSquare(slope), x.shiftLeft(1).mod(P));
+		BigInteger doubleY = fieldSubtract(fieldMultiply(slope, fieldSubtract(x, doubleX)), y);
+
+		JacobianPoint[] multiples = new JacobianPoint[tableX.length];
+		multiples[0] = new JacobianPoint(x, y, BigInteger.ONE);
+		for (int i = 1; i < multiples.length; i++)
+		{
+			multiples[i] = multiples[i - 1].addAffine(doubleX, doubleY);
+		}
+		normalize(multiples, tableX, tableY);
+	}
+
+	/**
+	 * Converts the given Jacobian points to affine coordinates using a single inversion, by
+	 * inverting the product of all their z coordinates. None of the points may be the point at infinity.
+	 */
+	static void normalize(JacobianPoint[] points, BigInteger[] x, BigInteger[] y)
+	{
+		BigInteger[] products = new BigInteger[points.length];
+		products[0] = points[0].z;
+		for (int i = 1; i < points.length; i++)
+		{
+			products[i] = fieldMultiply(products[i - 1], points[i].z);
+		}
+		BigInteger inverse = products[points.length - 1].modInverse(P);
+		for (int i = points.length - 1; i >= 0; i--)
+		{
+			BigInteger zInverse = (i == 0) ? inverse : fieldMultiply(inverse, products[i - 1]);
+			inverse = fieldMultiply(inverse, points[i].z);
+			BigInteger zInverse2 = fieldSquare(zInverse);
+			x[i] = fieldMultiply(points[i].x, zInverse2);
+			y[i] = fieldMultiply(points[i].y, fieldMultiply(zInverse2, zInverse));
+		}
+	}
+
+	/**
+	 * Calculates the width-5 NAF form of a non-negative scalar, least significant digit first.
+	 * Each digit is either zero or an odd number between -15 and 15.
+	 */
+	private static int[] calculateWNAF(BigInteger k)
+	{
+		int[] digits = new int[k.bitLength() + 1];
+		int length = 0;
+		int windowSize = 1 << WNAF_WIDTH;
+		int position = 0;
+		while (k.signum() > 0)
+		{
+			if (k.testBit(0))
+			{
+				int digit = k.intValue() & (windowSize - 1);
+				if (digit >= (windowSize >> 1))
+				{
+					digit -= windowSize;
+				}
+				k = k.subtract(BigInteger.valueOf(digit));
+				digits[position] = digit;
+				length = position + 1;
+			}
+			k = k.shiftRight(1);
+			position++;
+		}
+		int[] naf = new int[length];
+		System.arraycopy(digits, 0, naf, 0, length);
+		return naf;
+	}
+
+	// Field arithmetic modulo P. All inputs must be between 0 and P - 1.
+
+	static BigInteger fieldAdd(BigInteger a, BigInteger b)
+	{
+		BigInteger sum = a.add(b);
+		return (sum.compareTo(P) >= 0) ? sum.subtract(P) : sum;
+	}
+
+	static BigInteger fieldSubtract(BigInteger a, BigInteger b)
+	{
+		BigInteger difference = a.subtract(b);
+		return (difference.signum() < 0) ? difference.add(P) : difference;
+	}
+
+	static BigInteger fieldMultiply(BigInteger a, BigInteger b)
+	{
+		return reduce(a.multiply(b));
+	}
+
+	static BigInteger fieldSquare(BigInteger a)
+	{
+		return reduce(a.multiply(a));
+	}
+
+	/**
+	 * Reduces a number less than P^2 modulo P. As 2^256 = 2^256 - P (mod P), which is a
+	 * 33 bit number, the bits above the lowest 256 can be folded back into them by a small
+	 * multiplication instead of a division.
+	 */
+	private static BigInteger reduce(BigInteger t)
+	{
+		t = t.shiftRight(256).multiply(REDUCTION_CONSTANT).add(t.and(LOW_256_BITS));
+		t = t.shiftRight(256).multiply(REDUCTION_CONSTANT).add(t.and(LOW_256_BITS));
+		while (t.compareTo(P) >= 0)
+		{
+			t = t.subtract(P);
+		}
+		return t;
+	}
+
+	/**
+	 * A point on secp256k1 in Jacobian coordinates, where the affine coordinates are
+	 * (x / z^2, y / z^3). The point at infinity has a z coordinate of zero. Instances
+	 * are immutable.
+	 */
+	static final class JacobianPoint
+	{
+		static final JacobianPoint INFINITY = new JacobianPoint(BigInteger.ONE, BigInteger.ONE, BigInteger.ZERO);
+
+		final BigInteger x;
+		final BigInteger y;
+		final BigInteger z;
+
+		JacobianPoint(BigInteger x, BigInteger y, BigInteger z)
+		{
+			this.x = x;
+			this.y = y;
+			this.z = z;
+		}
+
+		boolean isInfinity()
+		{
+			return z.signum() == 0;
+		}
+
+		/**
+		 * Returns twice this point.
+		 */
+		JacobianPoint twice()
+		{
+			if (isInfinity())
+			{
+				return this;
+			}
+			BigInteger ySquared = fieldSquare(y);
+			BigInteger s = fieldMultiply(x, ySquared).shiftLeft(2).mod(P); // 4xy^2
+			BigInteger m = fieldMultiply(THREE, fieldSquare(x)); // 3x^2, as a is zero on secp256k1
+			BigInteger x3 = fieldSubtract(fieldSquare(m), fieldAdd(s, s));
+			BigInteger y3 = fieldSubtract(fieldMultiply(m, fieldSubtract(s, x3)), fieldSquare(ySquared).shiftLeft(3).mod(P));
+			BigInteger z3 = fieldMultiply(y, z).shiftLeft(1).mod(P);
+			return new JacobianPoint(x3, y3, z3);
+		}
+
+		/**
+		 * Returns the sum of this point and a point in affine coordinates.
+		 */
+		JacobianPoint addAffine(BigInteger ax, BigInteger ay)
+		{
+			if (isInfinity())
+			{
+				return new JacobianPoint(ax, ay, BigInteger.ONE);
+			}
+			BigInteger zSquared = fieldSquare(z);
+			BigInteger h = fieldSubtract(fieldMultiply(ax, zSquared), x);
+			BigInteger r = fieldSubtract(fieldMultiply(ay, fieldMultiply(zSquared, z)), y);
+			return addWithDifferences(h, r, x, y, z);
+		}
+
+		/**
+		 * Returns the sum of this point and another point in Jacobian coordinates.
+		 */
+		JacobianPoint add(JacobianPoint other)
+		{
+			if (isInfinity())
+			{
+				return other;
+			}
+			if (other.isInfinity())
+			{
+				return this;
+			}
+			BigInteger otherZSquared = fieldSquare(other.z);
+			BigInteger zSquared = fieldSquare(z);
+			BigInteger u1 = fieldMultiply(x, otherZSquared);
+			BigInteger s1 = fieldMultiply(y, fieldMultiply(otherZSquared, other.z));
+			BigInteger h = fieldSubtract(fieldMultiply(other.x, zSquared), u1);
+			BigInteger r = fieldSubtract(fieldMultiply(other.y, fieldMultiply(zSquared, z)), s1);
+			return addWithDifferences(h, r, u1, s1, fieldMultiply(z, other.z));
+		}
+
+		/**
+		 * Completes an addition, given the differences h and r between the scaled x and y
+		 * coordinates of the two points, the scaled coordinates u1 and s1 of the first point,
+		 * and the product of the z coordinates.
+		 */
+		private JacobianPoint addWithDifferences(BigInteger h, BigInteger r, BigInteger u1, BigInteger s1, BigInteger zProduct)
+		{
+			if (h.signum() == 0)
+			{
+				// The points have the same x coordinate, so they are either equal or each other's negation
+				return (r.signum() == 0) ? twice() : INFINITY;
+			}
+			BigInteger hSquared = fieldSquare(h);
+			BigInteger hCubed = fieldMultiply(hSquared, h);
+			BigInteger v = fieldMultiply(u1, hSquared);
+			BigInteger x3 = fieldSubtract(fieldSubtract(fieldSquare(r), hCubed), fieldAdd(v, v));
+			BigInteger y3 = fieldSubtract(fieldMultiply(r, fieldSubtract(v, x3)), fieldMultiply(s1, hCubed));
+			BigInteger z3 = fieldMultiply(zProduct, h);
+			return new JacobianPoint(x3, y3, z3);
+		}
+
+		/**
+		 * Converts this point to an affine Spongy Castle ECPoint on the given curve.
+		 */
+		ECPoint toECPoint(ECCurve curve)
+		{
+			if (isInfinity())
+			{
+				return curve.getInfinity();
+			}
+			BigInteger zInverse = z.modInverse(P);
+			BigInteger zInverse2 = fieldSquare(zInverse);
+			BigInteger affineX = fieldMultiply(x, zInverse2);
+			BigInteger affineY = fieldMultiply(y, fieldMultiply(zInverse2, zInverse));
+			return curve.createPoint(affineX, affineY, false);
+		}
+	}
+}
@@ -2,22 +2,30 @@ package org.bitseal.crypt;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
-import java.security.NoSuchProviderException;
-import java.security.SecureRandom;
-import java.security.Signature;
-import java.security.SignatureException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.bitseal.core.AddressProcessor;
 import org.bitseal.data.Pubkey;
 import org.bitseal.data.UnencryptedMsg;
 import org.bitseal.util.ArrayCopier;
 import org.bitseal.util.ByteFormatter;
 import org.bitseal.util.ByteUtils;
 import org.bitseal.util.VarintEncoder;
+import org.spongycastle.asn1.ASN1EncodableVector;
+import org.spongycastle.asn1.ASN1InputStream;
+import org.spongycastle.asn1.ASN1Sequence;
+import org.spongycastle.asn1.DERInteger;
+import org.spongycastle.asn1.DERSequence;
+import org.spongycastle.crypto.digests.SHA1Digest;
 import org.spongycastle.jce.interfaces.ECPrivateKey;
 import org.spongycastle.jce.interfaces.ECPublicKey;
+import org.spongycastle.math.ec.ECPoint;
 
 import android.util.Log;
 
@@ -28,19 +36,29 @@ import android.util.Log;
  */
 public class SigProcessor
 {	
-	private static final String ALGORITHM = "ECDSA";
-	private static final String PROVIDER = "SC"; // Spongy Castle
 		
 	private static final String TAG = "SIG_PROCESSOR";
 	
+	/** The number of threads used to verify a batch of signatures */
+	private static final int VERIFICATION_THREADS = Runtime.getRuntime().availableProcessors();
+	
+	/** Provides the pool of threads used to verify a batch of signatures */
+	private static class VerificationPoolHolder
+	{
+		static final ExecutorService POOL = Executors.newFixedThreadPool(VERIFICATION_THREADS, new VerificationThreadFactory());
+	}
+	
 	/**
 	 * Constructs the payload necessary to sign or verify the signature of a PubKey
 	 * 
 	 * @param pubkey - The PubKey object that we wish to sign or verify the signature of
+	 * @param tag - A byte[] containing the tag of the pubkey's address, as stored with the
+	 * address or address book record. Only used for pubkeys of version 4 and above, and
+	 * may be null otherwise. 
 	 * 
 	 * @return A byte[] containing the constructed payload. 
 	 */
-	public byte[] createPubkeySignaturePayload(Pubkey pubkey)
+	public byte[] createPubkeySignaturePayload(Pubkey pubkey, byte[] tag)
 	{	
 		byte[] payload = null;
 		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
@@ -53,8 +71,12 @@ public class SigProcessor
 			
 			if (pubkey.getObjectVersion() >= 4) // Pubkeys of version 4 and above have the address tag included in the signature payload
 			{
-				String addressString = new AddressGenerator().recreateAddressString(pubkey.getObjectVersion(), pubkey.getStreamNumber(), pubkey.getPublicSigningKey(), pubkey.getPublicEncryptionKey());
-				outputStream.write(new AddressProcessor().calculateAddressTag(addressString));
+				if (tag == null)
+				{
+					throw new RuntimeException("SigProcessor.createPubkeySignaturePayload() was given a pubkey of version " + pubkey.getObjectVersion()
+							+ " but no tag to include in the signature payload");
+				}
+				outputStream.write(tag);
 			}
 			
 			outputStream.write(ByteUtils.intToBytes(pubkey.getBehaviourBitfield()));
@@ -153,7 +175,10 @@ public class SigProcessor
 	}
 	
 	/**
-	 * Checks whether a given ECDSA signature is valid. 
+	 * Checks whether a given ECDSA signature is valid.<br><br>
+	 * 
+	 * The check is the same as that done by Spongy Castle's "ECDSA" Signature (ECDSA with SHA-1),
+	 * but the point multiplications are done with the secp256k1 arithmetic of the Secp256k1 class. 
 	 * 
 	 * @param payloadToVerify - The payload which we want to verify the signature of
 	 * @param signature - A byte[] containing the signature to be verified
@@ -163,30 +188,122 @@ public class SigProcessor
 	 */
 	public boolean verifySignature(byte[] payloadToVerify, byte[] signature, ECPublicKey publicKey)
 	{
-		boolean signatureValid = false;
+		return verifySignature(payloadToVerify, signature, publicKey.getQ());
+	}
+	
+	/**
+	 * Checks whether a given ECDSA signature is valid, taking the public key from an entry
+	 * of the PublicKeyCache. The point decoded from the key is held by the entry, so checking 
+	 * several signatures made with the same key only decodes it once.
+	 * 
+	 * @param payloadToVerify - The payload which we want to verify the signature of
+	 * @param signature - A byte[] containing the signature to be verified
+	 * @param signer - The PublicKeyCache.Entry of the address which created the signature
+	 * 
+	 * @return A boolean indicating whether the pubkey's signature is valid or not
+	 */
+	public boolean verifySignature(byte[] payloadToVerify, byte[] signature, PublicKeyCache.Entry signer)
+	{
+		return verifySignature(payloadToVerify, signature, signer.getPublicSigningKeyPoint());
+	}
+	
+	/**
+	 * Checks whether each of a batch of ECDSA signatures is valid. The checks are split across
+	 * a pool of threads with one thread per CPU core, so that working through a backlog of msgs
+	 * and pubkeys is not limited to a single core.<br><br>
+	 * 
+	 * A check whose signature or public key cannot be decoded is reported as invalid, rather 
+	 * than causing an exception to be thrown. 
+	 * 
+	 * @param checks - A List containing the SignatureChecks to carry out
+	 * 
+	 * @return A boolean[] with an entry for each of the given checks, in the same order, 
+	 * indicating whether that check's signature is valid
+	 */
+	public boolean[] verifySignatures(List<SignatureCheck> checks)
+	{
+		final boolean[] results = new boolean[checks.size()];
 		
-		try 
+		// Handing a single share to the pool would only add the cost of switching threads
+		int taskCount = Math.min(checks.size(), VERIFICATION_THREADS);
+		if (taskCount <= 1)
 		{
-			Signature sig = Signature.getInstance(ALGORITHM, PROVIDER);
-			sig.initVerify(publicKey);
-			sig.update(payloadToVerify);
-			signatureValid = sig.verify(signature);
+			verifySignatures(checks, 0, results);
+			return results;
 		}
-		catch (NoSuchAlgorithmException e) 
+		
+		// Give each task an equal share of the checks
+		ArrayList<Callable<Void>> tasks = new ArrayList<Callable<Void>>(taskCount);
+		for (int i = 0; i < taskCount; i++)
 		{
-			throw new RuntimeException("NoSuchAlgorithmException occurred in SigProcessor.verifySignature()", e);
+			final int start = (i * checks.size()) / taskCount;
+			final List<SignatureCheck> share = checks.subList(start, ((i + 1) * checks.size()) / taskCount);
+			tasks.add(new Callable<Void>()
+			{
+				@Override
+				public Void call()
+				{
+					verifySignatures(share, start, results);
+					return null;
+				}
+			});
 		}
-		catch (NoSuchProviderException e) 
+		
+		try
 		{
-			throw new RuntimeException("NoSuchProviderException occurred in SigProcessor.verifySignature()", e);
+			VerificationPoolHolder.POOL.invokeAll(tasks);
 		}
-		catch (SignatureException e) 
+		catch (InterruptedException e)
 		{
-			throw new RuntimeException("SignatureException occurred in SigProcessor.verifySignature()", e);
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("InterruptedException occurred in SigProcessor.verifySignatures() while verifying " + checks.size() + " signatures", e);
 		}
-		catch (InvalidKeyException e) 
+		return results;
+	}
+	
+	/**
+	 * Carries out each of the given checks in turn, recording the results in the given array.
+	 * 
+	 * @param checks - A List containing the SignatureChecks to carry out
+	 * @param offset - The position in the results array of the result of the first check
+	 * @param results - The boolean[] in which to record the results
+	 */
+	private void verifySignatures(List<SignatureCheck> checks, int offset, boolean[] results)
+	{
+		for (int i = 0; i < checks.size(); i++)
 		{
-			throw new RuntimeException("InvalidKeyException occurred in SigProcessor.verifySignature()", e);
+			SignatureCheck check = checks.get(i);
+			try
+			{
+				results[offset + i] = verifySignature(check.getPayload(), check.getSignature(), check.getSigner());
+			}
+			catch (RuntimeException e)
+			{
+				Log.e(TAG, "RuntimeException occurred in SigProcessor.verifySignatures(). The exception message was:\n" + e.getMessage());
+				results[offset + i] = false;
+			}
+		}
+	}
+	
+	/**
+	 * Checks whether a given ECDSA signature is valid for the given public key point.
+	 */
+	private boolean verifySignature(byte[] payloadToVerify, byte[] signature, ECPoint publicKey)
+	{
+		BigInteger[] rs = decodeSignature(signature);
+		BigInteger r = rs[0];
+		BigInteger s = rs[1];
+		BigInteger n = CryptoContext.getInstance().getCurveSpec().getN();
+		
+		boolean signatureValid = false;
+		if (r.signum() > 0 && r.compareTo(n) < 0 && s.signum() > 0 && s.compareTo(n) < 0 && Secp256k1.isOnCurve(publicKey))
+		{
+			BigInteger e = calculateE(payloadToVerify);
+			BigInteger w = s.modInverse(n);
+			BigInteger u1 = e.multiply(w).mod(n);
+			BigInteger u2 = r.multiply(w).mod(n);
+			ECPoint point = Secp256k1.sumOfTwoMultiplies(u1, publicKey, u2);
+			signatureValid = (point.isInfinity() == false) && point.getX().toBigInteger().mod(n).equals(r);
 		}
 		
 		if (signatureValid == false)
@@ -200,6 +317,60 @@ public class SigProcessor
 		return signatureValid;
 	}
 	
+	/**
+	 * A signature to be checked as part of a batch, along with the payload it was made
+	 * for and the PublicKeyCache entry of its creator.
+	 */
+	public static class SignatureCheck
+	{
+		private final byte[] payload;
+		private final byte[] signature;
+		private final PublicKeyCache.Entry signer;
+		
+		/**
+		 * @param payload - The payload which we want to verify the signature of
+		 * @param signature - A byte[] containing the signature to be verified
+		 * @param signer - The PublicKeyCache.Entry of the address which created the signature
+		 */
+		public SignatureCheck(byte[] payload, byte[] signature, PublicKeyCache.Entry signer)
+		{
+			this.payload = payload;
+			this.signature = signature;
+			this.signer = signer;
+		}
+		
+		public byte[] getPayload()
+		{
+			return payload;
+		}
+		
+		public byte[] getSignature()
+		{
+			return signature;
+		}
+		
+		public PublicKeyCache.Entry getSigner()
+		{
+			return signer;
+		}
+	}
+	
+	/**
+	 * Creates the daemon threads used to verify batches of signatures.
+	 */
+	private static class VerificationThreadFactory implements ThreadFactory
+	{
+		private final AtomicInteger threadNumber = new AtomicInteger(0);
+		
+		@Override
+		public Thread newThread(Runnable runnable)
+		{
+			Thread thread = new Thread(runnable, "Signature Verification No. " + threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+	
 	/**
 	 * Produces an ECDSA signature for a given payload, using a private key in Wallet Import
 	 * Format to produce the signature.
@@ -221,7 +392,11 @@ public class SigProcessor
 	}
 	
 	/**
-	 * Produces a ECDSA signature for a given payload, using a private key to produce the signature. 
+	 * Produces a ECDSA signature for a given payload, using a private key to produce the signature.<br><br>
+	 * 
+	 * The signature is the same as one produced by Spongy Castle's "ECDSA" Signature (ECDSA with
+	 * SHA-1, DER encoded), but the multiplication of the generator point by the random value 'k' is
+	 * done with the precomputed multiples held by the GeneratorTable. 
 	 * 
 	 * @param payloadToSign - The payload to be signed
 	 * @param privateKey - The ECPrivateKey object which will be used to create the signature. 
@@ -230,31 +405,78 @@ public class SigProcessor
 	 */
 	private byte[] sign(byte[] payloadToSign, ECPrivateKey privateKey)
 	{
-		byte [] signature = null;	
-		try 
-		{
-			Signature sig = Signature.getInstance(ALGORITHM, PROVIDER);
-			sig.initSign(privateKey, new SecureRandom());
-			sig.update(payloadToSign);
-			signature = sig.sign();
-		} 
-		catch (NoSuchAlgorithmException e) 
+		CryptoContext context = CryptoContext.getInstance();
+		BigInteger n = context.getCurveSpec().getN();
+		BigInteger d = privateKey.getD();
+		
+		BigInteger e = calculateE(payloadToSign);
+		
+		BigInteger r;
+		BigInteger s;
+		do
 		{
-			throw new RuntimeException("NoSuchAlgorithmException occurred in SigProcessor.sign()", e);
+			BigInteger k;
+			do
+			{
+				k = context.generatePrivateKeyValue();
+				r = GeneratorTable.getInstance().multiply(k).getX().toBigInteger().mod(n);
+			}
+			while (r.signum() == 0);
+			
+			s = k.modInverse(n).multiply(e.add(d.multiply(r))).mod(n);
 		}
-		catch (NoSuchProviderException e) 
+		while (s.signum() == 0);
+		
+		ASN1EncodableVector sequence = new ASN1EncodableVector();
+		sequence.add(new DERInteger(r));
+		sequence.add(new DERInteger(s));
+		return new DERSequence(sequence).getDEREncoded();
+	}
+	
+	/**
+	 * Calculates the number 'e' used in creating and verifying ECDSA signatures: the SHA-1
+	 * hash of the payload. A SHA-1 hash is shorter than the order of the curve, so it does 
+	 * not need to be truncated.
+	 * 
+	 * @param payload - The payload to be signed or verified
+	 * 
+	 * @return A BigInteger containing e
+	 */
+	private BigInteger calculateE(byte[] payload)
+	{
+		SHA1Digest digest = new SHA1Digest();
+		byte[] hash = new byte[digest.getDigestSize()];
+		digest.update(payload, 0, payload.length);
+		digest.doFinal(hash, 0);
+		return new BigInteger(1, hash);
+	}
+	
+	/**
+	 * Decodes the DER encoded values r and s from an ECDSA signature.<br><br>
+	 * 
+	 * <b>NOTE! If the signature cannot be decoded, this method will throw a RuntimeException</b>
+	 * 
+	 * @param signature - A byte[] containing the signature
+	 * 
+	 * @return A BigInteger[] containing r and s
+	 */
+	private BigInteger[] decodeSignature(byte[] signature)
+	{
+		try
 		{
-			throw new RuntimeException("NoSuchProviderException occurred in SigProcessor.sign()", e);
+			ASN1Sequence sequence = (ASN1Sequence) new ASN1InputStream(signature).readObject();
+			BigInteger r = ((DERInteger) sequence.getObjectAt(0)).getValue();
+			BigInteger s = ((DERInteger) sequence.getObjectAt(1)).getValue();
+			return new BigInteger[]{r, s};
 		}
-		catch (InvalidKeyException e) 
+		catch (IOException e)
 		{
-			throw new RuntimeException("InvalidKeyException occurred in SigProcessor.sign()", e);
+			throw new RuntimeException("IOException occurred in SigProcessor.decodeSignature()", e);
 		}
-		catch (SignatureException e) 
+		catch (RuntimeException e)
 		{
-			throw new RuntimeException("SignatureException occurred in SigProcessor.sign()", e);
+			throw new RuntimeException("RuntimeException occurred in SigProcessor.decodeSignature() while decoding a signature of " 
+					+ signature.length + " bytes", e);
 		}
-	
-		return signature;
 	}
-}
\ No newline at end of file
+}
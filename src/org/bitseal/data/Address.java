@@ -21,6 +21,7 @@ public class Address
 	private String privateEncryptionKey;
 	private byte[] ripeHash;
 	private byte[] tag;
+	private byte[] addressEncryptionKey;
 	
 	public long getId() 
 	{
@@ -93,4 +94,13 @@ public class Address
 	{
 		this.tag = tag;
 	}
+	
+	public byte[] getAddressEncryptionKey()
+	{
+		return addressEncryptionKey;
+	}
+	public void setAddressEncryptionKey(byte[] addressEncryptionKey)
+	{
+		this.addressEncryptionKey = addressEncryptionKey;
+	}
 }
\ No newline at end of file
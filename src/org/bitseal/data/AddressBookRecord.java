@@ -16,6 +16,10 @@ public class AddressBookRecord implements Comparable<AddressBookRecord>
 	private String label;
 	private String address;
 	
+	// Derived from the address when the record is saved, so that they do not need to be recalculated
+	private byte[] tag;
+	private byte[] addressEncryptionKey;
+	
 	/**
 	 * Used to sort AddressBookRecords by their label, in alphabetical order.
 	 */
@@ -76,6 +80,30 @@ public class AddressBookRecord implements Comparable<AddressBookRecord>
 	}
 	public void setAddress(String address)
 	{
+		if (address == null || address.equals(this.address) == false)
+		{
+			// The values derived from the old address no longer apply
+			this.tag = null;
+			this.addressEncryptionKey = null;
+		}
 		this.address = address;
 	}
+	
+	public byte[] getTag()
+	{
+		return tag;
+	}
+	public void setTag(byte[] tag)
+	{
+		this.tag = tag;
+	}
+	
+	public byte[] getAddressEncryptionKey()
+	{
+		return addressEncryptionKey;
+	}
+	public void setAddressEncryptionKey(byte[] addressEncryptionKey)
+	{
+		this.addressEncryptionKey = addressEncryptionKey;
+	}
 }
\ No newline at end of file
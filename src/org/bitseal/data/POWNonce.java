@@ -0,0 +1,61 @@
+package org.bitseal.data;
+
+/**
+ * Class for an object recording a POW nonce which has been calculated, so 
+ * that it can be reused if POW is needed for the same payload again.
+ * 
+ * @author Jonathan Coe
+ */
+public class POWNonce
+{
+	private long id;
+	private byte[] initialHash; // The SHA-512 hash of the payload that the POW was done for
+	private long target;
+	private long nonce;
+	private long expirationTime; // The expiration time of the payload that the POW was done for
+	
+	public long getId()
+	{
+		return id;
+	}
+	public void setId(long id)
+	{
+		this.id = id;
+	}
+	
+	public byte[] getInitialHash()
+	{
+		return initialHash;
+	}
+	public void setInitialHash(byte[] initialHash)
+	{
+		this.initialHash = initialHash;
+	}
+	
+	public long getTarget()
+	{
+		return target;
+	}
+	public void setTarget(long target)
+	{
+		this.target = target;
+	}
+	
+	public long getNonce()
+	{
+		return nonce;
+	}
+	public void setNonce(long nonce)
+	{
+		this.nonce = nonce;
+	}
+	
+	public long getExpirationTime()
+	{
+		return expirationTime;
+	}
+	public void setExpirationTime(long expirationTime)
+	{
+		this.expirationTime = expirationTime;
+	}
+}
@@ -0,0 +1,67 @@
+package org.bitseal.data;
+
+/**
+ * Class for an object recording the progress made in an unfinished
+ * proof of work calculation, so that the calculation can be resumed
+ * later without repeating work.
+ * 
+ * @author Jonathan Coe
+ */
+public class POWProgress
+{
+	private long id;
+	private byte[] initialHash; // The SHA-512 hash of the payload that POW is being done for
+	private long target;
+	private long[] nonceCursors; // The next nonce to be checked by each POW worker
+	private long time; // The time at which this progress was last recorded
+	
+	public POWProgress()
+	{
+		time = System.currentTimeMillis() / 1000; // The current time in seconds
+	}
+	
+	public long getId()
+	{
+		return id;
+	}
+	public void setId(long id)
+	{
+		this.id = id;
+	}
+	
+	public byte[] getInitialHash()
+	{
+		return initialHash;
+	}
+	public void setInitialHash(byte[] initialHash)
+	{
+		this.initialHash = initialHash;
+	}
+	
+	public long getTarget()
+	{
+		return target;
+	}
+	public void setTarget(long target)
+	{
+		this.target = target;
+	}
+	
+	public long[] getNonceCursors()
+	{
+		return nonceCursors;
+	}
+	public void setNonceCursors(long[] nonceCursors)
+	{
+		this.nonceCursors = nonceCursors;
+	}
+	
+	public long getTime()
+	{
+		return time;
+	}
+	public void setTime(long time)
+	{
+		this.time = time;
+	}
+}
@@ -0,0 +1,72 @@
+package org.bitseal.data;
+
+/**
+ * Class for an acknowledgment msg which has been created in advance, with
+ * its proof of work already done, so that it can be included in a msg that
+ * we send later. 
+ * 
+ * @author Jonathan Coe
+ */
+public class PooledAck
+{
+	private long id;
+	private long timeToLive; // The 'time to live' class that this ack was created for
+	private long expirationTime;
+	private int streamNumber;
+	private byte[] ackData; // The 32 bytes of random data which identify this ack
+	private byte[] fullAckMessage; // The complete ack msg, including the object header and the POW nonce
+	
+	public long getId()
+	{
+		return id;
+	}
+	public void setId(long id)
+	{
+		this.id = id;
+	}
+	
+	public long getTimeToLive()
+	{
+		return timeToLive;
+	}
+	public void setTimeToLive(long timeToLive)
+	{
+		this.timeToLive = timeToLive;
+	}
+	
+	public long getExpirationTime()
+	{
+		return expirationTime;
+	}
+	public void setExpirationTime(long expirationTime)
+	{
+		this.expirationTime = expirationTime;
+	}
+	
+	public int getStreamNumber()
+	{
+		return streamNumber;
+	}
+	public void setStreamNumber(int streamNumber)
+	{
+		this.streamNumber = streamNumber;
+	}
+	
+	public byte[] getAckData()
+	{
+		return ackData;
+	}
+	public void setAckData(byte[] ackData)
+	{
+		this.ackData = ackData;
+	}
+	
+	public byte[] getFullAckMessage()
+	{
+		return fullAckMessage;
+	}
+	public void setFullAckMessage(byte[] fullAckMessage)
+	{
+		this.fullAckMessage = fullAckMessage;
+	}
+}
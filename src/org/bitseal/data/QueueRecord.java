@@ -49,6 +49,9 @@ public class QueueRecord implements Comparable<QueueRecord>
 	/** The type of the third object that this record refers to - e.g. "Pubkey" or "UnencryptedsMsg" */
 	private String object2Type;
 	
+	/** Where the POW for this task's payload is done, as decided by the POWPlacementEngine. Null if no decision has been made. */
+	private String powPlacement;
+	
 	// Constant values for the "Object Type" Strings in QueueRecords
 	public static final String QUEUE_RECORD_OBJECT_TYPE_ADDRESS = "Address";
 	public static final String QUEUE_RECORD_OBJECT_TYPE_MESSAGE = "Message";
@@ -172,4 +175,13 @@ public class QueueRecord implements Comparable<QueueRecord>
 	{
 		this.object2Type = type;
 	}
+	
+	public String getPOWPlacement()
+	{
+		return powPlacement;
+	}
+	public void setPOWPlacement(String powPlacement)
+	{
+		this.powPlacement = powPlacement;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,200 @@
+package org.bitseal.database;
+
+import java.util.ArrayList;
+
+import org.bitseal.data.PooledAck;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.util.Base64;
+import android.util.Log;
+
+/**
+ * A singleton class which controls the creation, reading, and
+ * deletion of stored PooledAck objects. 
+ * 
+ * @author Jonathan Coe
+ */
+
+public class AckPoolProvider
+{
+    private static final String TAG = "ACK_POOL_PROVIDER";
+
+    private static AckPoolProvider sAckPoolProvider;
+    
+    private Context mAppContext;
+    private static ContentResolver mContentResolver;
+
+    private AckPoolProvider(Context appContext)
+    {
+        mAppContext = appContext;
+        mContentResolver = mAppContext.getContentResolver();
+    }
+    
+    /**
+     * Returns an instance of this singleton class. 
+     * 
+     * @param c - A Context object for the currently running application
+     */
+    public static AckPoolProvider get(Context c)
+    {
+        if (sAckPoolProvider == null) 
+        {
+        	Context appContext = c.getApplicationContext();
+        	sAckPoolProvider = new AckPoolProvider(appContext);
+        }
+        
+        return sAckPoolProvider;
+    }
+    
+    /**
+     * Takes a PooledAck object and adds it to the app's 
+     * SQLite database as a new record, returning the ID of the 
+     * newly created record. 
+     * 
+     * @param a - The PooledAck object to be added
+     * 
+     * @return id - A long value representing the ID of the newly
+     * created record
+     */
+    public long addPooledAck(PooledAck a) 
+    {
+    	ContentValues values = new ContentValues();
+    	values.put(AckPoolTable.COLUMN_TIME_TO_LIVE, a.getTimeToLive());
+    	values.put(AckPoolTable.COLUMN_EXPIRATION_TIME, a.getExpirationTime());
+    	values.put(AckPoolTable.COLUMN_STREAM_NUMBER, a.getStreamNumber());
+    	values.put(AckPoolTable.COLUMN_ACK_DATA, Base64.encodeToString(a.getAckData(), Base64.DEFAULT));
+    	values.put(AckPoolTable.COLUMN_FULL_ACK_MESSAGE, Base64.encodeToString(a.getFullAckMessage(), Base64.DEFAULT));
+			
+		Uri insertionUri = mContentResolver.insert(DatabaseContentProvider.CONTENT_URI_ACK_POOL, values);
+    	Log.i(TAG, "PooledAck with time to live " + a.getTimeToLive() + " saved to database");
+    	
+		// Parse the ID of the newly created record from the insertion Uri
+		String uriString = insertionUri.toString();
+		String idString = uriString.substring(uriString.indexOf("/") + 1);
+		long id = Long.parseLong(idString);
+		return id;
+    }
+    
+    /**
+     * Finds all PooledAck records in the application's database that match the given field
+     * 
+     * @param columnName - A String specifying the name of the column in the database that 
+     * should be used to find matching records. See the AckPoolTable class to find
+     * the relevant column name. 
+     * @param searchString - A String specifying the value to search for. There are 4 use cases
+     * for this:<br>
+     * 1) The value to search for is a String (e.g. A label from the UI). In this case the value 
+     * can be passed in directly.<br>
+     * 2) The value to search for is an int or long. In this case you should use String.valueOf(x)
+     * and pass in the resulting String.<br>
+     * 3) The value to search for is a boolean. In this case you should pass in the String "0" for 
+     * false or the String "1" for true. <br>
+     * 4) The value to search for is a byte[]. In this case you should encode the byte[] into a 
+     * Base64 encoded String using the class android.util.Base64 and pass in the resulting String.<br><br>
+     * 
+     * <b>NOTE:</b> The above String conversion is very clumsy, but seems to be necessary. See 
+     * https://stackoverflow.com/questions/20911760/android-how-to-query-sqlitedatabase-with-non-string-selection-args
+     * 
+     * @return An ArrayList containing PooledAck objects populated with the data from
+     *  the database search
+     */
+    public ArrayList<PooledAck> searchPooledAcks(String columnName, String searchString)
+    {
+    	ArrayList<PooledAck> matchingRecords = new ArrayList<PooledAck>();
+
+    	// Specify which columns from the table we are interested in
+		String[] projection = {
+				AckPoolTable.COLUMN_ID,
+				AckPoolTable.COLUMN_TIME_TO_LIVE,
+				AckPoolTable.COLUMN_EXPIRATION_TIME,
+				AckPoolTable.COLUMN_STREAM_NUMBER,
+				AckPoolTable.COLUMN_ACK_DATA,
+				AckPoolTable.COLUMN_FULL_ACK_MESSAGE};
+		
+		// Query the database via the ContentProvider
+		Cursor cursor = mContentResolver.query(
+				DatabaseContentProvider.CONTENT_URI_ACK_POOL, 
+				projection, 
+				AckPoolTable.TABLE_ACK_POOL + "." + columnName + " = ? ", 
+				new String[]{searchString}, 
+				null);
+			
+		if (cursor.moveToFirst())
+    	{
+    	    do 
+    	    {
+    	        long id = cursor.getLong(0);
+    	        long timeToLive = cursor.getLong(1);
+    	        long expirationTime = cursor.getLong(2);
+    	        int streamNumber = cursor.getInt(3);
+    	        byte[] ackData = Base64.decode(cursor.getString(4), Base64.DEFAULT);
+    	        byte[] fullAckMessage = Base64.decode(cursor.getString(5), Base64.DEFAULT);
+    	      
+    	        PooledAck a = new PooledAck();
+    	        a.setId(id);
+    	        a.setTimeToLive(timeToLive);
+    	        a.setExpirationTime(expirationTime);
+    	        a.setStreamNumber(streamNumber);
+    	        a.setAckData(ackData);
+    	        a.setFullAckMessage(fullAckMessage);
+    	      
+    	        matchingRecords.add(a);
+    	    } 
+    	    while (cursor.moveToNext());
+    	}
+			
+		else
+		{
+			Log.i(TAG, "Unable to find any PooledAcks with the value " + searchString + " in the " + columnName + " column");
+			cursor.close();
+			return matchingRecords;
+		}
+		
+		cursor.close();
+    	return matchingRecords;
+     }
+    
+    /**
+     * Deletes a PooledAck object from the application's SQLite database<br><br>
+     * 
+     * <b>NOTE:</b> This method uses the given PooledAck's ID field to determine
+     * which record in the database to delete
+     * 
+     * @param a - The PooledAck object to be deleted
+     * 
+     * @return A boolean indicating whether the record was deleted. This will be false 
+     * if the record had already been deleted. 
+     */
+    public boolean deletePooledAck(PooledAck a)
+    {
+		long id = a.getId();
+		
+		// Query the database via the ContentProvider and delete the record with the matching ID
+		int recordsDeleted = mContentResolver.delete(
+				DatabaseContentProvider.CONTENT_URI_ACK_POOL, 
+				AckPoolTable.COLUMN_ID + " = ? ", 
+				new String[]{String.valueOf(id)});
+    	
+    	Log.i(TAG, recordsDeleted + " PooledAck(s) deleted from database");
+    	return recordsDeleted > 0;
+    }
+    
+    /**
+     * Deletes any PooledAcks in the database which expire before the given time.
+     * 
+     * @param expirationTime - The time (in seconds) before which PooledAcks should be deleted
+     */
+    public void deletePooledAcksExpiringBefore(long expirationTime)
+    {
+		int recordsDeleted = mContentResolver.delete(
+				DatabaseContentProvider.CONTENT_URI_ACK_POOL, 
+				AckPoolTable.COLUMN_EXPIRATION_TIME + " < ? ", 
+				new String[]{String.valueOf(expirationTime)});
+    	
+    	Log.i(TAG, recordsDeleted + " PooledAck(s) deleted from database");
+    }
+}
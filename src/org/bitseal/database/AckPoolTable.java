@@ -0,0 +1,41 @@
+package org.bitseal.database;
+
+import net.sqlcipher.database.SQLiteDatabase;
+import android.util.Log;
+
+public class AckPoolTable 
+{
+  // Database table
+  public static final String TABLE_ACK_POOL = "ack_pool";
+  
+  public static final String COLUMN_ID = "_id";
+  public static final String COLUMN_TIME_TO_LIVE = "time_to_live";
+  public static final String COLUMN_EXPIRATION_TIME = "expiration_time";
+  public static final String COLUMN_STREAM_NUMBER = "stream_number";
+  public static final String COLUMN_ACK_DATA = "ack_data";
+  public static final String COLUMN_FULL_ACK_MESSAGE = "full_ack_message";
+
+  // Database creation SQL statement
+  private static final String DATABASE_CREATE = "create table " 
+      + TABLE_ACK_POOL
+      + "(" 
+      + COLUMN_ID + " integer primary key autoincrement, " 
+      + COLUMN_TIME_TO_LIVE + " integer, "
+      + COLUMN_EXPIRATION_TIME + " integer, "
+      + COLUMN_STREAM_NUMBER + " integer, "
+      + COLUMN_ACK_DATA + " text, "
+      + COLUMN_FULL_ACK_MESSAGE + " text"
+      + ");";
+
+  public static void onCreate(SQLiteDatabase database) 
+  {
+    database.execSQL(DATABASE_CREATE);
+  }
+
+  public static void onUpgrade(SQLiteDatabase database, int oldVersion, int newVersion) 
+  {
+    Log.w(MessagesTable.class.getName(), "Upgrading database from version " + oldVersion + " to " + newVersion  + ", which will destroy all old data");
+    database.execSQL("DROP TABLE IF EXISTS " + TABLE_ACK_POOL);
+    onCreate(database);
+  }
+} 
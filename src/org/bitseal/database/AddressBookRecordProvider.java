@@ -2,13 +2,16 @@ package org.bitseal.database;
 
 import java.util.ArrayList;
 
+import org.bitseal.core.AddressProcessor;
 import org.bitseal.data.AddressBookRecord;
+import org.bitseal.util.ArrayCopier;
 
 import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.net.Uri;
+import android.util.Base64;
 import android.util.Log;
 
 /**
@@ -60,12 +63,16 @@ public class AddressBookRecordProvider
      */
     public long addAddressBookRecord(AddressBookRecord a) 
     {
+    	calculateAddressData(a);
+    	
     	ContentValues values = new ContentValues();
     	values.put(AddressBookRecordsTable.COLUMN_COLOUR_R, a.getColourR());
     	values.put(AddressBookRecordsTable.COLUMN_COLOUR_G, a.getColourG());
     	values.put(AddressBookRecordsTable.COLUMN_COLOUR_B, a.getColourB());
     	values.put(AddressBookRecordsTable.COLUMN_LABEL, a.getLabel());
     	values.put(AddressBookRecordsTable.COLUMN_ADDRESS, a.getAddress());
+    	values.put(AddressBookRecordsTable.COLUMN_TAG, Base64.encodeToString(a.getTag(), Base64.DEFAULT));
+    	values.put(AddressBookRecordsTable.COLUMN_ADDRESS_ENCRYPTION_KEY, Base64.encodeToString(a.getAddressEncryptionKey(), Base64.DEFAULT));
 		
 		Uri insertionUri = mContentResolver.insert(DatabaseContentProvider.CONTENT_URI_ADDRESS_BOOK_RECORDS, values);
 		Log.i(TAG, "AddressBookRecord with address " + a.getAddress() + " saved to database");
@@ -111,7 +118,9 @@ public class AddressBookRecordProvider
 				AddressBookRecordsTable.COLUMN_COLOUR_G,
 				AddressBookRecordsTable.COLUMN_COLOUR_B,
 				AddressBookRecordsTable.COLUMN_LABEL,
-				AddressBookRecordsTable.COLUMN_ADDRESS};
+				AddressBookRecordsTable.COLUMN_ADDRESS,
+				AddressBookRecordsTable.COLUMN_TAG,
+				AddressBookRecordsTable.COLUMN_ADDRESS_ENCRYPTION_KEY};
 		
 		// Query the database via the ContentProvider
 		Cursor cursor = mContentResolver.query(
@@ -131,6 +140,8 @@ public class AddressBookRecordProvider
     	        int colourB = cursor.getInt(3);
     	        String label = cursor.getString(4);
     	        String address = cursor.getString(5);
+    	        String encodedTag = cursor.getString(6); // Null if it could not be calculated when the column was added
+    	        String encodedEncryptionKey = cursor.getString(7);
     	      
     	        AddressBookRecord a = new AddressBookRecord();
     	        a.setId(id);
@@ -139,6 +150,11 @@ public class AddressBookRecordProvider
     	        a.setColourB(colourB);
     	        a.setLabel(label);
     	        a.setAddress(address);
+    	        if (encodedTag != null && encodedEncryptionKey != null)
+    	        {
+    	        	a.setTag(Base64.decode(encodedTag, Base64.DEFAULT));
+    	        	a.setAddressEncryptionKey(Base64.decode(encodedEncryptionKey, Base64.DEFAULT));
+    	        }
     	      
     	        matchingRecords.add(a);
     	    } 
@@ -154,6 +170,37 @@ public class AddressBookRecordProvider
     	return matchingRecords;
      }
     
+    /**
+     * Finds the AddressBookRecord with the given address. The address column is indexed, 
+     * so this is a cheap way to get the tag and encryption key stored for a contact.
+     * 
+     * @param address - A String containing the Bitmessage address to search for
+     * 
+     * @return The matching AddressBookRecord, or null if the address is not in the address book
+     */
+    public AddressBookRecord searchByAddress(String address)
+    {
+    	ArrayList<AddressBookRecord> retrievedRecords = searchAddressBookRecords(AddressBookRecordsTable.COLUMN_ADDRESS, address);
+    	if (retrievedRecords.size() == 0)
+    	{
+    		return null;
+    	}
+    	return retrievedRecords.get(0);
+    }
+    
+    /**
+     * Finds all AddressBookRecords in the application's database with the given tag. 
+     * The tag column is indexed, so this avoids calculating the tag of every record. 
+     * 
+     * @param tag - A byte[] containing the tag to search for
+     * 
+     * @return An ArrayList containing the matching AddressBookRecord objects
+     */
+    public ArrayList<AddressBookRecord> searchByTag(byte[] tag)
+    {
+    	return searchAddressBookRecords(AddressBookRecordsTable.COLUMN_TAG, Base64.encodeToString(tag, Base64.DEFAULT));
+    }
+    
     /**
      * Searches the database for the AddressBookRecord with the given ID.
      * This method will return exactly one AddressBookRecord object or throw
@@ -195,7 +242,9 @@ public class AddressBookRecordProvider
 				AddressBookRecordsTable.COLUMN_COLOUR_G,
 				AddressBookRecordsTable.COLUMN_COLOUR_B,
 				AddressBookRecordsTable.COLUMN_LABEL,
-				AddressBookRecordsTable.COLUMN_ADDRESS};
+				AddressBookRecordsTable.COLUMN_ADDRESS,
+				AddressBookRecordsTable.COLUMN_TAG,
+				AddressBookRecordsTable.COLUMN_ADDRESS_ENCRYPTION_KEY};
 		
 		// Query the database via the ContentProvider
 		Cursor cursor = mContentResolver.query(
@@ -215,6 +264,8 @@ public class AddressBookRecordProvider
 	   	        int colourB = cursor.getInt(3);
 	   	        String label = cursor.getString(4);
 	   	        String address = cursor.getString(5);
+	   	        String encodedTag = cursor.getString(6); // Null if it could not be calculated when the column was added
+	   	        String encodedEncryptionKey = cursor.getString(7);
 	   	      
 	   	        AddressBookRecord a = new AddressBookRecord();
 	   	        a.setId(id);
@@ -223,6 +274,11 @@ public class AddressBookRecordProvider
 	   	        a.setColourB(colourB);
 	   	        a.setLabel(label);
 	   	        a.setAddress(address);
+	   	        if (encodedTag != null && encodedEncryptionKey != null)
+	   	        {
+	   	        	a.setTag(Base64.decode(encodedTag, Base64.DEFAULT));
+	   	        	a.setAddressEncryptionKey(Base64.decode(encodedEncryptionKey, Base64.DEFAULT));
+	   	        }
     	      
     	      addressBookRecords.add(a);
     	   } 
@@ -243,12 +299,16 @@ public class AddressBookRecordProvider
      */
     public void updateAddressBookRecord(AddressBookRecord a)
     {
+    	calculateAddressData(a);
+    	
     	ContentValues values = new ContentValues();
     	values.put(AddressBookRecordsTable.COLUMN_COLOUR_R, a.getColourR());
     	values.put(AddressBookRecordsTable.COLUMN_COLOUR_G, a.getColourG());
     	values.put(AddressBookRecordsTable.COLUMN_COLOUR_B, a.getColourB());
     	values.put(AddressBookRecordsTable.COLUMN_LABEL, a.getLabel());
     	values.put(AddressBookRecordsTable.COLUMN_ADDRESS, a.getAddress());
+    	values.put(AddressBookRecordsTable.COLUMN_TAG, Base64.encodeToString(a.getTag(), Base64.DEFAULT));
+    	values.put(AddressBookRecordsTable.COLUMN_ADDRESS_ENCRYPTION_KEY, Base64.encodeToString(a.getAddressEncryptionKey(), Base64.DEFAULT));
 		
 		long id = a.getId();
     	
@@ -295,4 +355,21 @@ public class AddressBookRecordProvider
     	
     	Log.i(TAG, recordsDeleted + " AddressBookRecord(s) deleted from database");
     }
+    
+    /**
+     * Calculates the tag and encryption key of an AddressBookRecord's address if
+     * they have not been set already, so that they are stored along with the record
+     * and do not have to be calculated each time the address is used.
+     * 
+     * @param a - The AddressBookRecord to calculate the values for
+     */
+    private void calculateAddressData(AddressBookRecord a)
+    {
+    	if (a.getTag() == null || a.getAddressEncryptionKey() == null)
+    	{
+    		byte[] doubleHash = new AddressProcessor().calculateDoubleHashOfAddressData(a.getAddress());
+    		a.setAddressEncryptionKey(ArrayCopier.copyOfRange(doubleHash, 0, 32));
+    		a.setTag(ArrayCopier.copyOfRange(doubleHash, 32, doubleHash.length));
+    	}
+    }
 }
\ No newline at end of file
@@ -14,6 +14,11 @@ public class AddressBookRecordsTable
   public static final String COLUMN_COLOUR_B = "_colourB";
   public static final String COLUMN_LABEL = "label";
   public static final String COLUMN_ADDRESS = "address";
+  public static final String COLUMN_TAG = "tag";
+  public static final String COLUMN_ADDRESS_ENCRYPTION_KEY = "address_encryption_key";
+
+  private static final String INDEX_TAG = "address_book_records_tag_index";
+  private static final String INDEX_ADDRESS = "address_book_records_address_index";
 
   // Database creation SQL statement
   private static final String DATABASE_CREATE = "create table " 
@@ -24,12 +29,34 @@ public class AddressBookRecordsTable
       + COLUMN_COLOUR_G + " integer, "
       + COLUMN_COLOUR_B + " integer, "
       + COLUMN_LABEL + " text, "
-      + COLUMN_ADDRESS + " text"
+      + COLUMN_ADDRESS + " text, "
+      + COLUMN_TAG + " text, "
+      + COLUMN_ADDRESS_ENCRYPTION_KEY + " text"
       + ");";
 
+  // Index creation SQL statement. Pubkeys and getpubkey requests identify an address by its tag.
+  private static final String INDEX_CREATE = "create index " + INDEX_TAG + " on " + TABLE_ADDRESS_BOOK_RECORDS + "(" + COLUMN_TAG + ");";
+  
+  // Index creation SQL statement. The stored tag and encryption key of a contact are looked up by its address.
+  private static final String ADDRESS_INDEX_CREATE = "create index " + INDEX_ADDRESS + " on " + TABLE_ADDRESS_BOOK_RECORDS + "(" + COLUMN_ADDRESS + ");";
+
   public static void onCreate(SQLiteDatabase database) 
   {
     database.execSQL(DATABASE_CREATE);
+    database.execSQL(INDEX_CREATE);
+    database.execSQL(ADDRESS_INDEX_CREATE);
+  }
+
+  public static void addAddressDataColumns(SQLiteDatabase database)
+  {
+    database.execSQL("ALTER TABLE " + TABLE_ADDRESS_BOOK_RECORDS + " ADD COLUMN " + COLUMN_TAG + " text");
+    database.execSQL("ALTER TABLE " + TABLE_ADDRESS_BOOK_RECORDS + " ADD COLUMN " + COLUMN_ADDRESS_ENCRYPTION_KEY + " text");
+    database.execSQL(INDEX_CREATE);
+  }
+
+  public static void addAddressIndex(SQLiteDatabase database)
+  {
+    database.execSQL(ADDRESS_INDEX_CREATE);
   }
 
   public static void onUpgrade(SQLiteDatabase database, int oldVersion, int newVersion) 
@@ -2,6 +2,7 @@ package org.bitseal.database;
 
 import java.util.ArrayList;
 
+import org.bitseal.crypt.PrivateKeyRing;
 import org.bitseal.data.Address;
 
 import android.content.ContentResolver;
@@ -69,10 +70,15 @@ public class AddressProvider
     	values.put(AddressesTable.COLUMN_PRIVATE_SIGNING_KEY, a.getPrivateSigningKey());
     	values.put(AddressesTable.COLUMN_PRIVATE_ENCRYPTION_KEY, a.getPrivateEncryptionKey());
     	values.put(AddressesTable.COLUMN_RIPE_HASH, Base64.encodeToString(a.getRipeHash(), Base64.DEFAULT));
-    	values.put(AddressesTable.COLUMN_TAG, Base64.encodeToString(a.getTag(), Base64.DEFAULT));  	
+    	values.put(AddressesTable.COLUMN_TAG, Base64.encodeToString(a.getTag(), Base64.DEFAULT));
+    	if (a.getAddressEncryptionKey() != null)
+    	{
+    		values.put(AddressesTable.COLUMN_ADDRESS_ENCRYPTION_KEY, Base64.encodeToString(a.getAddressEncryptionKey(), Base64.DEFAULT));
+    	}
 			
 		Uri insertionUri = mContentResolver.insert(DatabaseContentProvider.CONTENT_URI_ADDRESSES, values);
     	Log.i(TAG, "Address with address " + a.getAddress() + " saved to database");
+    	PrivateKeyRing.getInstance().invalidate();
     	
 		// Parse the ID of the newly created record from the insertion Uri
 		String uriString = insertionUri.toString();
@@ -117,7 +123,8 @@ public class AddressProvider
 				AddressesTable.COLUMN_PRIVATE_SIGNING_KEY,
 				AddressesTable.COLUMN_PRIVATE_ENCRYPTION_KEY,
 				AddressesTable.COLUMN_RIPE_HASH,
-				AddressesTable.COLUMN_TAG};
+				AddressesTable.COLUMN_TAG,
+				AddressesTable.COLUMN_ADDRESS_ENCRYPTION_KEY};
 		
 		// Query the database via the ContentProvider
 		Cursor cursor = mContentResolver.query(
@@ -139,6 +146,7 @@ public class AddressProvider
     	        String privateEncryptionKey = cursor.getString(5);
     	        byte[] ripeHash = Base64.decode(cursor.getString(6), Base64.DEFAULT);
     	        byte[] tag = Base64.decode(cursor.getString(7), Base64.DEFAULT);
+    	        String encodedEncryptionKey = cursor.getString(8); // Null if it could not be calculated when the column was added
     	      
     	        Address a = new Address();
     	        a.setId(id);
@@ -149,6 +157,10 @@ public class AddressProvider
     	        a.setPrivateEncryptionKey(privateEncryptionKey);
     	        a.setRipeHash(ripeHash);
     	        a.setTag(tag);
+    	        if (encodedEncryptionKey != null)
+    	        {
+    	        	a.setAddressEncryptionKey(Base64.decode(encodedEncryptionKey, Base64.DEFAULT));
+    	        }
     	      
     	        matchingRecords.add(a);
     	    } 
@@ -166,6 +178,19 @@ public class AddressProvider
     	return matchingRecords;
      }
     
+    /**
+     * Finds all Addresses in the application's database with the given tag. The tag 
+     * column is indexed, so this avoids calculating the tag of every address. 
+     * 
+     * @param tag - A byte[] containing the tag to search for
+     * 
+     * @return An ArrayList containing the matching Address objects
+     */
+    public ArrayList<Address> searchByTag(byte[] tag)
+    {
+    	return searchAddresses(AddressesTable.COLUMN_TAG, Base64.encodeToString(tag, Base64.DEFAULT));
+    }
+    
     /**
      * Searches the database for the Address with the given ID.
      * This method will return exactly one Address object or throw
@@ -209,7 +234,8 @@ public class AddressProvider
 				AddressesTable.COLUMN_PRIVATE_SIGNING_KEY,
 				AddressesTable.COLUMN_PRIVATE_ENCRYPTION_KEY,
 				AddressesTable.COLUMN_RIPE_HASH,
-				AddressesTable.COLUMN_TAG};
+				AddressesTable.COLUMN_TAG,
+				AddressesTable.COLUMN_ADDRESS_ENCRYPTION_KEY};
 		
 		// Query the database via the ContentProvider
 		Cursor cursor = mContentResolver.query(
@@ -231,6 +257,7 @@ public class AddressProvider
 	   	        String privateEncryptionKey = cursor.getString(5);
 	   	        byte[] ripeHash = Base64.decode(cursor.getString(6), Base64.DEFAULT);
 	   	        byte[] tag = Base64.decode(cursor.getString(7), Base64.DEFAULT);
+	   	        String encodedEncryptionKey = cursor.getString(8); // Null if it could not be calculated when the column was added
 	   	      
 	   	        Address a = new Address();
 	   	        a.setId(id);
@@ -241,6 +268,10 @@ public class AddressProvider
 	   	        a.setPrivateEncryptionKey(privateEncryptionKey);
 	   	        a.setRipeHash(ripeHash);
 	   	        a.setTag(tag);
+	   	        if (encodedEncryptionKey != null)
+	   	        {
+	   	        	a.setAddressEncryptionKey(Base64.decode(encodedEncryptionKey, Base64.DEFAULT));
+	   	        }
     	      
     	        addresses.add(a);
     	   } 
@@ -269,6 +300,10 @@ public class AddressProvider
     	values.put(AddressesTable.COLUMN_PRIVATE_ENCRYPTION_KEY, a.getPrivateEncryptionKey());
     	values.put(AddressesTable.COLUMN_RIPE_HASH, Base64.encodeToString(a.getRipeHash(), Base64.DEFAULT));
     	values.put(AddressesTable.COLUMN_TAG, Base64.encodeToString(a.getTag(), Base64.DEFAULT));
+    	if (a.getAddressEncryptionKey() != null)
+    	{
+    		values.put(AddressesTable.COLUMN_ADDRESS_ENCRYPTION_KEY, Base64.encodeToString(a.getAddressEncryptionKey(), Base64.DEFAULT));
+    	}
 		
 		long id = a.getId();
     	
@@ -279,6 +314,7 @@ public class AddressProvider
 				new String[]{String.valueOf(id)});
     	
     	Log.i(TAG, "Address ID " + id + " updated");
+    	PrivateKeyRing.getInstance().invalidate();
     }
     
     /**
@@ -306,6 +342,7 @@ public class AddressProvider
     	{
     		Log.e(TAG, "Unable to find the address specified for deletion. The address specified was " + a.getAddress());
     	}
+    	PrivateKeyRing.getInstance().invalidate();
     }
     
     /**
@@ -320,5 +357,6 @@ public class AddressProvider
 				null);
     	
     	Log.i(TAG, recordsDeleted + " Address(es) deleted from database");
+    	PrivateKeyRing.getInstance().invalidate();
     }
 }
\ No newline at end of file
@@ -16,6 +16,9 @@ public class AddressesTable
 	public static final String COLUMN_PRIVATE_ENCRYPTION_KEY = "private_encryption_key";
 	public static final String COLUMN_RIPE_HASH = "ripe_hash";
 	public static final String COLUMN_TAG = "tag";
+	public static final String COLUMN_ADDRESS_ENCRYPTION_KEY = "address_encryption_key";
+
+	private static final String INDEX_TAG = "addresses_tag_index";
 
 	// Database creation SQL statement
 	private static final String DATABASE_CREATE = "create table " 
@@ -28,12 +31,23 @@ public class AddressesTable
       + COLUMN_PRIVATE_SIGNING_KEY + " text, "
       + COLUMN_PRIVATE_ENCRYPTION_KEY + " text, "
       + COLUMN_RIPE_HASH + " text, "
-      + COLUMN_TAG + " text"
+      + COLUMN_TAG + " text, "
+      + COLUMN_ADDRESS_ENCRYPTION_KEY + " text"
       + ");";
 
+	// Index creation SQL statement. Pubkeys and getpubkey requests identify an address by its tag.
+	private static final String INDEX_CREATE = "create index " + INDEX_TAG + " on " + TABLE_ADDRESSES + "(" + COLUMN_TAG + ");";
+
 	public static void onCreate(SQLiteDatabase database) 
 	{
 		database.execSQL(DATABASE_CREATE);
+		database.execSQL(INDEX_CREATE);
+	}
+
+	public static void addAddressEncryptionKeyColumn(SQLiteDatabase database)
+	{
+		database.execSQL("ALTER TABLE " + TABLE_ADDRESSES + " ADD COLUMN " + COLUMN_ADDRESS_ENCRYPTION_KEY + " text");
+		database.execSQL(INDEX_CREATE);
 	}
 
 	public static void onUpgrade(SQLiteDatabase database, int oldVersion, int newVersion) 
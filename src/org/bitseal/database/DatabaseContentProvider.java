@@ -52,6 +52,12 @@ public class DatabaseContentProvider extends ContentProvider implements ICacheWo
     private static final int PUBKEY_ID = 120;
     private static final int SERVER_RECORDS = 130;
     private static final int SERVER_RECORD_ID = 140;
+    private static final int POW_PROGRESS = 150;
+    private static final int POW_PROGRESS_ID = 160;
+    private static final int ACK_POOL = 170;
+    private static final int ACK_POOL_ID = 180;
+    private static final int POW_NONCES = 190;
+    private static final int POW_NONCES_ID = 200;
 	  
     private static final String AUTHORITY = "org.bitseal.database";
 	  
@@ -63,6 +69,9 @@ public class DatabaseContentProvider extends ContentProvider implements ICacheWo
     private static final String PATH_PAYLOADS = "payloads";
     private static final String PATH_PUBKEYS = "pubkeys";
     private static final String PATH_SERVER_RECORDS = "server_records";
+    private static final String PATH_POW_PROGRESS = "pow_progress";
+    private static final String PATH_ACK_POOL = "ack_pool";
+    private static final String PATH_POW_NONCES = "pow_nonces";
 	  
     // The URIs for each table in the database
     public static final Uri CONTENT_URI_ADDRESSES = Uri.parse("content://" + AUTHORITY + "/" + PATH_ADDRESSES);
@@ -72,6 +81,9 @@ public class DatabaseContentProvider extends ContentProvider implements ICacheWo
     public static final Uri CONTENT_URI_PAYLOADS = Uri.parse("content://" + AUTHORITY + "/" + PATH_PAYLOADS);
     public static final Uri CONTENT_URI_PUBKEYS = Uri.parse("content://" + AUTHORITY + "/" + PATH_PUBKEYS);
     public static final Uri CONTENT_URI_SERVER_RECORDS = Uri.parse("content://" + AUTHORITY + "/" + PATH_SERVER_RECORDS);
+    public static final Uri CONTENT_URI_POW_PROGRESS = Uri.parse("content://" + AUTHORITY + "/" + PATH_POW_PROGRESS);
+    public static final Uri CONTENT_URI_ACK_POOL = Uri.parse("content://" + AUTHORITY + "/" + PATH_ACK_POOL);
+    public static final Uri CONTENT_URI_POW_NONCES = Uri.parse("content://" + AUTHORITY + "/" + PATH_POW_NONCES);
 	  
     private static final UriMatcher sURIMatcher = new UriMatcher(UriMatcher.NO_MATCH);
     
@@ -99,6 +111,15 @@ public class DatabaseContentProvider extends ContentProvider implements ICacheWo
     	
     	sURIMatcher.addURI(AUTHORITY, PATH_SERVER_RECORDS, SERVER_RECORDS);
     	sURIMatcher.addURI(AUTHORITY, PATH_SERVER_RECORDS + "/#", SERVER_RECORD_ID);
+    	
+    	sURIMatcher.addURI(AUTHORITY, PATH_POW_PROGRESS, POW_PROGRESS);
+    	sURIMatcher.addURI(AUTHORITY, PATH_POW_PROGRESS + "/#", POW_PROGRESS_ID);
+    	
+    	sURIMatcher.addURI(AUTHORITY, PATH_ACK_POOL, ACK_POOL);
+    	sURIMatcher.addURI(AUTHORITY, PATH_ACK_POOL + "/#", ACK_POOL_ID);
+    	
+    	sURIMatcher.addURI(AUTHORITY, PATH_POW_NONCES, POW_NONCES);
+    	sURIMatcher.addURI(AUTHORITY, PATH_POW_NONCES + "/#", POW_NONCES_ID);
     }
 
     @SuppressLint("InlinedApi")
@@ -261,6 +282,27 @@ public class DatabaseContentProvider extends ContentProvider implements ICacheWo
 	        case SERVER_RECORDS:
 	            queryBuilder.setTables(ServerRecordsTable.TABLE_SERVER_RECORDS);
 	            break;
+	            
+	        case POW_PROGRESS_ID:
+	            // Adding the ID to the original query
+	            queryBuilder.appendWhere(POWProgressTable.COLUMN_ID + "=" + uri.getLastPathSegment());
+	        case POW_PROGRESS:
+	            queryBuilder.setTables(POWProgressTable.TABLE_POW_PROGRESS);
+	            break;
+	            
+	        case ACK_POOL_ID:
+	            // Adding the ID to the original query
+	            queryBuilder.appendWhere(AckPoolTable.COLUMN_ID + "=" + uri.getLastPathSegment());
+	        case ACK_POOL:
+	            queryBuilder.setTables(AckPoolTable.TABLE_ACK_POOL);
+	            break;
+	            
+	        case POW_NONCES_ID:
+	            // Adding the ID to the original query
+	            queryBuilder.appendWhere(POWNonceTable.COLUMN_ID + "=" + uri.getLastPathSegment());
+	        case POW_NONCES:
+	            queryBuilder.setTables(POWNonceTable.TABLE_POW_NONCES);
+	            break;
 	      
 		    default:
 		    	throw new IllegalArgumentException("Unknown URI: " + uri + " Exception occurred in DatabaseContentProvider.query()");
@@ -315,6 +357,21 @@ public class DatabaseContentProvider extends ContentProvider implements ICacheWo
 			      id = sDatabase.insert(ServerRecordsTable.TABLE_SERVER_RECORDS, null, values);
 			      path = PATH_SERVER_RECORDS;
 			      break;
+			      
+		    case POW_PROGRESS:
+			      id = sDatabase.insert(POWProgressTable.TABLE_POW_PROGRESS, null, values);
+			      path = PATH_POW_PROGRESS;
+			      break;
+			      
+		    case ACK_POOL:
+			      id = sDatabase.insert(AckPoolTable.TABLE_ACK_POOL, null, values);
+			      path = PATH_ACK_POOL;
+			      break;
+			      
+		    case POW_NONCES:
+			      id = sDatabase.insert(POWNonceTable.TABLE_POW_NONCES, null, values);
+			      path = PATH_POW_NONCES;
+			      break;
 		      
 		    default:
 		    	  throw new IllegalArgumentException("Unknown URI: " + uri + " Exception occurred in DatabaseContentProvider.insert()");
@@ -438,6 +495,51 @@ public class DatabaseContentProvider extends ContentProvider implements ICacheWo
 			      }
 			      break;
 			      
+		    case POW_PROGRESS:
+			      rowsDeleted = sDatabase.delete(POWProgressTable.TABLE_POW_PROGRESS, selection, selectionArgs);
+			      break;      
+		    case POW_PROGRESS_ID:
+			      id = uri.getLastPathSegment();
+			      if (TextUtils.isEmpty(selection)) 
+			      {
+			    	  rowsDeleted = sDatabase.delete(POWProgressTable.TABLE_POW_PROGRESS, POWProgressTable.COLUMN_ID + "=" + id, null);
+			      }
+			      else 
+			      {
+			    	  rowsDeleted = sDatabase.delete(POWProgressTable.TABLE_POW_PROGRESS, POWProgressTable.COLUMN_ID + "=" + id + " and " + selection, selectionArgs);
+			      }
+			      break;
+			      
+		    case ACK_POOL:
+			      rowsDeleted = sDatabase.delete(AckPoolTable.TABLE_ACK_POOL, selection, selectionArgs);
+			      break;      
+		    case ACK_POOL_ID:
+			      id = uri.getLastPathSegment();
+			      if (TextUtils.isEmpty(selection)) 
+			      {
+			    	  rowsDeleted = sDatabase.delete(AckPoolTable.TABLE_ACK_POOL, AckPoolTable.COLUMN_ID + "=" + id, null);
+			      }
+			      else 
+			      {
+			    	  rowsDeleted = sDatabase.delete(AckPoolTable.TABLE_ACK_POOL, AckPoolTable.COLUMN_ID + "=" + id + " and " + selection, selectionArgs);
+			      }
+			      break;
+			      
+		    case POW_NONCES:
+			      rowsDeleted = sDatabase.delete(POWNonceTable.TABLE_POW_NONCES, selection, selectionArgs);
+			      break;      
+		    case POW_NONCES_ID:
+			      id = uri.getLastPathSegment();
+			      if (TextUtils.isEmpty(selection)) 
+			      {
+			    	  rowsDeleted = sDatabase.delete(POWNonceTable.TABLE_POW_NONCES, POWNonceTable.COLUMN_ID + "=" + id, null);
+			      }
+			      else 
+			      {
+			    	  rowsDeleted = sDatabase.delete(POWNonceTable.TABLE_POW_NONCES, POWNonceTable.COLUMN_ID + "=" + id + " and " + selection, selectionArgs);
+			      }
+			      break;
+			      
 		    default:
 		    	  throw new IllegalArgumentException("Unknown URI: " + uri + " Exception occurred in DatabaseContentProvider.delete()");
 	    }
@@ -558,6 +660,51 @@ public class DatabaseContentProvider extends ContentProvider implements ICacheWo
 			    	  rowsUpdated = sDatabase.update(ServerRecordsTable.TABLE_SERVER_RECORDS, values, ServerRecordsTable.COLUMN_ID + "=" + id  + " and " + selection, selectionArgs);
 			      }
 			      break;
+			      
+		    case POW_PROGRESS:
+			      rowsUpdated = sDatabase.update(POWProgressTable.TABLE_POW_PROGRESS, values, selection, selectionArgs);
+			      break;
+		    case POW_PROGRESS_ID:
+			      id = uri.getLastPathSegment();
+			      if (TextUtils.isEmpty(selection)) 
+			      {
+			    	  rowsUpdated = sDatabase.update(POWProgressTable.TABLE_POW_PROGRESS, values, POWProgressTable.COLUMN_ID + "=" + id, null);
+			      } 
+			      else 
+			      {
+			    	  rowsUpdated = sDatabase.update(POWProgressTable.TABLE_POW_PROGRESS, values, POWProgressTable.COLUMN_ID + "=" + id  + " and " + selection, selectionArgs);
+			      }
+			      break;
+			      
+		    case ACK_POOL:
+			      rowsUpdated = sDatabase.update(AckPoolTable.TABLE_ACK_POOL, values, selection, selectionArgs);
+			      break;
+		    case ACK_POOL_ID:
+			      id = uri.getLastPathSegment();
+			      if (TextUtils.isEmpty(selection)) 
+			      {
+			    	  rowsUpdated = sDatabase.update(AckPoolTable.TABLE_ACK_POOL, values, AckPoolTable.COLUMN_ID + "=" + id, null);
+			      } 
+			      else 
+			      {
+			    	  rowsUpdated = sDatabase.update(AckPoolTable.TABLE_ACK_POOL, values, AckPoolTable.COLUMN_ID + "=" + id  + " and " + selection, selectionArgs);
+			      }
+			      break;
+			      
+		    case POW_NONCES:
+			      rowsUpdated = sDatabase.update(POWNonceTable.TABLE_POW_NONCES, values, selection, selectionArgs);
+			      break;
+		    case POW_NONCES_ID:
+			      id = uri.getLastPathSegment();
+			      if (TextUtils.isEmpty(selection)) 
+			      {
+			    	  rowsUpdated = sDatabase.update(POWNonceTable.TABLE_POW_NONCES, values, POWNonceTable.COLUMN_ID + "=" + id, null);
+			      } 
+			      else 
+			      {
+			    	  rowsUpdated = sDatabase.update(POWNonceTable.TABLE_POW_NONCES, values, POWNonceTable.COLUMN_ID + "=" + id  + " and " + selection, selectionArgs);
+			      }
+			      break;
 		      
 		    default:
 		    	  throw new IllegalArgumentException("Unknown URI: " + uri + " Exception occurred in DatabaseContentProvider.update()");
@@ -588,14 +735,15 @@ public class DatabaseContentProvider extends ContentProvider implements ICacheWo
 		    {
 		    	String[] available = {AddressesTable.COLUMN_ID, AddressesTable.COLUMN_CORRESPONDING_PUBKEY_ID, AddressesTable.COLUMN_LABEL, 
 		    			AddressesTable.COLUMN_ADDRESS, AddressesTable.COLUMN_PRIVATE_SIGNING_KEY, AddressesTable.COLUMN_PRIVATE_ENCRYPTION_KEY,
-		    			AddressesTable.COLUMN_RIPE_HASH, AddressesTable.COLUMN_TAG};
+		    			AddressesTable.COLUMN_RIPE_HASH, AddressesTable.COLUMN_TAG, AddressesTable.COLUMN_ADDRESS_ENCRYPTION_KEY};
 		    	return available;
 		    }
 			     
 		    else if (uriType == ADDRESS_BOOK_RECORDS || uriType == ADDRESS_BOOK_RECORD_ID)
 	    	{
 		    	String[] available = {AddressBookRecordsTable.COLUMN_ID, AddressBookRecordsTable.COLUMN_COLOUR_R, AddressBookRecordsTable.COLUMN_COLOUR_G, 
-		    			AddressBookRecordsTable.COLUMN_COLOUR_B, AddressBookRecordsTable.COLUMN_LABEL, AddressBookRecordsTable.COLUMN_ADDRESS};
+		    			AddressBookRecordsTable.COLUMN_COLOUR_B, AddressBookRecordsTable.COLUMN_LABEL, AddressBookRecordsTable.COLUMN_ADDRESS,
+		    			AddressBookRecordsTable.COLUMN_TAG, AddressBookRecordsTable.COLUMN_ADDRESS_ENCRYPTION_KEY};
 		    	return available;
 	    	}
 		    
@@ -612,7 +760,7 @@ public class DatabaseContentProvider extends ContentProvider implements ICacheWo
 		    	String[] available = {QueueRecordsTable.COLUMN_ID, QueueRecordsTable.COLUMN_TASK, QueueRecordsTable.COLUMN_TRIGGER_TIME, 
 		    			QueueRecordsTable.COLUMN_RECORD_COUNT, QueueRecordsTable.COLUMN_LAST_ATTEMPT_TIME, QueueRecordsTable.COLUMN_ATTEMPTS, 
 		    			QueueRecordsTable.COLUMN_OBJECT_0_ID, QueueRecordsTable.COLUMN_OBJECT_0_TYPE, QueueRecordsTable.COLUMN_OBJECT_1_ID,
-		    			QueueRecordsTable.COLUMN_OBJECT_1_TYPE, QueueRecordsTable.COLUMN_OBJECT_2_ID, QueueRecordsTable.COLUMN_OBJECT_2_TYPE};
+		    			QueueRecordsTable.COLUMN_OBJECT_1_TYPE, QueueRecordsTable.COLUMN_OBJECT_2_ID, QueueRecordsTable.COLUMN_OBJECT_2_TYPE, QueueRecordsTable.COLUMN_POW_PLACEMENT};
 		    	return available;
 	    	}
 		    
@@ -638,6 +786,24 @@ public class DatabaseContentProvider extends ContentProvider implements ICacheWo
 		    	String[] available = {ServerRecordsTable.COLUMN_ID, ServerRecordsTable.COLUMN_URL, ServerRecordsTable.COLUMN_USERNAME, ServerRecordsTable.COLUMN_PASSWORD};
 		    	return available;
 	    	}
+		    
+		    else if (uriType == POW_PROGRESS || uriType == POW_PROGRESS_ID)
+	    	{
+		    	String[] available = {POWProgressTable.COLUMN_ID, POWProgressTable.COLUMN_INITIAL_HASH, POWProgressTable.COLUMN_TARGET, POWProgressTable.COLUMN_NONCE_CURSORS, POWProgressTable.COLUMN_TIME};
+		    	return available;
+	    	}
+		    
+		    else if (uriType == ACK_POOL || uriType == ACK_POOL_ID)
+	    	{
+		    	String[] available = {AckPoolTable.COLUMN_ID, AckPoolTable.COLUMN_TIME_TO_LIVE, AckPoolTable.COLUMN_EXPIRATION_TIME, AckPoolTable.COLUMN_STREAM_NUMBER, AckPoolTable.COLUMN_ACK_DATA, AckPoolTable.COLUMN_FULL_ACK_MESSAGE};
+		    	return available;
+	    	}
+		    
+		    else if (uriType == POW_NONCES || uriType == POW_NONCES_ID)
+	    	{
+		    	String[] available = {POWNonceTable.COLUMN_ID, POWNonceTable.COLUMN_INITIAL_HASH, POWNonceTable.COLUMN_TARGET, POWNonceTable.COLUMN_NONCE, POWNonceTable.COLUMN_EXPIRATION_TIME};
+		    	return available;
+	    	}
 	
 		    else
 		    {
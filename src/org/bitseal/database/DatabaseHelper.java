@@ -1,13 +1,23 @@
 package org.bitseal.database;
 
 import info.guardianproject.cacheword.CacheWordHandler;
+import net.sqlcipher.Cursor;
 import net.sqlcipher.database.SQLiteDatabase;
+
+import org.bitseal.core.AddressProcessor;
+import org.bitseal.util.ArrayCopier;
+
+import android.content.ContentValues;
 import android.content.Context;
+import android.util.Base64;
+import android.util.Log;
 
 public class DatabaseHelper extends SQLCipherOpenHelper
 {
 	protected static final String DATABASE_NAME = "bitseal_database.db";
-	private static final int DATABASE_VERSION = 7;
+	private static final int DATABASE_VERSION = 13;
+	
+	private static final String TAG = "DATABASE_HELPER";
 	
 	public DatabaseHelper(Context context, CacheWordHandler cacheWordHandler)
 	{
@@ -25,12 +35,84 @@ public class DatabaseHelper extends SQLCipherOpenHelper
 	   PubkeysTable.onCreate(database);
 	   QueueRecordsTable.onCreate(database);
 	   ServerRecordsTable.onCreate(database);
+	   POWProgressTable.onCreate(database);
+	   AckPoolTable.onCreate(database);
+	   POWNonceTable.onCreate(database);
 	}
 	
 	// Method is called during an upgrade of the database, e.g. if you increase the database version
 	@Override
 	public void onUpgrade(SQLiteDatabase database, int oldVersion, int newVersion)
 	{
-		// Nothing to do here currently
+		if (oldVersion < 8)
+		{
+			POWProgressTable.onCreate(database);
+		}
+		if (oldVersion < 9)
+		{
+			AckPoolTable.onCreate(database);
+		}
+		if (oldVersion < 10)
+		{
+			POWNonceTable.onCreate(database);
+		}
+		if (oldVersion < 11)
+		{
+			QueueRecordsTable.addPOWPlacementColumn(database);
+		}
+		if (oldVersion < 12)
+		{
+			AddressesTable.addAddressEncryptionKeyColumn(database);
+			AddressBookRecordsTable.addAddressDataColumns(database);
+			storeAddressData(database, AddressesTable.TABLE_ADDRESSES);
+			storeAddressData(database, AddressBookRecordsTable.TABLE_ADDRESS_BOOK_RECORDS);
+		}
+		if (oldVersion < 13)
+		{
+			AddressBookRecordsTable.addAddressIndex(database);
+		}
+	}
+	
+	/**
+	 * Calculates the tag and encryption key of each address held in the given table
+	 * and stores them in the table's columns for those values. Used when the columns
+	 * are added to an existing database. The tags of the user's own addresses are
+	 * recalculated too, as older versions calculated them from the ripe hash with its
+	 * leading zeros removed. 
+	 * 
+	 * @param database - The database being upgraded
+	 * @param tableName - The name of the table. It must have "_id", "address",
+	 * "tag" and "address_encryption_key" columns.
+	 */
+	private void storeAddressData(SQLiteDatabase database, String tableName)
+	{
+		AddressProcessor addProc = new AddressProcessor();
+		Cursor cursor = database.query(tableName, new String[]{AddressesTable.COLUMN_ID, AddressesTable.COLUMN_ADDRESS}, null, null, null, null, null);
+		try
+		{
+			while (cursor.moveToNext())
+			{
+				long id = cursor.getLong(0);
+				String address = cursor.getString(1);
+				try
+				{
+					byte[] doubleHash = addProc.calculateDoubleHashOfAddressData(address);
+					
+					ContentValues values = new ContentValues();
+					values.put(AddressesTable.COLUMN_ADDRESS_ENCRYPTION_KEY, Base64.encodeToString(ArrayCopier.copyOfRange(doubleHash, 0, 32), Base64.DEFAULT));
+					values.put(AddressesTable.COLUMN_TAG, Base64.encodeToString(ArrayCopier.copyOfRange(doubleHash, 32, doubleHash.length), Base64.DEFAULT));
+					database.update(tableName, values, AddressesTable.COLUMN_ID + " = " + id, null);
+				}
+				catch (RuntimeException e)
+				{
+					Log.e(TAG, "RuntimeException occurred in DatabaseHelper.storeAddressData() while calculating the data of address " 
+							+ address + " in table " + tableName + ". The exception message was:\n" + e.getMessage());
+				}
+			}
+		}
+		finally
+		{
+			cursor.close();
+		}
 	}
 }
\ No newline at end of file
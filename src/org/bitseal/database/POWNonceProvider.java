@@ -0,0 +1,192 @@
+package org.bitseal.database;
+
+import java.util.ArrayList;
+
+import org.bitseal.data.POWNonce;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.util.Base64;
+import android.util.Log;
+
+/**
+ * A singleton class which controls the creation, reading, updating, and
+ * deletion of stored POWNonce objects. 
+ * 
+ * @author Jonathan Coe
+ */
+
+public class POWNonceProvider
+{
+    private static final String TAG = "POW_NONCE_PROVIDER";
+
+    private static POWNonceProvider sPOWNonceProvider;
+    
+    private Context mAppContext;
+    private static ContentResolver mContentResolver;
+
+    private POWNonceProvider(Context appContext)
+    {
+        mAppContext = appContext;
+        mContentResolver = mAppContext.getContentResolver();
+    }
+    
+    /**
+     * Returns an instance of this singleton class. 
+     * 
+     * @param c - A Context object for the currently running application
+     */
+    public static POWNonceProvider get(Context c)
+    {
+        if (sPOWNonceProvider == null) 
+        {
+        	Context appContext = c.getApplicationContext();
+        	sPOWNonceProvider = new POWNonceProvider(appContext);
+        }
+        
+        return sPOWNonceProvider;
+    }
+    
+    /**
+     * Takes a POWNonce object and adds it to the app's 
+     * SQLite database as a new record, returning the ID of the 
+     * newly created record. 
+     * 
+     * @param n - The POWNonce object to be added
+     * 
+     * @return id - A long value representing the ID of the newly
+     * created record
+     */
+    public long addPOWNonce(POWNonce n) 
+    {
+    	ContentValues values = new ContentValues();
+    	values.put(POWNonceTable.COLUMN_INITIAL_HASH, Base64.encodeToString(n.getInitialHash(), Base64.DEFAULT));
+    	values.put(POWNonceTable.COLUMN_TARGET, n.getTarget());
+    	values.put(POWNonceTable.COLUMN_NONCE, n.getNonce());
+    	values.put(POWNonceTable.COLUMN_EXPIRATION_TIME, n.getExpirationTime());
+			
+		Uri insertionUri = mContentResolver.insert(DatabaseContentProvider.CONTENT_URI_POW_NONCES, values);
+    	Log.i(TAG, "POWNonce with target " + n.getTarget() + " saved to database");
+    	
+		// Parse the ID of the newly created record from the insertion Uri
+		String uriString = insertionUri.toString();
+		String idString = uriString.substring(uriString.indexOf("/") + 1);
+		long id = Long.parseLong(idString);
+		return id;
+    }
+    
+    /**
+     * Finds all POWNonce records in the application's database that match the given field
+     * 
+     * @param columnName - A String specifying the name of the column in the database that 
+     * should be used to find matching records. See the POWNonceTable class to find
+     * the relevant column name. 
+     * @param searchString - A String specifying the value to search for. There are 4 use cases
+     * for this:<br>
+     * 1) The value to search for is a String (e.g. A label from the UI). In this case the value 
+     * can be passed in directly.<br>
+     * 2) The value to search for is an int or long. In this case you should use String.valueOf(x)
+     * and pass in the resulting String.<br>
+     * 3) The value to search for is a boolean. In this case you should pass in the String "0" for 
+     * false or the String "1" for true. <br>
+     * 4) The value to search for is a byte[]. In this case you should encode the byte[] into a 
+     * Base64 encoded String using the class android.util.Base64 and pass in the resulting String.<br><br>
+     * 
+     * <b>NOTE:</b> The above String conversion is very clumsy, but seems to be necessary. See 
+     * https://stackoverflow.com/questions/20911760/android-how-to-query-sqlitedatabase-with-non-string-selection-args
+     * 
+     * @return An ArrayList containing POWNonce objects populated with the data from
+     *  the database search
+     */
+    public ArrayList<POWNonce> searchPOWNonces(String columnName, String searchString)
+    {
+    	ArrayList<POWNonce> matchingRecords = new ArrayList<POWNonce>();
+
+    	// Specify which columns from the table we are interested in
+		String[] projection = {
+				POWNonceTable.COLUMN_ID,
+				POWNonceTable.COLUMN_INITIAL_HASH,
+				POWNonceTable.COLUMN_TARGET,
+				POWNonceTable.COLUMN_NONCE,
+				POWNonceTable.COLUMN_EXPIRATION_TIME};
+		
+		// Query the database via the ContentProvider
+		Cursor cursor = mContentResolver.query(
+				DatabaseContentProvider.CONTENT_URI_POW_NONCES, 
+				projection, 
+				POWNonceTable.TABLE_POW_NONCES + "." + columnName + " = ? ", 
+				new String[]{searchString}, 
+				null);
+			
+		if (cursor.moveToFirst())
+    	{
+    	    do 
+    	    {
+    	        long id = cursor.getLong(0);
+    	        byte[] initialHash = Base64.decode(cursor.getString(1), Base64.DEFAULT);
+    	        long target = cursor.getLong(2);
+    	        long nonce = cursor.getLong(3);
+    	        long expirationTime = cursor.getLong(4);
+    	      
+    	        POWNonce n = new POWNonce();
+    	        n.setId(id);
+    	        n.setInitialHash(initialHash);
+    	        n.setTarget(target);
+    	        n.setNonce(nonce);
+    	        n.setExpirationTime(expirationTime);
+    	      
+    	        matchingRecords.add(n);
+    	    } 
+    	    while (cursor.moveToNext());
+    	}
+			
+		else
+		{
+			Log.i(TAG, "Unable to find any POWNonce records with the value " + searchString + " in the " + columnName + " column");
+			cursor.close();
+			return matchingRecords;
+		}
+		
+		cursor.close();
+    	return matchingRecords;
+     }
+    
+    /**
+     * Deletes a POWNonce object from the application's SQLite database<br><br>
+     * 
+     * <b>NOTE:</b> This method uses the given POWNonce's ID field to determine
+     * which record in the database to delete
+     * 
+     * @param n - The POWNonce object to be deleted
+     */
+    public void deletePOWNonce(POWNonce n)
+    {
+		long id = n.getId();
+		
+		// Query the database via the ContentProvider and delete the record with the matching ID
+		int recordsDeleted = mContentResolver.delete(
+				DatabaseContentProvider.CONTENT_URI_POW_NONCES, 
+				POWNonceTable.COLUMN_ID + " = ? ", 
+				new String[]{String.valueOf(id)});
+    	
+    	Log.i(TAG, recordsDeleted + " POWNonce record(s) deleted from database");
+    }
+    
+    /**
+     * Deletes any POWNonce records in the database whose payloads expired before the given time.
+     * 
+     * @param deletionTime - The time (in seconds) before which records should be deleted
+     */
+    public void deletePOWNoncesExpiredBefore(long deletionTime)
+    {
+		int recordsDeleted = mContentResolver.delete(
+				DatabaseContentProvider.CONTENT_URI_POW_NONCES, 
+				POWNonceTable.COLUMN_EXPIRATION_TIME + " < ? ", 
+				new String[]{String.valueOf(deletionTime)});
+    	
+    	Log.i(TAG, recordsDeleted + " POWNonce record(s) deleted from database");
+    }
+}
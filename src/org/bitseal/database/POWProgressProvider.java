@@ -0,0 +1,261 @@
+package org.bitseal.database;
+
+import java.util.ArrayList;
+
+import org.bitseal.data.POWProgress;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.util.Base64;
+import android.util.Log;
+
+/**
+ * A singleton class which controls the creation, reading, updating, and
+ * deletion of stored POWProgress objects. 
+ * 
+ * @author Jonathan Coe
+ */
+
+public class POWProgressProvider
+{
+    private static final String TAG = "POW_PROGRESS_PROVIDER";
+    
+    /** The separator used when storing the nonce cursors as a single String */
+    private static final String NONCE_CURSOR_SEPARATOR = ",";
+
+    private static POWProgressProvider sPOWProgressProvider;
+    
+    private Context mAppContext;
+    private static ContentResolver mContentResolver;
+
+    private POWProgressProvider(Context appContext)
+    {
+        mAppContext = appContext;
+        mContentResolver = mAppContext.getContentResolver();
+    }
+    
+    /**
+     * Returns an instance of this singleton class. 
+     * 
+     * @param c - A Context object for the currently running application
+     */
+    public static POWProgressProvider get(Context c)
+    {
+        if (sPOWProgressProvider == null) 
+        {
+        	Context appContext = c.getApplicationContext();
+        	sPOWProgressProvider = new POWProgressProvider(appContext);
+        }
+        
+        return sPOWProgressProvider;
+    }
+    
+    /**
+     * Takes a POWProgress object and adds it to the app's 
+     * SQLite database as a new record, returning the ID of the 
+     * newly created record. 
+     * 
+     * @param p - The POWProgress object to be added
+     * 
+     * @return id - A long value representing the ID of the newly
+     * created record
+     */
+    public long addPOWProgress(POWProgress p) 
+    {
+    	ContentValues values = new ContentValues();
+    	values.put(POWProgressTable.COLUMN_INITIAL_HASH, Base64.encodeToString(p.getInitialHash(), Base64.DEFAULT));
+    	values.put(POWProgressTable.COLUMN_TARGET, p.getTarget());
+    	values.put(POWProgressTable.COLUMN_NONCE_CURSORS, encodeNonceCursors(p.getNonceCursors()));
+    	values.put(POWProgressTable.COLUMN_TIME, p.getTime());
+			
+		Uri insertionUri = mContentResolver.insert(DatabaseContentProvider.CONTENT_URI_POW_PROGRESS, values);
+    	Log.i(TAG, "POWProgress with target " + p.getTarget() + " saved to database");
+    	
+		// Parse the ID of the newly created record from the insertion Uri
+		String uriString = insertionUri.toString();
+		String idString = uriString.substring(uriString.indexOf("/") + 1);
+		long id = Long.parseLong(idString);
+		return id;
+    }
+    
+    /**
+     * Finds all POWProgress records in the application's database that match the given field
+     * 
+     * @param columnName - A String specifying the name of the column in the database that 
+     * should be used to find matching records. See the POWProgressTable class to find
+     * the relevant column name. 
+     * @param searchString - A String specifying the value to search for. There are 4 use cases
+     * for this:<br>
+     * 1) The value to search for is a String (e.g. A label from the UI). In this case the value 
+     * can be passed in directly.<br>
+     * 2) The value to search for is an int or long. In this case you should use String.valueOf(x)
+     * and pass in the resulting String.<br>
+     * 3) The value to search for is a boolean. In this case you should pass in the String "0" for 
+     * false or the String "1" for true. <br>
+     * 4) The value to search for is a byte[]. In this case you should encode the byte[] into a 
+     * Base64 encoded String using the class android.util.Base64 and pass in the resulting String.<br><br>
+     * 
+     * <b>NOTE:</b> The above String conversion is very clumsy, but seems to be necessary. See 
+     * https://stackoverflow.com/questions/20911760/android-how-to-query-sqlitedatabase-with-non-string-selection-args
+     * 
+     * @return An ArrayList containing POWProgress objects populated with the data from
+     *  the database search
+     */
+    public ArrayList<POWProgress> searchPOWProgress(String columnName, String searchString)
+    {
+    	ArrayList<POWProgress> matchingRecords = new ArrayList<POWProgress>();
+
+    	// Specify which columns from the table we are interested in
+		String[] projection = {
+				POWProgressTable.COLUMN_ID,
+				POWProgressTable.COLUMN_INITIAL_HASH,
+				POWProgressTable.COLUMN_TARGET,
+				POWProgressTable.COLUMN_NONCE_CURSORS,
+				POWProgressTable.COLUMN_TIME};
+		
+		// Query the database via the ContentProvider
+		Cursor cursor = mContentResolver.query(
+				DatabaseContentProvider.CONTENT_URI_POW_PROGRESS, 
+				projection, 
+				POWProgressTable.TABLE_POW_PROGRESS + "." + columnName + " = ? ", 
+				new String[]{searchString}, 
+				null);
+			
+		if (cursor.moveToFirst())
+    	{
+    	    do 
+    	    {
+    	        long id = cursor.getLong(0);
+    	        byte[] initialHash = Base64.decode(cursor.getString(1), Base64.DEFAULT);
+    	        long target = cursor.getLong(2);
+    	        long[] nonceCursors = decodeNonceCursors(cursor.getString(3));
+    	        long time = cursor.getLong(4);
+    	      
+    	        POWProgress p = new POWProgress();
+    	        p.setId(id);
+    	        p.setInitialHash(initialHash);
+    	        p.setTarget(target);
+    	        p.setNonceCursors(nonceCursors);
+    	        p.setTime(time);
+    	      
+    	        matchingRecords.add(p);
+    	    } 
+    	    while (cursor.moveToNext());
+    	}
+			
+		else
+		{
+			Log.i(TAG, "Unable to find any POWProgress records with the value " + searchString + " in the " + columnName + " column");
+			cursor.close();
+			return matchingRecords;
+		}
+		
+		cursor.close();
+    	return matchingRecords;
+     }
+    
+    /**
+     * Updates the database record for a given POWProgress object<br><br>
+     * 
+     * <b>NOTE:</b> This method uses the given POWProgress's ID field to determine
+     * which record in the database to update
+     * 
+     * @param p - The POWProgress object to be updated
+     */
+    public void updatePOWProgress(POWProgress p)
+    {
+    	ContentValues values = new ContentValues();
+    	values.put(POWProgressTable.COLUMN_INITIAL_HASH, Base64.encodeToString(p.getInitialHash(), Base64.DEFAULT));
+    	values.put(POWProgressTable.COLUMN_TARGET, p.getTarget());
+    	values.put(POWProgressTable.COLUMN_NONCE_CURSORS, encodeNonceCursors(p.getNonceCursors()));
+    	values.put(POWProgressTable.COLUMN_TIME, p.getTime());
+		
+		long id = p.getId();
+    	
+		// Query the database via the ContentProvider and update the record with the matching ID
+    	mContentResolver.update(DatabaseContentProvider.CONTENT_URI_POW_PROGRESS,
+    			values, 
+    			POWProgressTable.COLUMN_ID + " = ? ", 
+				new String[]{String.valueOf(id)});
+    	
+    	Log.i(TAG, "POWProgress ID " + id + " updated");
+    }
+    
+    /**
+     * Deletes a POWProgress object from the application's SQLite database<br><br>
+     * 
+     * <b>NOTE:</b> This method uses the given POWProgress's ID field to determine
+     * which record in the database to delete
+     * 
+     * @param p - The POWProgress object to be deleted
+     */
+    public void deletePOWProgress(POWProgress p)
+    {
+		long id = p.getId();
+		
+		// Query the database via the ContentProvider and delete the record with the matching ID
+		int recordsDeleted = mContentResolver.delete(
+				DatabaseContentProvider.CONTENT_URI_POW_PROGRESS, 
+				POWProgressTable.COLUMN_ID + " = ? ", 
+				new String[]{String.valueOf(id)});
+    	
+    	Log.i(TAG, recordsDeleted + " POWProgress record(s) deleted from database");
+    }
+    
+    /**
+     * Deletes any POWProgress records in the database which were last updated before the given time.
+     * 
+     * @param deletionTime - The time (in seconds) before which records should be deleted
+     */
+    public void deletePOWProgressRecordedBefore(long deletionTime)
+    {
+		int recordsDeleted = mContentResolver.delete(
+				DatabaseContentProvider.CONTENT_URI_POW_PROGRESS, 
+				POWProgressTable.COLUMN_TIME + " < ? ", 
+				new String[]{String.valueOf(deletionTime)});
+    	
+    	Log.i(TAG, recordsDeleted + " POWProgress record(s) deleted from database");
+    }
+    
+    /**
+     * Encodes a set of nonce cursors into a single String so that they can be stored in the database
+     * 
+     * @param nonceCursors - A long[] containing the nonce cursors
+     * 
+     * @return A String containing the encoded nonce cursors
+     */
+    private String encodeNonceCursors(long[] nonceCursors)
+    {
+    	StringBuilder builder = new StringBuilder();
+    	for (int i = 0; i < nonceCursors.length; i++)
+    	{
+    		if (i > 0)
+    		{
+    			builder.append(NONCE_CURSOR_SEPARATOR);
+    		}
+    		builder.append(nonceCursors[i]);
+    	}
+    	return builder.toString();
+    }
+    
+    /**
+     * Decodes a set of nonce cursors which were encoded using encodeNonceCursors()
+     * 
+     * @param encodedNonceCursors - A String containing the encoded nonce cursors
+     * 
+     * @return A long[] containing the nonce cursors
+     */
+    private long[] decodeNonceCursors(String encodedNonceCursors)
+    {
+    	String[] parts = encodedNonceCursors.split(NONCE_CURSOR_SEPARATOR);
+    	long[] nonceCursors = new long[parts.length];
+    	for (int i = 0; i < parts.length; i++)
+    	{
+    		nonceCursors[i] = Long.parseLong(parts[i]);
+    	}
+    	return nonceCursors;
+    }
+}
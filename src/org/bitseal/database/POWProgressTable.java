@@ -0,0 +1,39 @@
+package org.bitseal.database;
+
+import net.sqlcipher.database.SQLiteDatabase;
+import android.util.Log;
+
+public class POWProgressTable 
+{
+  // Database table
+  public static final String TABLE_POW_PROGRESS = "pow_progress";
+  
+  public static final String COLUMN_ID = "_id";
+  public static final String COLUMN_INITIAL_HASH = "initial_hash";
+  public static final String COLUMN_TARGET = "target";
+  public static final String COLUMN_NONCE_CURSORS = "nonce_cursors";
+  public static final String COLUMN_TIME = "time";
+
+  // Database creation SQL statement
+  private static final String DATABASE_CREATE = "create table " 
+      + TABLE_POW_PROGRESS
+      + "(" 
+      + COLUMN_ID + " integer primary key autoincrement, " 
+      + COLUMN_INITIAL_HASH + " text, "
+      + COLUMN_TARGET + " integer, "
+      + COLUMN_NONCE_CURSORS + " text, "
+      + COLUMN_TIME + " integer"
+      + ");";
+
+  public static void onCreate(SQLiteDatabase database) 
+  {
+    database.execSQL(DATABASE_CREATE);
+  }
+
+  public static void onUpgrade(SQLiteDatabase database, int oldVersion, int newVersion) 
+  {
+    Log.w(MessagesTable.class.getName(), "Upgrading database from version " + oldVersion + " to " + newVersion  + ", which will destroy all old data");
+    database.execSQL("DROP TABLE IF EXISTS " + TABLE_POW_PROGRESS);
+    onCreate(database);
+  }
+} 
@@ -72,6 +72,7 @@ public class QueueRecordProvider
     	values.put(QueueRecordsTable.COLUMN_OBJECT_1_TYPE, q.getObject1Type());
     	values.put(QueueRecordsTable.COLUMN_OBJECT_2_ID, q.getObject2Id());
     	values.put(QueueRecordsTable.COLUMN_OBJECT_2_TYPE, q.getObject2Type());
+    	values.put(QueueRecordsTable.COLUMN_POW_PLACEMENT, q.getPOWPlacement());
 			
 		Uri insertionUri = mContentResolver.insert(DatabaseContentProvider.CONTENT_URI_QUEUE_RECORDS, values);	
     	Log.i(TAG, "QueueRecord with task " + q.getTask() + " and number of attempts " + q.getAttempts() + " saved to database");
@@ -123,7 +124,8 @@ public class QueueRecordProvider
 				QueueRecordsTable.COLUMN_OBJECT_1_ID,
 				QueueRecordsTable.COLUMN_OBJECT_1_TYPE,
 				QueueRecordsTable.COLUMN_OBJECT_2_ID,
-				QueueRecordsTable.COLUMN_OBJECT_2_TYPE};
+				QueueRecordsTable.COLUMN_OBJECT_2_TYPE,
+				QueueRecordsTable.COLUMN_POW_PLACEMENT};
 		
 		// Query the database via the ContentProvider
 		Cursor cursor = mContentResolver.query(
@@ -149,6 +151,7 @@ public class QueueRecordProvider
     	        String object1Type = cursor.getString(9);
     	        long object2Id = cursor.getLong(10);
     	        String object2Type = cursor.getString(11);
+    	        String powPlacement = cursor.getString(12);
     	      
     	        QueueRecord q = new QueueRecord();
     	        q.setId(id);
@@ -163,6 +166,7 @@ public class QueueRecordProvider
     	        q.setObject1Type(object1Type);
     	        q.setObject2Id(object2Id);
     	        q.setObject2Type(object2Type);
+    	        q.setPOWPlacement(powPlacement);
     	      
     	        matchingRecords.add(q);
     	    } 
@@ -226,7 +230,8 @@ public class QueueRecordProvider
 				QueueRecordsTable.COLUMN_OBJECT_1_ID,
 				QueueRecordsTable.COLUMN_OBJECT_1_TYPE,
 				QueueRecordsTable.COLUMN_OBJECT_2_ID,
-				QueueRecordsTable.COLUMN_OBJECT_2_TYPE};
+				QueueRecordsTable.COLUMN_OBJECT_2_TYPE,
+				QueueRecordsTable.COLUMN_POW_PLACEMENT};
 		
 		// Query the database via the ContentProvider
 		Cursor cursor = mContentResolver.query(
@@ -252,6 +257,7 @@ public class QueueRecordProvider
     	        String object1Type = cursor.getString(9);
     	        long object2Id = cursor.getLong(10);
     	        String object2Type = cursor.getString(11);
+    	        String powPlacement = cursor.getString(12);
     	      
     	        QueueRecord q = new QueueRecord();
     	        q.setId(id);
@@ -266,6 +272,7 @@ public class QueueRecordProvider
     	        q.setObject1Type(object1Type);
     	        q.setObject2Id(object2Id);
     	        q.setObject2Type(object2Type);
+    	        q.setPOWPlacement(powPlacement);
     	      
     	        queueRecords.add(q);
     	    } 
@@ -298,6 +305,7 @@ public class QueueRecordProvider
     	values.put(QueueRecordsTable.COLUMN_OBJECT_1_TYPE, q.getObject1Type());
     	values.put(QueueRecordsTable.COLUMN_OBJECT_2_ID, q.getObject2Id());
     	values.put(QueueRecordsTable.COLUMN_OBJECT_2_TYPE, q.getObject2Type());
+    	values.put(QueueRecordsTable.COLUMN_POW_PLACEMENT, q.getPOWPlacement());
 		
 		long id = q.getId();
 		String task = q.getTask();
@@ -20,6 +20,7 @@ public class QueueRecordsTable
 	  public static final String COLUMN_OBJECT_1_TYPE = "object_1_type";
 	  public static final String COLUMN_OBJECT_2_ID = "object_2_id";
 	  public static final String COLUMN_OBJECT_2_TYPE = "object_2_type";
+	  public static final String COLUMN_POW_PLACEMENT = "pow_placement";
 
 	  // Database creation SQL statement
 	  private static final String DATABASE_CREATE = "create table " 
@@ -36,7 +37,8 @@ public class QueueRecordsTable
 	      + COLUMN_OBJECT_1_ID + " integer, "
 	      + COLUMN_OBJECT_1_TYPE + " text,"
 	      + COLUMN_OBJECT_2_ID + " integer, "
-	      + COLUMN_OBJECT_2_TYPE + " text"
+	      + COLUMN_OBJECT_2_TYPE + " text, "
+	      + COLUMN_POW_PLACEMENT + " text"
 	      + ");";
 
 	  public static void onCreate(SQLiteDatabase database) 
@@ -44,6 +46,14 @@ public class QueueRecordsTable
 	    database.execSQL(DATABASE_CREATE);
 	  }
 
+	  /**
+	   * Adds the POW placement column to an existing queue records table
+	   */
+	  public static void addPOWPlacementColumn(SQLiteDatabase database)
+	  {
+	    database.execSQL("ALTER TABLE " + TABLE_QUEUE_RECORDS + " ADD COLUMN " + COLUMN_POW_PLACEMENT + " text");
+	  }
+
 	  public static void onUpgrade(SQLiteDatabase database, int oldVersion, int newVersion) 
 	  {
 	    Log.w(MessagesTable.class.getName(), "Upgrading database from version " + oldVersion + " to " + newVersion  + ", which will destroy all old data");
@@ -405,12 +405,14 @@ public class ServerCommunicator
 	 * @param identifier - A byte[] containing the data used to identify the pubkey
 	 * we wish to request. For address versions 3 and below, this is the ripe hash. For
 	 * address versions 4 and above, this is the 'tag'.
+	 * @param encryptionKey - A byte[] containing the encryption key of the address, used
+	 * to decrypt the pubkey. Only used for address versions 4 and above, and may be null otherwise.
 	 * @param addressVersion - An int containing the version number of the address for
 	 * which we are requesting the pubkey
 	 * 
 	 * @return A Pubkey object containing the requested pubkey
 	 */
-	public Pubkey requestPubkeyFromServer(String addressString, byte[] identifier, int addressVersion)
+	public Pubkey requestPubkeyFromServer(String addressString, byte[] identifier, byte[] encryptionKey, int addressVersion)
 	{
 		Log.d(TAG, "Requesting the pubkey of address " + addressString);
 		
@@ -451,10 +453,11 @@ public class ServerCommunicator
 
 						// Validate the pubkey
 						PubkeyProcessor pubProc = new PubkeyProcessor();
-						Pubkey pubkey = pubProc.reconstructPubkey(pubkeyData, addressString);
+						Pubkey pubkey = pubProc.reconstructPubkey(pubkeyData, encryptionKey);
 						
-						// Validate the reconstructed pubkey.
-						boolean pubkeyValid = pubProc.validatePubkey(pubkey, addressString);
+						// Validate the reconstructed pubkey. For address versions 4 and above the identifier is the tag.
+						byte[] tag = (addressVersion >= 4) ? identifier : null;
+						boolean pubkeyValid = pubProc.validatePubkey(pubkey, addressString, tag);
 						if (pubkeyValid == false)
 						{
 							Log.i(TAG, "While running ServerCommunicator.requestPubkeyFromServer() in order to retrieve the pubkey \n" +
@@ -0,0 +1,514 @@
+package org.bitseal.pow;
+
+/**
+ * A POW searcher which calculates the trial values of four nonces at once.<br><br>
+ *
+ * The SHA-512 compression function is a long chain of dependent operations, so a single
+ * hash cannot keep all of a CPU core's execution units busy. This class hashes four
+ * independent nonces in each pass, with the rounds for each nonce interleaved and their
+ * working variables held in separate locals, so that the CPU can overlap the rounds of
+ * one nonce with those of another. The results are identical to those of POWHasher.<br><br>
+ *
+ * <b>Note: Instances of this class are not thread safe. Each POW worker thread must use its own FourLanePOWHasher.</b>
+ *
+ * @author Jonathan Coe
+ */
+public class FourLanePOWHasher implements POWSearcher
+{
+	/** The number of nonces hashed in each pass */
+	static final int LANES = 4;
+
+	/** The SHA-512 round constants */
+	private static final long[] K = POWHasher.K;
+
+	/** The words of the SHA-512 initial hash value, held as constants so that they can be loaded directly into the working variables */
+	private static final long IV_A = 0x6a09e667f3bcc908L;
+	private static final long IV_B = 0xbb67ae8584caa73bL;
+	private static final long IV_C = 0x3c6ef372fe94f82bL;
+	private static final long IV_D = 0xa54ff53a5f1d36f1L;
+	private static final long IV_E = 0x510e527fade682d1L;
+	private static final long IV_F = 0x9b05688c2b3e6c1fL;
+	private static final long IV_G = 0x1f83d9abfb41bd6bL;
+	private static final long IV_H = 0x5be0cd19137e2179L;
+
+	/** The message schedule for the first hash of lane 0. Words 1 to 15 hold the padded initial hash and never change. */
+	private final long[] firstSchedule0 = new long[80];
+
+	/** The message schedule for the first hash of lane 1. Words 1 to 15 hold the padded initial hash and never change. */
+	private final long[] firstSchedule1 = new long[80];
+
+	/** The message schedule for the first hash of lane 2. Words 1 to 15 hold the padded initial hash and never change. */
+	private final long[] firstSchedule2 = new long[80];
+
+	/** The message schedule for the first hash of lane 3. Words 1 to 15 hold the padded initial hash and never change. */
+	private final long[] firstSchedule3 = new long[80];
+
+	/** The message schedule for the second hash of lane 0. Words 8 to 15 hold the padding and never change. */
+	private final long[] secondSchedule0 = new long[80];
+
+	/** The message schedule for the second hash of lane 1. Words 8 to 15 hold the padding and never change. */
+	private final long[] secondSchedule1 = new long[80];
+
+	/** The message schedule for the second hash of lane 2. Words 8 to 15 hold the padding and never change. */
+	private final long[] secondSchedule2 = new long[80];
+
+	/** The message schedule for the second hash of lane 3. Words 8 to 15 hold the padding and never change. */
+	private final long[] secondSchedule3 = new long[80];
+
+	/** The trial value calculated for each lane in the latest pass */
+	private final long[] trialValues = new long[LANES];
+
+	/**
+	 * Creates a new FourLanePOWHasher for the given initial hash.
+	 *
+	 * @param initialHash - A byte[] containing the 64 byte SHA-512 hash of the payload that POW is being done for
+	 */
+	public FourLanePOWHasher(byte[] initialHash)
+	{
+		if (initialHash.length != 64)
+		{
+			throw new IllegalArgumentException("The initial hash supplied to FourLanePOWHasher must be 64 bytes in length. The length of the supplied initial hash was " + initialHash.length);
+		}
+
+		POWHasher.initialiseSchedules(initialHash, firstSchedule0, secondSchedule0);
+		System.arraycopy(firstSchedule0, 0, firstSchedule1, 0, 16);
+		System.arraycopy(secondSchedule0, 0, secondSchedule1, 0, 16);
+		System.arraycopy(firstSchedule0, 0, firstSchedule2, 0, 16);
+		System.arraycopy(secondSchedule0, 0, secondSchedule2, 0, 16);
+		System.arraycopy(firstSchedule0, 0, firstSchedule3, 0, 16);
+		System.arraycopy(secondSchedule0, 0, secondSchedule3, 0, 16);
+	}
+
+	@Override
+	public int search(long startNonce, long increment, int trials, long target)
+	{
+		long nonce = startNonce;
+		for (int i = 0; i < trials; i += LANES)
+		{
+			calculateTrialValues(nonce, nonce + increment, nonce + 2 * increment, nonce + 3 * increment);
+
+			// Check the lanes in order, so that the first valid nonce in the sequence is the one found. Lanes
+			// beyond the requested number of trials are ignored.
+			int lanesToCheck = Math.min(LANES, trials - i);
+			for (int lane = 0; lane < lanesToCheck; lane++)
+			{
+				long result = trialValues[lane];
+				if (result <= target && result >= 0)
+				{
+					return i + lane;
+				}
+			}
+			nonce += LANES * increment;
+		}
+		return -1;
+	}
+
+	/**
+	 * Calculates the POW trial value for each of the given nonces, writing the results into trialValues.
+	 */
+	private void calculateTrialValues(long nonce0, long nonce1, long nonce2, long nonce3)
+	{
+		firstSchedule0[0] = nonce0;
+		firstSchedule1[0] = nonce1;
+		firstSchedule2[0] = nonce2;
+		firstSchedule3[0] = nonce3;
+		compress(firstSchedule0, firstSchedule1, firstSchedule2, firstSchedule3, secondSchedule0, secondSchedule1, secondSchedule2, secondSchedule3);
+		compressToTrialValues(secondSchedule0, secondSchedule1, secondSchedule2, secondSchedule3);
+	}
+
+	/**
+	 * Runs the SHA-512 compression function for the first hash of each lane, writing each 
+	 * resulting hash into the first 8 words of the corresponding second message schedule.
+	 */
+	private static void compress(long[] w0, long[] w1, long[] w2, long[] w3, long[] out0, long[] out1, long[] out2, long[] out3)
+	{
+		for (int t = 16; t < 80; t++)
+		{
+			long w2_0 = w0[t - 2];
+			long w15_0 = w0[t - 15];
+			long w2_1 = w1[t - 2];
+			long w15_1 = w1[t - 15];
+			long w2_2 = w2[t - 2];
+			long w15_2 = w2[t - 15];
+			long w2_3 = w3[t - 2];
+			long w15_3 = w3[t - 15];
+			w0[t] = (((w2_0 >>> 19) | (w2_0 << 45)) ^ ((w2_0 >>> 61) | (w2_0 << 3)) ^ (w2_0 >>> 6)) + w0[t - 7]
+					+ (((w15_0 >>> 1) | (w15_0 << 63)) ^ ((w15_0 >>> 8) | (w15_0 << 56)) ^ (w15_0 >>> 7)) + w0[t - 16];
+			w1[t] = (((w2_1 >>> 19) | (w2_1 << 45)) ^ ((w2_1 >>> 61) | (w2_1 << 3)) ^ (w2_1 >>> 6)) + w1[t - 7]
+					+ (((w15_1 >>> 1) | (w15_1 << 63)) ^ ((w15_1 >>> 8) | (w15_1 << 56)) ^ (w15_1 >>> 7)) + w1[t - 16];
+			w2[t] = (((w2_2 >>> 19) | (w2_2 << 45)) ^ ((w2_2 >>> 61) | (w2_2 << 3)) ^ (w2_2 >>> 6)) + w2[t - 7]
+					+ (((w15_2 >>> 1) | (w15_2 << 63)) ^ ((w15_2 >>> 8) | (w15_2 << 56)) ^ (w15_2 >>> 7)) + w2[t - 16];
+			w3[t] = (((w2_3 >>> 19) | (w2_3 << 45)) ^ ((w2_3 >>> 61) | (w2_3 << 3)) ^ (w2_3 >>> 6)) + w3[t - 7]
+					+ (((w15_3 >>> 1) | (w15_3 << 63)) ^ ((w15_3 >>> 8) | (w15_3 << 56)) ^ (w15_3 >>> 7)) + w3[t - 16];
+		}
+
+		long a0 = IV_A;
+		long b0 = IV_B;
+		long c0 = IV_C;
+		long d0 = IV_D;
+		long e0 = IV_E;
+		long f0 = IV_F;
+		long g0 = IV_G;
+		long h0 = IV_H;
+		long a1 = IV_A;
+		long b1 = IV_B;
+		long c1 = IV_C;
+		long d1 = IV_D;
+		long e1 = IV_E;
+		long f1 = IV_F;
+		long g1 = IV_G;
+		long h1 = IV_H;
+		long a2 = IV_A;
+		long b2 = IV_B;
+		long c2 = IV_C;
+		long d2 = IV_D;
+		long e2 = IV_E;
+		long f2 = IV_F;
+		long g2 = IV_G;
+		long h2 = IV_H;
+		long a3 = IV_A;
+		long b3 = IV_B;
+		long c3 = IV_C;
+		long d3 = IV_D;
+		long e3 = IV_E;
+		long f3 = IV_F;
+		long g3 = IV_G;
+		long h3 = IV_H;
+
+		// The rounds are unrolled eight at a time so that the working variables rotate by
+		// renaming rather than by being copied after every round
+		for (int t = 0; t < 80; t += 8)
+		{
+			h0 += sum1(e0) + ch(e0, f0, g0) + K[t] + w0[t];
+			h1 += sum1(e1) + ch(e1, f1, g1) + K[t] + w1[t];
+			h2 += sum1(e2) + ch(e2, f2, g2) + K[t] + w2[t];
+			h3 += sum1(e3) + ch(e3, f3, g3) + K[t] + w3[t];
+			d0 += h0;
+			d1 += h1;
+			d2 += h2;
+			d3 += h3;
+			h0 += sum0(a0) + maj(a0, b0, c0);
+			h1 += sum0(a1) + maj(a1, b1, c1);
+			h2 += sum0(a2) + maj(a2, b2, c2);
+			h3 += sum0(a3) + maj(a3, b3, c3);
+
+			g0 += sum1(d0) + ch(d0, e0, f0) + K[t + 1] + w0[t + 1];
+			g1 += sum1(d1) + ch(d1, e1, f1) + K[t + 1] + w1[t + 1];
+			g2 += sum1(d2) + ch(d2, e2, f2) + K[t + 1] + w2[t + 1];
+			g3 += sum1(d3) + ch(d3, e3, f3) + K[t + 1] + w3[t + 1];
+			c0 += g0;
+			c1 += g1;
+			c2 += g2;
+			c3 += g3;
+			g0 += sum0(h0) + maj(h0, a0, b0);
+			g1 += sum0(h1) + maj(h1, a1, b1);
+			g2 += sum0(h2) + maj(h2, a2, b2);
+			g3 += sum0(h3) + maj(h3, a3, b3);
+
+			f0 += sum1(c0) + ch(c0, d0, e0) + K[t + 2] + w0[t + 2];
+			f1 += sum1(c1) + ch(c1, d1, e1) + K[t + 2] + w1[t + 2];
+			f2 += sum1(c2) + ch(c2, d2, e2) + K[t + 2] + w2[t + 2];
+			f3 += sum1(c3) + ch(c3, d3, e3) + K[t + 2] + w3[t + 2];
+			b0 += f0;
+			b1 += f1;
+			b2 += f2;
+			b3 += f3;
+			f0 += sum0(g0) + maj(g0, h0, a0);
+			f1 += sum0(g1) + maj(g1, h1, a1);
+			f2 += sum0(g2) + maj(g2, h2, a2);
+			f3 += sum0(g3) + maj(g3, h3, a3);
+
+			e0 += sum1(b0) + ch(b0, c0, d0) + K[t + 3] + w0[t + 3];
+			e1 += sum1(b1) + ch(b1, c1, d1) + K[t + 3] + w1[t + 3];
+			e2 += sum1(b2) + ch(b2, c2, d2) + K[t + 3] + w2[t + 3];
+			e3 += sum1(b3) + ch(b3, c3, d3) + K[t + 3] + w3[t + 3];
+			a0 += e0;
+			a1 += e1;
+			a2 += e2;
+			a3 += e3;
+			e0 += sum0(f0) + maj(f0, g0, h0);
+			e1 += sum0(f1) + maj(f1, g1, h1);
+			e2 += sum0(f2) + maj(f2, g2, h2);
+			e3 += sum0(f3) + maj(f3, g3, h3);
+
+			d0 += sum1(a0) + ch(a0, b0, c0) + K[t + 4] + w0[t + 4];
+			d1 += sum1(a1) + ch(a1, b1, c1) + K[t + 4] + w1[t + 4];
+			d2 += sum1(a2) + ch(a2, b2, c2) + K[t + 4] + w2[t + 4];
+			d3 += sum1(a3) + ch(a3, b3, c3) + K[t + 4] + w3[t + 4];
+			h0 += d0;
+			h1 += d1;
+			h2 += d2;
+			h3 += d3;
+			d0 += sum0(e0) + maj(e0, f0, g0);
+			d1 += sum0(e1) + maj(e1, f1, g1);
+			d2 += sum0(e2) + maj(e2, f2, g2);
+			d3 += sum0(e3) + maj(e3, f3, g3);
+
+			c0 += sum1(h0) + ch(h0, a0, b0) + K[t + 5] + w0[t + 5];
+			c1 += sum1(h1) + ch(h1, a1, b1) + K[t + 5] + w1[t + 5];
+			c2 += sum1(h2) + ch(h2, a2, b2) + K[t + 5] + w2[t + 5];
+			c3 += sum1(h3) + ch(h3, a3, b3) + K[t + 5] + w3[t + 5];
+			g0 += c0;
+			g1 += c1;
+			g2 += c2;
+			g3 += c3;
+			c0 += sum0(d0) + maj(d0, e0, f0);
+			c1 += sum0(d1) + maj(d1, e1, f1);
+			c2 += sum0(d2) + maj(d2, e2, f2);
+			c3 += sum0(d3) + maj(d3, e3, f3);
+
+			b0 += sum1(g0) + ch(g0, h0, a0) + K[t + 6] + w0[t + 6];
+			b1 += sum1(g1) + ch(g1, h1, a1) + K[t + 6] + w1[t + 6];
+			b2 += sum1(g2) + ch(g2, h2, a2) + K[t + 6] + w2[t + 6];
+			b3 += sum1(g3) + ch(g3, h3, a3) + K[t + 6] + w3[t + 6];
+			f0 += b0;
+			f1 += b1;
+			f2 += b2;
+			f3 += b3;
+			b0 += sum0(c0) + maj(c0, d0, e0);
+			b1 += sum0(c1) + maj(c1, d1, e1);
+			b2 += sum0(c2) + maj(c2, d2, e2);
+			b3 += sum0(c3) + maj(c3, d3, e3);
+
+			a0 += sum1(f0) + ch(f0, g0, h0) + K[t + 7] + w0[t + 7];
+			a1 += sum1(f1) + ch(f1, g1, h1) + K[t + 7] + w1[t + 7];
+			a2 += sum1(f2) + ch(f2, g2, h2) + K[t + 7] + w2[t + 7];
+			a3 += sum1(f3) + ch(f3, g3, h3) + K[t + 7] + w3[t + 7];
+			e0 += a0;
+			e1 += a1;
+			e2 += a2;
+			e3 += a3;
+			a0 += sum0(b0) + maj(b0, c0, d0);
+			a1 += sum0(b1) + maj(b1, c1, d1);
+			a2 += sum0(b2) + maj(b2, c2, d2);
+			a3 += sum0(b3) + maj(b3, c3, d3);
+		}
+
+		out0[0] = IV_A + a0;
+		out0[1] = IV_B + b0;
+		out0[2] = IV_C + c0;
+		out0[3] = IV_D + d0;
+		out0[4] = IV_E + e0;
+		out0[5] = IV_F + f0;
+		out0[6] = IV_G + g0;
+		out0[7] = IV_H + h0;
+		out1[0] = IV_A + a1;
+		out1[1] = IV_B + b1;
+		out1[2] = IV_C + c1;
+		out1[3] = IV_D + d1;
+		out1[4] = IV_E + e1;
+		out1[5] = IV_F + f1;
+		out1[6] = IV_G + g1;
+		out1[7] = IV_H + h1;
+		out2[0] = IV_A + a2;
+		out2[1] = IV_B + b2;
+		out2[2] = IV_C + c2;
+		out2[3] = IV_D + d2;
+		out2[4] = IV_E + e2;
+		out2[5] = IV_F + f2;
+		out2[6] = IV_G + g2;
+		out2[7] = IV_H + h2;
+		out3[0] = IV_A + a3;
+		out3[1] = IV_B + b3;
+		out3[2] = IV_C + c3;
+		out3[3] = IV_D + d3;
+		out3[4] = IV_E + e3;
+		out3[5] = IV_F + f3;
+		out3[6] = IV_G + g3;
+		out3[7] = IV_H + h3;
+	}
+
+	/**
+	 * Runs the SHA-512 compression function for the second hash of each lane, writing the 
+	 * first word of each resulting hash (i.e. the trial value) into trialValues.
+	 */
+	private void compressToTrialValues(long[] w0, long[] w1, long[] w2, long[] w3)
+	{
+		for (int t = 16; t < 80; t++)
+		{
+			long w2_0 = w0[t - 2];
+			long w15_0 = w0[t - 15];
+			long w2_1 = w1[t - 2];
+			long w15_1 = w1[t - 15];
+			long w2_2 = w2[t - 2];
+			long w15_2 = w2[t - 15];
+			long w2_3 = w3[t - 2];
+			long w15_3 = w3[t - 15];
+			w0[t] = (((w2_0 >>> 19) | (w2_0 << 45)) ^ ((w2_0 >>> 61) | (w2_0 << 3)) ^ (w2_0 >>> 6)) + w0[t - 7]
+					+ (((w15_0 >>> 1) | (w15_0 << 63)) ^ ((w15_0 >>> 8) | (w15_0 << 56)) ^ (w15_0 >>> 7)) + w0[t - 16];
+			w1[t] = (((w2_1 >>> 19) | (w2_1 << 45)) ^ ((w2_1 >>> 61) | (w2_1 << 3)) ^ (w2_1 >>> 6)) + w1[t - 7]
+					+ (((w15_1 >>> 1) | (w15_1 << 63)) ^ ((w15_1 >>> 8) | (w15_1 << 56)) ^ (w15_1 >>> 7)) + w1[t - 16];
+			w2[t] = (((w2_2 >>> 19) | (w2_2 << 45)) ^ ((w2_2 >>> 61) | (w2_2 << 3)) ^ (w2_2 >>> 6)) + w2[t - 7]
+					+ (((w15_2 >>> 1) | (w15_2 << 63)) ^ ((w15_2 >>> 8) | (w15_2 << 56)) ^ (w15_2 >>> 7)) + w2[t - 16];
+			w3[t] = (((w2_3 >>> 19) | (w2_3 << 45)) ^ ((w2_3 >>> 61) | (w2_3 << 3)) ^ (w2_3 >>> 6)) + w3[t - 7]
+					+ (((w15_3 >>> 1) | (w15_3 << 63)) ^ ((w15_3 >>> 8) | (w15_3 << 56)) ^ (w15_3 >>> 7)) + w3[t - 16];
+		}
+
+		long a0 = IV_A;
+		long b0 = IV_B;
+		long c0 = IV_C;
+		long d0 = IV_D;
+		long e0 = IV_E;
+		long f0 = IV_F;
+		long g0 = IV_G;
+		long h0 = IV_H;
+		long a1 = IV_A;
+		long b1 = IV_B;
+		long c1 = IV_C;
+		long d1 = IV_D;
+		long e1 = IV_E;
+		long f1 = IV_F;
+		long g1 = IV_G;
+		long h1 = IV_H;
+		long a2 = IV_A;
+		long b2 = IV_B;
+		long c2 = IV_C;
+		long d2 = IV_D;
+		long e2 = IV_E;
+		long f2 = IV_F;
+		long g2 = IV_G;
+		long h2 = IV_H;
+		long a3 = IV_A;
+		long b3 = IV_B;
+		long c3 = IV_C;
+		long d3 = IV_D;
+		long e3 = IV_E;
+		long f3 = IV_F;
+		long g3 = IV_G;
+		long h3 = IV_H;
+
+		// The rounds are unrolled eight at a time so that the working variables rotate by
+		// renaming rather than by being copied after every round
+		for (int t = 0; t < 80; t += 8)
+		{
+			h0 += sum1(e0) + ch(e0, f0, g0) + K[t] + w0[t];
+			h1 += sum1(e1) + ch(e1, f1, g1) + K[t] + w1[t];
+			h2 += sum1(e2) + ch(e2, f2, g2) + K[t] + w2[t];
+			h3 += sum1(e3) + ch(e3, f3, g3) + K[t] + w3[t];
+			d0 += h0;
+			d1 += h1;
+			d2 += h2;
+			d3 += h3;
+			h0 += sum0(a0) + maj(a0, b0, c0);
+			h1 += sum0(a1) + maj(a1, b1, c1);
+			h2 += sum0(a2) + maj(a2, b2, c2);
+			h3 += sum0(a3) + maj(a3, b3, c3);
+
+			g0 += sum1(d0) + ch(d0, e0, f0) + K[t + 1] + w0[t + 1];
+			g1 += sum1(d1) + ch(d1, e1, f1) + K[t + 1] + w1[t + 1];
+			g2 += sum1(d2) + ch(d2, e2, f2) + K[t + 1] + w2[t + 1];
+			g3 += sum1(d3) + ch(d3, e3, f3) + K[t + 1] + w3[t + 1];
+			c0 += g0;
+			c1 += g1;
+			c2 += g2;
+			c3 += g3;
+			g0 += sum0(h0) + maj(h0, a0, b0);
+			g1 += sum0(h1) + maj(h1, a1, b1);
+			g2 += sum0(h2) + maj(h2, a2, b2);
+			g3 += sum0(h3) + maj(h3, a3, b3);
+
+			f0 += sum1(c0) + ch(c0, d0, e0) + K[t + 2] + w0[t + 2];
+			f1 += sum1(c1) + ch(c1, d1, e1) + K[t + 2] + w1[t + 2];
+			f2 += sum1(c2) + ch(c2, d2, e2) + K[t + 2] + w2[t + 2];
+			f3 += sum1(c3) + ch(c3, d3, e3) + K[t + 2] + w3[t + 2];
+			b0 += f0;
+			b1 += f1;
+			b2 += f2;
+			b3 += f3;
+			f0 += sum0(g0) + maj(g0, h0, a0);
+			f1 += sum0(g1) + maj(g1, h1, a1);
+			f2 += sum0(g2) + maj(g2, h2, a2);
+			f3 += sum0(g3) + maj(g3, h3, a3);
+
+			e0 += sum1(b0) + ch(b0, c0, d0) + K[t + 3] + w0[t + 3];
+			e1 += sum1(b1) + ch(b1, c1, d1) + K[t + 3] + w1[t + 3];
+			e2 += sum1(b2) + ch(b2, c2, d2) + K[t + 3] + w2[t + 3];
+			e3 += sum1(b3) + ch(b3, c3, d3) + K[t + 3] + w3[t + 3];
+			a0 += e0;
+			a1 += e1;
+			a2 += e2;
+			a3 += e3;
+			e0 += sum0(f0) + maj(f0, g0, h0);
+			e1 += sum0(f1) + maj(f1, g1, h1);
+			e2 += sum0(f2) + maj(f2, g2, h2);
+			e3 += sum0(f3) + maj(f3, g3, h3);
+
+			d0 += sum1(a0) + ch(a0, b0, c0) + K[t + 4] + w0[t + 4];
+			d1 += sum1(a1) + ch(a1, b1, c1) + K[t + 4] + w1[t + 4];
+			d2 += sum1(a2) + ch(a2, b2, c2) + K[t + 4] + w2[t + 4];
+			d3 += sum1(a3) + ch(a3, b3, c3) + K[t + 4] + w3[t + 4];
+			h0 += d0;
+			h1 += d1;
+			h2 += d2;
+			h3 += d3;
+			d0 += sum0(e0) + maj(e0, f0, g0);
+			d1 += sum0(e1) + maj(e1, f1, g1);
+			d2 += sum0(e2) + maj(e2, f2, g2);
+			d3 += sum0(e3) + maj(e3, f3, g3);
+
+			c0 += sum1(h0) + ch(h0, a0, b0) + K[t + 5] + w0[t + 5];
+			c1 += sum1(h1) + ch(h1, a1, b1) + K[t + 5] + w1[t + 5];
+			c2 += sum1(h2) + ch(h2, a2, b2) + K[t + 5] + w2[t + 5];
+			c3 += sum1(h3) + ch(h3, a3, b3) + K[t + 5] + w3[t + 5];
+			g0 += c0;
+			g1 += c1;
+			g2 += c2;
+			g3 += c3;
+			c0 += sum0(d0) + maj(d0, e0, f0);
+			c1 += sum0(d1) + maj(d1, e1, f1);
+			c2 += sum0(d2) + maj(d2, e2, f2);
+			c3 += sum0(d3) + maj(d3, e3, f3);
+
+			b0 += sum1(g0) + ch(g0, h0, a0) + K[t + 6] + w0[t + 6];
+			b1 += sum1(g1) + ch(g1, h1, a1) + K[t + 6] + w1[t + 6];
+			b2 += sum1(g2) + ch(g2, h2, a2) + K[t + 6] + w2[t + 6];
+			b3 += sum1(g3) + ch(g3, h3, a3) + K[t + 6] + w3[t + 6];
+			f0 += b0;
+			f1 += b1;
+			f2 += b2;
+			f3 += b3;
+			b0 += sum0(c0) + maj(c0, d0, e0);
+			b1 += sum0(c1) + maj(c1, d1, e1);
+			b2 += sum0(c2) + maj(c2, d2, e2);
+			b3 += sum0(c3) + maj(c3, d3, e3);
+
+			a0 += sum1(f0) + ch(f0, g0, h0) + K[t + 7] + w0[t + 7];
+			a1 += sum1(f1) + ch(f1, g1, h1) + K[t + 7] + w1[t + 7];
+			a2 += sum1(f2) + ch(f2, g2, h2) + K[t + 7] + w2[t + 7];
+			a3 += sum1(f3) + ch(f3, g3, h3) + K[t + 7] + w3[t + 7];
+			e0 += a0;
+			e1 += a1;
+			e2 += a2;
+			e3 += a3;
+			a0 += sum0(b0) + maj(b0, c0, d0);
+			a1 += sum0(b1) + maj(b1, c1, d1);
+			a2 += sum0(b2) + maj(b2, c2, d2);
+			a3 += sum0(b3) + maj(b3, c3, d3);
+		}
+
+		trialValues[0] = IV_A + a0;
+		trialValues[1] = IV_A + a1;
+		trialValues[2] = IV_A + a2;
+		trialValues[3] = IV_A + a3;
+	}
+
+	private static long ch(long x, long y, long z)
+	{
+		return (x & y) ^ (~x & z);
+	}
+
+	private static long maj(long x, long y, long z)
+	{
+		return (x & y) ^ (x & z) ^ (y & z);
+	}
+
+	private static long sum0(long x)
+	{
+		return ((x >>> 28) | (x << 36)) ^ ((x >>> 34) | (x << 30)) ^ ((x >>> 39) | (x << 25));
+	}
+
+	private static long sum1(long x)
+	{
+		return ((x >>> 14) | (x << 50)) ^ ((x >>> 18) | (x << 46)) ^ ((x >>> 41) | (x << 23));
+	}
+}
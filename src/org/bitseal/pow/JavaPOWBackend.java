@@ -0,0 +1,61 @@
+package org.bitseal.pow;
+
+/**
+ * The POW backend implemented in Java. This is always available, and is used
+ * whenever the native backend cannot be used.<br><br>
+ * 
+ * The backend can hash one, two or four nonces at once. See TwoLanePOWHasher.
+ * 
+ * @author Jonathan Coe
+ */
+public class JavaPOWBackend implements POWBackend
+{
+	/** The number of nonces hashed at once by each searcher */
+	private final int lanes;
+	
+	/**
+	 * Creates a new JavaPOWBackend which hashes one nonce at a time.
+	 */
+	public JavaPOWBackend()
+	{
+		this(1);
+	}
+	
+	/**
+	 * Creates a new JavaPOWBackend which hashes the given number of nonces at once.
+	 * 
+	 * @param lanes - The number of nonces to hash at once. Must be 1, 2 or 4.
+	 */
+	public JavaPOWBackend(int lanes)
+	{
+		if (lanes != 1 && lanes != TwoLanePOWHasher.LANES && lanes != FourLanePOWHasher.LANES)
+		{
+			throw new IllegalArgumentException("The number of lanes supplied to JavaPOWBackend must be 1, 2 or 4. The number supplied was " + lanes);
+		}
+		this.lanes = lanes;
+	}
+	
+	@Override
+	public String getName()
+	{
+		if (lanes == 1)
+		{
+			return "Java";
+		}
+		return "Java (" + lanes + " lanes)";
+	}
+	
+	@Override
+	public POWSearcher createSearcher(byte[] initialHash)
+	{
+		switch (lanes)
+		{
+			case TwoLanePOWHasher.LANES:
+				return new TwoLanePOWHasher(initialHash);
+			case FourLanePOWHasher.LANES:
+				return new FourLanePOWHasher(initialHash);
+			default:
+				return new POWHasher(initialHash);
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package org.bitseal.pow;
+
+import android.util.Log;
+
+/**
+ * The POW backend implemented in C and called through JNI. The native code 
+ * is in jni/pow.c and is built into the 'bitsealpow' library by the NDK. 
+ * If that library cannot be loaded, this backend is not available. 
+ * 
+ * @author Jonathan Coe
+ */
+public class NativePOWBackend implements POWBackend
+{
+	private static final String LIBRARY_NAME = "bitsealpow";
+	
+	private static final String TAG = "NATIVE_POW_BACKEND";
+	
+	private static final boolean sLibraryLoaded = loadLibrary();
+	
+	/**
+	 * Returns whether the native POW library was loaded successfully. If it was 
+	 * not, this backend must not be used.
+	 * 
+	 * @return A boolean indicating whether the native library is loaded
+	 */
+	public static boolean isLibraryLoaded()
+	{
+		return sLibraryLoaded;
+	}
+	
+	@Override
+	public String getName()
+	{
+		return "Native";
+	}
+	
+	@Override
+	public POWSearcher createSearcher(byte[] initialHash)
+	{
+		if (initialHash.length != 64)
+		{
+			throw new IllegalArgumentException("The initial hash supplied to NativePOWBackend must be 64 bytes in length. The length of the supplied initial hash was " + initialHash.length);
+		}
+		return new NativePOWSearcher(initialHash.clone());
+	}
+	
+	private static boolean loadLibrary()
+	{
+		try
+		{
+			System.loadLibrary(LIBRARY_NAME);
+			return true;
+		}
+		catch (UnsatisfiedLinkError e)
+		{
+			Log.i(TAG, "The native POW library could not be loaded. The message was:\n" + e.getMessage());
+			return false;
+		}
+		catch (SecurityException e)
+		{
+			Log.e(TAG, "SecurityException occurred while loading the native POW library. The message was:\n" + e.getMessage());
+			return false;
+		}
+	}
+	
+	/**
+	 * Runs the double SHA-512 nonce search in native code. The arguments and 
+	 * return value are the same as those of POWSearcher.search(), with the 
+	 * addition of the initial hash.
+	 */
+	private static native int nativeSearch(byte[] initialHash, long startNonce, long increment, int trials, long target);
+	
+	private static class NativePOWSearcher implements POWSearcher
+	{
+		private final byte[] initialHash;
+		
+		private NativePOWSearcher(byte[] initialHash)
+		{
+			this.initialHash = initialHash;
+		}
+		
+		@Override
+		public int search(long startNonce, long increment, int trials, long target)
+		{
+			return nativeSearch(initialHash, startNonce, increment, trials, target);
+		}
+	}
+}
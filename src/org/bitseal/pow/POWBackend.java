@@ -0,0 +1,26 @@
+package org.bitseal.pow;
+
+/**
+ * Interface for the implementations of the POW nonce search. Each backend 
+ * creates POWSearchers, which do the actual work of checking nonces.
+ * 
+ * @author Jonathan Coe
+ */
+public interface POWBackend
+{
+	/**
+	 * Returns a short name for this backend, for use in log messages.
+	 * 
+	 * @return A String containing the name of the backend
+	 */
+	String getName();
+	
+	/**
+	 * Creates a new POWSearcher for the given initial hash. 
+	 * 
+	 * @param initialHash - A byte[] containing the 64 byte SHA-512 hash of the payload that POW is being done for
+	 * 
+	 * @return A new POWSearcher. Each POW worker thread must use its own POWSearcher.
+	 */
+	POWSearcher createSearcher(byte[] initialHash);
+}
@@ -0,0 +1,104 @@
+package org.bitseal.pow;
+
+import android.util.Log;
+
+/**
+ * Selects the POW backend to use at runtime.<br><br>
+ * 
+ * The native backend is preferred when its library has been loaded, but only
+ * after a parity check shows that it finds exactly the same nonces as the Java 
+ * backend. Otherwise the Java backend is used.
+ * 
+ * @author Jonathan Coe
+ */
+public class POWBackendSelector
+{
+	/** The number of consecutive valid nonces that both backends must agree on */
+	private static final int PARITY_CHECK_NONCES = 3;
+	
+	/** The maximum number of trials to do when searching for each valid nonce in the parity check */
+	private static final int PARITY_CHECK_TRIALS = 100000;
+	
+	/** The target used in the parity check. Roughly 1 in 2048 trials will meet it. */
+	private static final long PARITY_CHECK_TARGET = Long.MAX_VALUE >>> 10;
+	
+	private static final String TAG = "POW_BACKEND_SELECTOR";
+	
+	private static class Holder
+    {
+        static final POWBackend BACKEND = selectBackend();
+    }
+	
+	/**
+	 * Returns the POW backend to use. The backend is selected the first 
+	 * time that this method is called.
+	 * 
+	 * @return The selected POWBackend
+	 */
+	public static POWBackend getBackend()
+	{
+		return Holder.BACKEND;
+	}
+	
+	private static POWBackend selectBackend()
+	{
+		POWBackend javaBackend = new JavaPOWBackend();
+		
+		if (NativePOWBackend.isLibraryLoaded())
+		{
+			POWBackend nativeBackend = new NativePOWBackend();
+			try
+			{
+				if (checkParity(nativeBackend, javaBackend))
+				{
+					Log.i(TAG, "Using the native POW backend");
+					return nativeBackend;
+				}
+				Log.e(TAG, "The native POW backend failed its parity check against the Java POW backend");
+			}
+			catch (Throwable t)
+			{
+				Log.e(TAG, "Exception occurred while checking the parity of the native POW backend. The exception message was:\n" 
+						+ t.getMessage());
+			}
+		}
+		
+		Log.i(TAG, "Using the Java POW backend");
+		return javaBackend;
+	}
+	
+	/**
+	 * Checks that two POW backends find identical nonces for the same initial hash and target.
+	 * 
+	 * @param backend - The POWBackend to check
+	 * @param referenceBackend - The POWBackend to check it against
+	 * 
+	 * @return A boolean indicating whether the two backends found identical nonces
+	 */
+	static boolean checkParity(POWBackend backend, POWBackend referenceBackend)
+	{
+		byte[] initialHash = new byte[64];
+		for (int i = 0; i < initialHash.length; i++)
+		{
+			initialHash[i] = (byte) (i * 37 + 11);
+		}
+		
+		POWSearcher searcher = backend.createSearcher(initialHash);
+		POWSearcher referenceSearcher = referenceBackend.createSearcher(initialHash);
+		
+		long nonce = 0;
+		for (int i = 0; i < PARITY_CHECK_NONCES; i++)
+		{
+			int index = searcher.search(nonce, 1, PARITY_CHECK_TRIALS, PARITY_CHECK_TARGET);
+			int referenceIndex = referenceSearcher.search(nonce, 1, PARITY_CHECK_TRIALS, PARITY_CHECK_TARGET);
+			if (index != referenceIndex || index < 0)
+			{
+				return false;
+			}
+			nonce = nonce + index + 1;
+		}
+		
+		// Also check that both backends agree when none of the nonces checked meet the target
+		return searcher.search(nonce, 1, 16, -1) == -1 && referenceSearcher.search(nonce, 1, 16, -1) == -1;
+	}
+}
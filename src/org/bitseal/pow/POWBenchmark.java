@@ -0,0 +1,109 @@
+package org.bitseal.pow;
+
+import java.text.NumberFormat;
+
+import android.util.Log;
+
+/**
+ * Measures the hash rate that a single CPU core achieves with each POW search strategy,
+ * so that the multi-lane strategies can be compared with the single lane POWWorker on
+ * a particular device. The results are written to the log.
+ * 
+ * @author Jonathan Coe
+ */
+public class POWBenchmark
+{
+	/** The time (in milliseconds) for which each strategy is run before it is measured, so that it has been compiled */
+	private static final long WARM_UP_TIME = 2000;
+	
+	private static final String TAG = "POW_BENCHMARK";
+	
+	/**
+	 * Measures the single core hash rate of each POW search strategy in turn, and logs 
+	 * each rate along with its gain over the single lane strategy. <b>Note: This blocks 
+	 * the calling thread for a little over (WARM_UP_TIME + measurementTime) for each strategy.</b>
+	 * 
+	 * @param measurementTime - The time (in milliseconds) for which to measure each strategy
+	 * 
+	 * @return A double[] containing the hash rate (in double hashes per second) of each strategy, 
+	 * in the order of POWSearchStrategy.values()
+	 */
+	public double[] compareSearchStrategies(long measurementTime)
+	{
+		POWSearchStrategy[] strategies = POWSearchStrategy.values();
+		double[] hashRates = new double[strategies.length];
+		double singleLaneHashRate = 0;
+		for (int i = 0; i < strategies.length; i++)
+		{
+			POWBackend backend = strategies[i].getBackend();
+			measureHashRate(backend, WARM_UP_TIME);
+			hashRates[i] = measureHashRate(backend, measurementTime);
+			if (strategies[i] == POWSearchStrategy.SINGLE_LANE)
+			{
+				singleLaneHashRate = hashRates[i];
+			}
+		}
+		
+		for (int i = 0; i < strategies.length; i++)
+		{
+			String gain = (singleLaneHashRate > 0) ? String.format("%+.1f%%", ((hashRates[i] / singleLaneHashRate) - 1) * 100) : "unknown";
+			Log.i(TAG, strategies[i] + " (" + strategies[i].getBackend().getName() + "): " 
+					+ NumberFormat.getIntegerInstance().format((long) hashRates[i]) + " double hashes per second per core, " 
+					+ gain + " compared to a single lane");
+		}
+		
+		return hashRates;
+	}
+	
+	/**
+	 * Runs a POWWorker which uses the given backend on the calling thread for the given time, 
+	 * with a target that can never be met, and returns the hash rate that it achieved.
+	 * 
+	 * @param backend - The POWBackend to measure
+	 * @param measurementTime - The time (in milliseconds) for which to run the worker
+	 * 
+	 * @return A double containing the hash rate, in double hashes per second
+	 */
+	public double measureHashRate(POWBackend backend, long measurementTime)
+	{
+		POWWorker worker = createMeasurementWorker(new byte[64], backend);
+		
+		long startTime = System.nanoTime();
+		long endTime = startTime + (measurementTime * 1000000);
+		long currentTime = startTime;
+		while (currentTime < endTime)
+		{
+			worker.run();
+			currentTime = System.nanoTime();
+		}
+		
+		return (worker.getDoubleHashesCalculated() * 1000000000.0) / Math.max(currentTime - startTime, 1);
+	}
+	
+	/**
+	 * Creates a POWWorker with a target that can never be met, which searches a single 
+	 * batch of nonces each time that it is run. Running the worker repeatedly and reading
+	 * its hash count measures the hash rate of the given backend.
+	 * 
+	 * @param initialHash - A byte[] containing the initial hash for the worker to use
+	 * @param backend - The POWBackend for the worker to use
+	 * 
+	 * @return The new POWWorker
+	 */
+	public POWWorker createMeasurementWorker(byte[] initialHash, POWBackend backend)
+	{
+		POWListener listener = new POWListener()
+		{
+			@Override
+			public void powFinished(POWWorker powWorker)
+			{
+				// The target can never be met, so this is never called
+			}
+		};
+		
+		// A target of -1 can never be met, as only non-negative trial values are valid
+		POWWorker worker = new POWWorker(-1, 0, 1, initialHash, backend, listener);
+		worker.setBatchesPerRun(1);
+		return worker;
+	}
+}
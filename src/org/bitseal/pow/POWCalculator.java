@@ -1,32 +1,47 @@
 package org.bitseal.pow;
 
 import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import org.bitseal.core.App;
+import org.bitseal.data.POWProgress;
+import org.bitseal.database.POWProgressProvider;
+import org.bitseal.database.POWProgressTable;
 import org.bitseal.util.TimeUtils;
 
+import android.util.Base64;
 import android.util.Log;
 
 /**
- * Does the POW calculation, uses multiple threads.
+ * Does the POW calculation, using the app's shared pool of POW worker threads.
  * 
  * @author Sebastian Schmidt, modified by Jonathan Coe
  */
-public class POWCalculator implements POWListener 
+public class POWCalculator
 {
-	/** The number of threads to use per CPU. */
-	private static final int THREADS_PER_CPU = 1;
-
 	/** The target collision quality. */
 	private long target;
 
 	/** The hash of the message. */
 	private byte[] initialHash;
 	
-	/** The worker that found a valid nonce. */
-	private POWWorker finishedWorker;
+	/** The listener to inform of the progress of the calculation, if any. */
+	private POWTelemetryListener telemetryListener;
+	
+	/** The strategy used to search for a valid nonce. */
+	private POWSearchStrategy searchStrategy = POWSearchStrategy.AUTOMATIC;
+	
+	/** The most recent telemetry produced for the calculation. */
+	private POWTelemetry latestTelemetry;
 	
-	/** The number of double SHA-512 hashes calculated. */
-	private int doubleHashesCalculated = 0;
+	/** The interval (in seconds) at which the progress of the POW calculation is saved to the database. */
+	private static final int CHECKPOINT_INTERVAL_SECONDS = 30;
+	
+	/** The interval (in seconds) at which telemetry for the POW calculation is produced. */
+	private static final int TELEMETRY_INTERVAL_SECONDS = 5;
 	
 	private static final String TAG = "POW_CALCULATOR";
 	
@@ -39,65 +54,286 @@ public class POWCalculator implements POWListener
 	{
 		initialHash = newInitialHash;
 	}
+	
+	public void setTelemetryListener(POWTelemetryListener newTelemetryListener)
+	{
+		telemetryListener = newTelemetryListener;
+	}
+	
+	public void setSearchStrategy(POWSearchStrategy newSearchStrategy)
+	{
+		searchStrategy = newSearchStrategy;
+	}
 
 	/**
 	 * Do the Proof of Work calculations.<br><br>
 	 * <b>WARNING: This can take a long time.</b><br><br>
 	 * 
-	 * <b>Note: If POW is not completed within the time allowed, this method will return 0.</b>
+	 * The progress of the calculation is periodically saved to the database. If a previous 
+	 * calculation for the same initial hash was interrupted, it will be resumed from the 
+	 * last saved progress rather than started again from the beginning.
 	 * 
 	 * @return A long containing a nonce that fulfils the collision quality condition.
 	 */
-	public synchronized long execute() 
+	public long execute() 
 	{
-		// Create a new worker thread for each CPU core
-		POWWorker[] workers = new POWWorker[Runtime.getRuntime().availableProcessors() * THREADS_PER_CPU];
-		
 		long startTime = System.currentTimeMillis();
 		
-		// Start the worker threads
-		for (int i = 0; i < workers.length; i++) 
-		{
-			workers[i] = new POWWorker(target, i, workers.length, initialHash, this);
-			new Thread(workers[i], "POW Worker No. " + i).start();
-		}
+		// Check whether we have any saved progress for this POW calculation
+		POWExecutor executor = POWExecutor.getInstance();
+		POWProgress progress = loadProgress();
+		long[] startNonces = calculateStartNonces(progress, executor.getWorkerCount());
+		
+		long resumedTrials = calculateResumedTrials(startNonces);
 		
-		// Wait for POW to be completed
+		// Submit the POW job to the shared worker pool and wait for it to be completed. While waiting, produce
+		// telemetry and save the job's progress at regular intervals.
+		POWBackend backend = searchStrategy.getBackend();
+		POWJob job = executor.submit(initialHash, target, startNonces, backend);
+		long nonce;
 		try 
 		{
-			wait();
+			long lastCheckpointTime = startTime;
+			long lastSampleTime = startTime;
+			long[] lastSampleHashes = new long[startNonces.length];
+			while (true)
+			{
+				try
+				{
+					nonce = job.get(TELEMETRY_INTERVAL_SECONDS, TimeUnit.SECONDS);
+					break;
+				}
+				catch (TimeoutException e)
+				{
+					long currentTime = System.currentTimeMillis();
+					long[] sampleHashes = job.getWorkerDoubleHashes();
+					publishTelemetry(resumedTrials, sampleHashes, lastSampleHashes, currentTime - lastSampleTime, currentTime - startTime);
+					lastSampleHashes = sampleHashes;
+					lastSampleTime = currentTime;
+					
+					if (currentTime - lastCheckpointTime >= CHECKPOINT_INTERVAL_SECONDS * 1000L)
+					{
+						progress = saveProgress(progress, job.getNonceCursors());
+						lastCheckpointTime = currentTime;
+					}
+				}
+			}
 		}
 		catch (InterruptedException e) 
 		{
+			job.cancel(true);
+			saveProgress(progress, job.getNonceCursors());
 			throw new RuntimeException("InterruptedException occurred in POWCalculator.execute()", e);
 		}
-		
-		// Once POW has completed successfully or been interrupted, stop any worker threads that are still running
-		for (POWWorker w : workers) 
+		catch (ExecutionException e)
+		{
+			throw new RuntimeException("ExecutionException occurred in POWCalculator.execute()", e);
+		}
+		finally
 		{
-			w.stop();
-			
-			doubleHashesCalculated = doubleHashesCalculated + w.getDoubleHashesCalculated();
+			POWTelemetry.clearLatest(latestTelemetry);
 		}
 		
+		// The POW is complete, so any saved progress is no longer needed
+		deleteProgress(progress);
+		
 		// Calculate the time statistics for this POW session
+		long doubleHashesCalculated = job.getDoubleHashesCalculated();
 		long endTime = System.currentTimeMillis();
 		long totalTime = (endTime - startTime) / 1000;
+		long hashRate = (doubleHashesCalculated * 1000) / Math.max(endTime - startTime, 1);
 		Log.d(TAG, "Double hashes calculated : " + NumberFormat.getIntegerInstance().format(doubleHashesCalculated));
 		Log.d(TAG, "Time taken               : " + TimeUtils.getTimeMessage(totalTime));
-		Log.d(TAG, "Hash rate                : " + NumberFormat.getIntegerInstance().format((doubleHashesCalculated / totalTime)) + " double-hashes per second");
+		Log.d(TAG, "Hash rate                : " + NumberFormat.getIntegerInstance().format(hashRate) + " double-hashes per second");
+		Log.d(TAG, "POW backend              : " + backend.getName());
 		
-		return finishedWorker.getNonce();
+		return nonce;
 	}
-
-	@Override
-	public synchronized void powFinished(POWWorker powWorker) 
+	
+	/**
+	 * Creates a POWTelemetry snapshot from the latest sample of the workers' hash counts, 
+	 * and passes it to the telemetry listener (if any).
+	 * 
+	 * @param resumedTrials - The number of trials done before the calculation was resumed
+	 * @param sampleHashes - The number of double hashes calculated by each worker so far
+	 * @param lastSampleHashes - The number of double hashes calculated by each worker at the previous sample
+	 * @param sampleInterval - The time (in milliseconds) since the previous sample
+	 * @param elapsedTime - The time (in milliseconds) since the calculation was started
+	 */
+	private void publishTelemetry(long resumedTrials, long[] sampleHashes, long[] lastSampleHashes, long sampleInterval, long elapsedTime)
 	{
-		if (finishedWorker == null)
+		long trialsDone = resumedTrials;
+		double[] workerHashRates = new double[sampleHashes.length];
+		for (int i = 0; i < sampleHashes.length; i++)
 		{
-			finishedWorker = powWorker;
+			trialsDone = trialsDone + sampleHashes[i];
+			workerHashRates[i] = ((sampleHashes[i] - lastSampleHashes[i]) * 1000.0) / Math.max(sampleInterval, 1);
+		}
+		
+		POWTelemetry telemetry = new POWTelemetry(target, trialsDone, workerHashRates, elapsedTime / 1000);
+		POWTelemetry.setLatest(telemetry);
+		latestTelemetry = telemetry;
+		
+		if (telemetryListener != null)
+		{
+			try
+			{
+				telemetryListener.powProgressUpdated(telemetry);
+			}
+			catch (Exception e)
+			{
+				Log.e(TAG, "Exception occurred while running POWCalculator.publishTelemetry(). The exception message was:\n" 
+						+ e.getMessage());
+			}
+		}
+	}
+	
+	/**
+	 * Calculates the number of trials that were done before the calculation was resumed, 
+	 * based on the nonce that each worker will start from. Worker i of n checks the nonces 
+	 * i, i + n, i + 2n and so on, so a worker starting from nonce s has already done 
+	 * (s - i) / n trials.
+	 * 
+	 * @param startNonces - The nonce that each worker will start from
+	 * 
+	 * @return A long containing the number of trials already done
+	 */
+	private long calculateResumedTrials(long[] startNonces)
+	{
+		long resumedTrials = 0;
+		for (int i = 0; i < startNonces.length; i++)
+		{
+			resumedTrials = resumedTrials + ((startNonces[i] - i) / startNonces.length);
+		}
+		return resumedTrials;
+	}
+	
+	/**
+	 * Calculates the nonce that each worker should start from. If progress has been 
+	 * saved using the same number of workers, each worker resumes from its saved cursor.
+	 * If the number of workers has changed, all workers resume from the lowest saved 
+	 * cursor, below which every nonce is known to have been checked.
+	 * 
+	 * @param progress - The saved POWProgress for this calculation, or null if there is none
+	 * @param workerCount - The number of workers that the calculation will be split across
+	 * 
+	 * @return A long[] containing the start nonce for each worker
+	 */
+	private long[] calculateStartNonces(POWProgress progress, int workerCount)
+	{
+		if (progress != null && progress.getNonceCursors().length == workerCount)
+		{
+			Log.i(TAG, "Resuming POW calculation from saved progress");
+			return progress.getNonceCursors();
+		}
+		
+		long baseNonce = 0;
+		if (progress != null)
+		{
+			Log.i(TAG, "Resuming POW calculation from saved progress made using a different number of workers");
+			long[] savedCursors = progress.getNonceCursors();
+			baseNonce = savedCursors[0];
+			for (long cursor : savedCursors)
+			{
+				baseNonce = Math.min(baseNonce, cursor);
+			}
+		}
+		
+		long[] startNonces = new long[workerCount];
+		for (int i = 0; i < workerCount; i++)
+		{
+			startNonces[i] = baseNonce + i;
+		}
+		return startNonces;
+	}
+	
+	/**
+	 * Attempts to load any saved progress for a POW calculation with the current 
+	 * initial hash. Every nonce is checked against the current target, so progress 
+	 * which was saved with a different target (e.g. because the payload's 'time to 
+	 * live' has since decreased) can still be resumed safely.
+	 * 
+	 * @return The saved POWProgress, or null if there is none or it could not be loaded
+	 */
+	private POWProgress loadProgress()
+	{
+		try
+		{
+			ArrayList<POWProgress> retrievedProgress = POWProgressProvider.get(App.getContext()).searchPOWProgress(POWProgressTable.COLUMN_INITIAL_HASH, 
+					Base64.encodeToString(initialHash, Base64.DEFAULT));
+			if (retrievedProgress.size() > 0)
+			{
+				return retrievedProgress.get(0);
+			}
+		}
+		catch (Exception e)
+		{
+			Log.e(TAG, "Exception occurred while running POWCalculator.loadProgress(). The exception message was:\n" 
+					+ e.getMessage());
+		}
+		return null;
+	}
+	
+	/**
+	 * Saves the progress of the current POW calculation to the database. Failure to save
+	 * progress is logged but does not interrupt the POW calculation.
+	 * 
+	 * @param progress - The previously saved POWProgress for this calculation, or null if there is none
+	 * @param nonceCursors - The current nonce cursors of the workers
+	 * 
+	 * @return The saved POWProgress, or the POWProgress passed in if saving failed
+	 */
+	private POWProgress saveProgress(POWProgress progress, long[] nonceCursors)
+	{
+		try
+		{
+			POWProgressProvider progProv = POWProgressProvider.get(App.getContext());
+			if (progress == null)
+			{
+				POWProgress newProgress = new POWProgress();
+				newProgress.setInitialHash(initialHash);
+				newProgress.setTarget(target);
+				newProgress.setNonceCursors(nonceCursors);
+				newProgress.setId(progProv.addPOWProgress(newProgress));
+				return newProgress;
+			}
+			else
+			{
+				progress.setTarget(target);
+				progress.setNonceCursors(nonceCursors);
+				progress.setTime(System.currentTimeMillis() / 1000);
+				progProv.updatePOWProgress(progress);
+				return progress;
+			}
+		}
+		catch (Exception e)
+		{
+			Log.e(TAG, "Exception occurred while running POWCalculator.saveProgress(). The exception message was:\n" 
+					+ e.getMessage());
+			return progress;
+		}
+	}
+	
+	/**
+	 * Deletes the saved progress of the current POW calculation, if there is any.
+	 * 
+	 * @param progress - The saved POWProgress for this calculation, or null if there is none
+	 */
+	private void deleteProgress(POWProgress progress)
+	{
+		if (progress == null)
+		{
+			return;
+		}
+		
+		try
+		{
+			POWProgressProvider.get(App.getContext()).deletePOWProgress(progress);
+		}
+		catch (Exception e)
+		{
+			Log.e(TAG, "Exception occurred while running POWCalculator.deleteProgress(). The exception message was:\n" 
+					+ e.getMessage());
 		}
-
-		notifyAll();
 	}
 }
\ No newline at end of file
@@ -0,0 +1,245 @@
+package org.bitseal.pow;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A Singleton class that provides a long-lived pool of POW worker threads
+ * which is shared by the whole app.<br><br>
+ *
+ * POW jobs are submitted to the pool and a Future is returned for each job. The
+ * worker threads are kept alive between jobs, so submitting a job does not create
+ * any new threads. A job can be cancelled at any time through its Future.<br><br>
+ *
+ * Each worker runs for a short time slice and then goes to the back of the pool's
+ * queue, so when several jobs are running at once they share the threads in turn
+ * rather than each job waiting for the ones before it to finish.
+ *
+ * @author Jonathan Coe
+ */
+public class POWExecutor
+{
+	/** The number of threads to use per CPU. */
+	private static final int THREADS_PER_CPU = 1;
+
+	/** The number of batches of nonces each worker searches before giving up its thread to the next worker in the queue. */
+	private static final int BATCHES_PER_SLICE = 64;
+
+	/** The maximum number of worker threads in the pool. Each POW job is split across this many workers. */
+	private final int workerCount;
+
+	/** The pool of worker threads. The number of threads in use is adjusted by the scheduler. */
+	private final ThreadPoolExecutor workerPool;
+	
+	/** Decides how many of the worker threads should be in use */
+	private final POWScheduler scheduler;
+	
+	/** The backend used by the workers to search for nonces */
+	private final POWBackend backend;
+
+	private static class Holder
+    {
+        static final POWExecutor INSTANCE = new POWExecutor();
+    }
+
+	/**
+	 * Returns a singleton instance of the POWExecutor. This ensures that
+	 * only one pool of POW worker threads will ever exist at once.
+	 */
+	public static POWExecutor getInstance()
+    {
+        return Holder.INSTANCE;
+    }
+
+	private POWExecutor()
+	{
+		workerCount = Runtime.getRuntime().availableProcessors() * THREADS_PER_CPU;
+		workerPool = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new POWThreadFactory());
+		scheduler = new POWScheduler(workerCount);
+		backend = POWBackendSelector.getBackend();
+	}
+
+	/**
+	 * Returns the number of worker threads that each POW job is split across.
+	 *
+	 * @return An int containing the number of worker threads
+	 */
+	public int getWorkerCount()
+	{
+		return workerCount;
+	}
+
+	/**
+	 * Returns the backend used by the worker threads to search for nonces.
+	 *
+	 * @return The POWBackend in use
+	 */
+	public POWBackend getBackend()
+	{
+		return backend;
+	}
+
+	/**
+	 * Submits a POW job to the worker pool. The job is split across all the
+	 * worker threads, each of which checks a separate sequence of nonces.
+	 *
+	 * @param initialHash - A byte[] containing the SHA-512 hash of the payload to do POW for
+	 * @param target - A long representing the target collision quality
+	 *
+	 * @return A POWJob, which can be used to wait for the resulting nonce or to cancel the job
+	 */
+	public POWJob submit(byte[] initialHash, long target)
+	{
+		long[] startNonces = new long[workerCount];
+		for (int i = 0; i < workerCount; i++)
+		{
+			startNonces[i] = i;
+		}
+		return submit(initialHash, target, startNonces);
+	}
+
+	/**
+	 * Submits a POW job to the worker pool, with each worker starting from the 
+	 * given nonce. Worker i checks the nonces startNonces[i], startNonces[i] + n, 
+	 * startNonces[i] + 2n, and so on, where n is the number of workers. 
+	 *
+	 * @param initialHash - A byte[] containing the SHA-512 hash of the payload to do POW for
+	 * @param target - A long representing the target collision quality
+	 * @param startNonces - A long[] containing the nonce for each worker to start from. Its length
+	 * must be equal to the value returned by getWorkerCount().
+	 *
+	 * @return A POWJob, which can be used to wait for the resulting nonce or to cancel the job
+	 */
+	public POWJob submit(byte[] initialHash, long target, long[] startNonces)
+	{
+		return submit(initialHash, target, startNonces, backend);
+	}
+
+	/**
+	 * Submits a POW job to the worker pool, with each worker starting from the 
+	 * given nonce and using the given backend rather than the selected one.
+	 *
+	 * @param initialHash - A byte[] containing the SHA-512 hash of the payload to do POW for
+	 * @param target - A long representing the target collision quality
+	 * @param startNonces - A long[] containing the nonce for each worker to start from. Its length
+	 * must be equal to the value returned by getWorkerCount().
+	 * @param jobBackend - The POWBackend for the job's workers to use
+	 *
+	 * @return A POWJob, which can be used to wait for the resulting nonce or to cancel the job
+	 */
+	public POWJob submit(byte[] initialHash, long target, long[] startNonces, POWBackend jobBackend)
+	{
+		if (startNonces.length != workerCount)
+		{
+			throw new IllegalArgumentException("The number of start nonces supplied to POWExecutor.submit() must be equal to the number of workers. " 
+					+ startNonces.length + " start nonces were supplied for " + workerCount + " workers.");
+		}
+		
+		POWJob job = new POWJob();
+
+		POWWorker[] workers = new POWWorker[workerCount];
+		for (int i = 0; i < workerCount; i++)
+		{
+			workers[i] = new POWWorker(target, startNonces[i], workerCount, initialHash, jobBackend, job);
+			workers[i].setBatchesPerRun(BATCHES_PER_SLICE);
+		}
+		job.setWorkers(workers);
+
+		for (int i = 0; i < workerCount; i++)
+		{
+			job.setWorkerFuture(i, workerPool.submit(new POWWorkerTask(job, i, workers[i])));
+		}
+
+		return job;
+	}
+
+	/**
+	 * Cancels a POW job that was previously submitted to this executor. Any of the
+	 * job's workers that are still running will stop at their next nonce.
+	 *
+	 * @param job - The POWJob to cancel
+	 *
+	 * @return A boolean indicating whether the job was cancelled. This will be false
+	 * if the job had already completed.
+	 */
+	public boolean cancel(POWJob job)
+	{
+		return job.cancel(true);
+	}
+
+	/**
+	 * Runs one time slice of a worker, then puts the worker back in the 
+	 * pool's queue unless it has been stopped.
+	 */
+	private class POWWorkerTask implements Runnable
+	{
+		private final POWJob job;
+		private final int workerIndex;
+		private final POWWorker worker;
+
+		private POWWorkerTask(POWJob job, int workerIndex, POWWorker worker)
+		{
+			this.job = job;
+			this.workerIndex = workerIndex;
+			this.worker = worker;
+		}
+
+		@Override
+		public void run()
+		{
+			long hashesBefore = worker.getDoubleHashesCalculated();
+			worker.run();
+			setActiveThreads(scheduler.sliceCompleted(worker.getDoubleHashesCalculated() - hashesBefore));
+
+			if (worker.isStopped() == false)
+			{
+				job.setWorkerFuture(workerIndex, workerPool.submit(this));
+			}
+		}
+	}
+
+	/**
+	 * Changes the number of worker threads in use. When the number is reduced, the
+	 * threads which are no longer needed exit after finishing their current slice.
+	 *
+	 * @param activeThreads - The number of threads to use
+	 */
+	private synchronized void setActiveThreads(int activeThreads)
+	{
+		if (activeThreads == workerPool.getCorePoolSize())
+		{
+			return;
+		}
+
+		// The core pool size must never be greater than the maximum pool size, so the order of these calls matters
+		if (activeThreads < workerPool.getCorePoolSize())
+		{
+			workerPool.setCorePoolSize(activeThreads);
+			workerPool.setMaximumPoolSize(activeThreads);
+		}
+		else
+		{
+			workerPool.setMaximumPoolSize(activeThreads);
+			workerPool.setCorePoolSize(activeThreads);
+		}
+	}
+
+	/**
+	 * Creates the daemon threads used by the worker pool.
+	 */
+	private static class POWThreadFactory implements ThreadFactory
+	{
+		private final AtomicInteger threadNumber = new AtomicInteger(0);
+
+		@Override
+		public Thread newThread(Runnable runnable)
+		{
+			Thread thread = new Thread(runnable, "POW Worker No. " + threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
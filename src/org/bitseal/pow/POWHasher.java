@@ -0,0 +1,253 @@
+package org.bitseal.pow;
+
+/**
+ * A dedicated SHA-512 engine for Proof of Work trials.<br><br>
+ *
+ * Each POW trial calculates SHA-512(SHA-512(nonce || initialHash)) and reads the first
+ * 8 bytes of the result as a big endian long. Both of those inputs fit into a single
+ * 128 byte SHA-512 block, so the padded message blocks are built once when the hasher
+ * is created and only the nonce word is rewritten for each trial. All state is held
+ * in long[] arrays that are reused, so calculating a trial value allocates no memory.<br><br>
+ *
+ * See: http://csrc.nist.gov/publications/fips/fips180-4/fips-180-4.pdf<br><br>
+ *
+ * <b>Note: Instances of this class are not thread safe. Each POW worker thread must use its own POWHasher.</b>
+ *
+ * @author Jonathan Coe
+ */
+public class POWHasher implements POWSearcher
+{
+	/** The SHA-512 round constants */
+	static final long[] K = {
+		0x428a2f98d728ae22L, 0x7137449123ef65cdL, 0xb5c0fbcfec4d3b2fL, 0xe9b5dba58189dbbcL,
+		0x3956c25bf348b538L, 0x59f111f1b605d019L, 0x923f82a4af194f9bL, 0xab1c5ed5da6d8118L,
+		0xd807aa98a3030242L, 0x12835b0145706fbeL, 0x243185be4ee4b28cL, 0x550c7dc3d5ffb4e2L,
+		0x72be5d74f27b896fL, 0x80deb1fe3b1696b1L, 0x9bdc06a725c71235L, 0xc19bf174cf692694L,
+		0xe49b69c19ef14ad2L, 0xefbe4786384f25e3L, 0x0fc19dc68b8cd5b5L, 0x240ca1cc77ac9c65L,
+		0x2de92c6f592b0275L, 0x4a7484aa6ea6e483L, 0x5cb0a9dcbd41fbd4L, 0x76f988da831153b5L,
+		0x983e5152ee66dfabL, 0xa831c66d2db43210L, 0xb00327c898fb213fL, 0xbf597fc7beef0ee4L,
+		0xc6e00bf33da88fc2L, 0xd5a79147930aa725L, 0x06ca6351e003826fL, 0x142929670a0e6e70L,
+		0x27b70a8546d22ffcL, 0x2e1b21385c26c926L, 0x4d2c6dfc5ac42aedL, 0x53380d139d95b3dfL,
+		0x650a73548baf63deL, 0x766a0abb3c77b2a8L, 0x81c2c92e47edaee6L, 0x92722c851482353bL,
+		0xa2bfe8a14cf10364L, 0xa81a664bbc423001L, 0xc24b8b70d0f89791L, 0xc76c51a30654be30L,
+		0xd192e819d6ef5218L, 0xd69906245565a910L, 0xf40e35855771202aL, 0x106aa07032bbd1b8L,
+		0x19a4c116b8d2d0c8L, 0x1e376c085141ab53L, 0x2748774cdf8eeb99L, 0x34b0bcb5e19b48a8L,
+		0x391c0cb3c5c95a63L, 0x4ed8aa4ae3418acbL, 0x5b9cca4f7763e373L, 0x682e6ff3d6b2b8a3L,
+		0x748f82ee5defb2fcL, 0x78a5636f43172f60L, 0x84c87814a1f0ab72L, 0x8cc702081a6439ecL,
+		0x90befffa23631e28L, 0xa4506cebde82bde9L, 0xbef9a3f7b2c67915L, 0xc67178f2e372532bL,
+		0xca273eceea26619cL, 0xd186b8c721c0c207L, 0xeada7dd6cde0eb1eL, 0xf57d4f7fee6ed178L,
+		0x06f067aa72176fbaL, 0x0a637dc5a2c898a6L, 0x113f9804bef90daeL, 0x1b710b35131c471bL,
+		0x28db77f523047d84L, 0x32caab7b40c72493L, 0x3c9ebe0a15c9bebcL, 0x431d67c49c100d4cL,
+		0x4cc5d4becb3e42b6L, 0x597f299cfc657e2aL, 0x5fcb6fab3ad6faecL, 0x6c44198c4a475817L};
+
+	/** The SHA-512 initial hash value */
+	private static final long[] IV = {
+		0x6a09e667f3bcc908L, 0xbb67ae8584caa73bL, 0x3c6ef372fe94f82bL, 0xa54ff53a5f1d36f1L,
+		0x510e527fade682d1L, 0x9b05688c2b3e6c1fL, 0x1f83d9abfb41bd6bL, 0x5be0cd19137e2179L};
+
+	/** The padding word which follows the end of the message data in a SHA-512 block */
+	private static final long PADDING_WORD = 0x8000000000000000L;
+
+	/** The bit length of the first hash input: an 8 byte nonce followed by a 64 byte initial hash */
+	private static final long FIRST_MESSAGE_BIT_LENGTH = (8 + 64) * 8;
+
+	/** The bit length of the second hash input: a 64 byte SHA-512 hash */
+	private static final long SECOND_MESSAGE_BIT_LENGTH = 64 * 8;
+
+	/** The message schedule for the first hash. Words 1 to 15 hold the padded initial hash and never change. */
+	private final long[] firstSchedule = new long[80];
+
+	/** The message schedule for the second hash. Words 8 to 15 hold the padding and never change. */
+	private final long[] secondSchedule = new long[80];
+
+	/** The working hash state */
+	private final long[] state = new long[8];
+
+	/**
+	 * Creates a new POWHasher for the given initial hash.
+	 *
+	 * @param initialHash - A byte[] containing the 64 byte SHA-512 hash of the payload that POW is being done for
+	 */
+	public POWHasher(byte[] initialHash)
+	{
+		if (initialHash.length != 64)
+		{
+			throw new IllegalArgumentException("The initial hash supplied to POWHasher must be 64 bytes in length. The length of the supplied initial hash was " + initialHash.length);
+		}
+
+		initialiseSchedules(initialHash, firstSchedule, secondSchedule);
+	}
+
+	/**
+	 * Writes the parts of the two message blocks which are the same for every trial into
+	 * the given message schedules.
+	 *
+	 * @param initialHash - A byte[] containing the 64 byte initial hash
+	 * @param firstSchedule - A long[] of length 80 to hold the message schedule for the first hash
+	 * @param secondSchedule - A long[] of length 80 to hold the message schedule for the second hash
+	 */
+	static void initialiseSchedules(byte[] initialHash, long[] firstSchedule, long[] secondSchedule)
+	{
+		// Word 0 of the first block is the nonce, which is written for each trial. Words 1 to 8 hold the initial hash.
+		for (int i = 0; i < 8; i++)
+		{
+			firstSchedule[i + 1] = readLong(initialHash, i * 8);
+		}
+		firstSchedule[9] = PADDING_WORD;
+		firstSchedule[15] = FIRST_MESSAGE_BIT_LENGTH;
+
+		// Words 0 to 7 of the second block are the result of the first hash, which is written for each trial
+		secondSchedule[8] = PADDING_WORD;
+		secondSchedule[15] = SECOND_MESSAGE_BIT_LENGTH;
+	}
+
+	/**
+	 * Calculates the POW trial value for the given nonce. This is the first 8 bytes of the
+	 * double SHA-512 hash of the nonce concatenated with the initial hash, read as a big endian long.
+	 *
+	 * @param nonce - The nonce to calculate the trial value for
+	 *
+	 * @return A long containing the trial value, which should be compared against the POW target
+	 */
+	public long calculateTrialValue(long nonce)
+	{
+		long[] first = firstSchedule;
+		first[0] = nonce;
+		compress(first, state);
+
+		System.arraycopy(state, 0, secondSchedule, 0, 8);
+		compress(secondSchedule, state);
+
+		return state[0];
+	}
+
+	@Override
+	public int search(long startNonce, long increment, int trials, long target)
+	{
+		long nonce = startNonce;
+		for (int i = 0; i < trials; i++)
+		{
+			long result = calculateTrialValue(nonce);
+			if (result <= target && result >= 0)
+			{
+				return i;
+			}
+			nonce += increment;
+		}
+		return -1;
+	}
+
+	/**
+	 * Runs the SHA-512 compression function over a single padded message block, starting
+	 * from the SHA-512 initial hash value.
+	 *
+	 * @param w - A long[] of length 80. The first 16 words must hold the message block. The
+	 * remaining words are overwritten with the expanded message schedule.
+	 * @param out - A long[] of length 8 into which the resulting hash words will be written
+	 */
+	private static void compress(long[] w, long[] out)
+	{
+		for (int t = 16; t < 80; t++)
+		{
+			long w2 = w[t - 2];
+			long w15 = w[t - 15];
+			long s1 = ((w2 >>> 19) | (w2 << 45)) ^ ((w2 >>> 61) | (w2 << 3)) ^ (w2 >>> 6);
+			long s0 = ((w15 >>> 1) | (w15 << 63)) ^ ((w15 >>> 8) | (w15 << 56)) ^ (w15 >>> 7);
+			w[t] = s1 + w[t - 7] + s0 + w[t - 16];
+		}
+
+		long a = IV[0];
+		long b = IV[1];
+		long c = IV[2];
+		long d = IV[3];
+		long e = IV[4];
+		long f = IV[5];
+		long g = IV[6];
+		long h = IV[7];
+
+		// The rounds are unrolled eight at a time so that the working variables rotate by
+		// renaming rather than by being copied after every round
+		int t = 0;
+		for (int i = 0; i < 10; i++)
+		{
+			h += sum1(e) + ch(e, f, g) + K[t] + w[t++];
+			d += h;
+			h += sum0(a) + maj(a, b, c);
+
+			g += sum1(d) + ch(d, e, f) + K[t] + w[t++];
+			c += g;
+			g += sum0(h) + maj(h, a, b);
+
+			f += sum1(c) + ch(c, d, e) + K[t] + w[t++];
+			b += f;
+			f += sum0(g) + maj(g, h, a);
+
+			e += sum1(b) + ch(b, c, d) + K[t] + w[t++];
+			a += e;
+			e += sum0(f) + maj(f, g, h);
+
+			d += sum1(a) + ch(a, b, c) + K[t] + w[t++];
+			h += d;
+			d += sum0(e) + maj(e, f, g);
+
+			c += sum1(h) + ch(h, a, b) + K[t] + w[t++];
+			g += c;
+			c += sum0(d) + maj(d, e, f);
+
+			b += sum1(g) + ch(g, h, a) + K[t] + w[t++];
+			f += b;
+			b += sum0(c) + maj(c, d, e);
+
+			a += sum1(f) + ch(f, g, h) + K[t] + w[t++];
+			e += a;
+			a += sum0(b) + maj(b, c, d);
+		}
+
+		out[0] = IV[0] + a;
+		out[1] = IV[1] + b;
+		out[2] = IV[2] + c;
+		out[3] = IV[3] + d;
+		out[4] = IV[4] + e;
+		out[5] = IV[5] + f;
+		out[6] = IV[6] + g;
+		out[7] = IV[7] + h;
+	}
+
+	private static long ch(long x, long y, long z)
+	{
+		return (x & y) ^ (~x & z);
+	}
+
+	private static long maj(long x, long y, long z)
+	{
+		return (x & y) ^ (x & z) ^ (y & z);
+	}
+
+	private static long sum0(long x)
+	{
+		return ((x >>> 28) | (x << 36)) ^ ((x >>> 34) | (x << 30)) ^ ((x >>> 39) | (x << 25));
+	}
+
+	private static long sum1(long x)
+	{
+		return ((x >>> 14) | (x << 50)) ^ ((x >>> 18) | (x << 46)) ^ ((x >>> 41) | (x << 23));
+	}
+
+	/**
+	 * Reads 8 bytes from the given byte[] as a big endian long.
+	 *
+	 * @param bytes - The byte[] to read from
+	 * @param offset - The index of the first byte to read
+	 *
+	 * @return The long value of the bytes read
+	 */
+	private static long readLong(byte[] bytes, int offset)
+	{
+		long l = 0;
+		for (int i = 0; i < 8; i++)
+		{
+			l = (l << 8) | (bytes[offset + i] & 0xFFL);
+		}
+		return l;
+	}
+}
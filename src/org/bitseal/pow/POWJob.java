@@ -0,0 +1,192 @@
+package org.bitseal.pow;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Represents a single POW job which has been submitted to the POWExecutor.
+ * The result of the job is the first valid nonce found by any of its workers.
+ *
+ * @author Jonathan Coe
+ */
+public class POWJob implements Future<Long>, POWListener
+{
+	/** The workers calculating POW for this job. */
+	private POWWorker[] workers;
+
+	/** The Futures of the workers' latest tasks in the worker pool. */
+	private Future<?>[] workerFutures;
+
+	/** Released when a valid nonce has been found or the job has been cancelled. */
+	private final CountDownLatch doneSignal = new CountDownLatch(1);
+
+	/** The worker that found a valid nonce. */
+	private POWWorker finishedWorker;
+
+	private boolean cancelled;
+
+	POWJob()
+	{
+		// The constructor of this class is package-private so that jobs can only be created by the POWExecutor
+	}
+
+	void setWorkers(POWWorker[] workers)
+	{
+		this.workers = workers;
+		this.workerFutures = new Future<?>[workers.length];
+	}
+
+	/**
+	 * Records the Future of a worker's latest task in the worker pool, so that it
+	 * can be removed from the pool if the job finishes before it is run.
+	 */
+	synchronized void setWorkerFuture(int workerIndex, Future<?> workerFuture)
+	{
+		workerFutures[workerIndex] = workerFuture;
+	}
+
+	@Override
+	public void powFinished(POWWorker powWorker)
+	{
+		synchronized (this)
+		{
+			if (finishedWorker != null || cancelled)
+			{
+				return;
+			}
+			finishedWorker = powWorker;
+		}
+
+		stopWorkers();
+		doneSignal.countDown();
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning)
+	{
+		synchronized (this)
+		{
+			if (finishedWorker != null || cancelled)
+			{
+				return false;
+			}
+			cancelled = true;
+		}
+
+		stopWorkers();
+		doneSignal.countDown();
+		return true;
+	}
+
+	@Override
+	public synchronized boolean isCancelled()
+	{
+		return cancelled;
+	}
+
+	@Override
+	public boolean isDone()
+	{
+		return doneSignal.getCount() == 0;
+	}
+
+	@Override
+	public Long get() throws InterruptedException, ExecutionException
+	{
+		doneSignal.await();
+		return getResult();
+	}
+
+	@Override
+	public Long get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException
+	{
+		if (doneSignal.await(timeout, unit) == false)
+		{
+			throw new TimeoutException("POW was not completed within the time allowed");
+		}
+		return getResult();
+	}
+
+	/**
+	 * Returns the total number of double SHA-512 hashes calculated by this job's workers so far.
+	 *
+	 * @return A long containing the number of double hashes calculated
+	 */
+	public long getDoubleHashesCalculated()
+	{
+		long doubleHashesCalculated = 0;
+		for (POWWorker w : workers)
+		{
+			doubleHashesCalculated = doubleHashesCalculated + w.getDoubleHashesCalculated();
+		}
+		return doubleHashesCalculated;
+	}
+
+	/**
+	 * Returns the number of double SHA-512 hashes calculated by each of this job's workers so far.
+	 * 
+	 * @return A long[] containing the number of double hashes calculated by each worker, in worker order
+	 */
+	public long[] getWorkerDoubleHashes()
+	{
+		long[] workerDoubleHashes = new long[workers.length];
+		for (int i = 0; i < workers.length; i++)
+		{
+			workerDoubleHashes[i] = workers[i].getDoubleHashesCalculated();
+		}
+		return workerDoubleHashes;
+	}
+
+	/**
+	 * Returns the nonce cursor of each of this job's workers. For each worker, all the 
+	 * nonces in its sequence that are lower than its cursor have already been checked, 
+	 * so the cursors can be used to resume the job later without repeating work.
+	 * 
+	 * @return A long[] containing the nonce cursor of each worker, in worker order
+	 */
+	public long[] getNonceCursors()
+	{
+		long[] nonceCursors = new long[workers.length];
+		for (int i = 0; i < workers.length; i++)
+		{
+			nonceCursors[i] = workers[i].getNonce();
+		}
+		return nonceCursors;
+	}
+
+	private synchronized Long getResult()
+	{
+		if (cancelled)
+		{
+			throw new CancellationException("The POW job was cancelled before a valid nonce was found");
+		}
+		return finishedWorker.getNonce();
+	}
+
+	/**
+	 * Stops all of this job's workers. Workers which have not yet been started by
+	 * the worker pool are removed from it, so they never occupy a thread.
+	 */
+	private void stopWorkers()
+	{
+		for (int i = 0; i < workers.length; i++)
+		{
+			workers[i].stop();
+		}
+
+		synchronized (this)
+		{
+			for (Future<?> workerFuture : workerFutures)
+			{
+				if (workerFuture != null)
+				{
+					workerFuture.cancel(false);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,217 @@
+package org.bitseal.pow;
+
+import java.text.NumberFormat;
+
+import org.bitseal.core.App;
+import org.bitseal.data.QueueRecord;
+import org.bitseal.database.QueueRecordProvider;
+import org.bitseal.util.TimeUtils;
+
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+import android.util.Log;
+
+/**
+ * Decides whether the POW for a payload should be done on this device or
+ * handed to a server which does POW as a service (see ServerCommunicator's
+ * disseminateMsgNoPOW() and disseminatePubkeyNoPOW() methods).<br><br>
+ *
+ * The decision is based on an estimate of how long the POW would take locally,
+ * which is the expected number of trials for the payload's target divided by the
+ * local hash rate. If the estimate is longer than the threshold set by the user,
+ * the POW is outsourced. By default there is no threshold, so all POW is done locally.
+ *
+ * @author Jonathan Coe
+ */
+public class POWPlacementEngine
+{
+	/** The value recorded in a QueueRecord when its payload's POW is done on this device */
+	public static final String PLACEMENT_LOCAL = "local";
+
+	/** The value recorded in a QueueRecord when its payload's POW is handed to a server */
+	public static final String PLACEMENT_SERVER = "server";
+
+	/** The key for a long variable that records the maximum estimated local POW time (in seconds) before POW is outsourced. 0 means never outsource. */
+	private static final String KEY_OUTSOURCING_THRESHOLD = "powOutsourcingThreshold";
+
+	/** The key for a long variable that records the measured local hash rate, in double hashes per second */
+	private static final String KEY_LOCAL_HASH_RATE = "powLocalHashRate";
+
+	/** The time (in milliseconds) for which the hash rate is benchmarked when no measurement has been recorded yet */
+	private static final long BENCHMARK_TIME = 1000;
+
+	/** The minimum duration (in milliseconds) of a POW calculation for its hash rate to be recorded */
+	private static final long MINIMUM_RECORDED_POW_TIME = 10000;
+
+	/** The weight given to each new hash rate measurement when it is combined with the previous ones */
+	private static final double HASH_RATE_SMOOTHING = 0.25;
+
+	/** The approximate number of bytes which the encryption, signature, ack and object header add to the content of a msg */
+	private static final int MSG_OVERHEAD_LENGTH = 450;
+
+	/** The approximate length in bytes of a version 4 pubkey payload */
+	public static final int PUBKEY_PAYLOAD_LENGTH = 400;
+
+	/** 2^64, the dividend of the POW target calculation */
+	private static final double TWO_TO_THE_64 = 18446744073709551616.0;
+
+	private static final String TAG = "POW_PLACEMENT_ENGINE";
+
+	/**
+	 * Decides where the POW for a payload should be done, and records the decision
+	 * in the given QueueRecord.
+	 *
+	 * @param q - The QueueRecord of the task that the payload is for. May be null,
+	 * in which case the decision is not recorded.
+	 * @param payloadLength - The length (or estimated length) in bytes of the payload
+	 * @param nonceTrialsPerByte - The nonceTrialsPerByte value to use
+	 * @param extraBytes - The extraBytes value to use
+	 * @param timeToLive - The 'time to live' value (in seconds) of the payload
+	 *
+	 * @return A boolean indicating whether the POW should be done on this device
+	 */
+	public boolean decideDoPOW(QueueRecord q, int payloadLength, long nonceTrialsPerByte, long extraBytes, long timeToLive)
+	{
+		long threshold = getOutsourcingThreshold();
+		boolean doPOW = true;
+		if (threshold > 0)
+		{
+			long estimatedTime = estimateLocalSolveTime(payloadLength, nonceTrialsPerByte, extraBytes, timeToLive);
+			doPOW = estimatedTime <= threshold;
+			Log.i(TAG, "Estimated local POW time for a payload of " + NumberFormat.getIntegerInstance().format(payloadLength) + " bytes: "
+					+ TimeUtils.getTimeMessage(estimatedTime) + ". The threshold is " + TimeUtils.getTimeMessage(threshold) + ", so the POW will be done "
+					+ (doPOW ? "on this device." : "by a server."));
+		}
+
+		if (q != null)
+		{
+			q.setPOWPlacement(doPOW ? PLACEMENT_LOCAL : PLACEMENT_SERVER);
+			if (q.getId() != 0)
+			{
+				QueueRecordProvider.get(App.getContext()).updateQueueRecord(q);
+			}
+		}
+		return doPOW;
+	}
+
+	/**
+	 * Estimates the length of the payload of a msg with the given content.
+	 *
+	 * @param subject - The subject of the msg
+	 * @param body - The body of the msg
+	 *
+	 * @return An int containing the estimated payload length in bytes
+	 */
+	public int estimateMsgPayloadLength(String subject, String body)
+	{
+		int contentLength = 0;
+		if (subject != null)
+		{
+			contentLength += subject.length();
+		}
+		if (body != null)
+		{
+			contentLength += body.length();
+		}
+
+		// Allow for characters which take more than one byte once encoded, and for the
+		// padding added by the encryption
+		return (contentLength * 2) + MSG_OVERHEAD_LENGTH;
+	}
+
+	/**
+	 * Estimates the time that it would take to do the POW for a payload on this device.
+	 *
+	 * @param payloadLength - The length in bytes of the payload
+	 * @param nonceTrialsPerByte - The nonceTrialsPerByte value to use
+	 * @param extraBytes - The extraBytes value to use
+	 * @param timeToLive - The 'time to live' value (in seconds) of the payload
+	 *
+	 * @return A long containing the estimated time in seconds
+	 */
+	public long estimateLocalSolveTime(int payloadLength, long nonceTrialsPerByte, long extraBytes, long timeToLive)
+	{
+		long target = POWTarget.calculateTarget(payloadLength, nonceTrialsPerByte, extraBytes, timeToLive);
+		double expectedTrials = TWO_TO_THE_64 / Math.max(target, 1);
+		return (long) (expectedTrials / getLocalHashRate());
+	}
+
+	/**
+	 * Returns the local hash rate using all the POW worker threads. If no POW calculation
+	 * has been long enough to measure it yet, a short benchmark is run.
+	 *
+	 * @return A double containing the hash rate, in double hashes per second
+	 */
+	public double getLocalHashRate()
+	{
+		SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(App.getContext());
+		long hashRate = prefs.getLong(KEY_LOCAL_HASH_RATE, 0);
+		if (hashRate > 0)
+		{
+			return hashRate;
+		}
+
+		POWExecutor executor = POWExecutor.getInstance();
+		double benchmarkedHashRate = new POWBenchmark().measureHashRate(executor.getBackend(), BENCHMARK_TIME) * executor.getWorkerCount();
+		Log.i(TAG, "Benchmarked the local hash rate at " + NumberFormat.getIntegerInstance().format((long) benchmarkedHashRate) + " double hashes per second");
+		saveLocalHashRate((long) benchmarkedHashRate);
+		return Math.max(benchmarkedHashRate, 1);
+	}
+
+	/**
+	 * Records the hash rate achieved by the POWExecutor over a period of POW calculation,
+	 * so that future estimates follow the device's real performance. The hashes of all the
+	 * jobs running during the period are included, as the estimates are for the device as a
+	 * whole. Short periods are ignored, as their hash rate is not representative.
+	 *
+	 * @param doubleHashesCalculated - The number of double hashes calculated
+	 * @param duration - The duration of the period, in milliseconds
+	 */
+	static void recordPOWCalculation(long doubleHashesCalculated, long duration)
+	{
+		if (duration < MINIMUM_RECORDED_POW_TIME)
+		{
+			return;
+		}
+
+		double measuredHashRate = (doubleHashesCalculated * 1000.0) / duration;
+		SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(App.getContext());
+		long previousHashRate = prefs.getLong(KEY_LOCAL_HASH_RATE, 0);
+		if (previousHashRate > 0)
+		{
+			measuredHashRate = (HASH_RATE_SMOOTHING * measuredHashRate) + ((1 - HASH_RATE_SMOOTHING) * previousHashRate);
+		}
+		saveLocalHashRate((long) measuredHashRate);
+	}
+
+	/**
+	 * Returns the maximum estimated local POW time (in seconds) for which POW will
+	 * be done on this device, or 0 if POW is never outsourced.
+	 */
+	public static long getOutsourcingThreshold()
+	{
+		SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(App.getContext());
+		return prefs.getLong(KEY_OUTSOURCING_THRESHOLD, 0);
+	}
+
+	/**
+	 * Sets the maximum estimated local POW time for which POW will be done on this device.
+	 *
+	 * @param threshold - The threshold in seconds, or 0 to never outsource POW
+	 */
+	public static void setOutsourcingThreshold(long threshold)
+	{
+		SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(App.getContext());
+		SharedPreferences.Editor editor = prefs.edit();
+		editor.putLong(KEY_OUTSOURCING_THRESHOLD, Math.max(threshold, 0));
+		editor.commit();
+	}
+
+	private static void saveLocalHashRate(long hashRate)
+	{
+		SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(App.getContext());
+		SharedPreferences.Editor editor = prefs.edit();
+		editor.putLong(KEY_LOCAL_HASH_RATE, hashRate);
+		editor.commit();
+	}
+}
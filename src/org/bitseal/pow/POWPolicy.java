@@ -0,0 +1,97 @@
+package org.bitseal.pow;
+
+import org.bitseal.core.App;
+
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+
+/**
+ * The policies which the user can select to control how much of the 
+ * device's resources are used for POW calculations. See POWScheduler.
+ * 
+ * @author Jonathan Coe
+ */
+public enum POWPolicy
+{
+	/** Use as many threads as give any increase in the hash rate */
+	FAST("fast", 0.05),
+	
+	/** Only use an extra thread if it adds at least half as much as the average thread to the hash rate */
+	BALANCED("balanced", 0.5),
+	
+	/** Use a single thread while on battery, and only add threads which are almost fully efficient */
+	BATTERY_SAVER("batterySaver", 0.8);
+	
+	/** The key for a String variable that records the POW policy selected by the user */
+	private static final String KEY_POW_POLICY = "powPolicy";
+	
+	private static final POWPolicy DEFAULT_POLICY = BALANCED;
+	
+	private final String key;
+	private final double minimumThreadEfficiency;
+	
+	private POWPolicy(String key, double minimumThreadEfficiency)
+	{
+		this.key = key;
+		this.minimumThreadEfficiency = minimumThreadEfficiency;
+	}
+	
+	/**
+	 * Returns the minimum increase in the total hash rate, as a fraction of the average hash rate 
+	 * of each thread, which an extra thread must give for it to be kept in use.
+	 */
+	public double getMinimumThreadEfficiency()
+	{
+		return minimumThreadEfficiency;
+	}
+	
+	/**
+	 * Returns the maximum number of threads which this policy allows to be used.
+	 * 
+	 * @param availableThreads - The number of threads available
+	 * @param charging - Whether the device is charging
+	 */
+	public int getMaximumThreads(int availableThreads, boolean charging)
+	{
+		int halfThreads = Math.max(1, availableThreads / 2);
+		switch (this)
+		{
+			case FAST:
+				return availableThreads;
+			case BATTERY_SAVER:
+				return charging ? halfThreads : 1;
+			default:
+				return charging ? availableThreads : halfThreads;
+		}
+	}
+	
+	/**
+	 * Returns the POW policy selected by the user.
+	 */
+	public static POWPolicy getSelectedPolicy()
+	{
+		SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(App.getContext());
+		String selectedKey = prefs.getString(KEY_POW_POLICY, DEFAULT_POLICY.key);
+		for (POWPolicy p : values())
+		{
+			if (p.key.equals(selectedKey))
+			{
+				return p;
+			}
+		}
+		return DEFAULT_POLICY;
+	}
+	
+	/**
+	 * Records the POW policy selected by the user.
+	 * 
+	 * @param policy - The POWPolicy to select
+	 */
+	public static void setSelectedPolicy(POWPolicy policy)
+	{
+		SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(App.getContext());
+		SharedPreferences.Editor editor = prefs.edit();
+		editor.putString(KEY_POW_POLICY, policy.key);
+		editor.commit();
+	}
+}
@@ -1,12 +1,27 @@
 package org.bitseal.pow;
 
-import java.math.BigInteger;
+import java.security.MessageDigest;
 import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.bitseal.core.App;
+import org.bitseal.crypt.CryptoContext;
 import org.bitseal.crypt.SHA512;
+import org.bitseal.data.POWNonce;
+import org.bitseal.database.POWNonceProvider;
+import org.bitseal.database.POWNonceTable;
 import org.bitseal.util.ByteUtils;
 import org.bitseal.util.TimeUtils;
 
+import android.util.Base64;
 import android.util.Log;
 
 /**
@@ -29,6 +44,18 @@ public class POWProcessor
 	/** The minimum 'time to live' value to use when checking if a given payload's POW is sufficient */
 	private static final int MINIMUM_TIME_TO_LIVE_VALUE = 300;
 	
+	/** The length in bytes of the POW nonce at the start of an object */
+	private static final int POW_NONCE_LENGTH = 8;
+	
+	/** The length in bytes of the expiration time which follows the POW nonce in an object */
+	private static final int EXPIRATION_TIME_LENGTH = 8;
+	
+	/** Provides the pool of threads used to check the POW of batches of objects */
+	private static class VerificationPoolHolder
+	{
+		static final ExecutorService POOL = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new VerificationThreadFactory());
+	}
+	
 //	/**
 //	 * For testing, use this version of the doPOW method to avoid waiting for POW
 //	 * to be calculated.
@@ -59,13 +86,41 @@ public class POWProcessor
 	 * @return A long containing the calculated POW nonce. 
 	 */
 	public long doPOW(byte[] payload, long expirationTime, long nonceTrialsPerByte, long extraBytes) 
+	{
+		return doPOW(payload, expirationTime, nonceTrialsPerByte, extraBytes, null);
+	}
+	
+	/**
+	 * Does the POW for the given payload, reporting the progress of the calculation
+	 * to the given listener at regular intervals.<br />
+	 * <b>WARNING: Takes a long time!!!</b>
+	 * 
+	 * @param payload - A byte[] containing the payload to do the POW for.
+	 * @param expirationTime - The expiration time for this payload
+	 * @param nonceTrialsPerByte - The nonceTrialsPerByte value to use
+	 * @param extraBytes - The extraBytes value to use
+	 * @param telemetryListener - The POWTelemetryListener to report progress to. May be null.
+	 * 
+	 * @return A long containing the calculated POW nonce. 
+	 */
+	public long doPOW(byte[] payload, long expirationTime, long nonceTrialsPerByte, long extraBytes, POWTelemetryListener telemetryListener) 
 	{
 		long timeToLive = calculateTimeToLiveValue(expirationTime);
+		long powTarget = calculatePOWTarget(payload.length, nonceTrialsPerByte, extraBytes, timeToLive);
+		byte[] initialHash = SHA512.sha512(payload);
+		
+		// If we have already done POW for this payload, reuse the nonce we found
+		Long cachedNonce = findCachedNonce(initialHash, powTarget);
+		if (cachedNonce != null)
+		{
+			Log.d(TAG, "Reusing a previously calculated POW nonce for a payload of " + NumberFormat.getIntegerInstance().format(payload.length) + " bytes");
+			return cachedNonce;
+		}
 		
 		POWCalculator powCalc = new POWCalculator();
-		long powTarget = calculatePOWTarget(payload.length, nonceTrialsPerByte, extraBytes, timeToLive);
 		powCalc.setTarget(powTarget);
-		powCalc.setInitialHash(SHA512.sha512(payload));
+		powCalc.setInitialHash(initialHash);
+		powCalc.setTelemetryListener(telemetryListener);
 		
 		Log.d(TAG, "Doing POW calculations for a payload.\n" +
 				"Payload length        : " + NumberFormat.getIntegerInstance().format(payload.length) + " bytes\n" +
@@ -74,7 +129,77 @@ public class POWProcessor
 				"Time to live          : " + TimeUtils.getTimeMessage(timeToLive) + "\n" +
 				"Target                : " + NumberFormat.getIntegerInstance().format(powTarget));
 		
-		return powCalc.execute();
+		long nonce = powCalc.execute();
+		cacheNonce(initialHash, powTarget, nonce, expirationTime);
+		return nonce;
+	}
+	
+	/**
+	 * Searches the database for a nonce which was previously calculated for the
+	 * payload with the given initial hash and which meets the given target. A nonce 
+	 * calculated for a different target can still be used if its trial value also 
+	 * meets this target, so each cached nonce is checked with a single double hash.
+	 * 
+	 * @param initialHash - A byte[] containing the SHA-512 hash of the payload
+	 * @param target - The POW target that the nonce must meet
+	 * 
+	 * @return The cached nonce, or null if there is no usable cached nonce
+	 */
+	private Long findCachedNonce(byte[] initialHash, long target)
+	{
+		try
+		{
+			ArrayList<POWNonce> cachedNonces = POWNonceProvider.get(App.getContext()).searchPOWNonces(POWNonceTable.COLUMN_INITIAL_HASH, 
+					Base64.encodeToString(initialHash, Base64.DEFAULT));
+			if (cachedNonces.size() == 0)
+			{
+				return null;
+			}
+			
+			POWHasher hasher = new POWHasher(initialHash);
+			for (POWNonce n : cachedNonces)
+			{
+				long value = hasher.calculateTrialValue(n.getNonce());
+				if (value >= 0 && target >= value)
+				{
+					return n.getNonce();
+				}
+			}
+		}
+		catch (Exception e)
+		{
+			Log.e(TAG, "Exception occurred while running POWProcessor.findCachedNonce(). The exception message was:\n" 
+					+ e.getMessage());
+		}
+		return null;
+	}
+	
+	/**
+	 * Saves a calculated nonce to the database so that it can be reused if POW is needed 
+	 * for the same payload again. The nonce is kept until the payload expires. Failure to 
+	 * save the nonce is logged but does not affect the result of the POW.
+	 * 
+	 * @param initialHash - A byte[] containing the SHA-512 hash of the payload
+	 * @param target - The POW target that the nonce was calculated for
+	 * @param nonce - The calculated nonce
+	 * @param expirationTime - The expiration time of the payload
+	 */
+	private void cacheNonce(byte[] initialHash, long target, long nonce, long expirationTime)
+	{
+		try
+		{
+			POWNonce n = new POWNonce();
+			n.setInitialHash(initialHash);
+			n.setTarget(target);
+			n.setNonce(nonce);
+			n.setExpirationTime(expirationTime);
+			POWNonceProvider.get(App.getContext()).addPOWNonce(n);
+		}
+		catch (Exception e)
+		{
+			Log.e(TAG, "Exception occurred while running POWProcessor.cacheNonce(). The exception message was:\n" 
+					+ e.getMessage());
+		}
 	}
 	
 	/**
@@ -102,6 +227,108 @@ public class POWProcessor
 		return value >= 0 && target >= value;
 	}
 	
+	/**
+	 * Checks whether the proof of work done for each of a list of objects is sufficient. The
+	 * objects are checked in parallel, using one thread per CPU core.<br><br>
+	 * 
+	 * Each object must be in the standard Bitmessage object format, i.e. an 8 byte POW nonce
+	 * followed by the payload that the POW was done for, which begins with an 8 byte expiration
+	 * time. Objects which are too short to contain a nonce and an expiration time are treated as
+	 * having insufficient POW.
+	 * 
+	 * @param objects - A List<byte[]> containing the full data of each object to check
+	 * @param nonceTrialsPerByte - The nonceTrialsPerByte value to use
+	 * @param extraBytes - The extraBytes value to use
+	 * 
+	 * @return An ArrayList<byte[]> containing the objects whose POW is sufficient, in the 
+	 * same order as they were given
+	 */
+	public ArrayList<byte[]> checkPOW(List<byte[]> objects, final long nonceTrialsPerByte, final long extraBytes)
+	{
+		ArrayList<byte[]> validObjects = new ArrayList<byte[]>(objects.size());
+		
+		// Handing a single object to the pool would only add the cost of switching threads
+		if (objects.size() <= 1)
+		{
+			for (byte[] object : objects)
+			{
+				if (checkObjectPOW(object, nonceTrialsPerByte, extraBytes))
+				{
+					validObjects.add(object);
+				}
+			}
+			return validObjects;
+		}
+		
+		ArrayList<Callable<Boolean>> checks = new ArrayList<Callable<Boolean>>(objects.size());
+		for (final byte[] object : objects)
+		{
+			checks.add(new Callable<Boolean>()
+			{
+				@Override
+				public Boolean call()
+				{
+					return checkObjectPOW(object, nonceTrialsPerByte, extraBytes);
+				}
+			});
+		}
+		
+		try
+		{
+			List<Future<Boolean>> results = VerificationPoolHolder.POOL.invokeAll(checks);
+			for (int i = 0; i < results.size(); i++)
+			{
+				if (results.get(i).get())
+				{
+					validObjects.add(objects.get(i));
+				}
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("InterruptedException occurred in POWProcessor.checkPOW() while checking the POW of a batch of " + objects.size() + " objects", e);
+		}
+		catch (ExecutionException e)
+		{
+			throw new RuntimeException("ExecutionException occurred in POWProcessor.checkPOW() while checking the POW of a batch of " + objects.size() + " objects", e);
+		}
+		
+		return validObjects;
+	}
+	
+	/**
+	 * Checks whether the proof of work done for a single object is sufficient. The
+	 * nonce and expiration time are read in place and the double hash is calculated 
+	 * with a POWHasher, so no intermediate arrays are created for them.
+	 * 
+	 * @param object - A byte[] containing the full object data, beginning with the POW nonce
+	 * @param nonceTrialsPerByte - The nonceTrialsPerByte value to use
+	 * @param extraBytes - The extraBytes value to use
+	 * 
+	 * @return A boolean value indicating whether or not the POW is sufficient
+	 */
+	private boolean checkObjectPOW(byte[] object, long nonceTrialsPerByte, long extraBytes)
+	{
+		if (object == null || object.length < POW_NONCE_LENGTH + EXPIRATION_TIME_LENGTH)
+		{
+			return false;
+		}
+		
+		long nonce = ByteUtils.bytesToLong(object, 0);
+		long expirationTime = ByteUtils.bytesToLong(object, POW_NONCE_LENGTH);
+		int payloadLength = object.length - POW_NONCE_LENGTH;
+		
+		MessageDigest sha512 = CryptoContext.getInstance().getSHA512();
+		sha512.update(object, POW_NONCE_LENGTH, payloadLength);
+		byte[] initialHash = sha512.digest();
+		
+		long value = new POWHasher(initialHash).calculateTrialValue(nonce);
+		long target = calculatePOWTarget(payloadLength, nonceTrialsPerByte, extraBytes, calculateTimeToLiveValue(expirationTime));
+		
+		return value >= 0 && target >= value;
+	}
+	
 	/**
 	 * Calculates the 'time to live' value for a given expiration time value
 	 * 
@@ -135,26 +362,24 @@ public class POWProcessor
 	 */
 	private long calculatePOWTarget(int length, long nonceTrialsPerByte, long extraBytes, long timeToLive)
 	{
-		BigInteger powTarget = BigInteger.valueOf(2);
-		powTarget = powTarget.pow(64);
-		
-		BigInteger lengthValue = BigInteger.valueOf(length + extraBytes);
-		
-		long tempTimeValue = length + extraBytes;
-		tempTimeValue = tempTimeValue * timeToLive;
-		BigInteger timeValue = BigInteger.valueOf(tempTimeValue);
-		
-		BigInteger timeTarget = BigInteger.valueOf(2);
-		timeTarget = timeTarget.pow(16);
-		timeValue = timeValue.divide(timeTarget);
-		
-		BigInteger divisorValue = lengthValue.add(timeValue);
-		divisorValue = divisorValue.multiply(BigInteger.valueOf(nonceTrialsPerByte));
-		
-		powTarget = powTarget.divide(divisorValue);
-		
 		// Note that we are dividing through at least 8, so that the value is
 		// smaller than 2^61 and fits perfectly into a long.
-		return powTarget.longValue();
+		return POWTarget.calculateTarget(length, nonceTrialsPerByte, extraBytes, timeToLive);
+	}
+	
+	/**
+	 * Creates the daemon threads used to check the POW of batches of objects.
+	 */
+	private static class VerificationThreadFactory implements ThreadFactory
+	{
+		private final AtomicInteger threadNumber = new AtomicInteger(0);
+		
+		@Override
+		public Thread newThread(Runnable runnable)
+		{
+			Thread thread = new Thread(runnable, "POW Verification No. " + threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
 	}
 }
\ No newline at end of file
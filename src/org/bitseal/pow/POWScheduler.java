@@ -0,0 +1,263 @@
+package org.bitseal.pow;
+
+import org.bitseal.util.BatteryUtils;
+
+import android.util.Log;
+
+/**
+ * Decides how many of the POWExecutor's threads should be used for POW 
+ * calculations at any time.<br><br>
+ * 
+ * Each time a worker finishes a time slice it reports the number of hashes it 
+ * calculated. The scheduler adds these up over a sliding window and then tries 
+ * using one more or one fewer thread, keeping the change only if it improves the 
+ * hash rate by enough to justify the extra power used. When the device is 
+ * thermally throttled, extra threads add little or nothing to the hash rate, so 
+ * the scheduler will settle on fewer threads.<br><br>
+ * 
+ * The thresholds used and the maximum number of threads depend on the POWPolicy 
+ * selected by the user, whether the device is charging, and the battery temperature. 
+ * 
+ * @author Jonathan Coe
+ */
+class POWScheduler
+{
+	/** The length of each measurement window, in milliseconds */
+	private static final long WINDOW_LENGTH = 3000;
+	
+	/** If no slices are reported for this long (in milliseconds), no POW is running and the measurements are discarded */
+	private static final long IDLE_GAP = 3 * WINDOW_LENGTH;
+	
+	/** The length of POW time (in milliseconds) over which the hash rate of the whole executor is measured before it is recorded */
+	private static final long HASH_RATE_RECORD_INTERVAL = 30000;
+	
+	/** The number of windows to wait after settling on a thread count before trying another one */
+	private static final int WINDOWS_BETWEEN_PROBES = 10;
+	
+	/** The battery temperature (in degrees Celsius) above which at most half of the threads will be used */
+	private static final int WARM_TEMPERATURE = 42;
+	
+	/** The battery temperature (in degrees Celsius) above which only one thread will be used */
+	private static final int HOT_TEMPERATURE = 45;
+	
+	private static final String TAG = "POW_SCHEDULER";
+	
+	/** The number of threads in the POWExecutor */
+	private final int availableThreads;
+	
+	/** The number of threads currently being used */
+	private int activeThreads;
+	
+	private long windowStartTime;
+	private long lastReportTime;
+	private long windowHashes;
+	
+	/** The double hashes calculated by all the threads, and the time taken, since the hash rate was last recorded */
+	private long measuredHashes;
+	private long measuredTime;
+	
+	/** The hash rate and thread count measured before the last change in thread count was made */
+	private double previousHashRate;
+	private int previousThreads;
+	
+	/** The last change in thread count that was made: 1, -1, or 0 if the thread count is settled */
+	private int lastChange;
+	
+	/** The direction in which the next probe will be made */
+	private int nextProbe = 1;
+	
+	private int windowsSinceSettled;
+	
+	POWScheduler(int availableThreads)
+	{
+		this.availableThreads = availableThreads;
+		this.activeThreads = availableThreads;
+	}
+	
+	/**
+	 * Returns the number of threads which should currently be used.
+	 */
+	synchronized int getActiveThreads()
+	{
+		return activeThreads;
+	}
+	
+	/**
+	 * Records that a worker has finished a time slice.<br><br>
+	 * 
+	 * The window counters are updated while holding the lock, but reading the battery 
+	 * state and the selected policy and recording the hash rate are done outside it, 
+	 * so that the other workers finishing their slices are not held up by them. 
+	 * 
+	 * @param hashesCalculated - The number of double hashes calculated during the slice
+	 * 
+	 * @return The number of threads which should now be used
+	 */
+	int sliceCompleted(long hashesCalculated)
+	{
+		long currentTime = System.currentTimeMillis();
+		boolean windowCompleted = false;
+		double hashRate = 0;
+		long hashesToRecord = 0;
+		long timeToRecord = 0;
+		synchronized (this)
+		{
+			if (currentTime - lastReportTime > IDLE_GAP)
+			{
+				// POW has only just started again, so any earlier measurements are out of date. Record what 
+				// was measured before POW stopped, if it covers long enough.
+				hashesToRecord = measuredHashes;
+				timeToRecord = measuredTime;
+				resetMeasurements(currentTime);
+			}
+			lastReportTime = currentTime;
+			windowHashes = windowHashes + hashesCalculated;
+			
+			long windowElapsed = currentTime - windowStartTime;
+			if (windowElapsed >= WINDOW_LENGTH)
+			{
+				windowCompleted = true;
+				hashRate = (windowHashes * 1000.0) / windowElapsed;
+				
+				// The windows add up the hashes of every job running on the executor, so they measure the device's
+				// hash rate even when several jobs share the threads
+				measuredHashes = measuredHashes + windowHashes;
+				measuredTime = measuredTime + windowElapsed;
+				if (measuredTime >= HASH_RATE_RECORD_INTERVAL)
+				{
+					hashesToRecord = measuredHashes;
+					timeToRecord = measuredTime;
+					measuredHashes = 0;
+					measuredTime = 0;
+				}
+				
+				windowStartTime = currentTime;
+				windowHashes = 0;
+			}
+			else if (timeToRecord == 0)
+			{
+				return activeThreads;
+			}
+		}
+		
+		if (timeToRecord > 0)
+		{
+			// Pass the hash rate to the POWPlacementEngine, which uses it to estimate how long future POW calculations will take
+			POWPlacementEngine.recordPOWCalculation(hashesToRecord, timeToRecord);
+		}
+		if (windowCompleted == false)
+		{
+			return getActiveThreads();
+		}
+		
+		POWPolicy policy = POWPolicy.getSelectedPolicy();
+		int maximumThreads = getMaximumThreads(policy);
+		synchronized (this)
+		{
+			adjustThreads(hashRate, policy, maximumThreads);
+			return activeThreads;
+		}
+	}
+	
+	/**
+	 * Compares the hash rate measured in the last window with the one before it, and
+	 * decides how many threads to use next. 
+	 * 
+	 * @param hashRate - The hash rate measured in the last window, in double hashes per second
+	 * @param policy - The POWPolicy currently selected by the user
+	 * @param maximumThreads - The maximum number of threads currently allowed
+	 */
+	private void adjustThreads(double hashRate, POWPolicy policy, int maximumThreads)
+	{
+		int newThreads = activeThreads;
+		if (activeThreads > maximumThreads)
+		{
+			newThreads = maximumThreads;
+			lastChange = 0;
+		}
+		else if (lastChange != 0)
+		{
+			// Work out the gain in hash rate from the thread added by the last change, or the loss from the thread removed
+			double gain = (lastChange > 0) ? hashRate - previousHashRate : previousHashRate - hashRate;
+			double averageThreadRate = ((lastChange > 0) ? previousHashRate : hashRate) / Math.min(previousThreads, activeThreads);
+			boolean threadWorthwhile = gain >= averageThreadRate * policy.getMinimumThreadEfficiency();
+			
+			if (lastChange > 0 && threadWorthwhile == false)
+			{
+				newThreads = activeThreads - 1; // The added thread did not help enough, so remove it again
+				lastChange = 0;
+			}
+			else if (lastChange < 0 && threadWorthwhile)
+			{
+				newThreads = activeThreads + 1; // The removed thread was worth keeping, so restore it
+				lastChange = 0;
+			}
+			else
+			{
+				// Keep the change, and try another one in the same direction
+				newThreads = activeThreads + lastChange;
+			}
+		}
+		else
+		{
+			windowsSinceSettled ++;
+			if (windowsSinceSettled >= WINDOWS_BETWEEN_PROBES)
+			{
+				// Try a different thread count, alternating between trying more and fewer threads
+				if (activeThreads + nextProbe < 1 || activeThreads + nextProbe > maximumThreads)
+				{
+					nextProbe = -nextProbe;
+				}
+				newThreads = activeThreads + nextProbe;
+				lastChange = nextProbe;
+				nextProbe = -nextProbe;
+				windowsSinceSettled = 0;
+			}
+		}
+		
+		newThreads = Math.max(1, Math.min(newThreads, maximumThreads));
+		if (newThreads == activeThreads)
+		{
+			lastChange = 0;
+		}
+		
+		if (newThreads != activeThreads)
+		{
+			Log.d(TAG, "Changing the number of POW threads from " + activeThreads + " to " + newThreads + ". Policy: " + policy 
+					+ ", hash rate: " + (long) hashRate + " hashes per second");
+		}
+		previousHashRate = hashRate;
+		previousThreads = activeThreads;
+		activeThreads = newThreads;
+	}
+	
+	/**
+	 * Returns the maximum number of threads allowed by the given policy, the 
+	 * charging state of the device, and the battery temperature. 
+	 */
+	private int getMaximumThreads(POWPolicy policy)
+	{
+		int maximumThreads = policy.getMaximumThreads(availableThreads, BatteryUtils.isCharging());
+		
+		int temperature = BatteryUtils.getBatteryTemperature();
+		if (temperature >= HOT_TEMPERATURE)
+		{
+			maximumThreads = 1;
+		}
+		else if (temperature >= WARM_TEMPERATURE)
+		{
+			maximumThreads = Math.min(maximumThreads, Math.max(1, availableThreads / 2));
+		}
+		return maximumThreads;
+	}
+	
+	private void resetMeasurements(long currentTime)
+	{
+		measuredHashes = 0;
+		measuredTime = 0;
+		windowStartTime = currentTime;
+		windowHashes = 0;
+		lastChange = 0;
+		windowsSinceSettled = 0;
+	}
+}
@@ -0,0 +1,42 @@
+package org.bitseal.pow;
+
+/**
+ * The strategies which can be used to search for a POW nonce. See POWCalculator.
+ * 
+ * @author Jonathan Coe
+ */
+public enum POWSearchStrategy
+{
+	/** Use the backend chosen by POWBackendSelector, i.e. the native backend if it is available */
+	AUTOMATIC(0),
+	
+	/** Use the Java backend, hashing one nonce at a time */
+	SINGLE_LANE(1),
+	
+	/** Use the Java backend, hashing two interleaved nonces at a time */
+	TWO_LANE(TwoLanePOWHasher.LANES),
+	
+	/** Use the Java backend, hashing four interleaved nonces at a time */
+	FOUR_LANE(FourLanePOWHasher.LANES);
+	
+	private final int lanes;
+	
+	private POWSearchStrategy(int lanes)
+	{
+		this.lanes = lanes;
+	}
+	
+	/**
+	 * Returns the POW backend which implements this strategy.
+	 * 
+	 * @return The POWBackend to use
+	 */
+	public POWBackend getBackend()
+	{
+		if (this == AUTOMATIC)
+		{
+			return POWBackendSelector.getBackend();
+		}
+		return new JavaPOWBackend(lanes);
+	}
+}
@@ -0,0 +1,25 @@
+package org.bitseal.pow;
+
+/**
+ * Interface for objects which search a sequence of nonces for one that 
+ * meets a POW target.
+ * 
+ * @author Jonathan Coe
+ */
+public interface POWSearcher
+{
+	/**
+	 * Checks the nonces startNonce, startNonce + increment, startNonce + 2 * increment, 
+	 * and so on, until a nonce is found whose trial value meets the target or the given 
+	 * number of trials has been done.
+	 * 
+	 * @param startNonce - The first nonce to check
+	 * @param increment - The step size between each nonce checked
+	 * @param trials - The maximum number of nonces to check
+	 * @param target - The target collision quality
+	 * 
+	 * @return The index of the first nonce which met the target (i.e. the valid nonce 
+	 * is startNonce + index * increment), or -1 if none of the nonces checked met the target
+	 */
+	int search(long startNonce, long increment, int trials, long target);
+}
@@ -0,0 +1,199 @@
+package org.bitseal.pow;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Calculates POW targets using only primitive arithmetic.<br><br>
+ *
+ * The target for a payload is 2^64 / ((length + extraBytes + ((length + extraBytes) * timeToLive) / 2^16) * nonceTrialsPerByte).
+ * The divisor can be larger than a long, so it is held as a signed 128 bit value in two longs. The
+ * results are identical to those of the BigInteger calculation used previously, including for
+ * inputs which overflow a long.<br><br>
+ *
+ * Recently calculated targets are kept in a small cache. The time to live only affects the target
+ * through the value ((length + extraBytes) * timeToLive) / 2^16, so that value is used in the cache
+ * key instead of the time to live itself. This means that every time to live in the same 2^16
+ * wide bucket shares a single cache entry.<br><br>
+ *
+ * See: https://bitmessage.org/wiki/Proof_of_work
+ *
+ * @author Jonathan Coe
+ */
+public final class POWTarget
+{
+	/** The maximum number of targets to keep in the cache */
+	private static final int MAX_CACHED_TARGETS = 256;
+
+	/** The mask for the low 32 bits of a long */
+	private static final long LOW_32_BITS = 0xFFFFFFFFL;
+
+	/** The cache of recently calculated targets, in least recently used order */
+	private static final Map<TargetKey, Long> cache = new LinkedHashMap<TargetKey, Long>(MAX_CACHED_TARGETS, 0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<TargetKey, Long> eldest)
+		{
+			return size() > MAX_CACHED_TARGETS;
+		}
+	};
+
+	private POWTarget()
+	{
+		// The constructor of this class is private in order to prevent the class being instantiated
+	}
+
+	/**
+	 * Returns the POW target for a payload of the given length.
+	 *
+	 * @param length - The payload length
+	 * @param nonceTrialsPerByte - The nonceTrialsPerByte value to use
+	 * @param extraBytes - The extraBytes value to use
+	 * @param timeToLive - The 'time to live' value to use
+	 *
+	 * @return A long representing the POW target for a payload with the given length
+	 */
+	public static long calculateTarget(int length, long nonceTrialsPerByte, long extraBytes, long timeToLive)
+	{
+		long lengthValue = length + extraBytes;
+		long timeValue = (lengthValue * timeToLive) / 65536;
+
+		TargetKey key = new TargetKey(length, nonceTrialsPerByte, extraBytes, timeValue);
+		synchronized (cache)
+		{
+			Long cachedTarget = cache.get(key);
+			if (cachedTarget != null)
+			{
+				return cachedTarget;
+			}
+		}
+
+		long target = divideTwoToThe64(lengthValue, timeValue, nonceTrialsPerByte);
+		synchronized (cache)
+		{
+			cache.put(key, target);
+		}
+		return target;
+	}
+
+	/**
+	 * Calculates 2^64 / ((lengthValue + timeValue) * nonceTrialsPerByte), rounding towards zero,
+	 * and returns the low 64 bits of the result.
+	 *
+	 * @param lengthValue - The payload length plus the extra bytes value
+	 * @param timeValue - The time based part of the divisor
+	 * @param nonceTrialsPerByte - The nonceTrialsPerByte value
+	 *
+	 * @return A long containing the low 64 bits of the quotient
+	 */
+	private static long divideTwoToThe64(long lengthValue, long timeValue, long nonceTrialsPerByte)
+	{
+		// Calculate the 128 bit sum, sign extending both values into the high word
+		long sumLow = lengthValue + timeValue;
+		long sumHigh = (lengthValue >> 63) + (timeValue >> 63) + ((sumLow ^ Long.MIN_VALUE) < (lengthValue ^ Long.MIN_VALUE) ? 1 : 0);
+
+		// Work with magnitudes and apply the sign at the end, as BigInteger division rounds towards zero
+		boolean negative = (sumHigh < 0) != (nonceTrialsPerByte < 0);
+		if (sumHigh < 0)
+		{
+			sumLow = -sumLow;
+			sumHigh = ~sumHigh + (sumLow == 0 ? 1 : 0);
+		}
+		long ntpbMagnitude = Math.abs(nonceTrialsPerByte); // Long.MIN_VALUE stays as 2^63 when read as unsigned
+
+		// The magnitude of the sum is at most 2^64, so the magnitude of the product is at most 2^127
+		long divisorLow = sumLow * ntpbMagnitude;
+		long divisorHigh = multiplyHighUnsigned(sumLow, ntpbMagnitude) + (sumHigh * ntpbMagnitude);
+
+		long quotient;
+		if (divisorHigh != 0)
+		{
+			// The divisor is at least 2^64, so the quotient is 1 if it is exactly 2^64 and 0 otherwise
+			quotient = (divisorHigh == 1 && divisorLow == 0) ? 1 : 0;
+		}
+		else if (divisorLow == 0)
+		{
+			throw new ArithmeticException("The POW target divisor calculated in POWTarget.divideTwoToThe64() was zero");
+		}
+		else if (divisorLow < 0)
+		{
+			// The divisor is between 2^63 and 2^64 - 1
+			quotient = (divisorLow == Long.MIN_VALUE) ? 2 : 1;
+		}
+		else
+		{
+			// 2^63 = q * d + r, so 2^64 = 2q * d + 2r
+			long q = Long.MAX_VALUE / divisorLow;
+			long r = Long.MAX_VALUE % divisorLow + 1;
+			if (r == divisorLow)
+			{
+				q++;
+				r = 0;
+			}
+			quotient = (q << 1) + (r >= divisorLow - r ? 1 : 0);
+		}
+
+		return negative ? -quotient : quotient;
+	}
+
+	/**
+	 * Returns the high 64 bits of the unsigned 128 bit product of two longs, each read as unsigned.
+	 */
+	private static long multiplyHighUnsigned(long x, long y)
+	{
+		long x0 = x & LOW_32_BITS;
+		long x1 = x >>> 32;
+		long y0 = y & LOW_32_BITS;
+		long y1 = y >>> 32;
+
+		long p00 = x0 * y0;
+		long p01 = x0 * y1;
+		long p10 = x1 * y0;
+		long p11 = x1 * y1;
+
+		long middle = (p00 >>> 32) + (p01 & LOW_32_BITS) + (p10 & LOW_32_BITS);
+		return p11 + (p01 >>> 32) + (p10 >>> 32) + (middle >>> 32);
+	}
+
+	/**
+	 * The cache key for a POW target.
+	 */
+	private static final class TargetKey
+	{
+		private final int length;
+		private final long nonceTrialsPerByte;
+		private final long extraBytes;
+		private final long timeValue;
+
+		private TargetKey(int length, long nonceTrialsPerByte, long extraBytes, long timeValue)
+		{
+			this.length = length;
+			this.nonceTrialsPerByte = nonceTrialsPerByte;
+			this.extraBytes = extraBytes;
+			this.timeValue = timeValue;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (o instanceof TargetKey == false)
+			{
+				return false;
+			}
+			TargetKey k = (TargetKey) o;
+			return length == k.length && nonceTrialsPerByte == k.nonceTrialsPerByte && extraBytes == k.extraBytes && timeValue == k.timeValue;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			long h = length;
+			h = h * 31 + nonceTrialsPerByte;
+			h = h * 31 + extraBytes;
+			h = h * 31 + timeValue;
+			return (int) (h ^ (h >>> 32));
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package org.bitseal.pow;
+
+/**
+ * A snapshot of the progress of a running POW calculation. Snapshots are produced
+ * at regular intervals by the POWCalculator and passed to any POWTelemetryListener
+ * registered with it. The most recent snapshot of any running calculation can also
+ * be retrieved using getLatest().
+ * 
+ * @author Jonathan Coe
+ */
+public class POWTelemetry
+{
+	/** 2^64, the number of possible trial values */
+	private static final double TRIAL_VALUE_RANGE = 18446744073709551616.0;
+	
+	/** The most recent snapshot of any running POW calculation, or null if no calculation is running */
+	private static volatile POWTelemetry sLatest;
+	
+	private final double expectedTrials;
+	private final long trialsDone;
+	private final double[] workerHashRates;
+	private final double aggregateHashRate;
+	private final long elapsedTime;
+	
+	/**
+	 * Creates a new POWTelemetry snapshot.
+	 * 
+	 * @param target - The target collision quality of the POW calculation
+	 * @param trialsDone - The number of trials done so far, including any done before the calculation was resumed
+	 * @param workerHashRates - The recent hash rate of each worker, in double hashes per second
+	 * @param elapsedTime - The time (in seconds) since the calculation was started
+	 */
+	POWTelemetry(long target, long trialsDone, double[] workerHashRates, long elapsedTime)
+	{
+		this.expectedTrials = calculateExpectedTrials(target);
+		this.trialsDone = trialsDone;
+		this.workerHashRates = workerHashRates;
+		this.elapsedTime = elapsedTime;
+		
+		double aggregate = 0;
+		for (double rate : workerHashRates)
+		{
+			aggregate = aggregate + rate;
+		}
+		this.aggregateHashRate = aggregate;
+	}
+	
+	/**
+	 * Calculates the expected number of trials needed to find a nonce that meets the 
+	 * given target. A trial succeeds if its value is between 0 and the target (inclusive),
+	 * out of 2^64 possible values.
+	 * 
+	 * @param target - The target collision quality
+	 * 
+	 * @return A double containing the expected number of trials
+	 */
+	public static double calculateExpectedTrials(long target)
+	{
+		return TRIAL_VALUE_RANGE / ((double) target + 1);
+	}
+	
+	/**
+	 * Returns the most recent snapshot of any running POW calculation. 
+	 * 
+	 * @return The latest POWTelemetry, or null if no POW calculation is running
+	 */
+	public static POWTelemetry getLatest()
+	{
+		return sLatest;
+	}
+	
+	static synchronized void setLatest(POWTelemetry telemetry)
+	{
+		sLatest = telemetry;
+	}
+	
+	/**
+	 * Clears the latest snapshot, unless it has since been replaced by a snapshot
+	 * of another POW calculation which is still running. 
+	 * 
+	 * @param telemetry - The last snapshot produced by the calculation which has finished
+	 */
+	static synchronized void clearLatest(POWTelemetry telemetry)
+	{
+		if (sLatest == telemetry)
+		{
+			sLatest = null;
+		}
+	}
+	
+	/**
+	 * Returns the expected number of trials needed to complete the calculation. 
+	 */
+	public double getExpectedTrials()
+	{
+		return expectedTrials;
+	}
+	
+	/**
+	 * Returns the number of trials done so far.
+	 */
+	public long getTrialsDone()
+	{
+		return trialsDone;
+	}
+	
+	/**
+	 * Returns the recent hash rate of each worker, in double hashes per second.
+	 */
+	public double[] getWorkerHashRates()
+	{
+		return workerHashRates.clone();
+	}
+	
+	/**
+	 * Returns the recent hash rate of all workers combined, in double hashes per second.
+	 */
+	public double getAggregateHashRate()
+	{
+		return aggregateHashRate;
+	}
+	
+	/**
+	 * Returns the time (in seconds) since the calculation was started.
+	 */
+	public long getElapsedTime()
+	{
+		return elapsedTime;
+	}
+	
+	/**
+	 * Returns the trials done so far as a percentage of the expected number of trials. 
+	 * This can exceed 100, because the number of trials needed is random. 
+	 */
+	public int getPercentageOfExpectedTrials()
+	{
+		return (int) ((trialsDone * 100) / expectedTrials);
+	}
+	
+	/**
+	 * Returns an estimate of the time (in seconds) left until the calculation is complete, 
+	 * assuming that it needs the expected number of trials and that the current hash rate 
+	 * is maintained. Returns 0 if the expected number of trials has already been exceeded, 
+	 * or -1 if the hash rate is not yet known.
+	 */
+	public long getEstimatedTimeRemaining()
+	{
+		if (aggregateHashRate <= 0)
+		{
+			return -1;
+		}
+		double trialsRemaining = Math.max(expectedTrials - trialsDone, 0);
+		return (long) (trialsRemaining / aggregateHashRate);
+	}
+}
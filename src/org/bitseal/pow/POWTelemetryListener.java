@@ -0,0 +1,17 @@
+package org.bitseal.pow;
+
+/**
+ * Interface to notify objects of the progress of a running POW calculation. This 
+ * complements POWListener, which is only informed once a calculation is finished.
+ * 
+ * @author Jonathan Coe
+ */
+public interface POWTelemetryListener
+{
+	/**
+	 * Informs the listener of the current progress of a POW calculation.
+	 * 
+	 * @param telemetry - A POWTelemetry snapshot of the calculation's progress
+	 */
+	void powProgressUpdated(POWTelemetry telemetry);
+}
@@ -1,11 +1,7 @@
 package org.bitseal.pow;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.text.NumberFormat;
 
-import org.bitseal.util.ByteUtils;
-
 import android.util.Log;
 
 /**
@@ -23,9 +19,6 @@ public class POWWorker implements Runnable
 	/** The POW nonce. */
 	private volatile long nonce;
 
-	/** The initial hash value. */
-	private byte[] initialHash;
-	
 	/** The increment that should be used for finding the next nonce. */
 	private long increment;
 
@@ -38,10 +31,18 @@ public class POWWorker implements Runnable
 	/** The listener to inform if we found the result. */
 	private POWListener listener;
 	
-	private MessageDigest sha512;
+	/** The searcher used to check each nonce. */
+	private POWSearcher searcher;
 		
-	/** The number of double SHA-512 hashes calculated by this worker so far. */
-	private int doubleHashesCalculated = 0;
+	/** The number of trials between each update of the published nonce and hash count. Nonces are searched 
+	 * in batches of this size, so it also sets how quickly the worker responds to a stop request. */
+	private static final int PROGRESS_PUBLISH_INTERVAL = 1024;
+	
+	/** The maximum number of batches of nonces to search each time run() is called, or 0 if there is no maximum. */
+	private int batchesPerRun = 0;
+	
+	/** The number of double SHA-512 hashes calculated by this worker so far. Updated periodically while the worker is running. */
+	private volatile long doubleHashesCalculated = 0;
 	
 	private static final String TAG = "POW_WORKER";
 
@@ -56,6 +57,22 @@ public class POWWorker implements Runnable
 	 * @param listener - The POWListener object to inform if a result was found.
 	 */
 	public POWWorker(long target, long startNonce, long increment, byte[] initialHash, POWListener listener) 
+	{
+		this(target, startNonce, increment, initialHash, POWBackendSelector.getBackend(), listener);
+	}
+	
+	/**
+	 * Creates a new POWWorker which uses the given POW backend.
+	 * 
+	 * @param target - A long representing the target collision quality.
+	 * @param startNonce - A long representing the nonce to start with.
+	 * @param increment - A long representing the step size. A POW worker calculates with: startNonce, 
+	 * startNonce + increment, startNonce + 2 * increment.
+	 * @param initialHash - A byte[] containing the hash of the message.
+	 * @param backend - The POWBackend to use to search for a valid nonce.
+	 * @param listener - The POWListener object to inform if a result was found.
+	 */
+	public POWWorker(long target, long startNonce, long increment, byte[] initialHash, POWBackend backend, POWListener listener) 
 	{
 		if (listener == null) 
 		{
@@ -65,17 +82,8 @@ public class POWWorker implements Runnable
 		this.target = target;
 		this.nonce = startNonce;
 		this.increment = increment;
-		this.initialHash = initialHash;
 		this.listener = listener;
-		
-		try 
-		{
-			sha512 = MessageDigest.getInstance("SHA-512");
-		} 
-		catch (NoSuchAlgorithmException e) 
-		{
-			throw new RuntimeException("NoSuchAlgorithmException occurred in POWWorker constructor", e);
-		}
+		this.searcher = backend.createSearcher(initialHash);
 	}
 
 	/**
@@ -96,9 +104,37 @@ public class POWWorker implements Runnable
 		stop = true;
 	}
 
+	/**
+	 * Returns true if the worker has been stopped, either because it found a valid
+	 * nonce or because a stop request was made. 
+	 * 
+	 * @return True if the worker has been stopped.
+	 */
+	public boolean isStopped()
+	{
+		return stop;
+	}
+	
+	/**
+	 * Limits the amount of work done each time run() is called. If a limit is set, run() 
+	 * returns after searching the given number of batches of nonces, even if no valid nonce 
+	 * was found, and the calculation can be continued by calling run() again. This allows 
+	 * several workers to share a thread in turn.
+	 * 
+	 * @param batchesPerRun - The maximum number of batches of nonces to search, or 0 for no limit
+	 */
+	void setBatchesPerRun(int batchesPerRun)
+	{
+		this.batchesPerRun = batchesPerRun;
+	}
+
 	/**
 	 * Returns the current nonce. Note that it can be wrong if isRunning()
-	 * returns true or no success was reported.
+	 * returns true or no success was reported.<br><br>
+	 * 
+	 * While the worker is running, the value returned is updated periodically and 
+	 * all nonces in this worker's sequence which are lower than it have already been 
+	 * checked. It can therefore be used as a cursor to resume the calculation from. 
 	 * 
 	 * @return The current nonce.
 	 */
@@ -112,7 +148,7 @@ public class POWWorker implements Runnable
 		return POWSuccessful;
 	}
 	
-	public int getDoubleHashesCalculated()
+	public long getDoubleHashesCalculated()
 	{
 		return doubleHashesCalculated;
 	}
@@ -126,37 +162,49 @@ public class POWWorker implements Runnable
 		running = true;
 		
 		long nonce = this.nonce;
+		long doubleHashes = doubleHashesCalculated;
+		int batches = 0;
 		
-		while (!stop)
+		while (!stop && (batchesPerRun == 0 || batches < batchesPerRun))
 		{
-			// Calculate the double SHA512 hash of the current nonce concatenated with the payload (initial) hash
-			sha512.reset();
-			sha512.update(ByteUtils.longToBytes(nonce));
-			byte[] hash = sha512.digest(initialHash);
-			sha512.reset();
-			hash = sha512.digest(hash);
-			
-			doubleHashesCalculated ++;
+			batches ++;
 			
-			// Get the resulting hash as a long
-			long result = ByteUtils.bytesToLong(hash);
+			// Calculate the double SHA512 hash of each nonce in the next batch concatenated with the payload (initial) hash,
+			// and check whether the first 8 bytes of any of the resulting hashes meet the POW target
+			int index = searcher.search(nonce, increment, PROGRESS_PUBLISH_INTERVAL, target);
 			
-			// Check whether the current nonce gives a result that meets the POW target
-			if (result <= target && result >= 0)
+			if (index >= 0)
 			{
+				nonce += index * increment;
+				doubleHashes += index + 1;
+				
 				Log.d(TAG, "Found a valid nonce!     : " + NumberFormat.getIntegerInstance().format(nonce));
 				stop();
 				this.nonce = nonce;
+				doubleHashesCalculated = doubleHashes;
 				POWSuccessful = true;
 				listener.powFinished(this);
 				break;
 			}
-			// Increment the POW nonce
+			// Move on to the next batch of nonces
 			else
 			{
-				nonce += increment;
+				nonce += PROGRESS_PUBLISH_INTERVAL * increment;
+				doubleHashes += PROGRESS_PUBLISH_INTERVAL;
+				
+				// Publish the next nonce to be checked and the number of hashes calculated, so that 
+				// progress can be checkpointed and monitored
+				this.nonce = nonce;
+				doubleHashesCalculated = doubleHashes;
 			}
 		}
+		
+		// If the worker was stopped before finding a valid nonce, publish the next nonce that would have been checked
+		if (POWSuccessful == false)
+		{
+			this.nonce = nonce;
+			doubleHashesCalculated = doubleHashes;
+		}
 
 		running = false;
 	}
@@ -0,0 +1,246 @@
+package org.bitseal.pow;
+
+import org.bitseal.core.App;
+
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+import android.util.Log;
+
+/**
+ * Chooses the 'time to live' values used when sending a msg so that the msg stays
+ * available on the network for the user's delivery target at the lowest POW cost.<br><br>
+ *
+ * The POW needed for an object grows with both its length and its time to live. A msg
+ * which is not acknowledged is re-sent each time its time to live runs out, so covering
+ * the delivery target takes a first attempt followed by enough subsequent attempts to
+ * cover the rest of the target. For each candidate schedule, the POW time of the msg and
+ * of its ack is predicted from the local hash rate, and the schedule with the lowest total
+ * POW time is chosen. The first attempt is limited to a POW time budget, so that sending
+ * a msg is not delayed by a long first calculation. When two schedules cost the same, the
+ * one with the shorter first attempt is preferred, as an early acknowledgement then makes
+ * the later attempts unnecessary.
+ *
+ * @author Jonathan Coe
+ */
+public class TimeToLiveOptimizer
+{
+	/** The 'time to live' values (in seconds) that may be used for a msg, in ascending order */
+	private static final long[] CANDIDATE_TIME_TO_LIVE_VALUES = {
+		3600,     // 1 hour
+		7200,     // 2 hours
+		21600,    // 6 hours
+		43200,    // 12 hours
+		86400,    // 1 day
+		172800,   // 2 days
+		345600,   // 4 days
+		604800,   // 1 week
+		1209600,  // 2 weeks
+		2419200}; // 4 weeks
+
+	/** The length in bytes of an ack msg payload: nonce, expiration time, object type, version, stream number and ack data */
+	private static final int ACK_PAYLOAD_LENGTH = 8 + 8 + 4 + 1 + 1 + 32;
+
+	/** The key for a long variable that records the time (in seconds) for which the user wants each msg to remain available */
+	private static final String KEY_DELIVERY_TARGET = "msgDeliveryTarget";
+
+	/** The key for a long variable that records the maximum predicted POW time (in seconds) for the first attempt to send a msg */
+	private static final String KEY_FIRST_ATTEMPT_POW_BUDGET = "firstAttemptPOWBudget";
+
+	/** The default delivery target: the one hour first attempt plus one day subsequent attempt used before this optimizer existed */
+	private static final long DEFAULT_DELIVERY_TARGET = 90000; // 25 hours
+
+	private static final long DEFAULT_FIRST_ATTEMPT_POW_BUDGET = 120; // 2 minutes
+
+	private static final String TAG = "TIME_TO_LIVE_OPTIMIZER";
+
+	/**
+	 * The 'time to live' values to use for the attempts to send a msg.
+	 */
+	public static class SendSchedule
+	{
+		private final long firstAttemptTimeToLive;
+		private final long subsequentAttemptsTimeToLive;
+
+		public SendSchedule(long firstAttemptTimeToLive, long subsequentAttemptsTimeToLive)
+		{
+			this.firstAttemptTimeToLive = firstAttemptTimeToLive;
+			this.subsequentAttemptsTimeToLive = subsequentAttemptsTimeToLive;
+		}
+
+		public long getFirstAttemptTimeToLive()
+		{
+			return firstAttemptTimeToLive;
+		}
+
+		public long getSubsequentAttemptsTimeToLive()
+		{
+			return subsequentAttemptsTimeToLive;
+		}
+
+		/**
+		 * Returns the 'time to live' value for the attempt with the given record count.
+		 *
+		 * @param recordCount - The number of previous attempts to send the msg
+		 */
+		public long getTimeToLive(int recordCount)
+		{
+			return (recordCount == 0) ? firstAttemptTimeToLive : subsequentAttemptsTimeToLive;
+		}
+	}
+
+	/**
+	 * Chooses the schedule of 'time to live' values with the lowest predicted POW time
+	 * for a msg with a payload of the given length.
+	 *
+	 * @param msgPayloadLength - The length (or estimated length) in bytes of the msg payload
+	 * @param nonceTrialsPerByte - The nonceTrialsPerByte value to use
+	 * @param extraBytes - The extraBytes value to use
+	 *
+	 * @return The chosen SendSchedule
+	 */
+	public SendSchedule chooseSchedule(int msgPayloadLength, long nonceTrialsPerByte, long extraBytes)
+	{
+		long deliveryTarget = getDeliveryTarget();
+		long firstAttemptBudget = getFirstAttemptPOWBudget();
+		double hashRate = new POWPlacementEngine().getLocalHashRate();
+
+		double[] costs = new double[CANDIDATE_TIME_TO_LIVE_VALUES.length];
+		for (int i = 0; i < costs.length; i++)
+		{
+			costs[i] = predictAttemptCost(msgPayloadLength, nonceTrialsPerByte, extraBytes, CANDIDATE_TIME_TO_LIVE_VALUES[i], hashRate);
+		}
+
+		int bestFirst = 0;
+		int bestSubsequent = chooseSubsequentIndex(deliveryTarget, costs);
+		double bestCost = Double.MAX_VALUE;
+		for (int first = 0; first < costs.length; first++)
+		{
+			long firstTimeToLive = CANDIDATE_TIME_TO_LIVE_VALUES[first];
+
+			// The shortest candidate is always allowed, so that there is always a schedule
+			if (first > 0 && (costs[first] > firstAttemptBudget || firstTimeToLive > deliveryTarget))
+			{
+				break;
+			}
+
+			// If the first attempt covers the whole target, later attempts cover a further target-length period each
+			long remainingTarget = deliveryTarget - firstTimeToLive;
+			int subsequent = chooseSubsequentIndex((remainingTarget > 0) ? remainingTarget : deliveryTarget, costs);
+			double cost = costs[first] + ((remainingTarget > 0) ? countAttempts(remainingTarget, subsequent) * costs[subsequent] : 0);
+			if (cost < bestCost)
+			{
+				bestCost = cost;
+				bestFirst = first;
+				bestSubsequent = subsequent;
+			}
+		}
+
+		SendSchedule schedule = new SendSchedule(CANDIDATE_TIME_TO_LIVE_VALUES[bestFirst], CANDIDATE_TIME_TO_LIVE_VALUES[bestSubsequent]);
+		Log.i(TAG, "Chose a first attempt time to live of " + schedule.getFirstAttemptTimeToLive() + " seconds and a subsequent attempts time to live of "
+				+ schedule.getSubsequentAttemptsTimeToLive() + " seconds for a msg of roughly " + msgPayloadLength + " bytes. Predicted POW time to cover the "
+				+ "delivery target: " + (long) bestCost + " seconds.");
+		return schedule;
+	}
+
+	/**
+	 * Chooses the schedule of 'time to live' values for a short msg sent to an address which
+	 * uses the network standard POW values. This is the schedule used by most msgs, so the
+	 * acks in the AckPool are created for it.
+	 *
+	 * @return The chosen SendSchedule
+	 */
+	public SendSchedule chooseScheduleForShortMsg()
+	{
+		int payloadLength = new POWPlacementEngine().estimateMsgPayloadLength(null, null);
+		return chooseSchedule(payloadLength, POWProcessor.NETWORK_NONCE_TRIALS_PER_BYTE, POWProcessor.NETWORK_EXTRA_BYTES);
+	}
+
+	/**
+	 * Returns the index of the candidate 'time to live' value that covers the given period
+	 * with the lowest total POW time.
+	 */
+	private int chooseSubsequentIndex(long period, double[] costs)
+	{
+		int best = 0;
+		double bestCost = Double.MAX_VALUE;
+		for (int i = 0; i < costs.length; i++)
+		{
+			if (i > 0 && CANDIDATE_TIME_TO_LIVE_VALUES[i - 1] >= period)
+			{
+				break; // Longer values than this would only add to the cost
+			}
+			double cost = countAttempts(period, i) * costs[i];
+			if (cost < bestCost)
+			{
+				bestCost = cost;
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the number of attempts with the candidate 'time to live' value at the given
+	 * index that are needed to cover the given period.
+	 */
+	private long countAttempts(long period, int index)
+	{
+		long timeToLive = CANDIDATE_TIME_TO_LIVE_VALUES[index];
+		return (period + timeToLive - 1) / timeToLive;
+	}
+
+	/**
+	 * Predicts the POW time (in seconds) of one attempt to send a msg, including its ack.
+	 */
+	private double predictAttemptCost(int msgPayloadLength, long nonceTrialsPerByte, long extraBytes, long timeToLive, double hashRate)
+	{
+		double msgTrials = 18446744073709551616.0 / Math.max(POWTarget.calculateTarget(msgPayloadLength, nonceTrialsPerByte, extraBytes, timeToLive), 1);
+		double ackTrials = 18446744073709551616.0 / Math.max(POWTarget.calculateTarget(ACK_PAYLOAD_LENGTH, POWProcessor.NETWORK_NONCE_TRIALS_PER_BYTE,
+				POWProcessor.NETWORK_EXTRA_BYTES, timeToLive), 1);
+		return (msgTrials + ackTrials) / hashRate;
+	}
+
+	/**
+	 * Returns the time (in seconds) for which the user wants each msg to remain available.
+	 */
+	public static long getDeliveryTarget()
+	{
+		SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(App.getContext());
+		return prefs.getLong(KEY_DELIVERY_TARGET, DEFAULT_DELIVERY_TARGET);
+	}
+
+	/**
+	 * Sets the time for which the user wants each msg to remain available.
+	 *
+	 * @param deliveryTarget - The delivery target, in seconds
+	 */
+	public static void setDeliveryTarget(long deliveryTarget)
+	{
+		SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(App.getContext());
+		SharedPreferences.Editor editor = prefs.edit();
+		editor.putLong(KEY_DELIVERY_TARGET, Math.max(deliveryTarget, CANDIDATE_TIME_TO_LIVE_VALUES[0]));
+		editor.commit();
+	}
+
+	/**
+	 * Returns the maximum predicted POW time (in seconds) for the first attempt to send a msg.
+	 */
+	public static long getFirstAttemptPOWBudget()
+	{
+		SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(App.getContext());
+		return prefs.getLong(KEY_FIRST_ATTEMPT_POW_BUDGET, DEFAULT_FIRST_ATTEMPT_POW_BUDGET);
+	}
+
+	/**
+	 * Sets the maximum predicted POW time for the first attempt to send a msg.
+	 *
+	 * @param budget - The budget, in seconds
+	 */
+	public static void setFirstAttemptPOWBudget(long budget)
+	{
+		SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(App.getContext());
+		SharedPreferences.Editor editor = prefs.edit();
+		editor.putLong(KEY_FIRST_ATTEMPT_POW_BUDGET, Math.max(budget, 0));
+		editor.commit();
+	}
+}
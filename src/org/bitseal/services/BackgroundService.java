@@ -8,9 +8,11 @@ import java.util.Iterator;
 
 import org.bitseal.R;
 import org.bitseal.controllers.TaskController;
+import org.bitseal.core.AckPool;
 import org.bitseal.core.App;
 import org.bitseal.core.ObjectProcessor;
 import org.bitseal.core.QueueRecordProcessor;
+import org.bitseal.crypt.PubkeyGenerator;
 import org.bitseal.data.Address;
 import org.bitseal.data.Message;
 import org.bitseal.data.Payload;
@@ -26,6 +28,9 @@ import org.bitseal.database.PubkeysTable;
 import org.bitseal.database.QueueRecordProvider;
 import org.bitseal.database.QueueRecordsTable;
 import org.bitseal.network.NetworkHelper;
+import org.bitseal.pow.POWPlacementEngine;
+import org.bitseal.pow.POWProcessor;
+import org.bitseal.pow.TimeToLiveOptimizer;
 import org.bitseal.util.ByteUtils;
 import org.bitseal.util.TimeUtils;
 
@@ -52,6 +57,8 @@ public class BackgroundService extends WakefulIntentService  implements ICacheWo
 	 * This constant determines whether or not the app will do
 	 * proof of work for pubkeys and messages that it creates. 
 	 * If not, it will expect servers to do the proof of work. 
+	 * If so, the POWPlacementEngine may still hand the proof of 
+	 * work for individual payloads to servers. 
 	 */
 	public static final boolean DO_POW = true;
 	
@@ -64,7 +71,10 @@ public class BackgroundService extends WakefulIntentService  implements ICacheWo
 	 * Therefore in some situations it is advantageous to use a low time to live
 	 * when creating and sending an object, for example when you are sending a
 	 * msg and the recipient is online and therefore able to receive and acknowledge
-	 * it immediately. 
+	 * it immediately. <br><br>
+	 * 
+	 * The time to live used for msgs sent by us is normally chosen by the TimeToLiveOptimizer.
+	 * This value is used when the optimizer's choice is not available. 
 	 */
 	public static final long FIRST_ATTEMPT_TTL = 3600; // Currently set to 1 hour
 	
@@ -76,7 +86,7 @@ public class BackgroundService extends WakefulIntentService  implements ICacheWo
 	 * If we create and send out an object using a low time to live and the first attempt is 
 	 * not successful (e.g. we do not receive an acknowledgement for a sent msg) then we can 
 	 * re-create and re-send the object with a longer time to live. That time to live is 
-	 * determined by this constant.  
+	 * determined by this constant, unless the TimeToLiveOptimizer has chosen a different value.  
 	 */
 	public static final long SUBSEQUENT_ATTEMPTS_TTL = 86400; // Currently set to 1 day
 		
@@ -203,11 +213,13 @@ public class BackgroundService extends WakefulIntentService  implements ICacheWo
 					
 					// Also create a new QueueRecord for re-sending this msg in the event that we do not receive an acknowledgement for it
 					// before its time to live expires. If we do receive the acknowledgement before then, this QueueRecord will be deleted
+					TimeToLiveOptimizer.SendSchedule schedule = getSendSchedule(messageToSend);
+					long firstAttemptTTL = schedule.getFirstAttemptTimeToLive();
 					long currentTime = System.currentTimeMillis() / 1000;
-					queueProc.createAndSaveQueueRecord(TASK_SEND_MESSAGE, currentTime + FIRST_ATTEMPT_TTL, 1, messageToSend, null, null);
+					queueProc.createAndSaveQueueRecord(TASK_SEND_MESSAGE, currentTime + firstAttemptTTL, 1, messageToSend, null, null);
 					
 					// Attempt to send the message
-					taskController.sendMessage(queueRecord, messageToSend, DO_POW, FIRST_ATTEMPT_TTL, FIRST_ATTEMPT_TTL);
+					taskController.sendMessage(queueRecord, messageToSend, decideMsgPOWPlacement(queueRecord, messageToSend, null, firstAttemptTTL), firstAttemptTTL, firstAttemptTTL);
 				}
 				
 				else if (uiRequest.equals(UI_REQUEST_CREATE_IDENTITY))
@@ -239,7 +251,7 @@ public class BackgroundService extends WakefulIntentService  implements ICacheWo
 					QueueRecord queueRecord = queueProc.createAndSaveQueueRecord(TASK_CREATE_IDENTITY, TimeUtils.getUnixTime(), 0, address, null, null);
 					
 					// Attempt to complete the create identity task
-					taskController.createIdentity(queueRecord, DO_POW);
+					taskController.createIdentity(queueRecord, decidePubkeyPOWPlacement(queueRecord));
 				}
 			}
 			else
@@ -305,6 +317,9 @@ public class BackgroundService extends WakefulIntentService  implements ICacheWo
 			// Sort the queue records so that we will process the records with the earliest 'last attempt time' first
 			Collections.sort(queueRecords);
 			
+			// Tasks for sending messages are run in a pipeline, so that the work for several messages can overlap
+			OutgoingMessagePipeline pipeline = new OutgoingMessagePipeline();
+			
 			// Process each queued task in turn, removing them from the database if completed successfully
 			for (QueueRecord q : queueRecords)
 			{
@@ -372,10 +387,11 @@ public class BackgroundService extends WakefulIntentService  implements ICacheWo
 						}
 						
 						// Work out which TTL value we should use, then attempt to send the message
+						TimeToLiveOptimizer.SendSchedule schedule = getSendSchedule(messageToSend);
 						if (q.getRecordCount() == 0) // This is the first attempt to send this message, so use the 'first attempt' TTL value
 						{
 							// Attempt to send the message
-							taskController.sendMessage(q, messageToSend, DO_POW, FIRST_ATTEMPT_TTL, FIRST_ATTEMPT_TTL);
+							submitSendMessageTask(pipeline, taskController, q, messageToSend, schedule.getFirstAttemptTimeToLive());
 						}
 						else // This is not the first attempt to send this message, so use the 'subsequent attempts' TTL value
 						{
@@ -386,11 +402,11 @@ public class BackgroundService extends WakefulIntentService  implements ICacheWo
 							{
 								Log.i(TAG, "Creating a QueueRecord to re-send message with ID " + messageToSend.getId());
 								currentTime = System.currentTimeMillis() / 1000;
-								queueProc.createAndSaveQueueRecord(TASK_SEND_MESSAGE, currentTime + SUBSEQUENT_ATTEMPTS_TTL, q.getRecordCount() + 1, messageToSend, null, null);
+								queueProc.createAndSaveQueueRecord(TASK_SEND_MESSAGE, currentTime + schedule.getSubsequentAttemptsTimeToLive(), q.getRecordCount() + 1, messageToSend, null, null);
 							}
 							
 							// Attempt to send the message
-							taskController.sendMessage(q, messageToSend, DO_POW, SUBSEQUENT_ATTEMPTS_TTL, SUBSEQUENT_ATTEMPTS_TTL);
+							submitSendMessageTask(pipeline, taskController, q, messageToSend, schedule.getSubsequentAttemptsTimeToLive());
 						}
 					}
 					
@@ -418,14 +434,8 @@ public class BackgroundService extends WakefulIntentService  implements ICacheWo
 						Pubkey toPubkey = pubProv.searchForSingleRecord(q.getObject1Id());
 							 
 						// Attempt to process and send the message
-						if (q.getRecordCount() == 0)
-						{
-							taskController.processOutgoingMessage(q, messageToSend, toPubkey, DO_POW, FIRST_ATTEMPT_TTL);
-						}
-						else
-						{
-							taskController.processOutgoingMessage(q, messageToSend, toPubkey, DO_POW, SUBSEQUENT_ATTEMPTS_TTL);
-						}
+						long timeToLive = getSendSchedule(messageToSend).getTimeToLive(q.getRecordCount());
+						submitProcessOutgoingMessageTask(pipeline, taskController, q, messageToSend, toPubkey, timeToLive);
 					}
 					
 					else if (task.equals(TASK_DISSEMINATE_MESSAGE))
@@ -469,7 +479,8 @@ public class BackgroundService extends WakefulIntentService  implements ICacheWo
 							Pubkey toPubkey = pubProv.searchForSingleRecord(q.getObject2Id());
 								 
 							// Attempt to send the msg
-							taskController.disseminateMessage(q, msgPayload, toPubkey, DO_POW);
+							// The msg payload has already been created, so its POW must be completed in the same place as before
+							taskController.disseminateMessage(q, msgPayload, toPubkey, msgPayload.powDone());
 						}
 						else
 						{
@@ -481,7 +492,7 @@ public class BackgroundService extends WakefulIntentService  implements ICacheWo
 					
 					else if (task.equals(TASK_CREATE_IDENTITY))
 					{
-						taskController.createIdentity(q, DO_POW);
+						taskController.createIdentity(q, decidePubkeyPOWPlacement(q));
 					}
 					
 					else if (task.equals(TASK_DISSEMINATE_PUBKEY))
@@ -496,7 +507,8 @@ public class BackgroundService extends WakefulIntentService  implements ICacheWo
 							if (NetworkHelper.checkInternetAvailability() == true)
 							{
 								// Attempt to disseminate the pubkey payload
-								taskController.disseminatePubkey(q, pubkeyPayload, DO_POW);
+								// The pubkey payload has already been created, so its POW must be completed in the same place as before
+								taskController.disseminatePubkey(q, pubkeyPayload, pubkeyPayload.powDone());
 							}
 						}
 						else
@@ -533,11 +545,16 @@ public class BackgroundService extends WakefulIntentService  implements ICacheWo
 				}
 			}
 			
+			// Wait for any message sending tasks that are still running
+			pipeline.awaitCompletion();
+			
 			runPeriodicTasks();
+			runFillAckPoolTask(false);
 		}
 		else // If there are no other tasks that we need to do
 		{
 			runPeriodicTasks();
+			runFillAckPoolTask(true);
 			
 			// Check whether it is time to run the 'clean database' routine. If yes then run it. 
 			if (checkIfDatabaseCleaningIsRequired())
@@ -549,6 +566,147 @@ public class BackgroundService extends WakefulIntentService  implements ICacheWo
 		}
 	}
 	
+	/**
+	 * Adds a 'send message' task to the outgoing message pipeline.
+	 * 
+	 * @param pipeline - The OutgoingMessagePipeline to run the task in
+	 * @param taskController - The TaskController to use
+	 * @param q - The QueueRecord for the task
+	 * @param messageToSend - The Message to send
+	 * @param timeToLive - The 'time to live' value (in seconds) to use for the msg and any getpubkey
+	 */
+	private void submitSendMessageTask(OutgoingMessagePipeline pipeline, final TaskController taskController, final QueueRecord q, 
+			final Message messageToSend, final long timeToLive)
+	{
+		pipeline.submit(q, new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				taskController.sendMessage(q, messageToSend, decideMsgPOWPlacement(q, messageToSend, null, timeToLive), timeToLive, timeToLive);
+			}
+		});
+	}
+	
+	/**
+	 * Adds a 'process outgoing message' task to the outgoing message pipeline.
+	 * 
+	 * @param pipeline - The OutgoingMessagePipeline to run the task in
+	 * @param taskController - The TaskController to use
+	 * @param q - The QueueRecord for the task
+	 * @param messageToSend - The Message to send
+	 * @param toPubkey - The Pubkey of the address the message is being sent to
+	 * @param timeToLive - The 'time to live' value (in seconds) to use for the msg
+	 */
+	private void submitProcessOutgoingMessageTask(OutgoingMessagePipeline pipeline, final TaskController taskController, final QueueRecord q, 
+			final Message messageToSend, final Pubkey toPubkey, final long timeToLive)
+	{
+		pipeline.submit(q, new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				taskController.processOutgoingMessage(q, messageToSend, toPubkey, decideMsgPOWPlacement(q, messageToSend, toPubkey, timeToLive), timeToLive);
+			}
+		});
+	}
+	
+	/**
+	 * Chooses the 'time to live' values to use when sending a msg, so that it stays available
+	 * for the user's delivery target at the lowest POW cost. See TimeToLiveOptimizer. The
+	 * network standard POW values are used, so that every attempt to send the msg gets the
+	 * same schedule whether or not the recipient's pubkey has been retrieved yet. 
+	 * 
+	 * @param message - The Message being sent
+	 * 
+	 * @return The TimeToLiveOptimizer.SendSchedule to use. If the schedule cannot be chosen,
+	 * the default FIRST_ATTEMPT_TTL and SUBSEQUENT_ATTEMPTS_TTL values are returned. 
+	 */
+	private TimeToLiveOptimizer.SendSchedule getSendSchedule(Message message)
+	{
+		try
+		{
+			int payloadLength = new POWPlacementEngine().estimateMsgPayloadLength(message.getSubject(), message.getBody());
+			return new TimeToLiveOptimizer().chooseSchedule(payloadLength, POWProcessor.NETWORK_NONCE_TRIALS_PER_BYTE, POWProcessor.NETWORK_EXTRA_BYTES);
+		}
+		catch (Exception e)
+		{
+			Log.e(TAG, "Exception occurred in BackgroundService.getSendSchedule(). The default TTL values will be used. The exception message was:\n"
+					+ e.getMessage());
+			return new TimeToLiveOptimizer.SendSchedule(FIRST_ATTEMPT_TTL, SUBSEQUENT_ATTEMPTS_TTL);
+		}
+	}
+	
+	/**
+	 * Decides whether the POW for a msg should be done on this device or by a server.
+	 * See POWPlacementEngine. 
+	 * 
+	 * @param q - The QueueRecord of the task, in which the decision is recorded. May be null.
+	 * @param message - The Message being sent
+	 * @param toPubkey - The Pubkey of the address the message is being sent to, or null 
+	 * if it has not been retrieved yet
+	 * @param timeToLive - The 'time to live' value (in seconds) to use for the msg
+	 * 
+	 * @return A boolean indicating whether the POW should be done on this device
+	 */
+	private boolean decideMsgPOWPlacement(QueueRecord q, Message message, Pubkey toPubkey, long timeToLive)
+	{
+		if (DO_POW == false)
+		{
+			return false;
+		}
+		
+		// Until the recipient's pubkey has been retrieved, assume that they use the network standard POW values
+		long nonceTrialsPerByte = POWProcessor.NETWORK_NONCE_TRIALS_PER_BYTE;
+		long extraBytes = POWProcessor.NETWORK_EXTRA_BYTES;
+		if (toPubkey != null)
+		{
+			nonceTrialsPerByte = Math.max(nonceTrialsPerByte, toPubkey.getNonceTrialsPerByte());
+			extraBytes = Math.max(extraBytes, toPubkey.getExtraBytes());
+		}
+		
+		try
+		{
+			POWPlacementEngine engine = new POWPlacementEngine();
+			int payloadLength = engine.estimateMsgPayloadLength(message.getSubject(), message.getBody());
+			return engine.decideDoPOW(q, payloadLength, nonceTrialsPerByte, extraBytes, timeToLive);
+		}
+		catch (Exception e)
+		{
+			Log.e(TAG, "Exception occurred in BackgroundService.decideMsgPOWPlacement(). The POW will be done on this device. The exception message was:\n"
+					+ e.getMessage());
+			return true;
+		}
+	}
+	
+	/**
+	 * Decides whether the POW for a pubkey should be done on this device or by a server.
+	 * See POWPlacementEngine. 
+	 * 
+	 * @param q - The QueueRecord of the task, in which the decision is recorded. May be null.
+	 * 
+	 * @return A boolean indicating whether the POW should be done on this device
+	 */
+	private boolean decidePubkeyPOWPlacement(QueueRecord q)
+	{
+		if (DO_POW == false)
+		{
+			return false;
+		}
+		
+		try
+		{
+			return new POWPlacementEngine().decideDoPOW(q, POWPlacementEngine.PUBKEY_PAYLOAD_LENGTH, POWProcessor.NETWORK_NONCE_TRIALS_PER_BYTE, 
+					POWProcessor.NETWORK_EXTRA_BYTES, PubkeyGenerator.PUBKEY_TTL);
+		}
+		catch (Exception e)
+		{
+			Log.e(TAG, "Exception occurred in BackgroundService.decidePubkeyPOWPlacement(). The POW will be done on this device. The exception message was:\n"
+					+ e.getMessage());
+			return true;
+		}
+	}
+	
 	/**
 	 * Checks whether there is already an existing QueueRecord for sending this msg
 	 * with a lower trigger time than this QueueRecord. If there is, we will push the
@@ -576,15 +734,18 @@ public class BackgroundService extends WakefulIntentService  implements ICacheWo
 			// Check whether this matching record has a trigger time earlier than the current QueueRecord
 			if (match.getTriggerTime() < q.getTriggerTime())
 			{
-				// Push the trigger time of the current QueueRecord further into the future				
-				if (match.getRecordCount() == 0) // If the QueueRecord with the earlier trigger time is the first QueueRecord for attempting to send this message
+				// Push the trigger time of the current QueueRecord further into the future, by the TTL used for the matching record's attempt
+				TimeToLiveOptimizer.SendSchedule schedule = new TimeToLiveOptimizer.SendSchedule(FIRST_ATTEMPT_TTL, SUBSEQUENT_ATTEMPTS_TTL);
+				try
 				{
-					q.setTriggerTime(match.getTriggerTime() + FIRST_ATTEMPT_TTL);
+					schedule = getSendSchedule(MessageProvider.get(getApplicationContext()).searchForSingleRecord(q.getObject0Id()));
 				}
-				else // If the QueueRecord with the earlier trigger time is not the first QueueRecord for attempting to send this message
+				catch (RuntimeException e)
 				{
-					q.setTriggerTime(match.getTriggerTime() + SUBSEQUENT_ATTEMPTS_TTL);
+					Log.e(TAG, "While running BackgroundService.checkAndAdjustQueueRecords(), the attempt to retrieve the Message object from the database failed. "
+							+ "The default TTL values will be used. The exception message was:\n" + e.getMessage());
 				}
+				q.setTriggerTime(match.getTriggerTime() + schedule.getTimeToLive(match.getRecordCount()));
 				
 				long timeTillTriggerTime =  q.getTriggerTime() - (System.currentTimeMillis() / 1000);
 				Log.i(TAG, "Updating the trigger time of a QueueRecord for a " + q.getTask() + " task because there is another QueueRecord for sending the same "
@@ -699,6 +860,30 @@ public class BackgroundService extends WakefulIntentService  implements ICacheWo
 		}
 	}
 	
+	/**
+	 * Adds a new ack to the ack pool if the pool is not full and the device is 
+	 * in a suitable state. See AckPool.fill(). 
+	 * 
+	 * @param idle - A boolean indicating whether there were no queued tasks to process
+	 */
+	private void runFillAckPoolTask(boolean idle)
+	{
+		if (DO_POW == false)
+		{
+			return;
+		}
+		
+		try
+		{
+			new AckPool().fill(idle);
+		}
+		catch (Exception e)
+		{
+			Log.e(TAG, "Exception occurred in BackgroundService.runFillAckPoolTask(). The exception message was:\n"
+					+ e.getMessage());
+		}
+	}
+	
 	/**
 	 * This method runs the 'check for messages and send acks' task, via
 	 * the TaskController. <br><br>
@@ -750,7 +935,7 @@ public class BackgroundService extends WakefulIntentService  implements ICacheWo
 			
 			// Attempt to complete the task
 			TaskController taskController = new TaskController();
-			taskController.checkIfPubkeyDisseminationIsDue(DO_POW);
+			taskController.checkIfPubkeyDisseminationIsDue(decidePubkeyPOWPlacement(null));
 		}
 		else
 		{
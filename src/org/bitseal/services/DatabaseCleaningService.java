@@ -1,5 +1,7 @@
 package org.bitseal.services;
 
+import org.bitseal.database.POWNonceProvider;
+import org.bitseal.database.POWProgressProvider;
 import org.bitseal.database.PayloadProvider;
 
 import android.app.IntentService;
@@ -18,6 +20,10 @@ public class DatabaseCleaningService extends IntentService
 	/** This is the maximum age of an object (in seconds) that PyBitmessage will accept. */
 	private static final int PYBITMESSAGE_NEW_OBJECT_ACCEPTANCE_PERIOD = 216000;
 	
+	/** The maximum time (in seconds) that an object's expiration time can be in the future: 28 days and 3 hours. 
+	 * Any POW progress which has not been updated for longer than this can never be resumed. */
+	private static final int MAX_TIME_TILL_EXPIRATION = 2430000;
+	
 	public static final String TAG = "DATABASE_CLEANING_SERVICE";
 	
 	public DatabaseCleaningService()
@@ -52,6 +58,15 @@ public class DatabaseCleaningService extends IntentService
 			PayloadProvider payProv = PayloadProvider.get(getApplicationContext());
 			payProv.deletePayloadsCreatedBefore(deletionTime);
 			
+			// Delete any records of POW progress which are too old to ever be resumed
+			long powProgressDeletionTime = currentTime - MAX_TIME_TILL_EXPIRATION;
+			Log.i(TAG, "Deleting any POWProgress records with a time value earlier than " + powProgressDeletionTime + " from the database");
+			POWProgressProvider.get(getApplicationContext()).deletePOWProgressRecordedBefore(powProgressDeletionTime);
+			
+			// Delete any cached POW nonces for payloads which have expired
+			Log.i(TAG, "Deleting any POWNonce records with an expiration time earlier than " + currentTime + " from the database");
+			POWNonceProvider.get(getApplicationContext()).deletePOWNoncesExpiredBefore(currentTime);
+			
 			// Update the 'last data clean time'
 			SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(getApplicationContext());
 			SharedPreferences.Editor editor = prefs.edit();
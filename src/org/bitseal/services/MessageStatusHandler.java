@@ -1,8 +1,12 @@
 package org.bitseal.services;
 
+import org.bitseal.R;
 import org.bitseal.core.App;
 import org.bitseal.data.Message;
 import org.bitseal.database.MessageProvider;
+import org.bitseal.pow.POWTelemetry;
+import org.bitseal.pow.POWTelemetryListener;
+import org.bitseal.util.TimeUtils;
 
 import android.content.Intent;
 
@@ -32,4 +36,47 @@ public class MessageStatusHandler
 		Intent intent = new Intent(UI_NOTIFICATION);
 		App.getContext().sendBroadcast(intent);
 	}
+	
+	/**
+	 * Creates a POWTelemetryListener which updates the status of the given Message 
+	 * with the progress of a POW calculation as it runs.
+	 * 
+	 * @param message - The Message object to update the status of
+	 * @param status - The status String describing the POW being done
+	 * 
+	 * @return A POWTelemetryListener for the given Message
+	 */
+	public static POWTelemetryListener createPOWStatusListener(final Message message, final String status)
+	{
+		return new POWTelemetryListener()
+		{
+			@Override
+			public void powProgressUpdated(POWTelemetry telemetry)
+			{
+				updateMessageStatus(message, getPOWStatus(status, telemetry));
+			}
+		};
+	}
+	
+	/**
+	 * Appends the progress of a POW calculation to a status String.
+	 * 
+	 * @param status - The status String describing the POW being done
+	 * @param telemetry - The latest POWTelemetry of the calculation
+	 * 
+	 * @return The status String, including the progress of the calculation
+	 */
+	private static String getPOWStatus(String status, POWTelemetry telemetry)
+	{
+		long timeRemaining = telemetry.getEstimatedTimeRemaining();
+		if (timeRemaining < 0)
+		{
+			return App.getContext().getString(R.string.message_status_pow_progress, status, telemetry.getPercentageOfExpectedTrials());
+		}
+		else
+		{
+			return App.getContext().getString(R.string.message_status_pow_progress_time_remaining, status, telemetry.getPercentageOfExpectedTrials(), 
+					TimeUtils.getTimeMessage(timeRemaining));
+		}
+	}
 }
\ No newline at end of file
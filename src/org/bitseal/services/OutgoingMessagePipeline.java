@@ -0,0 +1,99 @@
+package org.bitseal.services;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.bitseal.core.App;
+import org.bitseal.data.QueueRecord;
+import org.bitseal.database.QueueRecordProvider;
+
+import android.util.Log;
+
+/**
+ * Runs the tasks for sending several queued messages at the same time.<br><br>
+ * 
+ * Sending a message involves work which does not need the CPU, such as database 
+ * access and network requests, as well as two rounds of proof of work. Running up 
+ * to PIPELINE_DEPTH send tasks at once lets one message be encrypted and sent while 
+ * the proof of work for another is being done. The proof of work jobs of all the 
+ * messages in the pipeline share the CPU cores in turn through the POWExecutor.
+ * 
+ * @author Jonathan Coe
+ */
+public class OutgoingMessagePipeline
+{
+	/** The maximum number of send tasks to run at once */
+	private static final int PIPELINE_DEPTH = 2;
+	
+	private final ExecutorService pipelineExecutor;
+	
+	private final ArrayList<Future<?>> pendingTasks = new ArrayList<Future<?>>();
+	
+	private static final String TAG = "OUTGOING_MESSAGE_PIPELINE";
+	
+	public OutgoingMessagePipeline()
+	{
+		pipelineExecutor = Executors.newFixedThreadPool(PIPELINE_DEPTH);
+	}
+	
+	/**
+	 * Adds a send task to the pipeline. If the task throws an exception, the 
+	 * QueueRecord for the task is deleted, in the same way as for the tasks 
+	 * run directly by the BackgroundService.
+	 * 
+	 * @param queueRecord - The QueueRecord for the task
+	 * @param task - A Runnable which carries out the task
+	 */
+	public void submit(final QueueRecord queueRecord, final Runnable task)
+	{
+		pendingTasks.add(pipelineExecutor.submit(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					task.run();
+				}
+				catch (Exception e)
+				{
+					Log.e(TAG, "Exception occurred while running the task for the QueueRecord with ID " + queueRecord.getId() 
+							+ " in OutgoingMessagePipeline. The exception message was:\n" + e.getMessage());
+					
+					// Delete this QueueRecord from the database
+					QueueRecordProvider.get(App.getContext()).deleteQueueRecord(queueRecord);
+				}
+			}
+		}));
+	}
+	
+	/**
+	 * Waits for all the tasks in the pipeline to be completed, then shuts the pipeline down. 
+	 * No more tasks can be submitted after this method has been called. 
+	 */
+	public void awaitCompletion()
+	{
+		pipelineExecutor.shutdown();
+		try
+		{
+			for (Future<?> f : pendingTasks)
+			{
+				f.get();
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Log.e(TAG, "InterruptedException occurred while waiting for the tasks in OutgoingMessagePipeline to be completed");
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException e)
+		{
+			Log.e(TAG, "ExecutionException occurred while waiting for the tasks in OutgoingMessagePipeline to be completed. The exception message was:\n" 
+					+ e.getMessage());
+		}
+		pendingTasks.clear();
+	}
+}
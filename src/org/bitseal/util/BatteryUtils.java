@@ -0,0 +1,79 @@
+package org.bitseal.util;
+
+import org.bitseal.core.App;
+
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+
+/**
+ * A class which provides various methods for checking the state of
+ * the device's battery.
+ * 
+ * @author Jonathan Coe
+ */
+public final class BatteryUtils
+{
+	private BatteryUtils()
+	{
+    	// The constructor of this class is private in order to prevent the class being instantiated
+	}
+	
+	/**
+	 * Returns true if the device is connected to a power source and its 
+	 * battery is charging or full.
+	 */
+	public static boolean isCharging()
+	{
+		Intent batteryStatus = getBatteryStatus();
+		if (batteryStatus == null)
+		{
+			return false;
+		}
+		int status = batteryStatus.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+		return status == BatteryManager.BATTERY_STATUS_CHARGING || status == BatteryManager.BATTERY_STATUS_FULL;
+	}
+	
+	/**
+	 * Returns the current charge level of the battery as a percentage, 
+	 * or -1 if it cannot be determined.
+	 */
+	public static int getBatteryLevel()
+	{
+		Intent batteryStatus = getBatteryStatus();
+		if (batteryStatus == null)
+		{
+			return -1;
+		}
+		int level = batteryStatus.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+		int scale = batteryStatus.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+		if (level < 0 || scale <= 0)
+		{
+			return -1;
+		}
+		return (level * 100) / scale;
+	}
+	
+	/**
+	 * Returns the current temperature of the battery in degrees Celsius, 
+	 * or Integer.MIN_VALUE if it cannot be determined.
+	 */
+	public static int getBatteryTemperature()
+	{
+		Intent batteryStatus = getBatteryStatus();
+		if (batteryStatus == null || batteryStatus.hasExtra(BatteryManager.EXTRA_TEMPERATURE) == false)
+		{
+			return Integer.MIN_VALUE;
+		}
+		return batteryStatus.getIntExtra(BatteryManager.EXTRA_TEMPERATURE, 0) / 10; // The temperature is given in tenths of a degree
+	}
+	
+	/**
+	 * Returns the most recent battery status Intent broadcast by the system. ACTION_BATTERY_CHANGED 
+	 * is a sticky broadcast, so no receiver needs to be registered to read it. 
+	 */
+	private static Intent getBatteryStatus()
+	{
+		return App.getContext().registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+	}
+}
@@ -55,16 +55,30 @@ public final class ByteUtils
      * @return A long containing the equivalent signed value of the given bytes.
      */
     public static long bytesToLong(byte[] bytes)
+    {		
+		return bytesToLong(bytes, 0);
+    }
+    
+    /**
+     * Reads 8 unsigned bytes in big-endian order from a given position in a byte[] 
+     * and converts them to a long, without copying them out of the array first. 
+     * 
+     * @param bytes - A byte[] containing the bytes to convert.
+     * @param start - The position in the byte[] of the first byte to convert.
+     * 
+     * @return A long containing the equivalent signed value of the given bytes.
+     */
+    public static long bytesToLong(byte[] bytes, int start)
     {		
 		long l = 0;
-		l |= (bytes[0] & 0xFFL) << 56;
-		l |= (bytes[1] & 0xFFL) << 48;
-		l |= (bytes[2] & 0xFFL) << 40;
-		l |= (bytes[3] & 0xFFL) << 32;
-		l |= (bytes[4] & 0xFFL) << 24;
-		l |= (bytes[5] & 0xFFL) << 16;
-		l |= (bytes[6] & 0xFFL) << 8;
-		l |= (bytes[7] & 0xFFL);
+		l |= (bytes[start] & 0xFFL) << 56;
+		l |= (bytes[start + 1] & 0xFFL) << 48;
+		l |= (bytes[start + 2] & 0xFFL) << 40;
+		l |= (bytes[start + 3] & 0xFFL) << 32;
+		l |= (bytes[start + 4] & 0xFFL) << 24;
+		l |= (bytes[start + 5] & 0xFFL) << 16;
+		l |= (bytes[start + 6] & 0xFFL) << 8;
+		l |= (bytes[start + 7] & 0xFFL);
 		return l;
     }
     